@@ -721,6 +721,69 @@ public class Arrays {
                  MIN_ARRAY_SORT_GRAN : g).invoke();
     }
 
+    /**
+     * Sorts the specified array into ascending numerical order, using a
+     * bounded amount of extra memory.
+     *
+     * <p>This method sorts the same way as {@link #parallelSort(int[])}, but
+     * where that method requires a working array as long as the array to be
+     * sorted, this one works mostly in place, which makes it suitable for
+     * arrays that occupy a large part of the heap.
+     *
+     * @implNote The sorting algorithm is a parallel MSD radix sort.  The
+     * array is partitioned in place into buckets by the most significant byte
+     * of its elements' numerical order, and the buckets are sorted in
+     * parallel, recursively partitioning those that are longer than a
+     * minimum granularity.  Shorter buckets are sorted with LSD radix sort,
+     * using a working buffer of at most a few million elements for each
+     * worker thread, or with Quicksort if they are short.  The
+     * {@link ForkJoinPool#commonPool() ForkJoin common pool} is used to
+     * execute any parallel tasks.
+     *
+     * @param a the array to be sorted
+     *
+     * @since 1.8
+     */
+    public static void parallelSortInPlace(int[] a) {
+        parallelSortInPlace(a, 0, a.length);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order,
+     * using a bounded amount of extra memory.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This method sorts the same way as
+     * {@link #parallelSort(int[], int, int)}, but works mostly in place.
+     *
+     * @implNote The algorithm is described in {@link #parallelSortInPlace(int[])}.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     *
+     * @since 1.8
+     */
+    public static void parallelSortInPlace(int[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p, g;
+        if (n <= MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            DualPivotQuicksort.sortInPlace(a, fromIndex, toIndex - 1);
+        else {
+            new ArraysParallelSortHelpers.FJInt.RadixSorter
+                (null, a, fromIndex, n, 24,
+                 ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g).invoke();
+        }
+    }
+
     /**
      * Sorts the specified array into ascending numerical order.
      *
@@ -791,6 +854,69 @@ public class Arrays {
                  MIN_ARRAY_SORT_GRAN : g).invoke();
     }
 
+    /**
+     * Sorts the specified array into ascending numerical order, using a
+     * bounded amount of extra memory.
+     *
+     * <p>This method sorts the same way as {@link #parallelSort(long[])}, but
+     * where that method requires a working array as long as the array to be
+     * sorted, this one works mostly in place, which makes it suitable for
+     * arrays that occupy a large part of the heap.
+     *
+     * @implNote The sorting algorithm is a parallel MSD radix sort.  The
+     * array is partitioned in place into buckets by the most significant byte
+     * of its elements' numerical order, and the buckets are sorted in
+     * parallel, recursively partitioning those that are longer than a
+     * minimum granularity.  Shorter buckets are sorted with LSD radix sort,
+     * using a working buffer of at most a few million elements for each
+     * worker thread, or with Quicksort if they are short.  The
+     * {@link ForkJoinPool#commonPool() ForkJoin common pool} is used to
+     * execute any parallel tasks.
+     *
+     * @param a the array to be sorted
+     *
+     * @since 1.8
+     */
+    public static void parallelSortInPlace(long[] a) {
+        parallelSortInPlace(a, 0, a.length);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order,
+     * using a bounded amount of extra memory.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This method sorts the same way as
+     * {@link #parallelSort(long[], int, int)}, but works mostly in place.
+     *
+     * @implNote The algorithm is described in {@link #parallelSortInPlace(long[])}.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     *
+     * @since 1.8
+     */
+    public static void parallelSortInPlace(long[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p, g;
+        if (n <= MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            DualPivotQuicksort.sortInPlace(a, fromIndex, toIndex - 1);
+        else {
+            new ArraysParallelSortHelpers.FJLong.RadixSorter
+                (null, a, fromIndex, n, 56,
+                 ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g).invoke();
+        }
+    }
+
     /**
      * Sorts the specified array into ascending numerical order.
      *
@@ -877,6 +1003,85 @@ public class Arrays {
                  MIN_ARRAY_SORT_GRAN : g).invoke();
     }
 
+    /**
+     * Sorts the specified array into ascending numerical order, using a
+     * bounded amount of extra memory.
+     *
+     * <p>The {@code <} relation does not provide a total order on all float
+     * values: {@code -0.0f == 0.0f} is {@code true} and a {@code Float.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself.  As in {@link #sort(float[])}, {@code -0.0f} is treated as
+     * less than {@code 0.0f} and {@code Float.NaN} is considered greater
+     * than any other value, with all {@code Float.NaN} values equal.
+     *
+     * <p>This method sorts the same way as {@link #parallelSort(float[])}, but
+     * where that method requires a working array as long as the array to be
+     * sorted, this one works mostly in place, which makes it suitable for
+     * arrays that occupy a large part of the heap.
+     *
+     * @implNote The sorting algorithm is a parallel MSD radix sort.  The
+     * array is partitioned in place into buckets by the most significant byte
+     * of its elements' numerical order, and the buckets are sorted in
+     * parallel, recursively partitioning those that are longer than a
+     * minimum granularity.  Shorter buckets are sorted with LSD radix sort,
+     * using a working buffer of at most a few million elements for each
+     * worker thread, or with Quicksort if they are short.  The
+     * {@link ForkJoinPool#commonPool() ForkJoin common pool} is used to
+     * execute any parallel tasks.
+     *
+     * @param a the array to be sorted
+     *
+     * @since 1.8
+     */
+    public static void parallelSortInPlace(float[] a) {
+        parallelSortInPlace(a, 0, a.length);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order,
+     * using a bounded amount of extra memory.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>The {@code <} relation does not provide a total order on all float
+     * values: {@code -0.0f == 0.0f} is {@code true} and a {@code Float.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself.  As in {@link #sort(float[])}, {@code -0.0f} is treated as
+     * less than {@code 0.0f} and {@code Float.NaN} is considered greater
+     * than any other value, with all {@code Float.NaN} values equal.
+     *
+     * <p>This method sorts the same way as
+     * {@link #parallelSort(float[], int, int)}, but works mostly in place.
+     *
+     * @implNote The algorithm is described in {@link #parallelSortInPlace(float[])}.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     *
+     * @since 1.8
+     */
+    public static void parallelSortInPlace(float[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p, g;
+        if (n <= MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            DualPivotQuicksort.sortInPlace(a, fromIndex, toIndex - 1);
+        else {
+            // Radix sort requires NaNs to be moved out of the way first
+            n = DualPivotQuicksort.moveNaNsToEnd(a, fromIndex, toIndex - 1) + 1 - fromIndex;
+            new ArraysParallelSortHelpers.FJFloat.RadixSorter
+                (null, a, fromIndex, n, 24,
+                 ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g).invoke();
+        }
+    }
+
     /**
      * Sorts the specified array into ascending numerical order.
      *
@@ -963,6 +1168,85 @@ public class Arrays {
                  MIN_ARRAY_SORT_GRAN : g).invoke();
     }
 
+    /**
+     * Sorts the specified array into ascending numerical order, using a
+     * bounded amount of extra memory.
+     *
+     * <p>The {@code <} relation does not provide a total order on all double
+     * values: {@code -0.0d == 0.0d} is {@code true} and a {@code Double.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself.  As in {@link #sort(double[])}, {@code -0.0d} is treated
+     * as less than {@code 0.0d} and {@code Double.NaN} is considered greater
+     * than any other value, with all {@code Double.NaN} values equal.
+     *
+     * <p>This method sorts the same way as {@link #parallelSort(double[])}, but
+     * where that method requires a working array as long as the array to be
+     * sorted, this one works mostly in place, which makes it suitable for
+     * arrays that occupy a large part of the heap.
+     *
+     * @implNote The sorting algorithm is a parallel MSD radix sort.  The
+     * array is partitioned in place into buckets by the most significant byte
+     * of its elements' numerical order, and the buckets are sorted in
+     * parallel, recursively partitioning those that are longer than a
+     * minimum granularity.  Shorter buckets are sorted with LSD radix sort,
+     * using a working buffer of at most a few million elements for each
+     * worker thread, or with Quicksort if they are short.  The
+     * {@link ForkJoinPool#commonPool() ForkJoin common pool} is used to
+     * execute any parallel tasks.
+     *
+     * @param a the array to be sorted
+     *
+     * @since 1.8
+     */
+    public static void parallelSortInPlace(double[] a) {
+        parallelSortInPlace(a, 0, a.length);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order,
+     * using a bounded amount of extra memory.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>The {@code <} relation does not provide a total order on all double
+     * values: {@code -0.0d == 0.0d} is {@code true} and a {@code Double.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself.  As in {@link #sort(double[])}, {@code -0.0d} is treated
+     * as less than {@code 0.0d} and {@code Double.NaN} is considered greater
+     * than any other value, with all {@code Double.NaN} values equal.
+     *
+     * <p>This method sorts the same way as
+     * {@link #parallelSort(double[], int, int)}, but works mostly in place.
+     *
+     * @implNote The algorithm is described in {@link #parallelSortInPlace(double[])}.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     *
+     * @since 1.8
+     */
+    public static void parallelSortInPlace(double[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p, g;
+        if (n <= MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            DualPivotQuicksort.sortInPlace(a, fromIndex, toIndex - 1);
+        else {
+            // Radix sort requires NaNs to be moved out of the way first
+            n = DualPivotQuicksort.moveNaNsToEnd(a, fromIndex, toIndex - 1) + 1 - fromIndex;
+            new ArraysParallelSortHelpers.FJDouble.RadixSorter
+                (null, a, fromIndex, n, 56,
+                 ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g).invoke();
+        }
+    }
+
     /**
      * Sorts the specified array of objects into ascending order, according
      * to the {@linkplain Comparable natural ordering} of its elements.
@@ -672,6 +672,44 @@ import java.util.concurrent.CountedCompleter;
                 tryComplete();
             }
         }
+
+        /**
+         * Sorts a range in place by MSD radix sort: the range is
+         * partitioned on one byte of the keys of its elements, and a task
+         * is forked for each bucket.  Ranges no longer than the
+         * granularity are sorted by DualPivotQuicksort.sortInPlace, so
+         * extra memory is bounded by one radix buffer per worker.
+         */
+        static final class RadixSorter extends CountedCompleter<Void> {
+            static final long serialVersionUID = 398945938642050647L;
+            final int[] a;
+            final int base, size, shift, gran;
+            RadixSorter(CountedCompleter<?> par, int[] a, int base, int size,
+                        int shift, int gran) {
+                super(par);
+                this.a = a; this.base = base; this.size = size;
+                this.shift = shift; this.gran = gran;
+            }
+            public final void compute() {
+                int[] a = this.a;
+                int b = this.base, n = this.size, sh = this.shift, g = this.gran;
+                if (n <= g)
+                    DualPivotQuicksort.sortInPlace(a, b, b + n - 1);
+                else {
+                    int[] end = DualPivotQuicksort.partitionByByte(a, b, b + n - 1, sh);
+                    if (sh > 0) { // else all elements of each bucket are equal
+                        for (int d = 0, lo = b; d < 256; lo = end[d++]) {
+                            int m = end[d] - lo;
+                            if (m > 1) {
+                                addToPendingCount(1);
+                                new RadixSorter(this, a, lo, m, sh - 8, g).fork();
+                            }
+                        }
+                    }
+                }
+                tryComplete();
+            }
+        }
     } // FJInt
 
     /** long support class */
@@ -783,6 +821,44 @@ import java.util.concurrent.CountedCompleter;
                 tryComplete();
             }
         }
+
+        /**
+         * Sorts a range in place by MSD radix sort: the range is
+         * partitioned on one byte of the keys of its elements, and a task
+         * is forked for each bucket.  Ranges no longer than the
+         * granularity are sorted by DualPivotQuicksort.sortInPlace, so
+         * extra memory is bounded by one radix buffer per worker.
+         */
+        static final class RadixSorter extends CountedCompleter<Void> {
+            static final long serialVersionUID = 8258708663123833670L;
+            final long[] a;
+            final int base, size, shift, gran;
+            RadixSorter(CountedCompleter<?> par, long[] a, int base, int size,
+                        int shift, int gran) {
+                super(par);
+                this.a = a; this.base = base; this.size = size;
+                this.shift = shift; this.gran = gran;
+            }
+            public final void compute() {
+                long[] a = this.a;
+                int b = this.base, n = this.size, sh = this.shift, g = this.gran;
+                if (n <= g)
+                    DualPivotQuicksort.sortInPlace(a, b, b + n - 1);
+                else {
+                    int[] end = DualPivotQuicksort.partitionByByte(a, b, b + n - 1, sh);
+                    if (sh > 0) { // else all elements of each bucket are equal
+                        for (int d = 0, lo = b; d < 256; lo = end[d++]) {
+                            int m = end[d] - lo;
+                            if (m > 1) {
+                                addToPendingCount(1);
+                                new RadixSorter(this, a, lo, m, sh - 8, g).fork();
+                            }
+                        }
+                    }
+                }
+                tryComplete();
+            }
+        }
     } // FJLong
 
     /** float support class */
@@ -894,6 +970,44 @@ import java.util.concurrent.CountedCompleter;
                 tryComplete();
             }
         }
+
+        /**
+         * Sorts a range in place by MSD radix sort: the range is
+         * partitioned on one byte of the keys of its elements, and a task
+         * is forked for each bucket.  Ranges no longer than the
+         * granularity are sorted by DualPivotQuicksort.sortInPlace, so
+         * extra memory is bounded by one radix buffer per worker.
+         */
+        static final class RadixSorter extends CountedCompleter<Void> {
+            static final long serialVersionUID = 1113154408943535407L;
+            final float[] a;
+            final int base, size, shift, gran;
+            RadixSorter(CountedCompleter<?> par, float[] a, int base, int size,
+                        int shift, int gran) {
+                super(par);
+                this.a = a; this.base = base; this.size = size;
+                this.shift = shift; this.gran = gran;
+            }
+            public final void compute() {
+                float[] a = this.a;
+                int b = this.base, n = this.size, sh = this.shift, g = this.gran;
+                if (n <= g)
+                    DualPivotQuicksort.sortInPlace(a, b, b + n - 1);
+                else {
+                    int[] end = DualPivotQuicksort.partitionByByte(a, b, b + n - 1, sh);
+                    if (sh > 0) { // else all elements of each bucket are equal
+                        for (int d = 0, lo = b; d < 256; lo = end[d++]) {
+                            int m = end[d] - lo;
+                            if (m > 1) {
+                                addToPendingCount(1);
+                                new RadixSorter(this, a, lo, m, sh - 8, g).fork();
+                            }
+                        }
+                    }
+                }
+                tryComplete();
+            }
+        }
     } // FJFloat
 
     /** double support class */
@@ -1005,6 +1119,44 @@ import java.util.concurrent.CountedCompleter;
                 tryComplete();
             }
         }
+
+        /**
+         * Sorts a range in place by MSD radix sort: the range is
+         * partitioned on one byte of the keys of its elements, and a task
+         * is forked for each bucket.  Ranges no longer than the
+         * granularity are sorted by DualPivotQuicksort.sortInPlace, so
+         * extra memory is bounded by one radix buffer per worker.
+         */
+        static final class RadixSorter extends CountedCompleter<Void> {
+            static final long serialVersionUID = 1840038019859553984L;
+            final double[] a;
+            final int base, size, shift, gran;
+            RadixSorter(CountedCompleter<?> par, double[] a, int base, int size,
+                        int shift, int gran) {
+                super(par);
+                this.a = a; this.base = base; this.size = size;
+                this.shift = shift; this.gran = gran;
+            }
+            public final void compute() {
+                double[] a = this.a;
+                int b = this.base, n = this.size, sh = this.shift, g = this.gran;
+                if (n <= g)
+                    DualPivotQuicksort.sortInPlace(a, b, b + n - 1);
+                else {
+                    int[] end = DualPivotQuicksort.partitionByByte(a, b, b + n - 1, sh);
+                    if (sh > 0) { // else all elements of each bucket are equal
+                        for (int d = 0, lo = b; d < 256; lo = end[d++]) {
+                            int m = end[d] - lo;
+                            if (m > 1) {
+                                addToPendingCount(1);
+                                new RadixSorter(this, a, lo, m, sh - 8, g).fork();
+                            }
+                        }
+                    }
+                }
+                tryComplete();
+            }
+        }
     } // FJDouble
 
 }
@@ -0,0 +1,2011 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * A {@link NavigableMap} implementation based on an in-memory B+-tree.
+ * The map is sorted according to the {@linkplain Comparable natural
+ * ordering} of its keys, or by a {@link Comparator} provided at map
+ * creation time, depending on which constructor is used, exactly as
+ * for {@link TreeMap}, and it provides the same views, with the same
+ * semantics.
+ *
+ * <p>Unlike {@code TreeMap}, which allocates a node per mapping, this
+ * class keeps keys and values in arrays held by wide nodes: up to
+ * {@value #LEAF_CAPACITY} mappings per leaf, and up to
+ * {@value #INNER_CAPACITY} children per internal node.  The leaves
+ * are linked in key order, so range scans and iteration read
+ * mappings sequentially rather than chasing a pointer per mapping,
+ * and the tree is very shallow: four levels of internal nodes cover
+ * over a billion mappings.  Searches, insertions and removals take
+ * logarithmic time, with far fewer cache misses than in a binary
+ * tree, at the cost of moving some array elements on each insertion
+ * and removal.  Per-mapping memory overhead is also much lower.
+ * Insertions in ascending key order, as in time series, fill leaves
+ * completely.
+ *
+ * <p>A map constructed from a {@link SortedMap}, or populated by
+ * {@link #putAll putAll} from a {@code SortedMap} with the same
+ * ordering while empty, is <em>bulk loaded</em> in linear time,
+ * without comparisons.
+ *
+ * <p>As with {@code TreeMap}, the ordering must be consistent with
+ * {@code equals} if this sorted map is to correctly implement the
+ * {@code Map} interface.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a map concurrently, and at least one of the
+ * threads modifies the map structurally, it <em>must</em> be synchronized
+ * externally.
+ *
+ * <p>The iterators returned by the {@code iterator} method of the
+ * collections returned by all of this class's "collection view methods"
+ * are <em>fail-fast</em>, as for {@code TreeMap}.  The entries returned
+ * by their {@code next} methods support {@code setValue}, which writes
+ * through to the map.  All {@code Map.Entry} pairs returned by
+ * methods in this class and its views other than iterators represent
+ * snapshots of mappings at the time they were produced, and do
+ * <strong>not</strong> support the {@code Entry.setValue} method.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see TreeMap
+ * @see BTreeSet
+ * @since 1.8
+ */
+public class BTreeMap<K,V>
+    extends AbstractMap<K,V>
+    implements NavigableMap<K,V>, Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = 3386154128409462913L;
+
+    /*
+     * The tree is a B+-tree of height "height" (zero if the root is a
+     * leaf).  All mappings are in the leaves, which are doubly
+     * linked in key order.  An internal node with n children holds
+     * n-1 separator keys: all keys under kids[j] are greater than or
+     * equal to keys[j-1] and less than keys[j].  Node arrays have
+     * room for one more element than the capacity, so that nodes can
+     * be split after an insertion rather than before.
+     *
+     * Nodes other than the root hold at least half their capacity,
+     * except that a leaf split by an insertion at the end of the last
+     * leaf keeps all but the new mapping, so that ascending
+     * insertions produce full leaves.  Removals that leave a node
+     * under half full borrow one element from a sibling, or else
+     * merge the node with a sibling, which works whatever the sizes
+     * of the nodes, so leaves are never empty except for a root
+     * leaf.  Removal does not need to update separators, which
+     * remain valid bounds.
+     *
+     * Inserting and removing walk down from the root recording the
+     * path in pathNodes and pathIndex, and then fix up splits or
+     * underflows on the way back up.
+     */
+
+    /** Maximum number of mappings in a leaf */
+    static final int LEAF_CAPACITY = 64;
+
+    /** Maximum number of children of an internal node */
+    static final int INNER_CAPACITY = 64;
+
+    static final int MIN_LEAF = LEAF_CAPACITY / 2;
+    static final int MIN_INNER = INNER_CAPACITY / 2;
+
+    // Relations for cursorNear, as in ConcurrentSkipListMap.findNear
+    static final int EQ = 1;
+    static final int LT = 2;
+    static final int GT = 0; // Actually checked as !LT
+
+    /**
+     * The comparator used to maintain order in this map, or
+     * null if it uses the natural ordering of its keys.
+     *
+     * @serial
+     */
+    private final Comparator<? super K> comparator;
+
+    /** The root, a Leaf if height is zero, else an Inner */
+    private transient Object root = new Leaf<K,V>();
+
+    /** The number of levels of internal nodes */
+    private transient int height;
+
+    /**
+     * The number of entries in the tree
+     */
+    private transient int size = 0;
+
+    /**
+     * The number of structural modifications to the tree.
+     */
+    private transient int modCount = 0;
+
+    /** Scratch space for paths from the root */
+    private transient Inner[] pathNodes;
+    private transient int[] pathIndex;
+
+    /** A leaf: a sorted run of mappings */
+    static final class Leaf<K,V> {
+        final Object[] keys = new Object[LEAF_CAPACITY + 1];
+        final Object[] vals = new Object[LEAF_CAPACITY + 1];
+        int size;
+        Leaf<K,V> prev, next;
+    }
+
+    /** An internal node */
+    static final class Inner {
+        final Object[] keys = new Object[INNER_CAPACITY];
+        final Object[] kids = new Object[INNER_CAPACITY + 1];
+        int size; // number of children
+    }
+
+    /** A position in the leaves */
+    static final class Cursor<K,V> {
+        final Leaf<K,V> leaf;
+        final int index;
+        Cursor(Leaf<K,V> leaf, int index) {
+            this.leaf = leaf;
+            this.index = index;
+        }
+        @SuppressWarnings("unchecked")
+        K key() { return (K)leaf.keys[index]; }
+        @SuppressWarnings("unchecked")
+        V value() { return (V)leaf.vals[index]; }
+    }
+
+    /**
+     * Constructs a new, empty map, using the natural ordering of its
+     * keys.  All keys inserted into the map must implement the {@link
+     * Comparable} interface, and be <em>mutually comparable</em>, as
+     * for {@link TreeMap#TreeMap()}.
+     */
+    public BTreeMap() {
+        comparator = null;
+    }
+
+    /**
+     * Constructs a new, empty map, ordered according to the given
+     * comparator.
+     *
+     * @param comparator the comparator that will be used to order this map.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     */
+    public BTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Constructs a new map containing the same mappings as the given
+     * map, ordered according to the <em>natural ordering</em> of its keys.
+     * This method runs in n*log(n) time.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws ClassCastException if the keys in m are not {@link Comparable},
+     *         or are not mutually comparable
+     * @throws NullPointerException if the specified map is null
+     */
+    public BTreeMap(Map<? extends K, ? extends V> m) {
+        comparator = null;
+        putAll(m);
+    }
+
+    /**
+     * Constructs a new map containing the same mappings and
+     * using the same ordering as the specified sorted map.  This
+     * method runs in linear time.
+     *
+     * @param  m the sorted map whose mappings are to be placed in this map,
+     *         and whose comparator is to be used to sort this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public BTreeMap(SortedMap<K, ? extends V> m) {
+        comparator = m.comparator();
+        try {
+            buildFromSorted(m.size(), m.entrySet().iterator(), null, null);
+        } catch (java.io.IOException cannotHappen) {
+        } catch (ClassNotFoundException cannotHappen) {
+        }
+    }
+
+    // Query Operations
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the
+     *         specified key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public boolean containsKey(Object key) {
+        return leafSearch(findLeaf(key), key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * map size, but scans the leaves sequentially.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if a mapping to {@code value} exists;
+     *         {@code false} otherwise
+     */
+    public boolean containsValue(Object value) {
+        for (Leaf<K,V> l = firstLeaf(); l != null; l = l.next) {
+            Object[] vs = l.vals;
+            for (int i = 0, n = l.size; i < n; ++i) {
+                if (valEquals(value, vs[i]))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * <p>A return value of {@code null} does not <em>necessarily</em>
+     * indicate that the map contains no mapping for the key; it's also
+     * possible that the map explicitly maps the key to {@code null}.
+     * The {@link #containsKey containsKey} operation may be used to
+     * distinguish these two cases.
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Leaf<K,V> l = findLeaf(key);
+        int i = leafSearch(l, key);
+        return (i >= 0) ? (V)l.vals[i] : null;
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K firstKey() {
+        return key(firstCursor());
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K lastKey() {
+        return key(lastCursor());
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * These mappings replace any mappings that this map had for any
+     * of the keys currently in the specified map.  If this map is
+     * empty and the specified map is a {@link SortedMap} with the
+     * same ordering, the mappings are bulk loaded in linear time.
+     *
+     * @param  map mappings to be stored in this map
+     * @throws ClassCastException if the class of a key or value in
+     *         the specified map prevents it from being stored in this map
+     * @throws NullPointerException if the specified map is null or
+     *         the specified map contains a null key and this map does not
+     *         permit null keys
+     */
+    public void putAll(Map<? extends K, ? extends V> map) {
+        int mapSize = map.size();
+        if (size == 0 && mapSize != 0 && map instanceof SortedMap) {
+            Comparator<?> c = ((SortedMap<?,?>)map).comparator();
+            if (c == comparator || (c != null && c.equals(comparator))) {
+                try {
+                    buildFromSorted(mapSize, map.entrySet().iterator(),
+                                    null, null);
+                } catch (java.io.IOException cannotHappen) {
+                } catch (ClassNotFoundException cannotHappen) {
+                }
+                return;
+            }
+        }
+        super.putAll(map);
+    }
+
+    // Tree access
+
+    @SuppressWarnings("unchecked")
+    final int compare(Object k1, Object k2) {
+        return comparator==null ? ((Comparable<? super K>)k1).compareTo((K)k2)
+            : comparator.compare((K)k1, (K)k2);
+    }
+
+    static final boolean valEquals(Object o1, Object o2) {
+        return (o1==null ? o2==null : o1.equals(o2));
+    }
+
+    /**
+     * Returns the index of key in leaf l, or if absent, -(insertion
+     * point) - 1, as for Arrays.binarySearch.
+     */
+    @SuppressWarnings("unchecked")
+    final int leafSearch(Leaf<K,V> l, Object key) {
+        Object[] ks = l.keys;
+        int lo = 0, hi = l.size - 1;
+        Comparator<? super K> cpr = comparator;
+        if (cpr == null) {
+            Comparable<? super K> k = (Comparable<? super K>) key;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = k.compareTo((K)ks[mid]);
+                if (c > 0)
+                    lo = mid + 1;
+                else if (c < 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+        } else {
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = cpr.compare((K)key, (K)ks[mid]);
+                if (c > 0)
+                    lo = mid + 1;
+                else if (c < 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * Returns the index of the child of p that may hold key: the
+     * number of separators less than or equal to key.
+     */
+    @SuppressWarnings("unchecked")
+    final int childIndex(Inner p, Object key) {
+        Object[] ks = p.keys;
+        int lo = 0, hi = p.size - 2;
+        Comparator<? super K> cpr = comparator;
+        if (cpr == null) {
+            Comparable<? super K> k = (Comparable<? super K>) key;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (k.compareTo((K)ks[mid]) < 0)
+                    hi = mid - 1;
+                else
+                    lo = mid + 1;
+            }
+        } else {
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cpr.compare((K)key, (K)ks[mid]) < 0)
+                    hi = mid - 1;
+                else
+                    lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the leaf that holds key, if present.
+     */
+    @SuppressWarnings("unchecked")
+    final Leaf<K,V> findLeaf(Object key) {
+        if (key == null && comparator == null)
+            throw new NullPointerException();
+        Object n = root;
+        for (int d = height; d > 0; --d)
+            n = ((Inner)n).kids[childIndex((Inner)n, key)];
+        return (Leaf<K,V>)n;
+    }
+
+    /**
+     * Like findLeaf, but records the path in pathNodes and pathIndex.
+     */
+    @SuppressWarnings("unchecked")
+    private Leaf<K,V> findLeafRecordingPath(Object key) {
+        if (key == null && comparator == null)
+            throw new NullPointerException();
+        int h = height;
+        Inner[] path = pathNodes;
+        int[] index = pathIndex;
+        if (path == null || path.length < h) {
+            pathNodes = path = new Inner[h + 4];
+            pathIndex = index = new int[h + 4];
+        }
+        Object n = root;
+        for (int d = 0; d < h; ++d) {
+            Inner p = (Inner)n;
+            int c = childIndex(p, key);
+            path[d] = p;
+            index[d] = c;
+            n = p.kids[c];
+        }
+        return (Leaf<K,V>)n;
+    }
+
+    /** Releases the recorded path, so as not to retain detached nodes */
+    private void clearPath() {
+        Inner[] path = pathNodes;
+        for (int d = height - 1; d >= 0; --d)
+            path[d] = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    final Leaf<K,V> firstLeaf() {
+        Object n = root;
+        for (int d = height; d > 0; --d)
+            n = ((Inner)n).kids[0];
+        return (Leaf<K,V>)n;
+    }
+
+    @SuppressWarnings("unchecked")
+    final Leaf<K,V> lastLeaf() {
+        Object n = root;
+        for (int d = height; d > 0; --d) {
+            Inner p = (Inner)n;
+            n = p.kids[p.size - 1];
+        }
+        return (Leaf<K,V>)n;
+    }
+
+    final Cursor<K,V> firstCursor() {
+        Leaf<K,V> l = firstLeaf();
+        return (l.size == 0) ? null : new Cursor<K,V>(l, 0);
+    }
+
+    final Cursor<K,V> lastCursor() {
+        Leaf<K,V> l = lastLeaf();
+        return (l.size == 0) ? null : new Cursor<K,V>(l, l.size - 1);
+    }
+
+    /** Returns the position i of l, or the next one if i == l.size */
+    static <K,V> Cursor<K,V> cursorAt(Leaf<K,V> l, int i) {
+        if (i >= l.size) {
+            if ((l = l.next) == null)
+                return null;
+            i = 0;
+        }
+        return new Cursor<K,V>(l, i);
+    }
+
+    /** Returns the position before position i of l */
+    static <K,V> Cursor<K,V> cursorBefore(Leaf<K,V> l, int i) {
+        if (--i < 0) {
+            if ((l = l.prev) == null)
+                return null;
+            i = l.size - 1;
+        }
+        return new Cursor<K,V>(l, i);
+    }
+
+    /**
+     * Returns the position of the mapping for the key nearest to the
+     * given key in the given relation (GT, GT|EQ, LT or LT|EQ), or
+     * null if there is none.
+     */
+    final Cursor<K,V> cursorNear(Object key, int rel) {
+        Leaf<K,V> l = findLeaf(key);
+        int i = leafSearch(l, key);
+        if (i >= 0) {
+            if ((rel & EQ) != 0)
+                return new Cursor<K,V>(l, i);
+            return ((rel & LT) != 0) ? cursorBefore(l, i) : cursorAt(l, i + 1);
+        }
+        i = -i - 1;
+        return ((rel & LT) != 0) ? cursorBefore(l, i) : cursorAt(l, i);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     *
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     *         (A {@code null} return can also indicate that the map
+     *         previously associated {@code null} with {@code key}.)
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (size == 0)
+            compare(key, key); // type (and possibly null) check
+        Leaf<K,V> l = findLeafRecordingPath(key);
+        int i = leafSearch(l, key);
+        if (i >= 0) {
+            clearPath();
+            V oldValue = (V)l.vals[i];
+            l.vals[i] = value;
+            return oldValue;
+        }
+        i = -i - 1;
+        modCount++;
+        size++;
+        leafInsert(l, i, key, value);
+        if (l.size > LEAF_CAPACITY)
+            split(l, i);
+        else
+            clearPath();
+        return null;
+    }
+
+    /**
+     * Splits an overfull leaf, in which a mapping was just inserted at
+     * index i, and then any overfull ancestors.
+     */
+    private void split(Leaf<K,V> l, int i) {
+        int n = l.size;
+        int m = (i == n - 1 && l.next == null) ? n - 1 : n >>> 1;
+        Leaf<K,V> r = new Leaf<K,V>();
+        System.arraycopy(l.keys, m, r.keys, 0, n - m);
+        System.arraycopy(l.vals, m, r.vals, 0, n - m);
+        Arrays.fill(l.keys, m, n, null);
+        Arrays.fill(l.vals, m, n, null);
+        l.size = m;
+        r.size = n - m;
+        if ((r.next = l.next) != null)
+            r.next.prev = r;
+        r.prev = l;
+        l.next = r;
+        Object sep = r.keys[0], right = r;
+        Inner[] path = pathNodes;
+        int[] index = pathIndex;
+        for (int d = height - 1; d >= 0; --d) {
+            Inner p = path[d];
+            path[d] = null;
+            int c = index[d], k = p.size;
+            System.arraycopy(p.keys, c, p.keys, c + 1, k - 1 - c);
+            System.arraycopy(p.kids, c + 1, p.kids, c + 2, k - 1 - c);
+            p.keys[c] = sep;
+            p.kids[c + 1] = right;
+            if ((p.size = ++k) <= INNER_CAPACITY) {
+                clearPath();
+                return;
+            }
+            int mk = k >>> 1;
+            Inner q = new Inner();
+            System.arraycopy(p.kids, mk, q.kids, 0, k - mk);
+            System.arraycopy(p.keys, mk, q.keys, 0, k - 1 - mk);
+            sep = p.keys[mk - 1];
+            Arrays.fill(p.kids, mk, k, null);
+            Arrays.fill(p.keys, mk - 1, k - 1, null);
+            p.size = mk;
+            q.size = k - mk;
+            right = q;
+        }
+        Inner nr = new Inner();
+        nr.kids[0] = root;
+        nr.kids[1] = right;
+        nr.keys[0] = sep;
+        nr.size = 2;
+        root = nr;
+        height++;
+    }
+
+    static void leafInsert(Leaf<?,?> l, int i, Object key, Object value) {
+        int n = l.size;
+        System.arraycopy(l.keys, i, l.keys, i + 1, n - i);
+        System.arraycopy(l.vals, i, l.vals, i + 1, n - i);
+        l.keys[i] = key;
+        l.vals[i] = value;
+        l.size = n + 1;
+    }
+
+    static void leafDelete(Leaf<?,?> l, int i) {
+        int n = l.size - 1;
+        System.arraycopy(l.keys, i + 1, l.keys, i, n - i);
+        System.arraycopy(l.vals, i + 1, l.vals, i, n - i);
+        l.keys[n] = null;
+        l.vals[n] = null;
+        l.size = n;
+    }
+
+    /**
+     * Removes the mapping for this key from this map if present.
+     *
+     * @param  key key for which mapping should be removed
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     *         (A {@code null} return can also indicate that the map
+     *         previously associated {@code null} with {@code key}.)
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        Leaf<K,V> l = findLeafRecordingPath(key);
+        int i = leafSearch(l, key);
+        if (i < 0) {
+            clearPath();
+            return null;
+        }
+        V oldValue = (V)l.vals[i];
+        modCount++;
+        size--;
+        leafDelete(l, i);
+        rebalance();
+        return oldValue;
+    }
+
+    /**
+     * Restores the minimum sizes of the nodes along the recorded
+     * path after a removal from its leaf.
+     */
+    private void rebalance() {
+        Inner[] path = pathNodes;
+        int[] index = pathIndex;
+        int h = height;
+        boolean underflow = true;
+        for (int d = h - 1; d >= 0; --d) {
+            Inner p = path[d];
+            path[d] = null;
+            if (underflow) {
+                int c = index[d];
+                if (d == h - 1)
+                    underflow = ((Leaf<?,?>)p.kids[c]).size < MIN_LEAF &&
+                        fixLeaf(p, c);
+                else
+                    underflow = ((Inner)p.kids[c]).size < MIN_INNER &&
+                        fixInner(p, c);
+            }
+        }
+        while (height > 0 && ((Inner)root).size == 1) {
+            root = ((Inner)root).kids[0];
+            height--;
+        }
+    }
+
+    /**
+     * Borrows a mapping from a sibling of underfull leaf p.kids[c], or
+     * merges it with a sibling.  Returns true if p lost a child.
+     */
+    @SuppressWarnings("unchecked")
+    private static <K,V> boolean fixLeaf(Inner p, int c) {
+        Leaf<K,V> l = (Leaf<K,V>)p.kids[c];
+        Leaf<K,V> left = (c > 0) ? (Leaf<K,V>)p.kids[c - 1] : null;
+        Leaf<K,V> right = (c < p.size - 1) ? (Leaf<K,V>)p.kids[c + 1] : null;
+        if (left != null && left.size > MIN_LEAF) {
+            int j = left.size - 1;
+            leafInsert(l, 0, left.keys[j], left.vals[j]);
+            left.keys[j] = left.vals[j] = null;
+            left.size = j;
+            p.keys[c - 1] = l.keys[0];
+            return false;
+        }
+        if (right != null && right.size > MIN_LEAF) {
+            leafInsert(l, l.size, right.keys[0], right.vals[0]);
+            leafDelete(right, 0);
+            p.keys[c] = right.keys[0];
+            return false;
+        }
+        if (left != null) {
+            mergeLeaves(left, l);
+            removeChild(p, c);
+        } else if (right != null) {
+            mergeLeaves(l, right);
+            removeChild(p, c + 1);
+        }
+        return true;
+    }
+
+    /** Appends the mappings of b to a, and unlinks b */
+    private static <K,V> void mergeLeaves(Leaf<K,V> a, Leaf<K,V> b) {
+        System.arraycopy(b.keys, 0, a.keys, a.size, b.size);
+        System.arraycopy(b.vals, 0, a.vals, a.size, b.size);
+        a.size += b.size;
+        if ((a.next = b.next) != null)
+            a.next.prev = a;
+        Arrays.fill(b.keys, 0, b.size, null); // disable stale IteratorEntry
+        Arrays.fill(b.vals, 0, b.size, null);
+        b.size = 0;
+    }
+
+    /**
+     * Borrows a child from a sibling of underfull internal node
+     * p.kids[c], or merges it with a sibling.  Returns true if p lost
+     * a child.
+     */
+    private static boolean fixInner(Inner p, int c) {
+        Inner n = (Inner)p.kids[c];
+        Inner left = (c > 0) ? (Inner)p.kids[c - 1] : null;
+        Inner right = (c < p.size - 1) ? (Inner)p.kids[c + 1] : null;
+        if (left != null && left.size > MIN_INNER) {
+            int k = n.size, j = left.size - 1;
+            System.arraycopy(n.kids, 0, n.kids, 1, k);
+            System.arraycopy(n.keys, 0, n.keys, 1, k - 1);
+            n.kids[0] = left.kids[j];
+            n.keys[0] = p.keys[c - 1];
+            n.size = k + 1;
+            p.keys[c - 1] = left.keys[j - 1];
+            left.kids[j] = null;
+            left.keys[j - 1] = null;
+            left.size = j;
+            return false;
+        }
+        if (right != null && right.size > MIN_INNER) {
+            int k = n.size, j = right.size - 1;
+            n.kids[k] = right.kids[0];
+            n.keys[k - 1] = p.keys[c];
+            n.size = k + 1;
+            p.keys[c] = right.keys[0];
+            System.arraycopy(right.kids, 1, right.kids, 0, j);
+            System.arraycopy(right.keys, 1, right.keys, 0, j - 1);
+            right.kids[j] = null;
+            right.keys[j - 1] = null;
+            right.size = j;
+            return false;
+        }
+        if (left != null) {
+            mergeInner(left, n, p.keys[c - 1]);
+            removeChild(p, c);
+        } else if (right != null) {
+            mergeInner(n, right, p.keys[c]);
+            removeChild(p, c + 1);
+        }
+        return true;
+    }
+
+    /** Appends the children of b to a, separated by sep */
+    private static void mergeInner(Inner a, Inner b, Object sep) {
+        int k = a.size;
+        a.keys[k - 1] = sep;
+        System.arraycopy(b.keys, 0, a.keys, k, b.size - 1);
+        System.arraycopy(b.kids, 0, a.kids, k, b.size);
+        a.size = k + b.size;
+    }
+
+    /** Removes child j > 0 of p, and the separator before it */
+    private static void removeChild(Inner p, int j) {
+        int k = p.size - 1;
+        System.arraycopy(p.kids, j + 1, p.kids, j, k - j);
+        System.arraycopy(p.keys, j, p.keys, j - 1, k - j);
+        p.kids[k] = null;
+        p.keys[k - 1] = null;
+        p.size = k;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        size = 0;
+        height = 0;
+        root = new Leaf<K,V>();
+    }
+
+    /**
+     * Returns a shallow copy of this {@code BTreeMap} instance. (The keys and
+     * values themselves are not cloned.)
+     *
+     * @return a shallow copy of this map
+     */
+    public Object clone() {
+        BTreeMap<?,?> clone;
+        try {
+            clone = (BTreeMap<?,?>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+
+        // Put clone into "virgin" state (except for comparator)
+        clone.root = new Leaf<Object,Object>();
+        clone.height = 0;
+        clone.size = 0;
+        clone.modCount = 0;
+        clone.pathNodes = null;
+        clone.pathIndex = null;
+        clone.entrySet = null;
+        clone.navigableKeySet = null;
+        clone.descendingMap = null;
+
+        // Initialize clone with our mappings
+        try {
+            clone.buildFromSorted(size, entrySet().iterator(), null, null);
+        } catch (java.io.IOException cannotHappen) {
+        } catch (ClassNotFoundException cannotHappen) {
+        }
+
+        return clone;
+    }
+
+    // NavigableMap API methods
+
+    /**
+     * Return SimpleImmutableEntry for the mapping at c, or null if null
+     */
+    static <K,V> Map.Entry<K,V> exportEntry(Cursor<K,V> c) {
+        return (c == null) ? null :
+            new AbstractMap.SimpleImmutableEntry<>(c.key(), c.value());
+    }
+
+    /**
+     * Return key for the mapping at c, or null if null
+     */
+    static <K,V> K keyOrNull(Cursor<K,V> c) {
+        return (c == null) ? null : c.key();
+    }
+
+    /**
+     * Returns the key for the mapping at c.
+     * @throws NoSuchElementException if c is null
+     */
+    static <K> K key(Cursor<K,?> c) {
+        if (c==null)
+            throw new NoSuchElementException();
+        return c.key();
+    }
+
+    public Map.Entry<K,V> firstEntry() {
+        return exportEntry(firstCursor());
+    }
+
+    public Map.Entry<K,V> lastEntry() {
+        return exportEntry(lastCursor());
+    }
+
+    public Map.Entry<K,V> pollFirstEntry() {
+        Cursor<K,V> c = firstCursor();
+        Map.Entry<K,V> result = exportEntry(c);
+        if (c != null)
+            remove(c.key());
+        return result;
+    }
+
+    public Map.Entry<K,V> pollLastEntry() {
+        Cursor<K,V> c = lastCursor();
+        Map.Entry<K,V> result = exportEntry(c);
+        if (c != null)
+            remove(c.key());
+        return result;
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return exportEntry(cursorNear(key, LT));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K lowerKey(K key) {
+        return keyOrNull(cursorNear(key, LT));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> floorEntry(K key) {
+        return exportEntry(cursorNear(key, LT|EQ));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K floorKey(K key) {
+        return keyOrNull(cursorNear(key, LT|EQ));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return exportEntry(cursorNear(key, GT|EQ));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K ceilingKey(K key) {
+        return keyOrNull(cursorNear(key, GT|EQ));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> higherEntry(K key) {
+        return exportEntry(cursorNear(key, GT));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K higherKey(K key) {
+        return keyOrNull(cursorNear(key, GT));
+    }
+
+    // Views
+
+    /**
+     * Fields initialized to contain an instance of the entry set view
+     * the first time this view is requested.  Views are stateless, so
+     * there's no reason to create more than one.
+     */
+    private transient EntrySet entrySet;
+    private transient KeySet<K> navigableKeySet;
+    private transient NavigableMap<K,V> descendingMap;
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map,
+     * as for {@link TreeMap#keySet}.
+     */
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        KeySet<K> nks = navigableKeySet;
+        return (nks != null) ? nks : (navigableKeySet = new KeySet<>(this));
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map, as for {@link TreeMap#values}.
+     */
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        return (vs != null) ? vs : (values = new Values(null));
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map,
+     * as for {@link TreeMap#entrySet}.
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySet es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySet());
+    }
+
+    public NavigableMap<K, V> descendingMap() {
+        NavigableMap<K, V> km = descendingMap;
+        return (km != null) ? km :
+            (descendingMap = new SubMap<>(this,
+                                          true, null, true,
+                                          true, null, true, true));
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                    K toKey,   boolean toInclusive) {
+        return new SubMap<>(this,
+                            false, fromKey, fromInclusive,
+                            false, toKey,   toInclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+        return new SubMap<>(this,
+                            true,  null,  true,
+                            false, toKey, inclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+        return new SubMap<>(this,
+                            false, fromKey, inclusive,
+                            true,  null,    true, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        int expectedModCount = modCount;
+        for (Leaf<K,V> l = firstLeaf(); l != null; l = l.next) {
+            Object[] ks = l.keys, vs = l.vals;
+            for (int i = 0, n = l.size; i < n; ++i) {
+                action.accept((K)ks[i], (V)vs[i]);
+                if (expectedModCount != modCount)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function);
+        int expectedModCount = modCount;
+        for (Leaf<K,V> l = firstLeaf(); l != null; l = l.next) {
+            Object[] ks = l.keys, vs = l.vals;
+            for (int i = 0, n = l.size; i < n; ++i) {
+                vs[i] = function.apply((K)ks[i], (V)vs[i]);
+                if (expectedModCount != modCount)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    // View class support
+
+    /** Values of this map, or of the given submap if non-null */
+    final class Values extends AbstractCollection<V> {
+        final SubMap<K,V> sub;
+        Values(SubMap<K,V> sub) { this.sub = sub; }
+
+        public Iterator<V> iterator() {
+            SubMap<K,V> m = sub;
+            return (m == null) ? new ValueIterator(firstCursor(), false, null) :
+                new ValueIterator(m.firstCursor(), m.isDescending, m);
+        }
+
+        public int size() {
+            return (sub == null) ? BTreeMap.this.size() : sub.size();
+        }
+
+        public boolean isEmpty() {
+            return (sub == null) ? BTreeMap.this.isEmpty() : sub.isEmpty();
+        }
+
+        public boolean contains(Object o) {
+            return (sub == null) ? BTreeMap.this.containsValue(o) :
+                super.contains(o);
+        }
+
+        public void clear() {
+            if (sub == null)
+                BTreeMap.this.clear();
+            else
+                sub.clear();
+        }
+    }
+
+    class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator(firstCursor(), false, null);
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+            Object key = entry.getKey();
+            Leaf<K,V> l = findLeaf(key);
+            int i = leafSearch(l, key);
+            return i >= 0 && valEquals(l.vals[i], entry.getValue());
+        }
+
+        public boolean remove(Object o) {
+            if (!contains(o))
+                return false;
+            BTreeMap.this.remove(((Map.Entry<?,?>) o).getKey());
+            return true;
+        }
+
+        public int size() {
+            return BTreeMap.this.size();
+        }
+
+        public void clear() {
+            BTreeMap.this.clear();
+        }
+    }
+
+    Iterator<K> keyIterator() {
+        return new KeyIterator(firstCursor(), false, null);
+    }
+
+    Iterator<K> descendingKeyIterator() {
+        return new KeyIterator(lastCursor(), true, null);
+    }
+
+    static final class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+        private final NavigableMap<E, ?> m;
+        KeySet(NavigableMap<E,?> map) { m = map; }
+
+        public Iterator<E> iterator() {
+            if (m instanceof BTreeMap)
+                return ((BTreeMap<E,?>)m).keyIterator();
+            else
+                return ((BTreeMap.SubMap<E,?>)m).keyIterator();
+        }
+
+        public Iterator<E> descendingIterator() {
+            if (m instanceof BTreeMap)
+                return ((BTreeMap<E,?>)m).descendingKeyIterator();
+            else
+                return ((BTreeMap.SubMap<E,?>)m).descendingKeyIterator();
+        }
+
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public void clear() { m.clear(); }
+        public E lower(E e) { return m.lowerKey(e); }
+        public E floor(E e) { return m.floorKey(e); }
+        public E ceiling(E e) { return m.ceilingKey(e); }
+        public E higher(E e) { return m.higherKey(e); }
+        public E first() { return m.firstKey(); }
+        public E last() { return m.lastKey(); }
+        public Comparator<? super E> comparator() { return m.comparator(); }
+        public E pollFirst() {
+            Map.Entry<E,?> e = m.pollFirstEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public E pollLast() {
+            Map.Entry<E,?> e = m.pollLastEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public boolean remove(Object o) {
+            int oldSize = size();
+            m.remove(o);
+            return size() != oldSize;
+        }
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+                                      E toElement,   boolean toInclusive) {
+            return new KeySet<>(m.subMap(fromElement, fromInclusive,
+                                          toElement,   toInclusive));
+        }
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<>(m.headMap(toElement, inclusive));
+        }
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<>(m.tailMap(fromElement, inclusive));
+        }
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<>(m.descendingMap());
+        }
+    }
+
+    /**
+     * Base class for BTreeMap Iterators.  The iterator walks the
+     * leaves from a starting position, in either direction, until it
+     * has returned the key at the far end of the given submap, if
+     * any.  That key is found once, when the iterator is created, and
+     * afterwards recognized by identity, so that bounded iteration
+     * needs no comparisons.  Removal may restructure the leaves, so
+     * after one the iterator finds its next position again by key.
+     */
+    abstract class PrivateIterator<T> implements Iterator<T> {
+        Leaf<K,V> leaf;          // leaf of next mapping, or null if none
+        int index;               // index of next mapping in leaf
+        Leaf<K,V> lastLeaf;      // leaf of last mapping returned
+        int lastIndex;
+        final boolean descending;
+        final boolean fenced;    // true if bounded by fenceKey
+        Object fenceKey;         // last key to return, if fenced
+        int expectedModCount;
+
+        PrivateIterator(Cursor<K,V> first, boolean descending,
+                        SubMap<K,V> bounds) {
+            expectedModCount = modCount;
+            this.descending = descending;
+            this.fenced = bounds != null;
+            if (first != null) {
+                if (bounds != null) {
+                    Cursor<K,V> f = descending ?
+                        bounds.loCursor() : bounds.hiCursor();
+                    if (f == null)
+                        return;
+                    fenceKey = f.key();
+                }
+                leaf = first.leaf;
+                index = first.index;
+            }
+        }
+
+        public final boolean hasNext() {
+            return leaf != null;
+        }
+
+        /**
+         * Advances, setting lastLeaf and lastIndex to the position of
+         * the mapping to return.
+         */
+        final void nextPosition() {
+            Leaf<K,V> l = leaf;
+            if (l == null)
+                throw new NoSuchElementException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int i = index;
+            lastLeaf = l;
+            lastIndex = i;
+            if (fenced && l.keys[i] == fenceKey)
+                l = null;
+            else if (descending) {
+                if (--i < 0 && (l = l.prev) != null)
+                    i = l.size - 1;
+            } else if (++i >= l.size) {
+                l = l.next;
+                i = 0;
+            }
+            leaf = l;
+            index = i;
+        }
+
+        public void remove() {
+            Leaf<K,V> l = lastLeaf;
+            if (l == null)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            lastLeaf = null;
+            Object lastKey = l.keys[lastIndex];
+            if (leaf == null)
+                BTreeMap.this.remove(lastKey);
+            else {
+                Object nextKey = leaf.keys[index];
+                BTreeMap.this.remove(lastKey);
+                Cursor<K,V> c = cursorNear(nextKey, EQ);
+                leaf = c.leaf;
+                index = c.index;
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    final class EntryIterator extends PrivateIterator<Map.Entry<K,V>> {
+        EntryIterator(Cursor<K,V> first, boolean descending,
+                      SubMap<K,V> bounds) {
+            super(first, descending, bounds);
+        }
+        public Map.Entry<K,V> next() {
+            nextPosition();
+            return new IteratorEntry(lastLeaf, lastIndex);
+        }
+    }
+
+    final class ValueIterator extends PrivateIterator<V> {
+        ValueIterator(Cursor<K,V> first, boolean descending,
+                      SubMap<K,V> bounds) {
+            super(first, descending, bounds);
+        }
+        @SuppressWarnings("unchecked")
+        public V next() {
+            nextPosition();
+            return (V)lastLeaf.vals[lastIndex];
+        }
+    }
+
+    final class KeyIterator extends PrivateIterator<K> {
+        KeyIterator(Cursor<K,V> first, boolean descending,
+                    SubMap<K,V> bounds) {
+            super(first, descending, bounds);
+        }
+        @SuppressWarnings("unchecked")
+        public K next() {
+            nextPosition();
+            return (K)lastLeaf.keys[lastIndex];
+        }
+    }
+
+    /**
+     * Entry returned by iterators, whose setValue writes through to
+     * its slot in the leaf, or, if the map has since been
+     * restructured, to the mapping for its key if still present.
+     */
+    final class IteratorEntry implements Map.Entry<K,V> {
+        final Leaf<K,V> leaf;
+        final int index;
+        final K key;
+        V value;
+
+        @SuppressWarnings("unchecked")
+        IteratorEntry(Leaf<K,V> leaf, int index) {
+            this.leaf = leaf;
+            this.index = index;
+            this.key = (K)leaf.keys[index];
+            this.value = (V)leaf.vals[index];
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public V setValue(V value) {
+            V oldValue = this.value;
+            this.value = value;
+            if (index < leaf.size && leaf.keys[index] == key)
+                leaf.vals[index] = value;
+            else
+                BTreeMap.this.replace(key, value);
+            return oldValue;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return valEquals(key,e.getKey()) && valEquals(value,e.getValue());
+        }
+
+        public int hashCode() {
+            int keyHash = (key==null ? 0 : key.hashCode());
+            int valueHash = (value==null ? 0 : value.hashCode());
+            return keyHash ^ valueHash;
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    // SubMaps
+
+    /**
+     * A view of a range of a BTreeMap, in ascending or descending
+     * order.  The methods are those of TreeMap.NavigableSubMap and its
+     * subclasses, merged into one class as in ConcurrentSkipListMap.
+     * As in TreeMap, the flags fromStart and toEnd mark absent bounds,
+     * since null may be a key.
+     */
+    static final class SubMap<K,V> extends AbstractMap<K,V>
+        implements NavigableMap<K,V>, java.io.Serializable {
+        private static final long serialVersionUID = -4016722917345297632L;
+
+        /** The backing map */
+        final BTreeMap<K,V> m;
+
+        /**
+         * Endpoints are represented as triples (fromStart, lo,
+         * loInclusive) and (toEnd, hi, hiInclusive), as in TreeMap.
+         */
+        final K lo, hi;
+        final boolean fromStart, toEnd;
+        final boolean loInclusive, hiInclusive;
+
+        /** Whether this view is in descending key order */
+        final boolean isDescending;
+
+        // Lazily initialized view holders
+        private transient KeySet<K> keySetView;
+        private transient Set<Map.Entry<K,V>> entrySetView;
+        private transient Collection<V> valuesView;
+
+        SubMap(BTreeMap<K,V> m,
+               boolean fromStart, K lo, boolean loInclusive,
+               boolean toEnd,     K hi, boolean hiInclusive,
+               boolean isDescending) {
+            if (!fromStart && !toEnd) {
+                if (m.compare(lo, hi) > 0)
+                    throw new IllegalArgumentException("fromKey > toKey");
+            } else {
+                if (!fromStart) // type check
+                    m.compare(lo, lo);
+                if (!toEnd)
+                    m.compare(hi, hi);
+            }
+
+            this.m = m;
+            this.fromStart = fromStart;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.toEnd = toEnd;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.isDescending = isDescending;
+        }
+
+        // internal utilities
+
+        final boolean tooLow(Object key) {
+            if (!fromStart) {
+                int c = m.compare(key, lo);
+                if (c < 0 || (c == 0 && !loInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean tooHigh(Object key) {
+            if (!toEnd) {
+                int c = m.compare(key, hi);
+                if (c > 0 || (c == 0 && !hiInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        /** Returns the position of the lowest key in range, or null */
+        final Cursor<K,V> loCursor() {
+            Cursor<K,V> c = fromStart ? m.firstCursor() :
+                m.cursorNear(lo, loInclusive ? GT|EQ : GT);
+            return (c == null || tooHigh(c.key())) ? null : c;
+        }
+
+        /** Returns the position of the highest key in range, or null */
+        final Cursor<K,V> hiCursor() {
+            Cursor<K,V> c = toEnd ? m.lastCursor() :
+                m.cursorNear(hi, hiInclusive ? LT|EQ : LT);
+            return (c == null || tooLow(c.key())) ? null : c;
+        }
+
+        /** Returns the first position in this view's order, or null */
+        final Cursor<K,V> firstCursor() {
+            return isDescending ? hiCursor() : loCursor();
+        }
+
+        /** Returns the last position in this view's order, or null */
+        final Cursor<K,V> lastCursor() {
+            return isDescending ? loCursor() : hiCursor();
+        }
+
+        /**
+         * Returns the position nearest key in the given relation, in
+         * this view's order, within range, or null if there is none.
+         */
+        final Cursor<K,V> cursorNear(K key, int rel) {
+            if (isDescending)
+                rel = ((rel & LT) == 0) ? rel | LT : rel & ~LT;
+            if (tooLow(key))
+                return ((rel & LT) != 0) ? null : loCursor();
+            if (tooHigh(key))
+                return ((rel & LT) != 0) ? hiCursor() : null;
+            Cursor<K,V> c = m.cursorNear(key, rel);
+            return (c == null || !inRange(c.key())) ? null : c;
+        }
+
+        SubMap<K,V> newSubMap(boolean fromStart, K fromKey,
+                              boolean fromInclusive,
+                              boolean toEnd, K toKey, boolean toInclusive) {
+            if (isDescending) { // flip senses
+                boolean fs = fromStart; fromStart = toEnd; toEnd = fs;
+                K tk = fromKey; fromKey = toKey; toKey = tk;
+                boolean ti = fromInclusive;
+                fromInclusive = toInclusive;
+                toInclusive = ti;
+            }
+            if (!this.fromStart) {
+                if (fromStart) {
+                    fromStart = false;
+                    fromKey = lo;
+                    fromInclusive = loInclusive;
+                }
+                else {
+                    int c = m.compare(fromKey, lo);
+                    if (c < 0 || (c == 0 && !loInclusive && fromInclusive))
+                        throw new IllegalArgumentException("fromKey out of range");
+                }
+            }
+            if (!this.toEnd) {
+                if (toEnd) {
+                    toEnd = false;
+                    toKey = hi;
+                    toInclusive = hiInclusive;
+                }
+                else {
+                    int c = m.compare(toKey, hi);
+                    if (c > 0 || (c == 0 && !hiInclusive && toInclusive))
+                        throw new IllegalArgumentException("toKey out of range");
+                }
+            }
+            return new SubMap<>(m, fromStart, fromKey, fromInclusive,
+                                toEnd, toKey, toInclusive, isDescending);
+        }
+
+        // public methods
+
+        public boolean isEmpty() {
+            return loCursor() == null;
+        }
+
+        public int size() {
+            int n = 0;
+            for (Iterator<K> it = keyIterator(); it.hasNext(); it.next())
+                ++n;
+            return n;
+        }
+
+        public final boolean containsKey(Object key) {
+            return inRange(key) && m.containsKey(key);
+        }
+
+        public final V put(K key, V value) {
+            if (!inRange(key))
+                throw new IllegalArgumentException("key out of range");
+            return m.put(key, value);
+        }
+
+        public final V get(Object key) {
+            return !inRange(key) ? null :  m.get(key);
+        }
+
+        public final V remove(Object key) {
+            return !inRange(key) ? null : m.remove(key);
+        }
+
+        public void clear() {
+            for (Iterator<K> it = keyIterator(); it.hasNext(); ) {
+                it.next();
+                it.remove();
+            }
+        }
+
+        public Comparator<? super K> comparator() {
+            Comparator<? super K> cmp = m.comparator();
+            return isDescending ? Collections.reverseOrder(cmp) : cmp;
+        }
+
+        public final Map.Entry<K,V> ceilingEntry(K key) {
+            return exportEntry(cursorNear(key, GT|EQ));
+        }
+
+        public final K ceilingKey(K key) {
+            return keyOrNull(cursorNear(key, GT|EQ));
+        }
+
+        public final Map.Entry<K,V> higherEntry(K key) {
+            return exportEntry(cursorNear(key, GT));
+        }
+
+        public final K higherKey(K key) {
+            return keyOrNull(cursorNear(key, GT));
+        }
+
+        public final Map.Entry<K,V> floorEntry(K key) {
+            return exportEntry(cursorNear(key, LT|EQ));
+        }
+
+        public final K floorKey(K key) {
+            return keyOrNull(cursorNear(key, LT|EQ));
+        }
+
+        public final Map.Entry<K,V> lowerEntry(K key) {
+            return exportEntry(cursorNear(key, LT));
+        }
+
+        public final K lowerKey(K key) {
+            return keyOrNull(cursorNear(key, LT));
+        }
+
+        public final K firstKey() {
+            return key(firstCursor());
+        }
+
+        public final K lastKey() {
+            return key(lastCursor());
+        }
+
+        public final Map.Entry<K,V> firstEntry() {
+            return exportEntry(firstCursor());
+        }
+
+        public final Map.Entry<K,V> lastEntry() {
+            return exportEntry(lastCursor());
+        }
+
+        public final Map.Entry<K,V> pollFirstEntry() {
+            Cursor<K,V> c = firstCursor();
+            Map.Entry<K,V> result = exportEntry(c);
+            if (c != null)
+                m.remove(c.key());
+            return result;
+        }
+
+        public final Map.Entry<K,V> pollLastEntry() {
+            Cursor<K,V> c = lastCursor();
+            Map.Entry<K,V> result = exportEntry(c);
+            if (c != null)
+                m.remove(c.key());
+            return result;
+        }
+
+        public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                        K toKey,   boolean toInclusive) {
+            return newSubMap(false, fromKey, fromInclusive,
+                             false, toKey,   toInclusive);
+        }
+
+        public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+            return newSubMap(true, null, true, false, toKey, inclusive);
+        }
+
+        public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            return newSubMap(false, fromKey, inclusive, true, null, true);
+        }
+
+        public final SortedMap<K,V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public final SortedMap<K,V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        public final SortedMap<K,V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        public NavigableMap<K,V> descendingMap() {
+            return new SubMap<>(m, fromStart, lo, loInclusive,
+                                toEnd, hi, hiInclusive, !isDescending);
+        }
+
+        // Views
+
+        public final NavigableSet<K> navigableKeySet() {
+            KeySet<K> nksv = keySetView;
+            return (nksv != null) ? nksv :
+                (keySetView = new BTreeMap.KeySet<>(this));
+        }
+
+        public final Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        public Collection<V> values() {
+            Collection<V> vs = valuesView;
+            return (vs != null) ? vs : (valuesView = m.new Values(this));
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            Set<Map.Entry<K,V>> es = entrySetView;
+            return (es != null) ? es : (entrySetView = new EntrySetView());
+        }
+
+        Iterator<K> keyIterator() {
+            return m.new KeyIterator(firstCursor(), isDescending, this);
+        }
+
+        Iterator<K> descendingKeyIterator() {
+            return m.new KeyIterator(lastCursor(), !isDescending, this);
+        }
+
+        final class EntrySetView extends AbstractSet<Map.Entry<K,V>> {
+            public Iterator<Map.Entry<K,V>> iterator() {
+                return m.new EntryIterator(firstCursor(), isDescending,
+                                           SubMap.this);
+            }
+
+            public int size() {
+                return SubMap.this.size();
+            }
+
+            public boolean isEmpty() {
+                return SubMap.this.isEmpty();
+            }
+
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry))
+                    return false;
+                Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+                Object key = entry.getKey();
+                if (!inRange(key))
+                    return false;
+                Leaf<K,V> l = m.findLeaf(key);
+                int i = m.leafSearch(l, key);
+                return i >= 0 && valEquals(l.vals[i], entry.getValue());
+            }
+
+            public boolean remove(Object o) {
+                if (!contains(o))
+                    return false;
+                m.remove(((Map.Entry<?,?>) o).getKey());
+                return true;
+            }
+
+            public void clear() {
+                SubMap.this.clear();
+            }
+        }
+    }
+
+    /**
+     * Save the state of the {@code BTreeMap} instance to a stream (i.e.,
+     * serialize it).
+     *
+     * @serialData The <em>size</em> of the BTreeMap (the number of key-value
+     *             mappings) is emitted (int), followed by the key (Object)
+     *             and value (Object) for each key-value mapping represented
+     *             by the BTreeMap. The key-value mappings are emitted in
+     *             key-order (as determined by the BTreeMap's Comparator,
+     *             or by the keys' natural ordering if the BTreeMap has no
+     *             Comparator).
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out the Comparator and any hidden stuff
+        s.defaultWriteObject();
+
+        // Write out size (number of Mappings)
+        s.writeInt(size);
+
+        // Write out keys and values (alternating)
+        for (Leaf<K,V> l = firstLeaf(); l != null; l = l.next) {
+            for (int i = 0, n = l.size; i < n; ++i) {
+                s.writeObject(l.keys[i]);
+                s.writeObject(l.vals[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the {@code BTreeMap} instance from a stream (i.e.,
+     * deserialize it).
+     */
+    private void readObject(final java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        // Read in the Comparator and any hidden stuff
+        s.defaultReadObject();
+
+        // Read in size
+        int size = s.readInt();
+        if (size < 0)
+            throw new java.io.InvalidObjectException("Illegal mappings count: " +
+                                                     size);
+
+        buildFromSorted(size, null, s, null);
+    }
+
+    /** Intended to be called only from BTreeSet.readObject */
+    void readBTreeSet(int size, java.io.ObjectInputStream s, V defaultVal)
+        throws java.io.IOException, ClassNotFoundException {
+        if (size < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " + size);
+        buildFromSorted(size, null, s, defaultVal);
+    }
+
+    /** Intended to be called only from BTreeSet.addAll */
+    void addAllForBTreeSet(SortedSet<? extends K> set, V defaultVal) {
+        try {
+            buildFromSorted(set.size(), set.iterator(), null, defaultVal);
+        } catch (java.io.IOException cannotHappen) {
+        } catch (ClassNotFoundException cannotHappen) {
+        }
+    }
+
+    /**
+     * Bulk loads the tree, replacing its contents, from sorted data, in
+     * linear time.  Leaves are filled, and internal nodes given
+     * children, as evenly as possible, so that all nodes except the
+     * root are at least half full.  The data is read as in
+     * TreeMap.buildFromSorted: from the iterator if non-null, as
+     * entries or, if defaultVal is non-null, keys; otherwise from the
+     * stream, as alternating keys and values or, if defaultVal is
+     * non-null, keys.  The data must be sorted and free of duplicate
+     * keys, which is not checked.
+     *
+     * @param size the number of keys (or key-value pairs) to be read
+     * @param it If non-null, new entries are created from entries
+     *        or keys read from this iterator.
+     * @param str If non-null, new entries are created from keys and
+     *        possibly values read from this stream in serialized form.
+     *        Exactly one of it and str should be non-null.
+     * @param defaultVal if non-null, this default value is used for
+     *        each value in the map.  If null, each value is read from
+     *        iterator or stream, as described above.
+     * @throws java.io.IOException propagated from stream reads. This cannot
+     *         occur if str is null.
+     * @throws ClassNotFoundException propagated from readObject.
+     *         This cannot occur if str is null.
+     */
+    @SuppressWarnings("unchecked")
+    private void buildFromSorted(int size, Iterator<?> it,
+                                 java.io.ObjectInputStream str,
+                                 V defaultVal)
+        throws java.io.IOException, ClassNotFoundException {
+        modCount++;
+        Object[] level, mins;
+        int nl = (int)(((long)size + LEAF_CAPACITY - 1) / LEAF_CAPACITY);
+        if (nl == 0) {
+            root = new Leaf<K,V>();
+            height = 0;
+            this.size = 0;
+            return;
+        }
+        level = new Object[nl];
+        mins = new Object[nl];
+        Leaf<K,V> prev = null;
+        for (int i = 0, q = size / nl, r = size % nl; i < nl; ++i) {
+            Leaf<K,V> l = new Leaf<K,V>();
+            Object[] ks = l.keys, vs = l.vals;
+            int n = (i < r) ? q + 1 : q;
+            for (int j = 0; j < n; ++j) {
+                Object key, value;
+                if (it != null) {
+                    if (defaultVal==null) {
+                        Map.Entry<?,?> entry = (Map.Entry<?,?>)it.next();
+                        key = entry.getKey();
+                        value = entry.getValue();
+                    } else {
+                        key = it.next();
+                        value = defaultVal;
+                    }
+                } else { // use stream
+                    key = str.readObject();
+                    value = (defaultVal != null ? defaultVal : str.readObject());
+                }
+                ks[j] = key;
+                vs[j] = value;
+            }
+            l.size = n;
+            if ((l.prev = prev) != null)
+                prev.next = l;
+            prev = l;
+            level[i] = l;
+            mins[i] = ks[0];
+        }
+        int h = 0;
+        while (level.length > 1) {
+            int k = level.length;
+            int np = (k + INNER_CAPACITY - 1) / INNER_CAPACITY;
+            Object[] up = new Object[np], upMins = new Object[np];
+            for (int i = 0, pos = 0, q = k / np, r = k % np; i < np; ++i) {
+                Inner p = new Inner();
+                int n = (i < r) ? q + 1 : q;
+                upMins[i] = mins[pos];
+                for (int j = 0; j < n; ++j, ++pos) {
+                    p.kids[j] = level[pos];
+                    if (j > 0)
+                        p.keys[j - 1] = mins[pos];
+                }
+                p.size = n;
+                up[i] = p;
+            }
+            level = up;
+            mins = upMins;
+            ++h;
+        }
+        root = level[0];
+        height = h;
+        this.size = size;
+    }
+}
@@ -29,6 +29,9 @@ import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.LongBuffer;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
 
@@ -1011,6 +1014,242 @@ public class BitSet implements Cloneable, java.io.Serializable {
         checkInvariants();
     }
 
+    /*
+     * Parallel bulk operations.  The words in common are divided
+     * into contiguous ranges of at least MIN_PARALLEL_WORDS words
+     * that are combined by tasks in the common pool, using the same
+     * granularity rule as Arrays.parallelSort.  Each range is
+     * processed by a plain indexed loop over both word arrays, which
+     * the compiler is free to vectorize.  The sequential parts
+     * (growing, copying the tail, recalculating wordsInUse) are the
+     * same as in the corresponding sequential methods.
+     */
+
+    /**
+     * The minimum number of words for which the parallel bulk
+     * operations split their work.  Smaller sets, or a common pool
+     * of parallelism one, are processed sequentially.
+     */
+    private static final int MIN_PARALLEL_WORDS = 1 << 13;
+
+    private static final int AND = 0, OR = 1, XOR = 2, AND_NOT = 3;
+
+    /**
+     * Performs a logical <b>AND</b> of this target bit set with the
+     * argument bit set, with the same result as {@link #and(BitSet)}.
+     * For large bit sets the words are combined in parallel, using
+     * the {@link ForkJoinPool#commonPool() ForkJoin common pool}.
+     *
+     * @param set a bit set
+     * @since 1.8
+     */
+    public void parallelAnd(BitSet set) {
+        if (this == set)
+            return;
+
+        if (wordsInUse > set.wordsInUse) {
+            Arrays.fill(words, set.wordsInUse, wordsInUse, 0L);
+            wordsInUse = set.wordsInUse;
+        }
+
+        bulkOp(words, set.words, wordsInUse, AND);
+
+        recalculateWordsInUse();
+        checkInvariants();
+    }
+
+    /**
+     * Performs a logical <b>OR</b> of this bit set with the bit set
+     * argument, with the same result as {@link #or(BitSet)}.  For
+     * large bit sets the words are combined in parallel, using the
+     * {@link ForkJoinPool#commonPool() ForkJoin common pool}.
+     *
+     * @param set a bit set
+     * @since 1.8
+     */
+    public void parallelOr(BitSet set) {
+        if (this == set)
+            return;
+
+        int wordsInCommon = Math.min(wordsInUse, set.wordsInUse);
+
+        if (wordsInUse < set.wordsInUse) {
+            ensureCapacity(set.wordsInUse);
+            wordsInUse = set.wordsInUse;
+        }
+
+        bulkOp(words, set.words, wordsInCommon, OR);
+
+        if (wordsInCommon < set.wordsInUse)
+            System.arraycopy(set.words, wordsInCommon,
+                             words, wordsInCommon,
+                             wordsInUse - wordsInCommon);
+
+        checkInvariants();
+    }
+
+    /**
+     * Performs a logical <b>XOR</b> of this bit set with the bit set
+     * argument, with the same result as {@link #xor(BitSet)}.  For
+     * large bit sets the words are combined in parallel, using the
+     * {@link ForkJoinPool#commonPool() ForkJoin common pool}.
+     *
+     * @param set a bit set
+     * @since 1.8
+     */
+    public void parallelXor(BitSet set) {
+        int wordsInCommon = Math.min(wordsInUse, set.wordsInUse);
+
+        if (wordsInUse < set.wordsInUse) {
+            ensureCapacity(set.wordsInUse);
+            wordsInUse = set.wordsInUse;
+        }
+
+        bulkOp(words, set.words, wordsInCommon, XOR);
+
+        if (wordsInCommon < set.wordsInUse)
+            System.arraycopy(set.words, wordsInCommon,
+                             words, wordsInCommon,
+                             set.wordsInUse - wordsInCommon);
+
+        recalculateWordsInUse();
+        checkInvariants();
+    }
+
+    /**
+     * Clears all of the bits in this {@code BitSet} whose corresponding
+     * bit is set in the specified {@code BitSet}, with the same result
+     * as {@link #andNot(BitSet)}.  For large bit sets the words are
+     * combined in parallel, using the {@link ForkJoinPool#commonPool()
+     * ForkJoin common pool}.
+     *
+     * @param  set the {@code BitSet} with which to mask this
+     *         {@code BitSet}
+     * @since 1.8
+     */
+    public void parallelAndNot(BitSet set) {
+        bulkOp(words, set.words, Math.min(wordsInUse, set.wordsInUse),
+               AND_NOT);
+
+        recalculateWordsInUse();
+        checkInvariants();
+    }
+
+    /**
+     * Returns the number of bits set to {@code true} in this
+     * {@code BitSet}, with the same result as {@link #cardinality()}.
+     * For large bit sets the bits are counted in parallel, using the
+     * {@link ForkJoinPool#commonPool() ForkJoin common pool}.
+     *
+     * @return the number of bits set to {@code true} in this {@code BitSet}
+     * @since 1.8
+     */
+    public int parallelCardinality() {
+        int n = wordsInUse, p, g;
+        if (n <= MIN_PARALLEL_WORDS ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            return bitCount(words, 0, n);
+        return new BitCountTask
+            (words, 0, n,
+             ((g = n / (p << 2)) <= MIN_PARALLEL_WORDS) ?
+             MIN_PARALLEL_WORDS : g).invoke();
+    }
+
+    /**
+     * Combines the first n words of b into a using op, in parallel
+     * if n is large enough.
+     */
+    private static void bulkOp(long[] a, long[] b, int n, int op) {
+        int p, g;
+        if (n <= MIN_PARALLEL_WORDS ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            bulkOp(a, b, 0, n, op);
+        else
+            new BulkTask
+                (null, a, b, 0, n, op,
+                 ((g = n / (p << 2)) <= MIN_PARALLEL_WORDS) ?
+                 MIN_PARALLEL_WORDS : g).invoke();
+    }
+
+    /**
+     * Combines words lo (inclusive) to hi (exclusive) of b into a.
+     */
+    private static void bulkOp(long[] a, long[] b, int lo, int hi, int op) {
+        switch (op) {
+        case AND:
+            for (int i = lo; i < hi; i++)
+                a[i] &= b[i];
+            break;
+        case OR:
+            for (int i = lo; i < hi; i++)
+                a[i] |= b[i];
+            break;
+        case XOR:
+            for (int i = lo; i < hi; i++)
+                a[i] ^= b[i];
+            break;
+        default:
+            for (int i = lo; i < hi; i++)
+                a[i] &= ~b[i];
+            break;
+        }
+    }
+
+    private static int bitCount(long[] a, int lo, int hi) {
+        int sum = 0;
+        for (int i = lo; i < hi; i++)
+            sum += Long.bitCount(a[i]);
+        return sum;
+    }
+
+    /**
+     * Task for the parallel bulk operations: forks right halves until
+     * the remaining range is at most gran words, then combines it.
+     */
+    private static final class BulkTask extends CountedCompleter<Void> {
+        static final long serialVersionUID = 4136516212325846211L;
+        final long[] a, b;
+        final int lo, hi, op, gran;
+        BulkTask(CountedCompleter<?> par, long[] a, long[] b,
+                 int lo, int hi, int op, int gran) {
+            super(par);
+            this.a = a; this.b = b; this.lo = lo; this.hi = hi;
+            this.op = op; this.gran = gran;
+        }
+        public final void compute() {
+            int l = lo, h = hi;
+            while (h - l > gran) {
+                int mid = (l + h) >>> 1;
+                addToPendingCount(1);
+                new BulkTask(this, a, b, mid, h, op, gran).fork();
+                h = mid;
+            }
+            bulkOp(a, b, l, h, op);
+            propagateCompletion();
+        }
+    }
+
+    /**
+     * Task for parallelCardinality.
+     */
+    private static final class BitCountTask extends RecursiveTask<Integer> {
+        static final long serialVersionUID = -6419725932409468452L;
+        final long[] a;
+        final int lo, hi, gran;
+        BitCountTask(long[] a, int lo, int hi, int gran) {
+            this.a = a; this.lo = lo; this.hi = hi; this.gran = gran;
+        }
+        protected Integer compute() {
+            if (hi - lo <= gran)
+                return bitCount(a, lo, hi);
+            int mid = (lo + hi) >>> 1;
+            BitCountTask right = new BitCountTask(a, mid, hi, gran);
+            right.fork();
+            int left = new BitCountTask(a, lo, mid, gran).compute();
+            return left + right.join();
+        }
+    }
+
     /**
      * Returns the hash code value for this bit set. The hash code depends
      * only on which bits are set within this {@code BitSet}.
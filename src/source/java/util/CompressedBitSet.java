@@ -0,0 +1,1507 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.*;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A compressed set of nonnegative {@code int} indices, for sets that
+ * are too sparse or too clustered to be held economically in a
+ * {@link BitSet}.  Like a {@code BitSet}, a {@code CompressedBitSet}
+ * may be thought of as a vector of bits indexed by nonnegative
+ * integers, and supports logical <b>AND</b>, <b>OR</b> and
+ * <b>AND NOT</b> operations with other compressed bit sets.  Unlike a
+ * {@code BitSet}, its memory footprint is roughly proportional to the
+ * number of bits set (or to the number of runs of consecutive set
+ * bits, after {@link #runOptimize()}), rather than to the largest
+ * index set.
+ *
+ * <p>The index space is divided into chunks of 2<sup>16</sup>
+ * consecutive indices.  Each chunk that contains at least one set bit
+ * is represented by one of three kinds of container: a sorted array
+ * of 16-bit values (for chunks with at most 4096 bits set), a plain
+ * bitmap of 1024 words (for denser chunks), or a sorted list of runs
+ * of consecutive set bits.  Operations on two sets only combine the
+ * containers of chunks present in both, so the cost of
+ * {@link #and(CompressedBitSet)} and
+ * {@link #andNot(CompressedBitSet)} is bounded by the size of the
+ * smaller set.  This is the layout commonly known as a <em>roaring
+ * bitmap</em>.
+ *
+ * <p>Conversions to and from {@code BitSet} are provided by
+ * {@link #valueOf(BitSet)} and {@link #toBitSet()}.
+ *
+ * <p>Unless otherwise noted, passing a null parameter to any of the
+ * methods in a {@code CompressedBitSet} will result in a
+ * {@code NullPointerException}.
+ *
+ * <p>A {@code CompressedBitSet} is not safe for multithreaded use
+ * without external synchronization.
+ *
+ * @see BitSet
+ * @since 1.8
+ */
+public class CompressedBitSet implements Cloneable, java.io.Serializable {
+    private static final long serialVersionUID = -2183508427162893745L;
+
+    /*
+     * Implementation overview:
+     *
+     * An index i is split into a 16-bit key (i >>> 16, at most
+     * 0x7fff since indices are nonnegative) and a 16-bit low part
+     * (i & 0xffff).  The keys of the nonempty chunks are held in
+     * ascending order in the keys array, with the container for
+     * keys[k] in containers[k]; a key is located by binary search.
+     *
+     * Containers come in three forms, chosen so that none takes much
+     * more than 8KB:
+     *
+     * ArrayContainer: the low parts in ascending order, at most
+     *   ARRAY_MAX (4096) of them, which is the point at which an
+     *   array of chars takes as much space as a bitmap.
+     * BitmapContainer: 1024 longs, always with more than ARRAY_MAX
+     *   bits set.  Removing bits down to ARRAY_MAX converts it back
+     *   to an array.
+     * RunContainer: pairs of (start, length - 1), ascending and
+     *   neither overlapping nor adjacent, with at most MAX_RUNS
+     *   runs.  Run containers are created by set(int, int) and by
+     *   runOptimize, and are converted to the other forms when they
+     *   grow past MAX_RUNS.
+     *
+     * Single-bit updates (add, remove) modify a container in place
+     * and return the container to be used from then on, which is a
+     * different one when the representation changes.  The binary
+     * operations (and, or, andNot) never modify either argument and
+     * always return a new container, possibly empty, so that no
+     * container is ever shared between two sets.  Mixed-kind
+     * operations are dispatched to whichever side has the cheaper
+     * algorithm; bitmap-bitmap operations are straight loops over
+     * both word arrays.  Empty results are dropped by the callers.
+     */
+
+    /** The largest cardinality of an array container */
+    static final int ARRAY_MAX = 4096;
+
+    /** The number of words in a bitmap container */
+    static final int BITMAP_WORDS = 1 << 10;
+
+    /** The largest number of runs in a run container */
+    static final int MAX_RUNS = 2048;
+
+    /** The largest number of chunks */
+    static final int MAX_KEYS = 1 << 15;
+
+    /** Keys of the nonempty chunks, in ascending order */
+    private transient char[] keys;
+
+    /** Containers for the corresponding keys */
+    private transient Container[] containers;
+
+    /** The number of nonempty chunks */
+    private transient int size;
+
+    /**
+     * Creates a new, empty compressed bit set.
+     */
+    public CompressedBitSet() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    private CompressedBitSet(char[] keys, Container[] containers, int size) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+    }
+
+    /**
+     * Returns a new compressed bit set containing all the bits set in
+     * the given bit set.  Runs of set bits are not detected; call
+     * {@link #runOptimize()} on the result if they are expected.
+     *
+     * @param bs a bit set
+     * @return a {@code CompressedBitSet} containing the bits of {@code bs}
+     */
+    public static CompressedBitSet valueOf(BitSet bs) {
+        long[] w = bs.toLongArray();
+        int n = (w.length + BITMAP_WORDS - 1) / BITMAP_WORDS;
+        char[] ks = new char[Math.max(n, 1)];
+        Container[] cs = new Container[ks.length];
+        int size = 0;
+        for (int k = 0; k < n; k++) {
+            int from = k * BITMAP_WORDS;
+            long[] chunk = Arrays.copyOfRange(w, from, from + BITMAP_WORDS);
+            Container c = BitmapContainer.of(chunk);
+            if (!c.isEmpty()) {
+                ks[size] = (char)k;
+                cs[size++] = c;
+            }
+        }
+        return new CompressedBitSet(ks, cs, size);
+    }
+
+    /**
+     * Returns a new bit set containing all the bits set in this
+     * compressed bit set.
+     *
+     * @return a {@code BitSet} containing the bits of this set
+     */
+    public BitSet toBitSet() {
+        if (size == 0)
+            return new BitSet();
+        long[] w = new long[(keys[size - 1] + 1) * BITMAP_WORDS];
+        for (int k = 0; k < size; k++)
+            containers[k].fill(w, keys[k] * BITMAP_WORDS);
+        return BitSet.valueOf(w);
+    }
+
+    /**
+     * Returns the position of the given key, or (-(insertion point) - 1).
+     */
+    private int indexOf(int key) {
+        return Arrays.binarySearch(keys, 0, size, (char)key);
+    }
+
+    private void insert(int k, int key, Container c) {
+        if (size == keys.length) {
+            int cap = size + (size >> 1) + 1;
+            keys = Arrays.copyOf(keys, cap);
+            containers = Arrays.copyOf(containers, cap);
+        }
+        System.arraycopy(keys, k, keys, k + 1, size - k);
+        System.arraycopy(containers, k, containers, k + 1, size - k);
+        keys[k] = (char)key;
+        containers[k] = c;
+        size++;
+    }
+
+    private void delete(int k) {
+        System.arraycopy(keys, k + 1, keys, k, size - k - 1);
+        System.arraycopy(containers, k + 1, containers, k, size - k - 1);
+        containers[--size] = null;
+    }
+
+    private static void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        if (toIndex < 0)
+            throw new IndexOutOfBoundsException("toIndex < 0: " + toIndex);
+        if (fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex +
+                                                " > toIndex: " + toIndex);
+    }
+
+    /**
+     * Sets the bit at the specified index to {@code true}.
+     *
+     * @param  bitIndex a bit index
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void set(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int key = bitIndex >>> 16, k = indexOf(key);
+        if (k >= 0)
+            containers[k] = containers[k].add(bitIndex & 0xffff);
+        else
+            insert(-k - 1, key, new ArrayContainer(4).add(bitIndex & 0xffff));
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to
+     * the specified {@code toIndex} (exclusive) to {@code true}.  The
+     * range is held as runs, so setting a large range takes space
+     * proportional to the number of chunks it spans rather than to its
+     * length.
+     *
+     * @param  fromIndex index of the first bit to be set
+     * @param  toIndex index after the last bit to be set
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void set(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex != toIndex)
+            or(range(fromIndex, toIndex));
+    }
+
+    /**
+     * Sets the bit specified by the index to {@code false}.
+     *
+     * @param  bitIndex the index of the bit to be cleared
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void clear(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int k = indexOf(bitIndex >>> 16);
+        if (k >= 0) {
+            Container c = containers[k].remove(bitIndex & 0xffff);
+            if (c.isEmpty())
+                delete(k);
+            else
+                containers[k] = c;
+        }
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to
+     * the specified {@code toIndex} (exclusive) to {@code false}.
+     *
+     * @param  fromIndex index of the first bit to be cleared
+     * @param  toIndex index after the last bit to be cleared
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void clear(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex != toIndex && size != 0)
+            andNot(range(fromIndex, toIndex));
+    }
+
+    /**
+     * Sets all of the bits in this set to {@code false}.
+     */
+    public void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Returns a set holding the range [fromIndex, toIndex) as one run
+     * container per chunk.
+     */
+    private static CompressedBitSet range(int fromIndex, int toIndex) {
+        int first = fromIndex >>> 16, last = (toIndex - 1) >>> 16;
+        int n = last - first + 1;
+        char[] ks = new char[n];
+        Container[] cs = new Container[n];
+        for (int k = 0; k < n; k++) {
+            int key = first + k;
+            int lo = (key == first) ? fromIndex & 0xffff : 0;
+            int hi = (key == last) ? ((toIndex - 1) & 0xffff) + 1 : 1 << 16;
+            ks[k] = (char)key;
+            cs[k] = RunContainer.range(lo, hi);
+        }
+        return new CompressedBitSet(ks, cs, n);
+    }
+
+    /**
+     * Returns the value of the bit with the specified index.
+     *
+     * @param  bitIndex the bit index
+     * @return the value of the bit with the specified index
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public boolean get(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int k = indexOf(bitIndex >>> 16);
+        return k >= 0 && containers[k].contains(bitIndex & 0xffff);
+    }
+
+    /**
+     * Returns the index of the first bit that is set to {@code true}
+     * that occurs on or after the specified starting index. If no such
+     * bit exists then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        int key = fromIndex >>> 16, k = indexOf(key);
+        if (k >= 0) {
+            int v = containers[k].nextSetBit(fromIndex & 0xffff);
+            if (v >= 0)
+                return (key << 16) | v;
+            k++;
+        } else {
+            k = -k - 1;
+        }
+        return (k < size) ? (keys[k] << 16) | containers[k].nextSetBit(0) : -1;
+    }
+
+    /**
+     * Returns the "logical size" of this set: the index of the highest
+     * set bit plus one.  Returns zero if the set contains no set bits.
+     *
+     * @return the logical size of this set
+     */
+    public int length() {
+        return (size == 0) ? 0 :
+            ((keys[size - 1] << 16) | containers[size - 1].last()) + 1;
+    }
+
+    /**
+     * Returns true if this set contains no bits that are set to
+     * {@code true}.
+     *
+     * @return boolean indicating whether this set is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of bits set to {@code true} in this set.
+     *
+     * @return the number of bits set to {@code true} in this set
+     */
+    public int cardinality() {
+        int sum = 0;
+        for (int k = 0; k < size; k++)
+            sum += containers[k].cardinality();
+        return sum;
+    }
+
+    /**
+     * Performs a logical <b>AND</b> of this target set with the
+     * argument set. This set is modified so that each bit in it has
+     * the value {@code true} if and only if it both initially had the
+     * value {@code true} and the corresponding bit in the argument
+     * set also had the value {@code true}.
+     *
+     * @param set a compressed bit set
+     */
+    public void and(CompressedBitSet set) {
+        if (this == set)
+            return;
+        int n = 0;
+        for (int i = 0, j = 0; i < size && j < set.size; ) {
+            int a = keys[i], b = set.keys[j];
+            if (a < b)
+                i++;
+            else if (a > b)
+                j++;
+            else {
+                Container c = containers[i++].and(set.containers[j++]);
+                if (!c.isEmpty()) {
+                    keys[n] = (char)a;
+                    containers[n++] = c;
+                }
+            }
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+    }
+
+    /**
+     * Performs a logical <b>OR</b> of this set with the set argument.
+     * This set is modified so that a bit in it has the value
+     * {@code true} if and only if it either already had the value
+     * {@code true} or the corresponding bit in the argument set has
+     * the value {@code true}.
+     *
+     * @param set a compressed bit set
+     */
+    public void or(CompressedBitSet set) {
+        if (this == set || set.size == 0)
+            return;
+        int cap = size + set.size;
+        char[] ks = new char[cap];
+        Container[] cs = new Container[cap];
+        int n = 0, i = 0, j = 0;
+        while (i < size && j < set.size) {
+            int a = keys[i], b = set.keys[j];
+            if (a < b) {
+                ks[n] = (char)a;
+                cs[n++] = containers[i++];
+            } else if (a > b) {
+                ks[n] = (char)b;
+                cs[n++] = set.containers[j++].copy();
+            } else {
+                ks[n] = (char)a;
+                cs[n++] = containers[i++].or(set.containers[j++]);
+            }
+        }
+        for (; i < size; i++) {
+            ks[n] = keys[i];
+            cs[n++] = containers[i];
+        }
+        for (; j < set.size; j++) {
+            ks[n] = set.keys[j];
+            cs[n++] = set.containers[j].copy();
+        }
+        keys = ks;
+        containers = cs;
+        size = n;
+    }
+
+    /**
+     * Clears all of the bits in this set whose corresponding bit is
+     * set in the specified set.
+     *
+     * @param set the {@code CompressedBitSet} with which to mask this set
+     */
+    public void andNot(CompressedBitSet set) {
+        if (this == set) {
+            clear();
+            return;
+        }
+        int n = 0, i = 0;
+        for (int j = 0; i < size && j < set.size; ) {
+            int a = keys[i], b = set.keys[j];
+            if (a > b)
+                j++;
+            else {
+                Container c = containers[i++];
+                if (a == b)
+                    c = c.andNot(set.containers[j++]);
+                if (!c.isEmpty()) {
+                    keys[n] = (char)a;
+                    containers[n++] = c;
+                }
+            }
+        }
+        for (; i < size; i++) {
+            keys[n] = keys[i];
+            containers[n++] = containers[i];
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+    }
+
+    /**
+     * Converts each chunk of this set to whichever of the array,
+     * bitmap or run representations takes the least space.  This is
+     * most useful after building a set that has long runs of set
+     * bits one bit at a time, or with {@link #valueOf(BitSet)}.
+     *
+     * @return {@code true} if the representation of any chunk changed
+     */
+    public boolean runOptimize() {
+        boolean changed = false;
+        for (int k = 0; k < size; k++) {
+            Container c = containers[k], r = c.optimize();
+            if (r != c) {
+                containers[k] = r;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Performs the given action for each set bit, in increasing
+     * order of index.
+     */
+    private void forEach(IntConsumer action) {
+        for (int k = 0; k < size; k++)
+            containers[k].forEach(keys[k] << 16, action);
+    }
+
+    /**
+     * Returns a stream of indices for which this set contains a bit
+     * in the set state. The indices are returned in order, from
+     * lowest to highest. The size of the stream is the number of bits
+     * in the set state, equal to the value returned by the
+     * {@link #cardinality()} method.  The stream splits along chunk
+     * boundaries, so parallel streams over sets spanning many chunks
+     * divide their work evenly.
+     *
+     * <p>The set must remain constant during the execution of the
+     * terminal stream operation.  Otherwise, the result of the
+     * terminal stream operation is undefined.
+     *
+     * @return a stream of integers representing set indices
+     */
+    public IntStream stream() {
+        return StreamSupport.intStream(
+                () -> new IndexSpliterator(keys, containers, 0, size, 0,
+                                           cardinality()),
+                IndexSpliterator.CHARACTERISTICS, false);
+    }
+
+    /**
+     * Spliterator over the set bits of a range of chunks.  The first
+     * chunk may be partially consumed, in which case low is the next
+     * low part to look at.
+     */
+    static final class IndexSpliterator implements Spliterator.OfInt {
+        static final int CHARACTERISTICS =
+            Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED |
+            Spliterator.NONNULL | Spliterator.SIZED | Spliterator.SUBSIZED;
+        final char[] keys;
+        final Container[] containers;
+        int index;          // current chunk
+        final int fence;    // one past last chunk
+        int low;            // next low part within the current chunk
+        long est;           // exact number of remaining indices
+
+        IndexSpliterator(char[] keys, Container[] containers,
+                         int index, int fence, int low, long est) {
+            this.keys = keys; this.containers = containers;
+            this.index = index; this.fence = fence;
+            this.low = low; this.est = est;
+        }
+
+        public OfInt trySplit() {
+            int i = index, f = fence;
+            int mid = ((low == 0 ? i : i + 1) + f) >>> 1;
+            if (mid <= i || mid >= f)
+                return null;
+            long suffix = 0L;
+            for (int k = mid; k < f; k++)
+                suffix += containers[k].cardinality();
+            IndexSpliterator prefix = new IndexSpliterator
+                (keys, containers, i, mid, low, est - suffix);
+            index = mid;
+            low = 0;
+            est = suffix;
+            return prefix;
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            for (int f = fence; index < f; index++, low = 0) {
+                int v;
+                if (low <= 0xffff &&
+                    (v = containers[index].nextSetBit(low)) >= 0) {
+                    low = v + 1;
+                    --est;
+                    action.accept((keys[index] << 16) | v);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = index, f = fence;
+            if (i < f) {
+                index = f;
+                est = 0L;
+                if (low != 0) {
+                    Container c = containers[i];
+                    int base = keys[i] << 16;
+                    for (int v = low; v <= 0xffff &&
+                             (v = c.nextSetBit(v)) >= 0; v++)
+                        action.accept(base | v);
+                    i++;
+                }
+                for (; i < f; i++)
+                    containers[i].forEach(keys[i] << 16, action);
+            }
+        }
+
+        public long estimateSize() {
+            return est;
+        }
+
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+
+        public Comparator<? super Integer> getComparator() {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the hash code value for this set.  The hash code depends
+     * only on which bits are set, not on how the set is represented.
+     *
+     * @return the hash code value for this set
+     */
+    public int hashCode() {
+        int[] h = { 1 };
+        forEach(v -> h[0] = 31 * h[0] + v);
+        return h[0];
+    }
+
+    /**
+     * Compares this object against the specified object.  The result
+     * is {@code true} if and only if the argument is not {@code null}
+     * and is a {@code CompressedBitSet} object that has exactly the
+     * same set of bits set to {@code true} as this set.
+     *
+     * @param  obj the object to compare with
+     * @return {@code true} if the objects are the same;
+     *         {@code false} otherwise
+     */
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof CompressedBitSet))
+            return false;
+        CompressedBitSet set = (CompressedBitSet) obj;
+        if (size != set.size)
+            return false;
+        for (int k = 0; k < size; k++) {
+            if (keys[k] != set.keys[k] ||
+                !containers[k].sameBits(set.containers[k]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Cloning this {@code CompressedBitSet} produces a new
+     * {@code CompressedBitSet} that is equal to it.
+     *
+     * @return a clone of this set
+     */
+    public Object clone() {
+        try {
+            CompressedBitSet result = (CompressedBitSet) super.clone();
+            result.keys = Arrays.copyOf(keys, Math.max(size, 1));
+            Container[] cs = new Container[result.keys.length];
+            for (int k = 0; k < size; k++)
+                cs[k] = containers[k].copy();
+            result.containers = cs;
+            return result;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Returns a string representation of this set, in the same form
+     * as {@link BitSet#toString()}.
+     *
+     * @return a string representation of this set
+     */
+    public String toString() {
+        StringBuilder b = new StringBuilder("{");
+        forEach(v -> {
+            if (b.length() > 1)
+                b.append(", ");
+            b.append(v);
+        });
+        return b.append('}').toString();
+    }
+
+    /**
+     * Saves the state of this set to a stream.
+     *
+     * @serialData The number of nonempty chunks (int), followed for
+     *             each chunk in ascending order by its key (char) and
+     *             its container: a kind tag (byte) and then, for an
+     *             array container, the number of values (int) and the
+     *             values (chars); for a bitmap container, 1024 words
+     *             (longs); for a run container, the number of runs
+     *             (int) and for each run its start and length minus
+     *             one (chars).
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        for (int k = 0; k < size; k++) {
+            s.writeChar(keys[k]);
+            containers[k].writeTo(s);
+        }
+    }
+
+    /**
+     * Reconstitutes this set from a stream, checking its invariants.
+     */
+    private void readObject(ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int n = s.readInt();
+        if (n < 0 || n > MAX_KEYS)
+            throw new InvalidObjectException("Invalid size: " + n);
+        char[] ks = new char[Math.max(n, 1)];
+        Container[] cs = new Container[ks.length];
+        for (int k = 0; k < n; k++) {
+            char key = s.readChar();
+            if (key >= MAX_KEYS || (k > 0 && key <= ks[k - 1]))
+                throw new InvalidObjectException("Invalid key: " + (int)key);
+            ks[k] = key;
+            cs[k] = Container.readFrom(s);
+        }
+        keys = ks;
+        containers = cs;
+        size = n;
+    }
+
+    // Containers
+
+    /**
+     * Sets bits from (inclusive) to to (exclusive) of a 1024-word
+     * bitmap starting at w[off].
+     */
+    static void setBits(long[] w, int off, int from, int to) {
+        if (from >= to)
+            return;
+        int s = off + (from >>> 6), e = off + ((to - 1) >>> 6);
+        long first = -1L << from, last = -1L >>> -to;
+        if (s == e)
+            w[s] |= first & last;
+        else {
+            w[s] |= first;
+            for (int i = s + 1; i < e; i++)
+                w[i] = -1L;
+            w[e] |= last;
+        }
+    }
+
+    /**
+     * A set of 16-bit values.  See the implementation overview.
+     */
+    abstract static class Container {
+        static final byte ARRAY = 0, BITMAP = 1, RUN = 2;
+
+        abstract int cardinality();
+        boolean isEmpty() { return cardinality() == 0; }
+        abstract boolean contains(int x);
+        /** Returns the least value >= x (x <= 0xffff), or -1 if none */
+        abstract int nextSetBit(int x);
+        /** Returns the greatest value; the container must be nonempty */
+        abstract int last();
+        abstract int numberOfRuns();
+
+        abstract Container add(int x);
+        abstract Container remove(int x);
+
+        abstract Container and(Container c);
+        abstract Container or(Container c);
+        abstract Container andNot(Container c);
+
+        abstract Container copy();
+        /** ORs the values into the 1024 words of w starting at off */
+        abstract void fill(long[] w, int off);
+        abstract void forEach(int base, IntConsumer action);
+        abstract void writeTo(DataOutput out) throws IOException;
+
+        /**
+         * Returns the values as a bitmap, which the caller must not
+         * modify.
+         */
+        long[] bits() {
+            long[] w = new long[BITMAP_WORDS];
+            fill(w, 0);
+            return w;
+        }
+
+        boolean sameBits(Container c) {
+            return cardinality() == c.cardinality() &&
+                Arrays.equals(bits(), c.bits());
+        }
+
+        /**
+         * Returns the smallest of this container and its equivalents
+         * in the other representations.
+         */
+        Container optimize() {
+            int card = cardinality(), runs = numberOfRuns();
+            int otherBytes = (card <= ARRAY_MAX) ? 2 * card : 8 * BITMAP_WORDS;
+            if (4 * runs + 2 < otherBytes) {
+                if (this instanceof RunContainer)
+                    return this;
+                RunBuilder rb = new RunBuilder(runs);
+                forEach(0, rb);
+                return rb.build();
+            }
+            return (this instanceof RunContainer) ?
+                ((RunContainer)this).toNonRun() : this;
+        }
+
+        static Container readFrom(DataInput in) throws IOException {
+            byte kind = in.readByte();
+            if (kind == ARRAY)
+                return ArrayContainer.readFrom(in);
+            else if (kind == BITMAP)
+                return BitmapContainer.readFrom(in);
+            else if (kind == RUN)
+                return RunContainer.readFrom(in);
+            throw new InvalidObjectException("Invalid container: " + kind);
+        }
+    }
+
+    /**
+     * Sorted array of at most ARRAY_MAX values.
+     */
+    static final class ArrayContainer extends Container {
+        char[] content;
+        int cardinality;
+
+        ArrayContainer(int capacity) {
+            content = new char[capacity];
+        }
+
+        ArrayContainer(char[] content, int cardinality) {
+            this.content = content;
+            this.cardinality = cardinality;
+        }
+
+        /** Returns an array container with the set bits of w */
+        static ArrayContainer fromBits(long[] w, int cardinality) {
+            char[] a = new char[cardinality];
+            int n = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                for (long x = w[i]; x != 0L; x &= x - 1)
+                    a[n++] = (char)((i << 6) + Long.numberOfTrailingZeros(x));
+            }
+            return new ArrayContainer(a, n);
+        }
+
+        int cardinality() { return cardinality; }
+
+        boolean contains(int x) {
+            return Arrays.binarySearch(content, 0, cardinality, (char)x) >= 0;
+        }
+
+        int nextSetBit(int x) {
+            int i = Arrays.binarySearch(content, 0, cardinality, (char)x);
+            if (i < 0)
+                i = -i - 1;
+            return (i < cardinality) ? content[i] : -1;
+        }
+
+        int last() { return content[cardinality - 1]; }
+
+        int numberOfRuns() {
+            int runs = 0;
+            for (int i = 0, prev = -2; i < cardinality; prev = content[i++]) {
+                if (content[i] != prev + 1)
+                    runs++;
+            }
+            return runs;
+        }
+
+        Container add(int x) {
+            int n = cardinality;
+            int i = Arrays.binarySearch(content, 0, n, (char)x);
+            if (i >= 0)
+                return this;
+            if (n >= ARRAY_MAX)
+                return toBitmap().add(x);
+            i = -i - 1;
+            if (n == content.length)
+                content = Arrays.copyOf
+                    (content, Math.min(ARRAY_MAX, Math.max(4, n + (n >> 1))));
+            System.arraycopy(content, i, content, i + 1, n - i);
+            content[i] = (char)x;
+            cardinality = n + 1;
+            return this;
+        }
+
+        Container remove(int x) {
+            int i = Arrays.binarySearch(content, 0, cardinality, (char)x);
+            if (i >= 0) {
+                System.arraycopy(content, i + 1, content, i,
+                                 cardinality - i - 1);
+                --cardinality;
+            }
+            return this;
+        }
+
+        BitmapContainer toBitmap() {
+            long[] w = new long[BITMAP_WORDS];
+            fill(w, 0);
+            return new BitmapContainer(w, cardinality);
+        }
+
+        Container and(Container c) {
+            char[] a = content, r = new char[cardinality];
+            int n = 0;
+            if (c instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer)c;
+                char[] b = o.content;
+                for (int i = 0, j = 0; i < cardinality && j < o.cardinality; ) {
+                    char x = a[i], y = b[j];
+                    if (x < y)
+                        i++;
+                    else if (x > y)
+                        j++;
+                    else {
+                        r[n++] = x;
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (c.contains(a[i]))
+                        r[n++] = a[i];
+                }
+            }
+            return new ArrayContainer(r, n);
+        }
+
+        Container or(Container c) {
+            if (!(c instanceof ArrayContainer))
+                return c.or(this);
+            ArrayContainer o = (ArrayContainer)c;
+            if (cardinality + o.cardinality > ARRAY_MAX) {
+                long[] w = new long[BITMAP_WORDS];
+                fill(w, 0);
+                o.fill(w, 0);
+                return BitmapContainer.of(w);
+            }
+            char[] a = content, b = o.content;
+            char[] r = new char[cardinality + o.cardinality];
+            int n = 0, i = 0, j = 0;
+            while (i < cardinality && j < o.cardinality) {
+                char x = a[i], y = b[j];
+                if (x <= y) {
+                    r[n++] = x;
+                    i++;
+                    if (x == y)
+                        j++;
+                } else {
+                    r[n++] = y;
+                    j++;
+                }
+            }
+            while (i < cardinality)
+                r[n++] = a[i++];
+            while (j < o.cardinality)
+                r[n++] = b[j++];
+            return new ArrayContainer(r, n);
+        }
+
+        Container andNot(Container c) {
+            char[] a = content, r = new char[cardinality];
+            int n = 0;
+            if (c instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer)c;
+                char[] b = o.content;
+                int j = 0;
+                for (int i = 0; i < cardinality; i++) {
+                    char x = a[i];
+                    while (j < o.cardinality && b[j] < x)
+                        j++;
+                    if (j == o.cardinality || b[j] != x)
+                        r[n++] = x;
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (!c.contains(a[i]))
+                        r[n++] = a[i];
+                }
+            }
+            return new ArrayContainer(r, n);
+        }
+
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(content, cardinality),
+                                      cardinality);
+        }
+
+        void fill(long[] w, int off) {
+            for (int i = 0; i < cardinality; i++) {
+                int x = content[i];
+                w[off + (x >>> 6)] |= 1L << x;
+            }
+        }
+
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++)
+                action.accept(base | content[i]);
+        }
+
+        boolean sameBits(Container c) {
+            if (!(c instanceof ArrayContainer))
+                return super.sameBits(c);
+            ArrayContainer o = (ArrayContainer)c;
+            if (cardinality != o.cardinality)
+                return false;
+            for (int i = 0; i < cardinality; i++) {
+                if (content[i] != o.content[i])
+                    return false;
+            }
+            return true;
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeByte(ARRAY);
+            out.writeInt(cardinality);
+            for (int i = 0; i < cardinality; i++)
+                out.writeChar(content[i]);
+        }
+
+        static ArrayContainer readFrom(DataInput in) throws IOException {
+            int n = in.readInt();
+            if (n <= 0 || n > ARRAY_MAX)
+                throw new InvalidObjectException("Invalid cardinality: " + n);
+            char[] a = new char[n];
+            for (int i = 0; i < n; i++) {
+                a[i] = in.readChar();
+                if (i > 0 && a[i] <= a[i - 1])
+                    throw new InvalidObjectException("Unsorted values");
+            }
+            return new ArrayContainer(a, n);
+        }
+    }
+
+    /**
+     * Bitmap of more than ARRAY_MAX values.
+     */
+    static final class BitmapContainer extends Container {
+        final long[] words;
+        int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        /**
+         * Returns a container with the bits of w, which becomes owned
+         * by the container if it is a bitmap.
+         */
+        static Container of(long[] w) {
+            int card = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++)
+                card += Long.bitCount(w[i]);
+            return (card <= ARRAY_MAX) ? ArrayContainer.fromBits(w, card) :
+                new BitmapContainer(w, card);
+        }
+
+        int cardinality() { return cardinality; }
+
+        boolean contains(int x) {
+            return (words[x >>> 6] & (1L << x)) != 0L;
+        }
+
+        int nextSetBit(int x) {
+            int i = x >>> 6;
+            long w = words[i] & (-1L << x);
+            while (w == 0L) {
+                if (++i == BITMAP_WORDS)
+                    return -1;
+                w = words[i];
+            }
+            return (i << 6) + Long.numberOfTrailingZeros(w);
+        }
+
+        int last() {
+            int i = BITMAP_WORDS - 1;
+            while (words[i] == 0L)
+                i--;
+            return (i << 6) + 63 - Long.numberOfLeadingZeros(words[i]);
+        }
+
+        int numberOfRuns() {
+            // count set bits whose predecessor is clear
+            int runs = 0;
+            long carry = 0L;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long w = words[i];
+                runs += Long.bitCount(w & ~((w << 1) | carry));
+                carry = w >>> 63;
+            }
+            return runs;
+        }
+
+        Container add(int x) {
+            long bit = 1L << x;
+            int i = x >>> 6;
+            if ((words[i] & bit) == 0L) {
+                words[i] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        Container remove(int x) {
+            long bit = 1L << x;
+            int i = x >>> 6;
+            if ((words[i] & bit) != 0L) {
+                words[i] &= ~bit;
+                if (--cardinality <= ARRAY_MAX)
+                    return ArrayContainer.fromBits(words, cardinality);
+            }
+            return this;
+        }
+
+        Container and(Container c) {
+            if (c instanceof ArrayContainer)
+                return c.and(this);
+            long[] a = words, b = c.bits(), r = new long[BITMAP_WORDS];
+            for (int i = 0; i < BITMAP_WORDS; i++)
+                r[i] = a[i] & b[i];
+            return of(r);
+        }
+
+        Container or(Container c) {
+            long[] r = words.clone();
+            if (c instanceof BitmapContainer) {
+                long[] b = ((BitmapContainer)c).words;
+                for (int i = 0; i < BITMAP_WORDS; i++)
+                    r[i] |= b[i];
+            } else {
+                c.fill(r, 0);
+            }
+            return of(r);
+        }
+
+        Container andNot(Container c) {
+            long[] r = words.clone();
+            if (c instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer)c;
+                for (int i = 0; i < o.cardinality; i++) {
+                    int x = o.content[i];
+                    r[x >>> 6] &= ~(1L << x);
+                }
+            } else {
+                long[] b = c.bits();
+                for (int i = 0; i < BITMAP_WORDS; i++)
+                    r[i] &= ~b[i];
+            }
+            return of(r);
+        }
+
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        long[] bits() {
+            return words;
+        }
+
+        void fill(long[] w, int off) {
+            long[] a = words;
+            for (int i = 0; i < BITMAP_WORDS; i++)
+                w[off + i] |= a[i];
+        }
+
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                for (long x = words[i]; x != 0L; x &= x - 1)
+                    action.accept(base | (i << 6) +
+                                  Long.numberOfTrailingZeros(x));
+            }
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeByte(BITMAP);
+            for (int i = 0; i < BITMAP_WORDS; i++)
+                out.writeLong(words[i]);
+        }
+
+        static Container readFrom(DataInput in) throws IOException {
+            long[] w = new long[BITMAP_WORDS];
+            for (int i = 0; i < BITMAP_WORDS; i++)
+                w[i] = in.readLong();
+            Container c = of(w);
+            if (c.isEmpty())
+                throw new InvalidObjectException("Empty container");
+            return c;
+        }
+    }
+
+    /**
+     * Sorted runs of values, held as (start, length - 1) pairs.
+     */
+    static final class RunContainer extends Container {
+        char[] runs;
+        int nruns;
+
+        RunContainer(char[] runs, int nruns) {
+            this.runs = runs;
+            this.nruns = nruns;
+        }
+
+        /** Returns a container of the values from lo to hi - 1 */
+        static RunContainer range(int lo, int hi) {
+            return new RunContainer(new char[] { (char)lo, (char)(hi - lo - 1) }, 1);
+        }
+
+        int start(int i) { return runs[i << 1]; }
+        int end(int i) { return runs[i << 1] + runs[(i << 1) + 1]; }
+
+        /** Returns the index of the last run starting at or before x, or -1 */
+        int find(int x) {
+            int lo = 0, hi = nruns - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (runs[mid << 1] <= x)
+                    lo = mid + 1;
+                else
+                    hi = mid - 1;
+            }
+            return hi;
+        }
+
+        int cardinality() {
+            int card = nruns;
+            for (int i = 1; i < (nruns << 1); i += 2)
+                card += runs[i];
+            return card;
+        }
+
+        boolean isEmpty() { return nruns == 0; }
+
+        boolean contains(int x) {
+            int i = find(x);
+            return i >= 0 && x <= end(i);
+        }
+
+        int nextSetBit(int x) {
+            int i = find(x);
+            if (i >= 0 && x <= end(i))
+                return x;
+            return (i + 1 < nruns) ? start(i + 1) : -1;
+        }
+
+        int last() { return end(nruns - 1); }
+
+        int numberOfRuns() { return nruns; }
+
+        private void insertRun(int i, int start, int end) {
+            if ((nruns << 1) == runs.length)
+                runs = Arrays.copyOf(runs, Math.max(4, runs.length << 1));
+            System.arraycopy(runs, i << 1, runs, (i + 1) << 1,
+                             (nruns - i) << 1);
+            runs[i << 1] = (char)start;
+            runs[(i << 1) + 1] = (char)(end - start);
+            nruns++;
+        }
+
+        private void deleteRun(int i) {
+            System.arraycopy(runs, (i + 1) << 1, runs, i << 1,
+                             (nruns - i - 1) << 1);
+            nruns--;
+        }
+
+        private void setRun(int i, int start, int end) {
+            runs[i << 1] = (char)start;
+            runs[(i << 1) + 1] = (char)(end - start);
+        }
+
+        Container add(int x) {
+            int i = find(x);
+            if (i >= 0 && x <= end(i))
+                return this;
+            boolean joinsPrev = i >= 0 && end(i) + 1 == x;
+            boolean joinsNext = i + 1 < nruns && start(i + 1) == x + 1;
+            if (joinsPrev && joinsNext) {
+                setRun(i, start(i), end(i + 1));
+                deleteRun(i + 1);
+            } else if (joinsPrev)
+                setRun(i, start(i), x);
+            else if (joinsNext)
+                setRun(i + 1, x, end(i + 1));
+            else {
+                insertRun(i + 1, x, x);
+                if (nruns > MAX_RUNS)
+                    return toNonRun();
+            }
+            return this;
+        }
+
+        Container remove(int x) {
+            int i = find(x);
+            if (i < 0 || x > end(i))
+                return this;
+            int s = start(i), e = end(i);
+            if (s == e)
+                deleteRun(i);
+            else if (x == s)
+                setRun(i, s + 1, e);
+            else if (x == e)
+                setRun(i, s, e - 1);
+            else {
+                setRun(i, s, x - 1);
+                insertRun(i + 1, x + 1, e);
+                if (nruns > MAX_RUNS)
+                    return toNonRun();
+            }
+            return this;
+        }
+
+        /** Returns the equivalent array or bitmap container */
+        Container toNonRun() {
+            int card = cardinality();
+            if (card > ARRAY_MAX) {
+                long[] w = new long[BITMAP_WORDS];
+                fill(w, 0);
+                return new BitmapContainer(w, card);
+            }
+            char[] a = new char[card];
+            int n = 0;
+            for (int i = 0; i < nruns; i++) {
+                for (int x = start(i), e = end(i); x <= e; x++)
+                    a[n++] = (char)x;
+            }
+            return new ArrayContainer(a, n);
+        }
+
+        Container and(Container c) {
+            if (!(c instanceof RunContainer))
+                return c.and(this);
+            RunContainer o = (RunContainer)c;
+            RunBuilder rb = new RunBuilder(nruns + o.nruns);
+            for (int i = 0, j = 0; i < nruns && j < o.nruns; ) {
+                int e1 = end(i), e2 = o.end(j);
+                int lo = Math.max(start(i), o.start(j)), hi = Math.min(e1, e2);
+                if (lo <= hi)
+                    rb.add(lo, hi);
+                if (e1 <= e2)
+                    i++;
+                else
+                    j++;
+            }
+            return rb.build();
+        }
+
+        Container or(Container c) {
+            if (!(c instanceof RunContainer))
+                return toNonRun().or(c);
+            RunContainer o = (RunContainer)c;
+            RunBuilder rb = new RunBuilder(nruns + o.nruns);
+            int i = 0, j = 0;
+            while (i < nruns || j < o.nruns) {
+                if (j == o.nruns || (i < nruns && start(i) <= o.start(j))) {
+                    rb.add(start(i), end(i));
+                    i++;
+                } else {
+                    rb.add(o.start(j), o.end(j));
+                    j++;
+                }
+            }
+            return rb.build();
+        }
+
+        Container andNot(Container c) {
+            if (!(c instanceof RunContainer))
+                return toNonRun().andNot(c);
+            RunContainer o = (RunContainer)c;
+            RunBuilder rb = new RunBuilder(nruns + o.nruns);
+            int j = 0;
+            for (int i = 0; i < nruns; i++) {
+                int cur = start(i), e = end(i);
+                while (j < o.nruns && o.end(j) < cur)
+                    j++;
+                for (int k = j; k < o.nruns && o.start(k) <= e; k++) {
+                    if (o.start(k) > cur)
+                        rb.add(cur, o.start(k) - 1);
+                    cur = Math.max(cur, o.end(k) + 1);
+                }
+                if (cur <= e)
+                    rb.add(cur, e);
+            }
+            return rb.build();
+        }
+
+        Container copy() {
+            return new RunContainer(Arrays.copyOf(runs, Math.max(2, nruns << 1)),
+                                    nruns);
+        }
+
+        void fill(long[] w, int off) {
+            for (int i = 0; i < nruns; i++)
+                setBits(w, off, start(i), end(i) + 1);
+        }
+
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < nruns; i++) {
+                for (int x = start(i), e = end(i); x <= e; x++)
+                    action.accept(base | x);
+            }
+        }
+
+        boolean sameBits(Container c) {
+            if (!(c instanceof RunContainer))
+                return super.sameBits(c);
+            RunContainer o = (RunContainer)c;
+            if (nruns != o.nruns)
+                return false;
+            for (int i = 0; i < (nruns << 1); i++) {
+                if (runs[i] != o.runs[i])
+                    return false;
+            }
+            return true;
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeByte(RUN);
+            out.writeInt(nruns);
+            for (int i = 0; i < (nruns << 1); i++)
+                out.writeChar(runs[i]);
+        }
+
+        static RunContainer readFrom(DataInput in) throws IOException {
+            int n = in.readInt();
+            if (n <= 0 || n > MAX_RUNS)
+                throw new InvalidObjectException("Invalid number of runs: " + n);
+            char[] r = new char[n << 1];
+            for (int i = 0, prevEnd = -2; i < n; i++) {
+                int s = r[i << 1] = in.readChar();
+                int e = s + (r[(i << 1) + 1] = in.readChar());
+                if (s <= prevEnd + 1 || e > 0xffff)
+                    throw new InvalidObjectException("Invalid run");
+                prevEnd = e;
+            }
+            return new RunContainer(r, n);
+        }
+    }
+
+    /**
+     * Accumulates runs given in ascending order of start, coalescing
+     * overlapping and adjacent ones.  Used both for run container
+     * operations and, as an IntConsumer, to convert other containers.
+     */
+    static final class RunBuilder implements IntConsumer {
+        char[] runs;
+        int nruns;
+        int lastEnd = -2;
+
+        RunBuilder(int capacity) {
+            runs = new char[Math.max(2, capacity << 1)];
+        }
+
+        void add(int start, int end) {
+            if (start <= lastEnd + 1) {
+                if (end > lastEnd) {
+                    runs[(nruns << 1) - 1] = (char)(end - runs[(nruns - 1) << 1]);
+                    lastEnd = end;
+                }
+            } else {
+                if ((nruns << 1) == runs.length)
+                    runs = Arrays.copyOf(runs, runs.length << 1);
+                runs[nruns << 1] = (char)start;
+                runs[(nruns << 1) + 1] = (char)(end - start);
+                nruns++;
+                lastEnd = end;
+            }
+        }
+
+        public void accept(int x) {
+            add(x, x);
+        }
+
+        Container build() {
+            RunContainer c = new RunContainer(runs, nruns);
+            return (nruns > MAX_RUNS) ? c.toNonRun() : c;
+        }
+    }
+}
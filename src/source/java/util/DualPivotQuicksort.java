@@ -89,6 +89,20 @@ final class DualPivotQuicksort {
      */
     private static final int COUNTING_SORT_THRESHOLD_FOR_SHORT_OR_CHAR = 3200;
 
+    /**
+     * If the length of an int, long, float or double array to be sorted
+     * is not less than this constant, and the array is not highly
+     * structured, radix sort is used in preference to Quicksort.
+     */
+    private static final int RADIX_SORT_THRESHOLD = 1 << 12;
+
+    /**
+     * The maximum length of a buffer allocated by radix sort.  Longer
+     * ranges are first partitioned in place on their most significant
+     * byte, so that extra memory is bounded for arrays of any length.
+     */
+    static final int MAX_RADIX_BUFFER = 1 << 22;
+
     /*
      * Sorting methods for seven primitive types.
      */
@@ -131,7 +145,7 @@ final class DualPivotQuicksort {
             } else { // equal
                 for (int m = MAX_RUN_LENGTH; ++k <= right && a[k - 1] == a[k]; ) {
                     if (--m == 0) {
-                        sort(a, left, right, true);
+                        unstructuredSort(a, left, right, work, workBase, workLen);
                         return;
                     }
                 }
@@ -142,7 +156,7 @@ final class DualPivotQuicksort {
              * use Quicksort instead of merge sort.
              */
             if (++count == MAX_RUN_COUNT) {
-                sort(a, left, right, true);
+                unstructuredSort(a, left, right, work, workBase, workLen);
                 return;
             }
         }
@@ -579,7 +593,7 @@ final class DualPivotQuicksort {
             } else { // equal
                 for (int m = MAX_RUN_LENGTH; ++k <= right && a[k - 1] == a[k]; ) {
                     if (--m == 0) {
-                        sort(a, left, right, true);
+                        unstructuredSort(a, left, right, work, workBase, workLen);
                         return;
                     }
                 }
@@ -590,7 +604,7 @@ final class DualPivotQuicksort {
              * use Quicksort instead of merge sort.
              */
             if (++count == MAX_RUN_COUNT) {
-                sort(a, left, right, true);
+                unstructuredSort(a, left, right, work, workBase, workLen);
                 return;
             }
         }
@@ -2127,7 +2141,7 @@ final class DualPivotQuicksort {
             } else { // equal
                 for (int m = MAX_RUN_LENGTH; ++k <= right && a[k - 1] == a[k]; ) {
                     if (--m == 0) {
-                        sort(a, left, right, true);
+                        unstructuredSort(a, left, right, work, workBase, workLen);
                         return;
                     }
                 }
@@ -2138,7 +2152,7 @@ final class DualPivotQuicksort {
              * use Quicksort instead of merge sort.
              */
             if (++count == MAX_RUN_COUNT) {
-                sort(a, left, right, true);
+                unstructuredSort(a, left, right, work, workBase, workLen);
                 return;
             }
         }
@@ -2666,7 +2680,7 @@ final class DualPivotQuicksort {
             } else { // equal
                 for (int m = MAX_RUN_LENGTH; ++k <= right && a[k - 1] == a[k]; ) {
                     if (--m == 0) {
-                        sort(a, left, right, true);
+                        unstructuredSort(a, left, right, work, workBase, workLen);
                         return;
                     }
                 }
@@ -2677,7 +2691,7 @@ final class DualPivotQuicksort {
              * use Quicksort instead of merge sort.
              */
             if (++count == MAX_RUN_COUNT) {
-                sort(a, left, right, true);
+                unstructuredSort(a, left, right, work, workBase, workLen);
                 return;
             }
         }
@@ -3075,4 +3089,731 @@ final class DualPivotQuicksort {
             sort(a, great + 1, right, false);
         }
     }
+
+    /*
+     * Radix sorting methods for int, long, float and double arrays.
+     *
+     * Elements are sorted by keys whose unsigned order is their numerical
+     * order: the sign bit is flipped for ints and longs, and for floats and
+     * doubles all bits are also flipped for negative values, which places
+     * -0.0 before 0.0.  NaNs must already have been moved out of the range.
+     */
+
+    /**
+     * Sorts the specified range of the array, which is known not to be
+     * highly structured, by radix sort if it is long enough, or else by
+     * Dual-Pivot Quicksort.
+     */
+    private static void unstructuredSort(int[] a, int left, int right,
+                                         int[] work, int workBase, int workLen) {
+        int n = right - left + 1;
+        if (n < RADIX_SORT_THRESHOLD) {
+            sort(a, left, right, true);
+        } else if (work != null && workLen >= n && workBase + n <= work.length) {
+            radixSort(a, left, right, work, workBase, 4);
+        } else if (n <= MAX_RADIX_BUFFER) {
+            radixSort(a, left, right, new int[n], 0, 4);
+        } else {
+            msdRadixSort(a, left, right, 24, null);
+        }
+    }
+
+    /**
+     * Sorts the specified range of the array in place, using at most
+     * {@link #MAX_RADIX_BUFFER} elements of extra memory.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     */
+    static void sortInPlace(int[] a, int left, int right) {
+        if (right - left < RADIX_SORT_THRESHOLD) {
+            sort(a, left, right, null, 0, 0);
+            return;
+        }
+        if (right - left < MAX_RADIX_BUFFER)
+            radixSort(a, left, right, new int[right - left + 1], 0, 4);
+        else
+            msdRadixSort(a, left, right, 24, null);
+    }
+
+    /**
+     * Returns the radix sort key of the given value: a bit pattern whose
+     * unsigned order is the numerical order of the values.
+     */
+    private static int radixKey(int v) {
+        return v ^ Integer.MIN_VALUE;
+    }
+
+    /**
+     * Sorts the specified range of the array by LSD radix sort on the
+     * lowest {@code digits} bytes of the keys of its elements, using the
+     * given workspace array slice, which must have room for the range.
+     * One pass computes the histograms of all bytes; each byte is then
+     * distributed in a branch-free pass, skipping bytes shared by all keys.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param work a workspace array (slice)
+     * @param workBase origin of usable space in work array
+     * @param digits the number of low-order bytes to sort on
+     */
+    private static void radixSort(int[] a, int left, int right,
+                                  int[] work, int workBase, int digits) {
+        int n = right - left + 1;
+        int[] count = new int[digits << 8];
+        for (int i = left; i <= right; ++i) {
+            int k = radixKey(a[i]);
+            for (int d = 0, shift = 0; d < digits; ++d, shift += 8) {
+                ++count[(d << 8) + ((int) (k >>> shift) & 0xFF)];
+            }
+        }
+        int[] src = a, dst = work;
+        int so = left, dso = workBase;
+        for (int d = 0, shift = 0; d < digits; ++d, shift += 8) {
+            int c = d << 8;
+            if (count[c + ((int) (radixKey(src[so]) >>> shift) & 0xFF)] == n) {
+                continue; // all keys have the same byte
+            }
+            // Convert the counts to positions in dst
+            for (int i = c, p = dso; i < c + 256; ++i) {
+                int t = count[i]; count[i] = p; p += t;
+            }
+            for (int i = so, end = so + n; i < end; ++i) {
+                int v = src[i];
+                dst[count[c + ((int) (radixKey(v) >>> shift) & 0xFF)]++] = v;
+            }
+            int[] t = src; src = dst; dst = t;
+            int o = so; so = dso; dso = o;
+        }
+        if (src != a) {
+            System.arraycopy(src, so, a, left, n);
+        }
+    }
+
+    /**
+     * Partitions the specified range of the array in place into 256
+     * buckets, ordered by the byte of the keys at the given shift
+     * (American flag sort), and returns the exclusive end index of each
+     * bucket.
+     *
+     * @param a the array to be partitioned
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, inclusive
+     * @param shift the position of the byte to partition on
+     * @return the end index of each bucket
+     */
+    static int[] partitionByByte(int[] a, int left, int right, int shift) {
+        int[] end = new int[256], next = new int[256];
+        for (int i = left; i <= right; ++i) {
+            ++end[(int) (radixKey(a[i]) >>> shift) & 0xFF];
+        }
+        for (int d = 0, p = left; d < 256; ++d) {
+            next[d] = p;
+            end[d] = p += end[d];
+        }
+        for (int d = 0; d < 256; ++d) {
+            while (next[d] < end[d]) {
+                // Follow the cycle of displaced elements back to bucket d
+                int v = a[next[d]];
+                for (int vd; (vd = (int) (radixKey(v) >>> shift) & 0xFF) != d; ) {
+                    int t = a[next[vd]];
+                    a[next[vd]++] = v;
+                    v = t;
+                }
+                a[next[d]++] = v;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Sorts the specified range of the array by MSD radix sort on the
+     * bytes of the keys at and below the given shift.  The range is
+     * partitioned in place on the byte at the shift, and each bucket is
+     * then sorted by LSD radix sort if it fits in the buffer, or else
+     * recursively.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param shift the position of the byte to partition on
+     * @param buffer the radix sort buffer, or null if not yet allocated
+     * @return the radix sort buffer, if allocated
+     */
+    private static int[] msdRadixSort(int[] a, int left, int right, int shift, int[] buffer) {
+        int[] end = partitionByByte(a, left, right, shift);
+        for (int d = 0, lo = left; d < 256; lo = end[d++]) {
+            int hi = end[d] - 1;
+            if (hi <= lo || shift == 0) {
+                continue; // elements of a bucket of the last byte are equal
+            }
+            if (hi - lo < RADIX_SORT_THRESHOLD) {
+                sort(a, lo, hi, lo == left);
+            } else if (hi - lo < MAX_RADIX_BUFFER) {
+                if (buffer == null) {
+                    buffer = new int[MAX_RADIX_BUFFER];
+                }
+                radixSort(a, lo, hi, buffer, 0, shift >>> 3);
+            } else {
+                buffer = msdRadixSort(a, lo, hi, shift - 8, buffer);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Sorts the specified range of the array, which is known not to be
+     * highly structured, by radix sort if it is long enough, or else by
+     * Dual-Pivot Quicksort.
+     */
+    private static void unstructuredSort(long[] a, int left, int right,
+                                         long[] work, int workBase, int workLen) {
+        int n = right - left + 1;
+        if (n < RADIX_SORT_THRESHOLD) {
+            sort(a, left, right, true);
+        } else if (work != null && workLen >= n && workBase + n <= work.length) {
+            radixSort(a, left, right, work, workBase, 8);
+        } else if (n <= MAX_RADIX_BUFFER) {
+            radixSort(a, left, right, new long[n], 0, 8);
+        } else {
+            msdRadixSort(a, left, right, 56, null);
+        }
+    }
+
+    /**
+     * Sorts the specified range of the array in place, using at most
+     * {@link #MAX_RADIX_BUFFER} elements of extra memory.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     */
+    static void sortInPlace(long[] a, int left, int right) {
+        if (right - left < RADIX_SORT_THRESHOLD) {
+            sort(a, left, right, null, 0, 0);
+            return;
+        }
+        if (right - left < MAX_RADIX_BUFFER)
+            radixSort(a, left, right, new long[right - left + 1], 0, 8);
+        else
+            msdRadixSort(a, left, right, 56, null);
+    }
+
+    /**
+     * Returns the radix sort key of the given value: a bit pattern whose
+     * unsigned order is the numerical order of the values.
+     */
+    private static long radixKey(long v) {
+        return v ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * Sorts the specified range of the array by LSD radix sort on the
+     * lowest {@code digits} bytes of the keys of its elements, using the
+     * given workspace array slice, which must have room for the range.
+     * One pass computes the histograms of all bytes; each byte is then
+     * distributed in a branch-free pass, skipping bytes shared by all keys.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param work a workspace array (slice)
+     * @param workBase origin of usable space in work array
+     * @param digits the number of low-order bytes to sort on
+     */
+    private static void radixSort(long[] a, int left, int right,
+                                  long[] work, int workBase, int digits) {
+        int n = right - left + 1;
+        int[] count = new int[digits << 8];
+        for (int i = left; i <= right; ++i) {
+            long k = radixKey(a[i]);
+            for (int d = 0, shift = 0; d < digits; ++d, shift += 8) {
+                ++count[(d << 8) + ((int) (k >>> shift) & 0xFF)];
+            }
+        }
+        long[] src = a, dst = work;
+        int so = left, dso = workBase;
+        for (int d = 0, shift = 0; d < digits; ++d, shift += 8) {
+            int c = d << 8;
+            if (count[c + ((int) (radixKey(src[so]) >>> shift) & 0xFF)] == n) {
+                continue; // all keys have the same byte
+            }
+            // Convert the counts to positions in dst
+            for (int i = c, p = dso; i < c + 256; ++i) {
+                int t = count[i]; count[i] = p; p += t;
+            }
+            for (int i = so, end = so + n; i < end; ++i) {
+                long v = src[i];
+                dst[count[c + ((int) (radixKey(v) >>> shift) & 0xFF)]++] = v;
+            }
+            long[] t = src; src = dst; dst = t;
+            int o = so; so = dso; dso = o;
+        }
+        if (src != a) {
+            System.arraycopy(src, so, a, left, n);
+        }
+    }
+
+    /**
+     * Partitions the specified range of the array in place into 256
+     * buckets, ordered by the byte of the keys at the given shift
+     * (American flag sort), and returns the exclusive end index of each
+     * bucket.
+     *
+     * @param a the array to be partitioned
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, inclusive
+     * @param shift the position of the byte to partition on
+     * @return the end index of each bucket
+     */
+    static int[] partitionByByte(long[] a, int left, int right, int shift) {
+        int[] end = new int[256], next = new int[256];
+        for (int i = left; i <= right; ++i) {
+            ++end[(int) (radixKey(a[i]) >>> shift) & 0xFF];
+        }
+        for (int d = 0, p = left; d < 256; ++d) {
+            next[d] = p;
+            end[d] = p += end[d];
+        }
+        for (int d = 0; d < 256; ++d) {
+            while (next[d] < end[d]) {
+                // Follow the cycle of displaced elements back to bucket d
+                long v = a[next[d]];
+                for (int vd; (vd = (int) (radixKey(v) >>> shift) & 0xFF) != d; ) {
+                    long t = a[next[vd]];
+                    a[next[vd]++] = v;
+                    v = t;
+                }
+                a[next[d]++] = v;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Sorts the specified range of the array by MSD radix sort on the
+     * bytes of the keys at and below the given shift.  The range is
+     * partitioned in place on the byte at the shift, and each bucket is
+     * then sorted by LSD radix sort if it fits in the buffer, or else
+     * recursively.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param shift the position of the byte to partition on
+     * @param buffer the radix sort buffer, or null if not yet allocated
+     * @return the radix sort buffer, if allocated
+     */
+    private static long[] msdRadixSort(long[] a, int left, int right, int shift, long[] buffer) {
+        int[] end = partitionByByte(a, left, right, shift);
+        for (int d = 0, lo = left; d < 256; lo = end[d++]) {
+            int hi = end[d] - 1;
+            if (hi <= lo || shift == 0) {
+                continue; // elements of a bucket of the last byte are equal
+            }
+            if (hi - lo < RADIX_SORT_THRESHOLD) {
+                sort(a, lo, hi, lo == left);
+            } else if (hi - lo < MAX_RADIX_BUFFER) {
+                if (buffer == null) {
+                    buffer = new long[MAX_RADIX_BUFFER];
+                }
+                radixSort(a, lo, hi, buffer, 0, shift >>> 3);
+            } else {
+                buffer = msdRadixSort(a, lo, hi, shift - 8, buffer);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Sorts the specified range of the array, which is known not to be
+     * highly structured, by radix sort if it is long enough, or else by
+     * Dual-Pivot Quicksort.
+     */
+    private static void unstructuredSort(float[] a, int left, int right,
+                                         float[] work, int workBase, int workLen) {
+        int n = right - left + 1;
+        if (n < RADIX_SORT_THRESHOLD) {
+            sort(a, left, right, true);
+        } else if (work != null && workLen >= n && workBase + n <= work.length) {
+            radixSort(a, left, right, work, workBase, 4);
+        } else if (n <= MAX_RADIX_BUFFER) {
+            radixSort(a, left, right, new float[n], 0, 4);
+        } else {
+            msdRadixSort(a, left, right, 24, null);
+        }
+    }
+
+    /**
+     * Sorts the specified range of the array, placing NaNs at the end, in place, using at most
+     * {@link #MAX_RADIX_BUFFER} elements of extra memory.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     */
+    static void sortInPlace(float[] a, int left, int right) {
+        if (right - left < RADIX_SORT_THRESHOLD) {
+            sort(a, left, right, null, 0, 0);
+            return;
+        }
+        /*
+         * Move NaNs to the end of the array, as sort does.  Radix sort
+         * places negative zeros before positive zeros by itself.
+         */
+        right = moveNaNsToEnd(a, left, right);
+        if (right <= left)
+            return;
+        if (right - left < MAX_RADIX_BUFFER)
+            radixSort(a, left, right, new float[right - left + 1], 0, 4);
+        else
+            msdRadixSort(a, left, right, 24, null);
+    }
+
+    /**
+     * Returns the radix sort key of the given value: a bit pattern whose
+     * unsigned order is the numerical order of the values.
+     */
+    private static int radixKey(float v) {
+        int k = Float.floatToRawIntBits(v);
+        return k ^ ((k >> 31) | Integer.MIN_VALUE);
+    }
+
+    /**
+     * Sorts the specified range of the array by LSD radix sort on the
+     * lowest {@code digits} bytes of the keys of its elements, using the
+     * given workspace array slice, which must have room for the range.
+     * One pass computes the histograms of all bytes; each byte is then
+     * distributed in a branch-free pass, skipping bytes shared by all keys.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param work a workspace array (slice)
+     * @param workBase origin of usable space in work array
+     * @param digits the number of low-order bytes to sort on
+     */
+    private static void radixSort(float[] a, int left, int right,
+                                  float[] work, int workBase, int digits) {
+        int n = right - left + 1;
+        int[] count = new int[digits << 8];
+        for (int i = left; i <= right; ++i) {
+            int k = radixKey(a[i]);
+            for (int d = 0, shift = 0; d < digits; ++d, shift += 8) {
+                ++count[(d << 8) + ((int) (k >>> shift) & 0xFF)];
+            }
+        }
+        float[] src = a, dst = work;
+        int so = left, dso = workBase;
+        for (int d = 0, shift = 0; d < digits; ++d, shift += 8) {
+            int c = d << 8;
+            if (count[c + ((int) (radixKey(src[so]) >>> shift) & 0xFF)] == n) {
+                continue; // all keys have the same byte
+            }
+            // Convert the counts to positions in dst
+            for (int i = c, p = dso; i < c + 256; ++i) {
+                int t = count[i]; count[i] = p; p += t;
+            }
+            for (int i = so, end = so + n; i < end; ++i) {
+                float v = src[i];
+                dst[count[c + ((int) (radixKey(v) >>> shift) & 0xFF)]++] = v;
+            }
+            float[] t = src; src = dst; dst = t;
+            int o = so; so = dso; dso = o;
+        }
+        if (src != a) {
+            System.arraycopy(src, so, a, left, n);
+        }
+    }
+
+    /**
+     * Partitions the specified range of the array in place into 256
+     * buckets, ordered by the byte of the keys at the given shift
+     * (American flag sort), and returns the exclusive end index of each
+     * bucket.
+     *
+     * @param a the array to be partitioned
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, inclusive
+     * @param shift the position of the byte to partition on
+     * @return the end index of each bucket
+     */
+    static int[] partitionByByte(float[] a, int left, int right, int shift) {
+        int[] end = new int[256], next = new int[256];
+        for (int i = left; i <= right; ++i) {
+            ++end[(int) (radixKey(a[i]) >>> shift) & 0xFF];
+        }
+        for (int d = 0, p = left; d < 256; ++d) {
+            next[d] = p;
+            end[d] = p += end[d];
+        }
+        for (int d = 0; d < 256; ++d) {
+            while (next[d] < end[d]) {
+                // Follow the cycle of displaced elements back to bucket d
+                float v = a[next[d]];
+                for (int vd; (vd = (int) (radixKey(v) >>> shift) & 0xFF) != d; ) {
+                    float t = a[next[vd]];
+                    a[next[vd]++] = v;
+                    v = t;
+                }
+                a[next[d]++] = v;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Sorts the specified range of the array by MSD radix sort on the
+     * bytes of the keys at and below the given shift.  The range is
+     * partitioned in place on the byte at the shift, and each bucket is
+     * then sorted by LSD radix sort if it fits in the buffer, or else
+     * recursively.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param shift the position of the byte to partition on
+     * @param buffer the radix sort buffer, or null if not yet allocated
+     * @return the radix sort buffer, if allocated
+     */
+    private static float[] msdRadixSort(float[] a, int left, int right, int shift, float[] buffer) {
+        int[] end = partitionByByte(a, left, right, shift);
+        for (int d = 0, lo = left; d < 256; lo = end[d++]) {
+            int hi = end[d] - 1;
+            if (hi <= lo || shift == 0) {
+                continue; // elements of a bucket of the last byte are equal
+            }
+            if (hi - lo < RADIX_SORT_THRESHOLD) {
+                sort(a, lo, hi, lo == left);
+            } else if (hi - lo < MAX_RADIX_BUFFER) {
+                if (buffer == null) {
+                    buffer = new float[MAX_RADIX_BUFFER];
+                }
+                radixSort(a, lo, hi, buffer, 0, shift >>> 3);
+            } else {
+                buffer = msdRadixSort(a, lo, hi, shift - 8, buffer);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Moves NaNs in the specified range of the array to its end.
+     *
+     * @param a the array
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, inclusive
+     * @return the index of the last element that is not NaN
+     */
+    static int moveNaNsToEnd(float[] a, int left, int right) {
+        while (left <= right && Float.isNaN(a[right])) {
+            --right;
+        }
+        for (int k = right; --k >= left; ) {
+            float ak = a[k];
+            if (ak != ak) { // a[k] is NaN
+                a[k] = a[right];
+                a[right] = ak;
+                --right;
+            }
+        }
+        return right;
+    }
+
+    /**
+     * Sorts the specified range of the array, which is known not to be
+     * highly structured, by radix sort if it is long enough, or else by
+     * Dual-Pivot Quicksort.
+     */
+    private static void unstructuredSort(double[] a, int left, int right,
+                                         double[] work, int workBase, int workLen) {
+        int n = right - left + 1;
+        if (n < RADIX_SORT_THRESHOLD) {
+            sort(a, left, right, true);
+        } else if (work != null && workLen >= n && workBase + n <= work.length) {
+            radixSort(a, left, right, work, workBase, 8);
+        } else if (n <= MAX_RADIX_BUFFER) {
+            radixSort(a, left, right, new double[n], 0, 8);
+        } else {
+            msdRadixSort(a, left, right, 56, null);
+        }
+    }
+
+    /**
+     * Sorts the specified range of the array, placing NaNs at the end, in place, using at most
+     * {@link #MAX_RADIX_BUFFER} elements of extra memory.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     */
+    static void sortInPlace(double[] a, int left, int right) {
+        if (right - left < RADIX_SORT_THRESHOLD) {
+            sort(a, left, right, null, 0, 0);
+            return;
+        }
+        /*
+         * Move NaNs to the end of the array, as sort does.  Radix sort
+         * places negative zeros before positive zeros by itself.
+         */
+        right = moveNaNsToEnd(a, left, right);
+        if (right <= left)
+            return;
+        if (right - left < MAX_RADIX_BUFFER)
+            radixSort(a, left, right, new double[right - left + 1], 0, 8);
+        else
+            msdRadixSort(a, left, right, 56, null);
+    }
+
+    /**
+     * Returns the radix sort key of the given value: a bit pattern whose
+     * unsigned order is the numerical order of the values.
+     */
+    private static long radixKey(double v) {
+        long k = Double.doubleToRawLongBits(v);
+        return k ^ ((k >> 63) | Long.MIN_VALUE);
+    }
+
+    /**
+     * Sorts the specified range of the array by LSD radix sort on the
+     * lowest {@code digits} bytes of the keys of its elements, using the
+     * given workspace array slice, which must have room for the range.
+     * One pass computes the histograms of all bytes; each byte is then
+     * distributed in a branch-free pass, skipping bytes shared by all keys.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param work a workspace array (slice)
+     * @param workBase origin of usable space in work array
+     * @param digits the number of low-order bytes to sort on
+     */
+    private static void radixSort(double[] a, int left, int right,
+                                  double[] work, int workBase, int digits) {
+        int n = right - left + 1;
+        int[] count = new int[digits << 8];
+        for (int i = left; i <= right; ++i) {
+            long k = radixKey(a[i]);
+            for (int d = 0, shift = 0; d < digits; ++d, shift += 8) {
+                ++count[(d << 8) + ((int) (k >>> shift) & 0xFF)];
+            }
+        }
+        double[] src = a, dst = work;
+        int so = left, dso = workBase;
+        for (int d = 0, shift = 0; d < digits; ++d, shift += 8) {
+            int c = d << 8;
+            if (count[c + ((int) (radixKey(src[so]) >>> shift) & 0xFF)] == n) {
+                continue; // all keys have the same byte
+            }
+            // Convert the counts to positions in dst
+            for (int i = c, p = dso; i < c + 256; ++i) {
+                int t = count[i]; count[i] = p; p += t;
+            }
+            for (int i = so, end = so + n; i < end; ++i) {
+                double v = src[i];
+                dst[count[c + ((int) (radixKey(v) >>> shift) & 0xFF)]++] = v;
+            }
+            double[] t = src; src = dst; dst = t;
+            int o = so; so = dso; dso = o;
+        }
+        if (src != a) {
+            System.arraycopy(src, so, a, left, n);
+        }
+    }
+
+    /**
+     * Partitions the specified range of the array in place into 256
+     * buckets, ordered by the byte of the keys at the given shift
+     * (American flag sort), and returns the exclusive end index of each
+     * bucket.
+     *
+     * @param a the array to be partitioned
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, inclusive
+     * @param shift the position of the byte to partition on
+     * @return the end index of each bucket
+     */
+    static int[] partitionByByte(double[] a, int left, int right, int shift) {
+        int[] end = new int[256], next = new int[256];
+        for (int i = left; i <= right; ++i) {
+            ++end[(int) (radixKey(a[i]) >>> shift) & 0xFF];
+        }
+        for (int d = 0, p = left; d < 256; ++d) {
+            next[d] = p;
+            end[d] = p += end[d];
+        }
+        for (int d = 0; d < 256; ++d) {
+            while (next[d] < end[d]) {
+                // Follow the cycle of displaced elements back to bucket d
+                double v = a[next[d]];
+                for (int vd; (vd = (int) (radixKey(v) >>> shift) & 0xFF) != d; ) {
+                    double t = a[next[vd]];
+                    a[next[vd]++] = v;
+                    v = t;
+                }
+                a[next[d]++] = v;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Sorts the specified range of the array by MSD radix sort on the
+     * bytes of the keys at and below the given shift.  The range is
+     * partitioned in place on the byte at the shift, and each bucket is
+     * then sorted by LSD radix sort if it fits in the buffer, or else
+     * recursively.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param shift the position of the byte to partition on
+     * @param buffer the radix sort buffer, or null if not yet allocated
+     * @return the radix sort buffer, if allocated
+     */
+    private static double[] msdRadixSort(double[] a, int left, int right, int shift, double[] buffer) {
+        int[] end = partitionByByte(a, left, right, shift);
+        for (int d = 0, lo = left; d < 256; lo = end[d++]) {
+            int hi = end[d] - 1;
+            if (hi <= lo || shift == 0) {
+                continue; // elements of a bucket of the last byte are equal
+            }
+            if (hi - lo < RADIX_SORT_THRESHOLD) {
+                sort(a, lo, hi, lo == left);
+            } else if (hi - lo < MAX_RADIX_BUFFER) {
+                if (buffer == null) {
+                    buffer = new double[MAX_RADIX_BUFFER];
+                }
+                radixSort(a, lo, hi, buffer, 0, shift >>> 3);
+            } else {
+                buffer = msdRadixSort(a, lo, hi, shift - 8, buffer);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Moves NaNs in the specified range of the array to its end.
+     *
+     * @param a the array
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, inclusive
+     * @return the index of the last element that is not NaN
+     */
+    static int moveNaNsToEnd(double[] a, int left, int right) {
+        while (left <= right && Double.isNaN(a[right])) {
+            --right;
+        }
+        for (int k = right; --k >= left; ) {
+            double ak = a[k];
+            if (ak != ak) { // a[k] is NaN
+                a[k] = a[right];
+                a[right] = ak;
+                --right;
+            }
+        }
+        return right;
+    }
 }
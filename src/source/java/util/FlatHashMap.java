@@ -0,0 +1,1391 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import sun.misc.SharedSecrets;
+
+/**
+ * Hash table based implementation of the <tt>Map</tt> interface that
+ * stores its mappings in flat arrays rather than in per-mapping node
+ * objects.  This implementation provides all of the optional map
+ * operations, and permits <tt>null</tt> values and the <tt>null</tt>
+ * key.  Like {@link HashMap}, this class makes no guarantees as to the
+ * order of the map; in particular, it does not guarantee that the order
+ * will remain constant over time.
+ *
+ * <p>Keys, values and the cached hash code of each key are held in
+ * three parallel arrays, using open addressing with linear probing
+ * and "Robin Hood" displacement.  Compared to <tt>HashMap</tt>, this
+ * avoids allocating a node for each mapping, so a map of <i>n</i>
+ * mappings occupies roughly 12<i>n</i>/<i>loadFactor</i> bytes
+ * (with compressed references) in addition to the keys and values
+ * themselves, and lookups touch contiguous memory.  On the other
+ * hand, it does not convert long collision chains into trees, so it
+ * is not suitable for keys whose hash codes collide heavily.
+ *
+ * <p>This implementation provides constant-time performance for the
+ * basic operations (<tt>get</tt> and <tt>put</tt>), assuming the hash
+ * function disperses the elements properly.  Iteration over
+ * collection views requires time proportional to the capacity of the
+ * table plus its size.
+ *
+ * <p>An instance of <tt>FlatHashMap</tt> has two parameters that affect
+ * its performance: <i>initial capacity</i> and <i>load factor</i>, with
+ * the same meaning as for <tt>HashMap</tt>, except that the load factor
+ * must be less than one.  The default load factor (.875) can be higher
+ * than <tt>HashMap</tt>'s, because Robin Hood probing keeps the
+ * variance of probe lengths low.  When the table is rehashed, the
+ * cached hash codes are reused, so keys' <tt>hashCode</tt> methods are
+ * not called again.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a flat hash map concurrently, and at least
+ * one of the threads modifies the map structurally, it <i>must</i> be
+ * synchronized externally.
+ *
+ * <p>The iterators returned by all of this class's "collection view
+ * methods" are <i>fail-fast</i>, in the same manner as those of
+ * <tt>HashMap</tt>.  The entries returned by the entry set iterator
+ * are snapshots: {@link Map.Entry#setValue setValue} writes through to
+ * the map only while the key is still present.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see     HashMap
+ * @see     IdentityHashMap
+ * @since   1.8
+ */
+public class FlatHashMap<K,V> extends AbstractMap<K,V>
+    implements Map<K,V>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = -3894261850172467023L;
+
+    /*
+     * Implementation notes.
+     *
+     * Slot i of the table holds keys[i], vals[i] and hashes[i], the
+     * hash of the key.  Hashes are the key's hashCode multiplied by
+     * the 32-bit golden ratio, with the low bit forced on; a zero
+     * hash marks an empty slot.  The home slot of a hash is given by
+     * its top log2(capacity) bits (Fibonacci hashing), which depend on
+     * all bits of the hashCode, so no further spreading is needed.
+     * The null key is stored as NULL_KEY, as in IdentityHashMap.
+     *
+     * Collisions are resolved by linear probing with Robin Hood
+     * displacement: an entry being inserted takes the slot of any
+     * resident that is closer to its own home slot, and the resident
+     * continues the probe instead.  This keeps each cluster sorted by
+     * home slot, so a lookup can stop as soon as it reaches an empty
+     * slot or a resident with a shorter probe distance than its own.
+     * Comparing cached hashes before calling equals avoids touching
+     * the keys of most non-matching slots.
+     *
+     * Removal uses backward shifting rather than tombstones: the
+     * following entries of the cluster, up to an empty slot or an
+     * entry already in its home slot, are each moved back one slot.
+     *
+     * Iterators traverse slots in descending order, so that the
+     * backward shifts caused by Iterator.remove only move entries
+     * that have already been visited -- except when a cluster wraps
+     * around the end of the table, in which case the entry moved
+     * from slot 0 to the last slot is remembered and returned after
+     * the traversal, as done in other open-addressing tables.
+     */
+
+    /**
+     * The default initial capacity - MUST be a power of two.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * The minimum capacity, which keeps the index shift below 32.
+     */
+    static final int MINIMUM_CAPACITY = 4;
+
+    /**
+     * The maximum capacity.  MUST be a power of two <= 1<<30.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The load factor used when none specified in constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.875f;
+
+    /**
+     * Multiplier for Fibonacci hashing: 2^32 divided by the golden ratio.
+     */
+    static final int GOLDEN = 0x9e3779b9;
+
+    /**
+     * Value representing null keys inside tables.
+     */
+    static final Object NULL_KEY = new Object();
+
+    /**
+     * The cached hashes of the keys, or zero for empty slots.
+     * Length MUST always be a power of two.
+     */
+    transient int[] hashes;
+
+    /**
+     * The keys, with null represented by NULL_KEY.
+     */
+    transient Object[] keys;
+
+    /**
+     * The values.
+     */
+    transient Object[] vals;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * 32 minus log2 of the capacity.
+     */
+    transient int shift;
+
+    /**
+     * The size at which the table is resized.
+     */
+    transient int threshold;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    // Views
+
+    transient Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * Returns the internal representation of a key.
+     */
+    static Object maskNull(Object key) {
+        return (key == null ? NULL_KEY : key);
+    }
+
+    /**
+     * Returns the external representation of an internal key.
+     */
+    static Object unmaskNull(Object key) {
+        return (key == NULL_KEY ? null : key);
+    }
+
+    /**
+     * Returns the cached hash of a key, which is never zero.
+     */
+    static int hash(Object key) {
+        return ((key == null) ? 0 : key.hashCode()) * GOLDEN | 1;
+    }
+
+    /**
+     * Returns the smallest power of two capacity whose threshold is at
+     * least the given number of mappings.
+     */
+    static int capacityFor(int mappings, float loadFactor) {
+        int cap = MINIMUM_CAPACITY;
+        while (cap < MAXIMUM_CAPACITY && thresholdFor(cap, loadFactor) < mappings)
+            cap <<= 1;
+        return cap;
+    }
+
+    static int thresholdFor(int cap, float loadFactor) {
+        return Math.min((int)(cap * loadFactor), cap - 1);
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Constructs an empty <tt>FlatHashMap</tt> with room for the specified
+     * number of mappings before resizing, and the specified load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not greater than zero and less than one
+     */
+    public FlatHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        init(capacityFor(initialCapacity, loadFactor));
+    }
+
+    /**
+     * Constructs an empty <tt>FlatHashMap</tt> with room for the specified
+     * number of mappings before resizing, and the default load factor
+     * (0.875).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public FlatHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty <tt>FlatHashMap</tt> with the default initial
+     * capacity (16) and the default load factor (0.875).
+     */
+    public FlatHashMap() {
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+        init(capacityFor(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR));
+    }
+
+    /**
+     * Constructs a new <tt>FlatHashMap</tt> with the same mappings as the
+     * specified <tt>Map</tt>, created with the default load factor
+     * (0.875) and a capacity sufficient to hold the mappings.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null
+     */
+    public FlatHashMap(Map<? extends K, ? extends V> m) {
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+        init(capacityFor(Math.max(m.size(), DEFAULT_INITIAL_CAPACITY),
+                         DEFAULT_LOAD_FACTOR));
+        putAll(m);
+    }
+
+    /**
+     * Allocates empty tables of the given capacity.
+     */
+    private void init(int cap) {
+        hashes = new int[cap];
+        keys = new Object[cap];
+        vals = new Object[cap];
+        shift = 32 - Integer.numberOfTrailingZeros(cap);
+        threshold = thresholdFor(cap, loadFactor);
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no key-value mappings.
+     *
+     * @return <tt>true</tt> if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the slot holding the given internal key with the given
+     * hash, or if there is none, the complement (~j) of the slot j at
+     * which the probe for it ended, where it may be inserted.
+     */
+    final int find(int h, Object k) {
+        int[] hs = hashes;
+        Object[] ks = keys;
+        int mask = hs.length - 1, sh = shift;
+        for (int i = h >>> sh, d = 0; ; i = (i + 1) & mask, ++d) {
+            int c = hs[i];
+            Object x;
+            if (c == 0 || ((i - (c >>> sh)) & mask) < d)
+                return ~i;
+            if (c == h && ((x = ks[i]) == k || k.equals(x)))
+                return i;
+        }
+    }
+
+    /**
+     * Returns the slot holding the given key, or -1 if there is none.
+     */
+    final int indexOf(Object key) {
+        int i = find(hash(key), maskNull(key));
+        return (i < 0) ? -1 : i;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * <p>A return value of {@code null} does not <i>necessarily</i>
+     * indicate that the map contains no mapping for the key; it's also
+     * possible that the map explicitly maps the key to {@code null}.
+     * The {@link #containsKey containsKey} operation may be used to
+     * distinguish these two cases.
+     *
+     * @see #put(Object, Object)
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int i = indexOf(key);
+        return (i < 0) ? null : (V)vals[i];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        int i = indexOf(key);
+        return (i < 0) ? defaultValue : (V)vals[i];
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the
+     * specified key.
+     *
+     * @param   key   The key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     */
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     *         (A <tt>null</tt> return can also indicate that the map
+     *         previously associated <tt>null</tt> with <tt>key</tt>.)
+     */
+    public V put(K key, V value) {
+        return putVal(key, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return putVal(key, value, true);
+    }
+
+    /**
+     * Implements Map.put and related methods.
+     *
+     * @param onlyIfAbsent if true, don't change existing non-null value
+     * @return previous value, or null if none
+     */
+    @SuppressWarnings("unchecked")
+    final V putVal(K key, V value, boolean onlyIfAbsent) {
+        int h = hash(key);
+        Object k = maskNull(key);
+        int i = find(h, k);
+        if (i >= 0) {
+            V oldValue = (V)vals[i];
+            if (!onlyIfAbsent || oldValue == null)
+                vals[i] = value;
+            return oldValue;
+        }
+        addAt(i, h, k, value);
+        return null;
+    }
+
+    /**
+     * Adds a mapping for an internal key known to be absent, given the
+     * result of find for it, resizing first if needed.
+     */
+    private void addAt(int i, int h, Object k, Object v) {
+        if (size >= threshold) {
+            resize(hashes.length << 1);
+            i = find(h, k);
+        }
+        insertAt(~i, h, k, v);
+        ++modCount;
+        ++size;
+    }
+
+    /**
+     * Places a mapping known to be absent, displacing residents that
+     * are closer to their home slots.  The table must have room.
+     */
+    private void insert(int h, Object k, Object v) {
+        insertAt(h >>> shift, h, k, v);
+    }
+
+    /**
+     * Places a mapping known to be absent, continuing a probe for it
+     * that reached slot i without passing a resident closer to its
+     * home slot.
+     */
+    private void insertAt(int i, int h, Object k, Object v) {
+        int[] hs = hashes;
+        Object[] ks = keys, vs = vals;
+        int mask = hs.length - 1, sh = shift;
+        for (int d = (i - (h >>> sh)) & mask; ; i = (i + 1) & mask, ++d) {
+            int c = hs[i];
+            if (c == 0) {
+                hs[i] = h;
+                ks[i] = k;
+                vs[i] = v;
+                return;
+            }
+            int cd = (i - (c >>> sh)) & mask;
+            if (cd < d) {
+                Object rk = ks[i], rv = vs[i];
+                hs[i] = h;
+                ks[i] = k;
+                vs[i] = v;
+                h = c;
+                k = rk;
+                v = rv;
+                d = cd;
+            }
+        }
+    }
+
+    /**
+     * Rehashes the contents into tables of the given capacity, using
+     * the cached hashes.
+     */
+    private void resize(int newCapacity) {
+        int[] oldHashes = hashes;
+        Object[] oldKeys = keys, oldVals = vals;
+        int oldCapacity = oldHashes.length;
+        if (oldCapacity >= MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Capacity exhausted.");
+        init(Math.min(newCapacity, MAXIMUM_CAPACITY));
+        for (int i = 0; i < oldCapacity; i++) {
+            int h = oldHashes[i];
+            if (h != 0)
+                insert(h, oldKeys[i], oldVals[i]);
+        }
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * These mappings will replace any mappings that this map had for
+     * any of the keys currently in the specified map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public void putAll(Map<? extends K, ? extends V> m) {
+        int n = m.size();
+        if (n == 0)
+            return;
+        if (n > threshold - size) {
+            int cap = capacityFor((int)Math.min(Integer.MAX_VALUE,
+                                                (long)size + n), loadFactor);
+            if (cap > hashes.length)
+                resize(cap);
+        }
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet())
+            putVal(e.getKey(), e.getValue(), false);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     *         (A <tt>null</tt> return can also indicate that the map
+     *         previously associated <tt>null</tt> with <tt>key</tt>.)
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int i = indexOf(key);
+        if (i < 0)
+            return null;
+        V oldValue = (V)vals[i];
+        removeAt(i);
+        return oldValue;
+    }
+
+    /**
+     * Removes the mapping in slot i, shifting the rest of its cluster
+     * back.  Returns the internal key of the entry moved from the
+     * first slot of the table to the last one, if any, else null.
+     */
+    final Object removeAt(int i) {
+        int[] hs = hashes;
+        Object[] ks = keys, vs = vals;
+        int mask = hs.length - 1, sh = shift;
+        Object wrapped = null;
+        for (int j = (i + 1) & mask; ; i = j, j = (j + 1) & mask) {
+            int c = hs[j];
+            if (c == 0 || (c >>> sh) == j)
+                break;
+            if (j == 0)
+                wrapped = ks[j];
+            hs[i] = c;
+            ks[i] = ks[j];
+            vs[i] = vs[j];
+        }
+        hs[i] = 0;
+        ks[i] = null;
+        vs[i] = null;
+        ++modCount;
+        --size;
+        return wrapped;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        ++modCount;
+        if (size > 0) {
+            size = 0;
+            Arrays.fill(hashes, 0);
+            Arrays.fill(keys, null);
+            Arrays.fill(vals, null);
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(Object value) {
+        if (size > 0) {
+            int[] hs = hashes;
+            Object[] vs = vals;
+            for (int i = 0; i < hs.length; ++i) {
+                Object v;
+                if (hs[i] != 0 &&
+                    ((v = vs[i]) == value || (value != null && value.equals(v))))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  If the map is modified
+     * while an iteration over the set is in progress (except through
+     * the iterator's own <tt>remove</tt> operation), the results of
+     * the iteration are undefined.  The set supports element removal,
+     * which removes the corresponding mapping from the map, via the
+     * <tt>Iterator.remove</tt>, <tt>Set.remove</tt>,
+     * <tt>removeAll</tt>, <tt>retainAll</tt>, and <tt>clear</tt>
+     * operations.  It does not support the <tt>add</tt> or <tt>addAll</tt>
+     * operations.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    public Set<K> keySet() {
+        Set<K> ks = keySet;
+        if (ks == null) {
+            ks = new KeySet();
+            keySet = ks;
+        }
+        return ks;
+    }
+
+    final class KeySet extends AbstractSet<K> {
+        public final int size()                 { return size; }
+        public final void clear()               { FlatHashMap.this.clear(); }
+        public final Iterator<K> iterator()     { return new KeyIterator(); }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object key) {
+            int i = indexOf(key);
+            if (i < 0)
+                return false;
+            removeAt(i);
+            return true;
+        }
+        public final Spliterator<K> spliterator() {
+            return new KeySpliterator<>(FlatHashMap.this, 0, -1, 0, 0);
+        }
+        @SuppressWarnings("unchecked")
+        public final void forEach(Consumer<? super K> action) {
+            if (action == null)
+                throw new NullPointerException();
+            if (size > 0) {
+                int[] hs = hashes;
+                Object[] ks = keys;
+                int mc = modCount;
+                for (int i = 0; i < hs.length; ++i) {
+                    if (hs[i] != 0)
+                        action.accept((K)unmaskNull(ks[i]));
+                }
+                if (modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     * The collection is backed by the map, so changes to the map are
+     * reflected in the collection, and vice-versa.  If the map is
+     * modified while an iteration over the collection is in progress
+     * (except through the iterator's own <tt>remove</tt> operation),
+     * the results of the iteration are undefined.  The collection
+     * supports element removal, which removes the corresponding
+     * mapping from the map, via the <tt>Iterator.remove</tt>,
+     * <tt>Collection.remove</tt>, <tt>removeAll</tt>,
+     * <tt>retainAll</tt> and <tt>clear</tt> operations.  It does not
+     * support the <tt>add</tt> or <tt>addAll</tt> operations.
+     *
+     * @return a view of the values contained in this map
+     */
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
+    }
+
+    final class Values extends AbstractCollection<V> {
+        public final int size()                 { return size; }
+        public final void clear()               { FlatHashMap.this.clear(); }
+        public final Iterator<V> iterator()     { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+        public final Spliterator<V> spliterator() {
+            return new ValueSpliterator<>(FlatHashMap.this, 0, -1, 0, 0);
+        }
+        @SuppressWarnings("unchecked")
+        public final void forEach(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            if (size > 0) {
+                int[] hs = hashes;
+                Object[] vs = vals;
+                int mc = modCount;
+                for (int i = 0; i < hs.length; ++i) {
+                    if (hs[i] != 0)
+                        action.accept((V)vs[i]);
+                }
+                if (modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  If the map is modified
+     * while an iteration over the set is in progress (except through
+     * the iterator's own <tt>remove</tt> operation, or through the
+     * <tt>setValue</tt> operation on a map entry returned by the
+     * iterator) the results of the iteration are undefined.  The set
+     * supports element removal, which removes the corresponding
+     * mapping from the map, via the <tt>Iterator.remove</tt>,
+     * <tt>Set.remove</tt>, <tt>removeAll</tt>, <tt>retainAll</tt> and
+     * <tt>clear</tt> operations.  It does not support the
+     * <tt>add</tt> or <tt>addAll</tt> operations.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public final int size()                 { return size; }
+        public final void clear()               { FlatHashMap.this.clear(); }
+        public final Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            int i = indexOf(e.getKey());
+            return i >= 0 && Objects.equals(vals[i], e.getValue());
+        }
+        public final boolean remove(Object o) {
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+                int i = indexOf(e.getKey());
+                if (i >= 0 && Objects.equals(vals[i], e.getValue())) {
+                    removeAt(i);
+                    return true;
+                }
+            }
+            return false;
+        }
+        public final Spliterator<Map.Entry<K,V>> spliterator() {
+            return new EntrySpliterator<>(FlatHashMap.this, 0, -1, 0, 0);
+        }
+        public final void forEach(Consumer<? super Map.Entry<K,V>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            if (size > 0) {
+                int[] hs = hashes;
+                int mc = modCount;
+                for (int i = 0; i < hs.length; ++i) {
+                    if (hs[i] != 0)
+                        action.accept(new Entry<>(FlatHashMap.this, i));
+                }
+                if (modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    // Overrides of JDK8 Map extension methods
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        if (size > 0) {
+            int[] hs = hashes;
+            Object[] ks = keys, vs = vals;
+            int mc = modCount;
+            for (int i = 0; i < hs.length; ++i) {
+                if (hs[i] != 0)
+                    action.accept((K)unmaskNull(ks[i]), (V)vs[i]);
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        if (function == null)
+            throw new NullPointerException();
+        if (size > 0) {
+            int[] hs = hashes;
+            Object[] ks = keys, vs = vals;
+            int mc = modCount;
+            for (int i = 0; i < hs.length; ++i) {
+                if (hs[i] != 0)
+                    vs[i] = function.apply((K)unmaskNull(ks[i]), (V)vs[i]);
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    // Overrides of JDK8 Map extension methods, each probing the table
+    // once, as HashMap does.  A function that modifies the map would
+    // invalidate the slot found, so that is detected and rejected.
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ConcurrentModificationException if it is detected that the
+     * mapping function modified this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(K key,
+                             Function<? super K, ? extends V> mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        int h = hash(key);
+        Object k = maskNull(key);
+        int i = find(h, k);
+        V oldValue;
+        if (i >= 0 && (oldValue = (V)vals[i]) != null)
+            return oldValue;
+        int mc = modCount;
+        V v = mappingFunction.apply(key);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        if (v != null) {
+            if (i >= 0)
+                vals[i] = v;
+            else
+                addAt(i, h, k, v);
+        }
+        return v;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ConcurrentModificationException if it is detected that the
+     * remapping function modified this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfPresent(K key,
+                              BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        int i = indexOf(key);
+        V oldValue;
+        if (i >= 0 && (oldValue = (V)vals[i]) != null) {
+            int mc = modCount;
+            V v = remappingFunction.apply(key, oldValue);
+            if (mc != modCount)
+                throw new ConcurrentModificationException();
+            if (v == null)
+                removeAt(i);
+            else
+                vals[i] = v;
+            return v;
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ConcurrentModificationException if it is detected that the
+     * remapping function modified this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V compute(K key,
+                     BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        int h = hash(key);
+        Object k = maskNull(key);
+        int i = find(h, k);
+        V oldValue = (i >= 0) ? (V)vals[i] : null;
+        int mc = modCount;
+        V v = remappingFunction.apply(key, oldValue);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        if (i >= 0) {
+            if (v == null)
+                removeAt(i);
+            else
+                vals[i] = v;
+        }
+        else if (v != null)
+            addAt(i, h, k, v);
+        return v;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ConcurrentModificationException if it is detected that the
+     * remapping function modified this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V merge(K key, V value,
+                   BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (value == null || remappingFunction == null)
+            throw new NullPointerException();
+        int h = hash(key);
+        Object k = maskNull(key);
+        int i = find(h, k);
+        if (i < 0) {
+            addAt(i, h, k, value);
+            return value;
+        }
+        V oldValue = (V)vals[i], v;
+        if (oldValue == null)
+            v = value;
+        else {
+            int mc = modCount;
+            v = remappingFunction.apply(oldValue, value);
+            if (mc != modCount)
+                throw new ConcurrentModificationException();
+        }
+        if (v == null)
+            removeAt(i);
+        else
+            vals[i] = v;
+        return v;
+    }
+
+    /* ------------------------------------------------------------ */
+    // Cloning and serialization
+
+    /**
+     * Returns a shallow copy of this <tt>FlatHashMap</tt> instance: the keys
+     * and values themselves are not cloned.
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object clone() {
+        FlatHashMap<K,V> result;
+        try {
+            result = (FlatHashMap<K,V>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        result.hashes = hashes.clone();
+        result.keys = keys.clone();
+        result.vals = vals.clone();
+        result.entrySet = null;
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Save the state of the <tt>FlatHashMap</tt> instance to a stream (i.e.,
+     * serialize it).
+     *
+     * @serialData The <i>capacity</i> of the FlatHashMap (the length of the
+     *             tables) is emitted (int), followed by the
+     *             <i>size</i> (an int, the number of key-value
+     *             mappings), followed by the key (Object) and value (Object)
+     *             for each key-value mapping.  The key-value mappings are
+     *             emitted in no particular order.
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        // Write out the loadfactor
+        s.defaultWriteObject();
+        int[] hs = hashes;
+        Object[] ks = keys, vs = vals;
+        s.writeInt(hs.length);
+        s.writeInt(size);
+        for (int i = 0; i < hs.length; ++i) {
+            if (hs[i] != 0) {
+                s.writeObject(unmaskNull(ks[i]));
+                s.writeObject(vs[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws IOException if an I/O error occurs
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        float lf = loadFactor;
+        if (!(lf > 0 && lf < 1))
+            throw new InvalidObjectException("Illegal load factor: " + lf);
+
+        s.readInt();                // Read and ignore capacity
+        int mappings = s.readInt(); // Read number of mappings (size)
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        int cap = capacityFor(mappings, lf);
+        SharedSecrets.getJavaOISAccess().checkArray(s, Object[].class, cap);
+        init(cap);
+
+        // Read the keys and values, and put the mappings in the FlatHashMap
+        for (int i = 0; i < mappings; i++) {
+            K key = (K) s.readObject();
+            V value = (V) s.readObject();
+            putVal(key, value, false);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // iterators
+
+    abstract class FlatIterator {
+        int next;             // slot of next entry, or -1
+        int current;          // slot of current entry, or -1
+        Object currentKey;    // internal key of current wrapped entry
+        ArrayList<Object> wrapped; // keys moved past the cursor by remove
+        int wrappedIndex;     // next element of wrapped to return
+        int expectedModCount; // for fast-fail
+
+        FlatIterator() {
+            expectedModCount = modCount;
+            current = -1;
+            next = seek(hashes.length - 1);
+        }
+
+        /** Returns the first occupied slot at or below i, or -1 */
+        final int seek(int i) {
+            int[] hs = hashes;
+            while (i >= 0 && hs[i] == 0)
+                --i;
+            return i;
+        }
+
+        public final boolean hasNext() {
+            return next >= 0 ||
+                (wrapped != null && wrappedIndex < wrapped.size());
+        }
+
+        final int nextSlot() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int i = next;
+            if (i >= 0) {
+                next = seek(i - 1);
+                current = i;
+                currentKey = null;
+                return i;
+            }
+            if (wrapped == null || wrappedIndex >= wrapped.size())
+                throw new NoSuchElementException();
+            Object k = wrapped.get(wrappedIndex++);
+            current = -1;
+            currentKey = k;
+            return find(hash(unmaskNull(k)), k);
+        }
+
+        public final void remove() {
+            int i = current;
+            Object k = currentKey;
+            if (i < 0 && k == null)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = -1;
+            currentKey = null;
+            if (i >= 0) {
+                Object w = removeAt(i);
+                if (w != null) {
+                    if (wrapped == null)
+                        wrapped = new ArrayList<>(2);
+                    wrapped.add(w);
+                }
+                if (next >= 0)
+                    next = seek(next);
+            } else {
+                // traversal of the table is complete; shifts are harmless
+                removeAt(find(hash(unmaskNull(k)), k));
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    final class KeyIterator extends FlatIterator
+        implements Iterator<K> {
+        @SuppressWarnings("unchecked")
+        public final K next() { return (K)unmaskNull(keys[nextSlot()]); }
+    }
+
+    final class ValueIterator extends FlatIterator
+        implements Iterator<V> {
+        @SuppressWarnings("unchecked")
+        public final V next() { return (V)vals[nextSlot()]; }
+    }
+
+    final class EntryIterator extends FlatIterator
+        implements Iterator<Map.Entry<K,V>> {
+        public final Map.Entry<K,V> next() {
+            return new Entry<>(FlatHashMap.this, nextSlot());
+        }
+    }
+
+    /**
+     * Entry returned by the entry set.  Holds the key and value of the
+     * slot it was created from; setValue writes through to the map if
+     * the key is still present.
+     */
+    static final class Entry<K,V> implements Map.Entry<K,V> {
+        final FlatHashMap<K,V> map;
+        final K key;
+        V value;
+
+        @SuppressWarnings("unchecked")
+        Entry(FlatHashMap<K,V> map, int i) {
+            this.map = map;
+            this.key = (K)unmaskNull(map.keys[i]);
+            this.value = (V)map.vals[i];
+        }
+
+        public final K getKey()        { return key; }
+        public final V getValue()      { return value; }
+        public final String toString() { return key + "=" + value; }
+
+        public final V setValue(V newValue) {
+            V oldValue = value;
+            value = newValue;
+            int i = map.indexOf(key);
+            if (i >= 0)
+                map.vals[i] = newValue;
+            return oldValue;
+        }
+
+        public final int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        public final boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                if (Objects.equals(key, e.getKey()) &&
+                    Objects.equals(value, e.getValue()))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // spliterators
+
+    static class FlatMapSpliterator<K,V> {
+        final FlatHashMap<K,V> map;
+        int index;                  // current index, modified on advance/split
+        int fence;                  // one past last index
+        int est;                    // size estimate
+        int expectedModCount;       // for comodification checks
+
+        FlatMapSpliterator(FlatHashMap<K,V> m, int origin,
+                           int fence, int est,
+                           int expectedModCount) {
+            this.map = m;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                FlatHashMap<K,V> m = map;
+                est = m.size;
+                expectedModCount = m.modCount;
+                hi = fence = m.hashes.length;
+            }
+            return hi;
+        }
+
+        public final long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        /**
+         * Returns the next occupied slot below hi, or -1, advancing index.
+         */
+        final int advance(int hi) {
+            int[] hs = map.hashes;
+            if (hs.length >= hi && index >= 0) {
+                while (index < hi) {
+                    int i = index++;
+                    if (hs[i] != 0)
+                        return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the range of slots to traverse in forEachRemaining,
+         * as hi, or -1 if none, and exhausts this spliterator.
+         */
+        final int exhaust() {
+            FlatHashMap<K,V> m = map;
+            int hi;
+            if ((hi = fence) < 0) {
+                expectedModCount = m.modCount;
+                hi = fence = m.hashes.length;
+            }
+            return (m.hashes.length >= hi && index >= 0 && index < hi) ?
+                hi : -1;
+        }
+    }
+
+    static final class KeySpliterator<K,V>
+        extends FlatMapSpliterator<K,V>
+        implements Spliterator<K> {
+        KeySpliterator(FlatHashMap<K,V> m, int origin, int fence, int est,
+                       int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public KeySpliterator<K,V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new KeySpliterator<>(map, lo, index = mid, est >>>= 1,
+                                     expectedModCount);
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super K> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = index, hi = exhaust(), mc = expectedModCount;
+            if (hi >= 0) {
+                FlatHashMap<K,V> m = map;
+                int[] hs = m.hashes;
+                Object[] ks = m.keys;
+                for (index = hi; i < hi; ++i) {
+                    if (hs[i] != 0)
+                        action.accept((K)unmaskNull(ks[i]));
+                }
+                if (m.modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super K> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = advance(getFence());
+            if (i < 0)
+                return false;
+            action.accept((K)unmaskNull(map.keys[i]));
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return true;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT;
+        }
+    }
+
+    static final class ValueSpliterator<K,V>
+        extends FlatMapSpliterator<K,V>
+        implements Spliterator<V> {
+        ValueSpliterator(FlatHashMap<K,V> m, int origin, int fence, int est,
+                         int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public ValueSpliterator<K,V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new ValueSpliterator<>(map, lo, index = mid, est >>>= 1,
+                                       expectedModCount);
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = index, hi = exhaust(), mc = expectedModCount;
+            if (hi >= 0) {
+                FlatHashMap<K,V> m = map;
+                int[] hs = m.hashes;
+                Object[] vs = m.vals;
+                for (index = hi; i < hi; ++i) {
+                    if (hs[i] != 0)
+                        action.accept((V)vs[i]);
+                }
+                if (m.modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = advance(getFence());
+            if (i < 0)
+                return false;
+            action.accept((V)map.vals[i]);
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return true;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0);
+        }
+    }
+
+    static final class EntrySpliterator<K,V>
+        extends FlatMapSpliterator<K,V>
+        implements Spliterator<Map.Entry<K,V>> {
+        EntrySpliterator(FlatHashMap<K,V> m, int origin, int fence, int est,
+                         int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public EntrySpliterator<K,V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new EntrySpliterator<>(map, lo, index = mid, est >>>= 1,
+                                       expectedModCount);
+        }
+
+        public void forEachRemaining(Consumer<? super Map.Entry<K,V>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = index, hi = exhaust(), mc = expectedModCount;
+            if (hi >= 0) {
+                FlatHashMap<K,V> m = map;
+                int[] hs = m.hashes;
+                for (index = hi; i < hi; ++i) {
+                    if (hs[i] != 0)
+                        action.accept(new Entry<>(m, i));
+                }
+                if (m.modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+
+        public boolean tryAdvance(Consumer<? super Map.Entry<K,V>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = advance(getFence());
+            if (i < 0)
+                return false;
+            action.accept(new Entry<>(map, i));
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return true;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT;
+        }
+    }
+}
@@ -0,0 +1,741 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Hash set of primitive {@code int} values.  This class provides the
+ * usual operations of {@link HashSet} without boxing: elements are
+ * held directly in a single open-addressed {@code int[]} table, so a
+ * set of <i>n</i> elements occupies about
+ * <i>n</i>&times;{@value #BYTES}/<i>loadFactor</i> bytes and adding,
+ * testing or removing elements allocates nothing.  All {@code int}
+ * values may be added.
+ *
+ * <p>Elements are accessed through {@link PrimitiveIterator.OfInt},
+ * {@link Spliterator.OfInt} and {@link IntStream}.  Bulk additions from
+ * arrays are supported by {@link #addAll(int[])}.  This class makes no
+ * guarantees as to the iteration order of the set.
+ *
+ * <p>This class offers constant time performance for the basic
+ * operations ({@code add}, {@code remove} and {@code contains}),
+ * assuming the hash function disperses the elements properly; the
+ * table uses the same Robin Hood probing as {@link FlatHashMap}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The iterators and spliterators returned by this class are
+ * <i>fail-fast</i> in the same manner as those of {@code HashSet}.
+ *
+ * @see     HashSet
+ * @see     FlatHashMap
+ * @since   1.8
+ */
+public class IntHashSet implements Cloneable, java.io.Serializable {
+    private static final long serialVersionUID = 2812907457826170618L;
+
+    /*
+     * The table is organized as in FlatHashMap, except that there are
+     * no cached hashes: a zero element marks an empty slot, the home
+     * slot of an element is recomputed when needed (one multiply),
+     * and the element zero itself is represented by containsZero.
+     * Iterators return zero (if present) first, then traverse the
+     * table in descending order, remembering entries shifted across
+     * the end of the table by Iterator.remove.
+     */
+
+    /** The number of bytes per table slot */
+    static final int BYTES = Integer.BYTES;
+
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+    static final int MINIMUM_CAPACITY = 4;
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    /** Multiplier for Fibonacci hashing */
+    static final int GOLDEN = 0x9e3779b9;
+
+    /** The table; zero marks an empty slot. Length is a power of two. */
+    transient int[] table;
+
+    /** Whether the set contains zero, which is not held in the table */
+    transient boolean containsZero;
+
+    /** The number of elements, including zero */
+    transient int size;
+
+    /** 32 minus log2 of the capacity */
+    transient int shift;
+
+    /** The size at which the table is resized */
+    transient int threshold;
+
+    /** The number of times this set has been structurally modified */
+    transient int modCount;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /** Returns the home slot of a nonzero element */
+    static int home(int e, int shift) {
+        return (e * GOLDEN) >>> shift;
+    }
+
+    static int capacityFor(int n, float loadFactor) {
+        int cap = MINIMUM_CAPACITY;
+        while (cap < MAXIMUM_CAPACITY &&
+               Math.min((int)(cap * loadFactor), cap - 1) < n)
+            cap <<= 1;
+        return cap;
+    }
+
+    /**
+     * Constructs an empty set with room for the specified number of
+     * elements before resizing, and the specified load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not greater than zero and less than one
+     */
+    public IntHashSet(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        init(capacityFor(initialCapacity, loadFactor));
+    }
+
+    /**
+     * Constructs an empty set with room for the specified number of
+     * elements before resizing, and the default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public IntHashSet(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty set with the default initial capacity (16)
+     * and load factor (0.75).
+     */
+    public IntHashSet() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a set containing the distinct elements of the
+     * specified array.
+     *
+     * @param a the array whose elements are to be placed into this set
+     * @throws NullPointerException if the specified array is null
+     */
+    public IntHashSet(int[] a) {
+        this(a.length, DEFAULT_LOAD_FACTOR);
+        addAll(a);
+    }
+
+    private void init(int cap) {
+        table = new int[cap];
+        shift = 32 - Integer.numberOfTrailingZeros(cap);
+        threshold = Math.min((int)(cap * loadFactor), cap - 1);
+    }
+
+    /**
+     * Returns the number of elements in this set.
+     *
+     * @return the number of elements in this set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this set contains no elements.
+     *
+     * @return <tt>true</tt> if this set contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the slot holding the nonzero element e, or -1.
+     */
+    final int indexOf(int e) {
+        int[] t = table;
+        int mask = t.length - 1, sh = shift;
+        for (int i = home(e, sh), d = 0; ; i = (i + 1) & mask, ++d) {
+            int c = t[i];
+            if (c == e)
+                return i;
+            if (c == 0 || ((i - home(c, sh)) & mask) < d)
+                return -1;
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if this set contains the specified element.
+     *
+     * @param e element whose presence in this set is to be tested
+     * @return <tt>true</tt> if this set contains the specified element
+     */
+    public boolean contains(int e) {
+        return (e == 0) ? containsZero : indexOf(e) >= 0;
+    }
+
+    /**
+     * Adds the specified element to this set if it is not already present.
+     *
+     * @param e element to be added to this set
+     * @return <tt>true</tt> if this set did not already contain the
+     *         specified element
+     */
+    public boolean add(int e) {
+        if (e == 0) {
+            if (containsZero)
+                return false;
+            containsZero = true;
+        } else {
+            if (indexOf(e) >= 0)
+                return false;
+            if (size >= threshold)
+                resize(table.length << 1);
+            insert(e);
+        }
+        ++modCount;
+        ++size;
+        return true;
+    }
+
+    /**
+     * Places a nonzero element known to be absent, displacing residents
+     * closer to their home slots.  The table must have room.
+     */
+    private void insert(int e) {
+        int[] t = table;
+        int mask = t.length - 1, sh = shift;
+        for (int i = home(e, sh), d = 0; ; i = (i + 1) & mask, ++d) {
+            int c = t[i];
+            if (c == 0) {
+                t[i] = e;
+                return;
+            }
+            int cd = (i - home(c, sh)) & mask;
+            if (cd < d) {
+                t[i] = e;
+                e = c;
+                d = cd;
+            }
+        }
+    }
+
+    private void resize(int newCapacity) {
+        int[] old = table;
+        if (old.length >= MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Capacity exhausted.");
+        init(Math.min(newCapacity, MAXIMUM_CAPACITY));
+        for (int e : old) {
+            if (e != 0)
+                insert(e);
+        }
+    }
+
+    /**
+     * Adds all of the elements in the specified array to this set.
+     *
+     * @param a array containing elements to be added to this set
+     * @return <tt>true</tt> if this set changed as a result of the call
+     * @throws NullPointerException if the specified array is null
+     */
+    public boolean addAll(int[] a) {
+        int n = a.length;
+        if (n > threshold - size) {
+            int cap = capacityFor((int)Math.min(Integer.MAX_VALUE,
+                                                (long)size + n), loadFactor);
+            if (cap > table.length)
+                resize(cap);
+        }
+        boolean modified = false;
+        for (int e : a) {
+            if (add(e))
+                modified = true;
+        }
+        return modified;
+    }
+
+    /**
+     * Removes the specified element from this set if it is present.
+     *
+     * @param e element to be removed from this set, if present
+     * @return <tt>true</tt> if the set contained the specified element
+     */
+    public boolean remove(int e) {
+        if (e == 0) {
+            if (!containsZero)
+                return false;
+            containsZero = false;
+            ++modCount;
+            --size;
+            return true;
+        }
+        int i = indexOf(e);
+        if (i < 0)
+            return false;
+        removeAt(i);
+        return true;
+    }
+
+    /**
+     * Removes the element in slot i, shifting the rest of its cluster
+     * back.  Returns true if an element was moved from the first slot
+     * of the table to the last one.
+     */
+    final boolean removeAt(int i) {
+        int[] t = table;
+        int mask = t.length - 1, sh = shift;
+        boolean wrapped = false;
+        for (int j = (i + 1) & mask; ; i = j, j = (j + 1) & mask) {
+            int c = t[j];
+            if (c == 0 || home(c, sh) == j)
+                break;
+            if (j == 0)
+                wrapped = true;
+            t[i] = c;
+        }
+        t[i] = 0;
+        ++modCount;
+        --size;
+        return wrapped;
+    }
+
+    /**
+     * Removes all of the elements from this set.
+     */
+    public void clear() {
+        ++modCount;
+        if (size > 0) {
+            size = 0;
+            containsZero = false;
+            Arrays.fill(table, 0);
+        }
+    }
+
+    /**
+     * Removes all of the elements of this set that satisfy the given
+     * predicate.
+     *
+     * @param filter a predicate which returns {@code true} for elements
+     *        to be removed
+     * @return {@code true} if any elements were removed
+     * @throws NullPointerException if the specified filter is null
+     */
+    public boolean removeIf(IntPredicate filter) {
+        if (filter == null)
+            throw new NullPointerException();
+        boolean removed = false;
+        PrimitiveIterator.OfInt it = iterator();
+        while (it.hasNext()) {
+            if (filter.test(it.nextInt())) {
+                it.remove();
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this set, in
+     * no particular order.
+     *
+     * @return an array containing all of the elements in this set
+     */
+    public int[] toArray() {
+        int[] r = new int[size];
+        int n = 0;
+        if (containsZero)
+            r[n++] = 0;
+        for (int e : table) {
+            if (e != 0)
+                r[n++] = e;
+        }
+        return r;
+    }
+
+    /**
+     * Performs the given action for each element of this set.
+     *
+     * @param action the action to be performed for each element
+     * @throws NullPointerException if the specified action is null
+     */
+    public void forEach(IntConsumer action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (containsZero)
+            action.accept(0);
+        int[] t = table;
+        for (int i = 0; i < t.length; ++i) {
+            int e = t[i];
+            if (e != 0)
+                action.accept(e);
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns an iterator over the elements in this set.  The elements
+     * are returned in no particular order.  The iterator supports
+     * <tt>remove</tt>.
+     *
+     * @return an iterator over the elements in this set
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new Itr();
+    }
+
+    private final class Itr implements PrimitiveIterator.OfInt {
+        boolean zeroPending = containsZero; // zero not yet returned
+        int next;             // slot of next element, or -1
+        int current = -2;     // slot of last returned element, -1 for zero
+                              // or a wrapped element, -2 if none
+        int currentValue;     // last returned element
+        IntArrayList wrapped;  // elements moved past the cursor by remove
+        int wrappedIndex;     // next element of wrapped to return
+        int expectedModCount = modCount;
+
+        Itr() {
+            next = seek(table.length - 1);
+        }
+
+        /** Returns the first occupied slot at or below i, or -1 */
+        int seek(int i) {
+            int[] t = table;
+            while (i >= 0 && t[i] == 0)
+                --i;
+            return i;
+        }
+
+        public boolean hasNext() {
+            return zeroPending || next >= 0 ||
+                (wrapped != null && wrappedIndex < wrapped.size());
+        }
+
+        public int nextInt() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int e;
+            if (zeroPending) {
+                zeroPending = false;
+                current = -1;
+                e = 0;
+            } else if (next >= 0) {
+                e = table[current = next];
+                next = seek(next - 1);
+            } else if (wrapped != null && wrappedIndex < wrapped.size()) {
+                current = -1;
+                e = wrapped.get(wrappedIndex++);
+            } else
+                throw new NoSuchElementException();
+            return currentValue = e;
+        }
+
+        public void remove() {
+            int i = current;
+            if (i == -2)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = -2;
+            if (i >= 0) {
+                if (removeAt(i)) {
+                    if (wrapped == null)
+                        wrapped = new IntArrayList(2);
+                    wrapped.add(table[table.length - 1]);
+                }
+                if (next >= 0)
+                    next = seek(next);
+            } else {
+                // zero, or traversal of the table is complete
+                IntHashSet.this.remove(currentValue);
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Creates a <em>late-binding</em> and <em>fail-fast</em>
+     * {@link Spliterator.OfInt} over the elements in this set.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED} and
+     * {@link Spliterator#DISTINCT}.
+     *
+     * @return a {@code Spliterator.OfInt} over the elements in this set
+     */
+    public Spliterator.OfInt spliterator() {
+        return new IntHashSetSpliterator(this, 0, -1, 0, 0);
+    }
+
+    /**
+     * Returns a sequential {@code IntStream} with this set as its source.
+     *
+     * @return a sequential {@code IntStream} over the elements in this set
+     */
+    public IntStream stream() {
+        return StreamSupport.intStream(spliterator(), false);
+    }
+
+    /**
+     * Returns a possibly parallel {@code IntStream} with this set as its
+     * source.
+     *
+     * @return a possibly parallel {@code IntStream} over the elements in
+     *         this set
+     */
+    public IntStream parallelStream() {
+        return StreamSupport.intStream(spliterator(), true);
+    }
+
+    /**
+     * Spliterator over slots [index, fence) of the table, where the
+     * extra slot table.length stands for zero.  Follows the protocol
+     * of HashMap.HashMapSpliterator.
+     */
+    static final class IntHashSetSpliterator implements Spliterator.OfInt {
+        final IntHashSet set;
+        int index;                  // current index, modified on advance/split
+        int fence;                  // one past last index
+        int est;                    // size estimate
+        int expectedModCount;       // for comodification checks
+
+        IntHashSetSpliterator(IntHashSet s, int origin, int fence, int est,
+                            int expectedModCount) {
+            this.set = s;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                IntHashSet s = set;
+                est = s.size;
+                expectedModCount = s.modCount;
+                hi = fence = s.table.length + 1;
+            }
+            return hi;
+        }
+
+        public IntHashSetSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new IntHashSetSpliterator(set, lo, index = mid, est >>>= 1,
+                                        expectedModCount);
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence();
+            IntHashSet s = set;
+            int[] t = s.table;
+            if (t.length + 1 >= hi) {
+                while (index < hi) {
+                    int i = index++;
+                    if (i == t.length ? s.containsZero : t[i] != 0) {
+                        action.accept(i == t.length ? 0 : t[i]);
+                        if (s.modCount != expectedModCount)
+                            throw new ConcurrentModificationException();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            IntHashSet s = set;
+            int[] t = s.table;
+            int hi, mc;
+            if ((hi = fence) < 0) {
+                mc = expectedModCount = s.modCount;
+                hi = fence = t.length + 1;
+            } else
+                mc = expectedModCount;
+            int i = index;
+            if (t.length + 1 >= hi && i >= 0 && i < (index = hi)) {
+                int n = Math.min(hi, t.length);
+                for (; i < n; ++i) {
+                    int e = t[i];
+                    if (e != 0)
+                        action.accept(e);
+                }
+                if (hi > t.length && s.containsZero)
+                    action.accept(0);
+                if (s.modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+
+        public long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == set.size ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT;
+        }
+    }
+
+    /**
+     * Compares the specified object with this set for equality.
+     * Returns {@code true} if and only if the specified object is also
+     * an {@code IntHashSet} containing the same elements.
+     *
+     * @param o object to be compared for equality with this set
+     * @return {@code true} if the specified object is equal to this set
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof IntHashSet))
+            return false;
+        IntHashSet s = (IntHashSet) o;
+        if (s.size != size || s.containsZero != containsZero)
+            return false;
+        for (int e : table) {
+            if (e != 0 && s.indexOf(e) < 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this set, which is the same as
+     * that of a {@link Set} of the corresponding {@code Integer} values.
+     *
+     * @return the hash code value for this set
+     */
+    public int hashCode() {
+        int h = 0;
+        for (int e : table)
+            h += Integer.hashCode(e);
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this set, in the same form
+     * as that of a {@link Set} of the corresponding {@code Integer} values.
+     *
+     * @return a string representation of this set
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        forEach(e -> {
+            if (sb.length() > 1)
+                sb.append(',').append(' ');
+            sb.append(e);
+        });
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Returns a shallow copy of this <tt>IntHashSet</tt> instance.
+     *
+     * @return a clone of this set
+     */
+    public Object clone() {
+        try {
+            IntHashSet s = (IntHashSet) super.clone();
+            s.table = table.clone();
+            s.modCount = 0;
+            return s;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Save the state of this <tt>IntHashSet</tt> instance to a stream (that
+     * is, serialize it).
+     *
+     * @serialData The size of the set (the number of elements it
+     *             contains) is emitted (int), followed by all of its
+     *             elements (each a <tt>int</tt>) in no particular order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out the load factor
+        s.defaultWriteObject();
+        s.writeInt(size);
+        if (containsZero)
+            s.writeInt(0);
+        for (int e : table) {
+            if (e != 0)
+                s.writeInt(e);
+        }
+    }
+
+    /**
+     * Reconstitute the <tt>IntHashSet</tt> instance from a stream (that is,
+     * deserialize it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        float lf = loadFactor;
+        if (!(lf > 0 && lf < 1))
+            throw new java.io.InvalidObjectException("Illegal load factor: " +
+                                                     lf);
+        int n = s.readInt();
+        if (n < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " + n);
+        int cap = capacityFor(n, lf);
+        sun.misc.SharedSecrets.getJavaOISAccess().checkArray(s, int[].class, cap);
+        init(cap);
+        for (int i = 0; i < n; i++)
+            add(s.readInt());
+    }
+}
@@ -0,0 +1,902 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Hash table mapping primitive {@code int} keys to primitive
+ * {@code int} values.  This class provides the usual operations of a
+ * {@code HashMap<Integer,Integer>} without boxing: keys and values are
+ * held in two parallel {@code int[]} tables, so no objects are
+ * allocated per mapping, and {@link #addAndGet} supports the common use
+ * of such maps as tables of counters.  All {@code int} keys may be used.
+ *
+ * <p>Since there is no {@code null} for primitive values, methods
+ * that would return {@code null} in a {@link HashMap} instead return
+ * this map's {@linkplain #noEntryValue() no-entry value}, which is
+ * zero unless otherwise specified on construction, as in
+ * {@link java.util.concurrent.ConcurrentLongLongHashMap}.  Use
+ * {@link #containsKey} to distinguish absent keys from keys mapped to
+ * that value.
+ *
+ * <p>Keys are accessed through {@link #keyIterator()} and
+ * {@link #keyStream()}, which avoid boxing.  The table uses the same
+ * Robin Hood probing as {@link FlatHashMap}, and its iterators and
+ * spliterators are <i>fail-fast</i>.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ *
+ * @see     HashMap
+ * @see     IntHashSet
+ * @since   1.8
+ */
+public class IntIntHashMap implements Cloneable, java.io.Serializable {
+    private static final long serialVersionUID = 5913722408143275130L;
+
+    /*
+     * The table is organized as in IntHashSet, with values in a
+     * parallel array.  The mapping for key zero is held in
+     * containsZero and zeroValue.
+     */
+
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+    static final int MINIMUM_CAPACITY = 4;
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    /** Multiplier for Fibonacci hashing */
+    static final int GOLDEN = 0x9e3779b9;
+
+    /**
+     * Represents an operation that accepts an {@code int} key and an
+     * {@code int} value.
+     *
+     * @since 1.8
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        /**
+         * Performs this operation on the given mapping.
+         *
+         * @param key the key
+         * @param value the value
+         */
+        void accept(int key, int value);
+    }
+
+    /** The keys; zero marks an empty slot. Length is a power of two. */
+    transient int[] keys;
+
+    /** The values corresponding to keys */
+    transient int[] vals;
+
+    /** Whether there is a mapping for zero, which is not in the table */
+    transient boolean containsZero;
+
+    /** The value mapped to zero, if containsZero */
+    transient int zeroValue;
+
+    /** The number of mappings, including that of zero */
+    transient int size;
+
+    /** 32 minus log2 of the capacity */
+    transient int shift;
+
+    /** The size at which the table is resized */
+    transient int threshold;
+
+    /** The number of times this map has been structurally modified */
+    transient int modCount;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /**
+     * The value returned to indicate the absence of a mapping.
+     *
+     * @serial
+     */
+    final int noEntryValue;
+
+    /** Returns the home slot of a nonzero key */
+    static int home(int k, int shift) {
+        return (k * GOLDEN) >>> shift;
+    }
+
+    static int capacityFor(int n, float loadFactor) {
+        int cap = MINIMUM_CAPACITY;
+        while (cap < MAXIMUM_CAPACITY &&
+               Math.min((int)(cap * loadFactor), cap - 1) < n)
+            cap <<= 1;
+        return cap;
+    }
+
+    /**
+     * Constructs an empty map with room for the specified number of
+     * mappings before resizing, the specified load factor and the
+     * specified no-entry value.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @param  noEntryValue    the value returned by methods such as
+     *         {@link #get} when there is no mapping for a key
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not greater than zero and less than one
+     */
+    public IntIntHashMap(int initialCapacity, float loadFactor,
+                         int noEntryValue) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        this.noEntryValue = noEntryValue;
+        init(capacityFor(initialCapacity, loadFactor));
+    }
+
+    /**
+     * Constructs an empty map with room for the specified number of
+     * mappings before resizing, the default load factor (0.75), and a
+     * no-entry value of zero.
+     *
+     * @param  initialCapacity the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public IntIntHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR, 0);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16)
+     * and load factor (0.75), and a no-entry value of zero.
+     */
+    public IntIntHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR, 0);
+    }
+
+    private void init(int cap) {
+        keys = new int[cap];
+        vals = new int[cap];
+        shift = 32 - Integer.numberOfTrailingZeros(cap);
+        threshold = Math.min((int)(cap * loadFactor), cap - 1);
+    }
+
+    /**
+     * Returns the value returned by methods such as {@link #get}
+     * to indicate the absence of a mapping.
+     *
+     * @return the no-entry value
+     */
+    public int noEntryValue() {
+        return noEntryValue;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the slot holding the nonzero key k, or -1.
+     */
+    final int indexOf(int k) {
+        int[] t = keys;
+        int mask = t.length - 1, sh = shift;
+        for (int i = home(k, sh), d = 0; ; i = (i + 1) & mask, ++d) {
+            int c = t[i];
+            if (c == k)
+                return i;
+            if (c == 0 || ((i - home(c, sh)) & mask) < d)
+                return -1;
+        }
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or the no-entry value if this map contains no mapping for the
+     * key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     * the no-entry value if this map contains no mapping for the key
+     */
+    public int get(int key) {
+        return getOrDefault(key, noEntryValue);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or the
+     * given default value if this map contains no mapping for the
+     * key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if this map contains
+     * no mapping for the given key
+     * @return the mapping for the key, if present; else the default value
+     */
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == 0)
+            return containsZero ? zeroValue : defaultValue;
+        int i = indexOf(key);
+        return (i < 0) ? defaultValue : vals[i];
+    }
+
+    /**
+     * Tests if the specified key is a key in this map.
+     *
+     * @param key possible key
+     * @return {@code true} if and only if the specified key is a key
+     * in this map
+     */
+    public boolean containsKey(int key) {
+        return (key == 0) ? containsZero : indexOf(key) >= 0;
+    }
+
+    /**
+     * Maps the specified key to the specified value in this map.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         the no-entry value if there was no mapping for {@code key}
+     */
+    public int put(int key, int value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key,
+     *         or the no-entry value if there was no mapping for the key
+     */
+    public int putIfAbsent(int key, int value) {
+        return putVal(key, value, true);
+    }
+
+    private int putVal(int key, int value, boolean onlyIfAbsent) {
+        int old;
+        if (key == 0) {
+            if (containsZero) {
+                old = zeroValue;
+                if (!onlyIfAbsent)
+                    zeroValue = value;
+                return old;
+            }
+            containsZero = true;
+            zeroValue = value;
+        } else {
+            int i = indexOf(key);
+            if (i >= 0) {
+                old = vals[i];
+                if (!onlyIfAbsent)
+                    vals[i] = value;
+                return old;
+            }
+            if (size >= threshold)
+                resize(keys.length << 1);
+            insert(key, value);
+        }
+        ++modCount;
+        ++size;
+        return noEntryValue;
+    }
+
+    /**
+     * Adds the given value to the value mapped to the given key,
+     * treating an absent mapping as zero, and returns the updated
+     * value.
+     *
+     * @param key key with which the value is associated
+     * @param delta the value to add
+     * @return the updated value
+     */
+    public int addAndGet(int key, int delta) {
+        if (key == 0) {
+            if (containsZero)
+                return zeroValue += delta;
+        } else {
+            int i = indexOf(key);
+            if (i >= 0)
+                return vals[i] += delta;
+        }
+        putVal(key, delta, false);
+        return delta;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * computes its value using the given mapping function and enters
+     * it into this map.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key
+     * @throws NullPointerException if the mappingFunction is null
+     * @throws ConcurrentModificationException if the mapping function
+     *         modified this map
+     */
+    public int computeIfAbsent(int key, IntUnaryOperator mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        if (key == 0) {
+            if (containsZero)
+                return zeroValue;
+        } else {
+            int i = indexOf(key);
+            if (i >= 0)
+                return vals[i];
+        }
+        int mc = modCount;
+        int value = mappingFunction.applyAsInt(key);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        putVal(key, value, false);
+        return value;
+    }
+
+    /**
+     * Places a mapping for a nonzero key known to be absent, displacing
+     * residents closer to their home slots.  The table must have room.
+     */
+    private void insert(int k, int v) {
+        int[] t = keys, vs = vals;
+        int mask = t.length - 1, sh = shift;
+        for (int i = home(k, sh), d = 0; ; i = (i + 1) & mask, ++d) {
+            int c = t[i];
+            if (c == 0) {
+                t[i] = k;
+                vs[i] = v;
+                return;
+            }
+            int cd = (i - home(c, sh)) & mask;
+            if (cd < d) {
+                int cv = vs[i];
+                t[i] = k;
+                vs[i] = v;
+                k = c;
+                v = cv;
+                d = cd;
+            }
+        }
+    }
+
+    private void resize(int newCapacity) {
+        int[] oldKeys = keys, oldVals = vals;
+        if (oldKeys.length >= MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Capacity exhausted.");
+        init(Math.min(newCapacity, MAXIMUM_CAPACITY));
+        for (int i = 0; i < oldKeys.length; ++i) {
+            int k = oldKeys[i];
+            if (k != 0)
+                insert(k, oldVals[i]);
+        }
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this map.
+     * This method does nothing if the key is not in the map.
+     *
+     * @param key the key that needs to be removed
+     * @return the previous value associated with {@code key}, or
+     *         the no-entry value if there was no mapping for {@code key}
+     */
+    public int remove(int key) {
+        int old;
+        if (key == 0) {
+            if (!containsZero)
+                return noEntryValue;
+            containsZero = false;
+            old = zeroValue;
+            ++modCount;
+            --size;
+            return old;
+        }
+        int i = indexOf(key);
+        if (i < 0)
+            return noEntryValue;
+        old = vals[i];
+        removeAt(i);
+        return old;
+    }
+
+    /**
+     * Removes the entry for a key only if currently mapped to a given value.
+     *
+     * @param key key with which the specified value is associated
+     * @param value value expected to be associated with the specified key
+     * @return {@code true} if the value was removed
+     */
+    public boolean remove(int key, int value) {
+        if (!containsKey(key) || get(key) != value)
+            return false;
+        remove(key);
+        return true;
+    }
+
+    /**
+     * Replaces the entry for a key only if currently mapped to a given value.
+     *
+     * @param key key with which the specified value is associated
+     * @param oldValue value expected to be associated with the specified key
+     * @param newValue value to be associated with the specified key
+     * @return {@code true} if the value was replaced
+     */
+    public boolean replace(int key, int oldValue, int newValue) {
+        if (key == 0) {
+            if (!containsZero || zeroValue != oldValue)
+                return false;
+            zeroValue = newValue;
+            return true;
+        }
+        int i = indexOf(key);
+        if (i < 0 || vals[i] != oldValue)
+            return false;
+        vals[i] = newValue;
+        return true;
+    }
+
+    /**
+     * Removes the mapping in slot i, shifting the rest of its cluster
+     * back.  Returns true if a mapping was moved from the first slot
+     * of the table to the last one.
+     */
+    final boolean removeAt(int i) {
+        int[] t = keys, vs = vals;
+        int mask = t.length - 1, sh = shift;
+        boolean wrapped = false;
+        for (int j = (i + 1) & mask; ; i = j, j = (j + 1) & mask) {
+            int c = t[j];
+            if (c == 0 || home(c, sh) == j)
+                break;
+            if (j == 0)
+                wrapped = true;
+            t[i] = c;
+            vs[i] = vs[j];
+        }
+        t[i] = 0;
+        vs[i] = 0;
+        ++modCount;
+        --size;
+        return wrapped;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        ++modCount;
+        if (size > 0) {
+            size = 0;
+            containsZero = false;
+            Arrays.fill(keys, 0);
+            Arrays.fill(vals, 0);
+        }
+    }
+
+    /**
+     * Performs the given action for each mapping in this map.
+     *
+     * @param action the action
+     * @throws NullPointerException if the action is null
+     */
+    public void forEach(EntryConsumer action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (containsZero)
+            action.accept(0, zeroValue);
+        int[] t = keys, vs = vals;
+        for (int i = 0; i < t.length; ++i) {
+            int k = t[i];
+            if (k != 0)
+                action.accept(k, vs[i]);
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns an array containing the keys of this map, in no
+     * particular order.
+     *
+     * @return an array of the keys of this map
+     */
+    public int[] keys() {
+        int[] r = new int[size];
+        int n = 0;
+        if (containsZero)
+            r[n++] = 0;
+        for (int k : keys) {
+            if (k != 0)
+                r[n++] = k;
+        }
+        return r;
+    }
+
+    /**
+     * Returns an array containing the values of this map, in the same
+     * order as the keys returned by {@link #keys()} if the map is not
+     * modified in between.
+     *
+     * @return an array of the values of this map
+     */
+    public int[] values() {
+        int[] r = new int[size];
+        int n = 0;
+        if (containsZero)
+            r[n++] = zeroValue;
+        int[] t = keys, vs = vals;
+        for (int i = 0; i < t.length; ++i) {
+            if (t[i] != 0)
+                r[n++] = vs[i];
+        }
+        return r;
+    }
+
+    /**
+     * Returns an iterator over the keys of this map, in no particular
+     * order.  The iterator's {@code remove} method removes the
+     * corresponding mapping.
+     *
+     * @return an iterator over the keys of this map
+     */
+    public PrimitiveIterator.OfInt keyIterator() {
+        return new KeyIterator();
+    }
+
+    private final class KeyIterator implements PrimitiveIterator.OfInt {
+        // See IntHashSet.Itr
+        boolean zeroPending = containsZero;
+        int next;
+        int current = -2;
+        int currentKey;
+        IntArrayList wrapped;
+        int wrappedIndex;
+        int expectedModCount = modCount;
+
+        KeyIterator() {
+            next = seek(keys.length - 1);
+        }
+
+        int seek(int i) {
+            int[] t = keys;
+            while (i >= 0 && t[i] == 0)
+                --i;
+            return i;
+        }
+
+        public boolean hasNext() {
+            return zeroPending || next >= 0 ||
+                (wrapped != null && wrappedIndex < wrapped.size());
+        }
+
+        public int nextInt() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int k;
+            if (zeroPending) {
+                zeroPending = false;
+                current = -1;
+                k = 0;
+            } else if (next >= 0) {
+                k = keys[current = next];
+                next = seek(next - 1);
+            } else if (wrapped != null && wrappedIndex < wrapped.size()) {
+                current = -1;
+                k = wrapped.get(wrappedIndex++);
+            } else
+                throw new NoSuchElementException();
+            return currentKey = k;
+        }
+
+        public void remove() {
+            int i = current;
+            if (i == -2)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = -2;
+            if (i >= 0) {
+                if (removeAt(i)) {
+                    if (wrapped == null)
+                        wrapped = new IntArrayList(2);
+                    wrapped.add(keys[keys.length - 1]);
+                }
+                if (next >= 0)
+                    next = seek(next);
+            } else {
+                IntIntHashMap.this.remove(currentKey);
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Returns a sequential {@code IntStream} of the keys of this map.
+     * The stream's source is <em>late-binding</em> and <em>fail-fast</em>,
+     * and reports {@link Spliterator#SIZED} and
+     * {@link Spliterator#DISTINCT}.
+     *
+     * @return a sequential {@code IntStream} over the keys of this map
+     */
+    public IntStream keyStream() {
+        return StreamSupport.intStream(new KeySpliterator(this, 0, -1, 0, 0),
+                                       false);
+    }
+
+    /**
+     * Spliterator over the keys in slots [index, fence) of the table,
+     * where the extra slot keys.length stands for zero.
+     */
+    static final class KeySpliterator implements Spliterator.OfInt {
+        // See IntHashSet.IntHashSetSpliterator
+        final IntIntHashMap map;
+        int index;
+        int fence;
+        int est;
+        int expectedModCount;
+
+        KeySpliterator(IntIntHashMap m, int origin, int fence, int est,
+                       int expectedModCount) {
+            this.map = m;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() {
+            int hi;
+            if ((hi = fence) < 0) {
+                IntIntHashMap m = map;
+                est = m.size;
+                expectedModCount = m.modCount;
+                hi = fence = m.keys.length + 1;
+            }
+            return hi;
+        }
+
+        public KeySpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new KeySpliterator(map, lo, index = mid, est >>>= 1,
+                                   expectedModCount);
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence();
+            IntIntHashMap m = map;
+            int[] t = m.keys;
+            if (t.length + 1 >= hi) {
+                while (index < hi) {
+                    int i = index++;
+                    if (i == t.length ? m.containsZero : t[i] != 0) {
+                        action.accept(i == t.length ? 0 : t[i]);
+                        if (m.modCount != expectedModCount)
+                            throw new ConcurrentModificationException();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            IntIntHashMap m = map;
+            int[] t = m.keys;
+            int hi, mc;
+            if ((hi = fence) < 0) {
+                mc = expectedModCount = m.modCount;
+                hi = fence = t.length + 1;
+            } else
+                mc = expectedModCount;
+            int i = index;
+            if (t.length + 1 >= hi && i >= 0 && i < (index = hi)) {
+                int n = Math.min(hi, t.length);
+                for (; i < n; ++i) {
+                    int k = t[i];
+                    if (k != 0)
+                        action.accept(k);
+                }
+                if (hi > t.length && m.containsZero)
+                    action.accept(0);
+                if (m.modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+
+        public long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT;
+        }
+    }
+
+    /**
+     * Compares the specified object with this map for equality.
+     * Returns {@code true} if and only if the specified object is also
+     * an {@code IntIntHashMap} with the same mappings.  The no-entry
+     * values of the maps are not compared.
+     *
+     * @param o object to be compared for equality with this map
+     * @return {@code true} if the specified object is equal to this map
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof IntIntHashMap))
+            return false;
+        IntIntHashMap m = (IntIntHashMap) o;
+        if (m.size != size || m.containsZero != containsZero ||
+            (containsZero && m.zeroValue != zeroValue))
+            return false;
+        int[] t = keys, vs = vals;
+        for (int i = 0; i < t.length; ++i) {
+            int k = t[i], j;
+            if (k != 0 && ((j = m.indexOf(k)) < 0 || m.vals[j] != vs[i]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this map, which is the same as
+     * that of a {@link Map} of the corresponding {@code Integer} keys
+     * and values.
+     *
+     * @return the hash code value for this map
+     */
+    public int hashCode() {
+        int h = containsZero ? zeroValue : 0;
+        int[] t = keys, vs = vals;
+        for (int i = 0; i < t.length; ++i) {
+            if (t[i] != 0)
+                h += t[i] ^ vs[i];
+        }
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this map, in the same form as
+     * that of a {@link Map} of the corresponding {@code Integer} keys
+     * and values.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        forEach((k, v) -> {
+            if (sb.length() > 1)
+                sb.append(',').append(' ');
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Returns a shallow copy of this <tt>IntIntHashMap</tt> instance.
+     *
+     * @return a clone of this map
+     */
+    public Object clone() {
+        try {
+            IntIntHashMap m = (IntIntHashMap) super.clone();
+            m.keys = keys.clone();
+            m.vals = vals.clone();
+            m.modCount = 0;
+            return m;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Save the state of this <tt>IntIntHashMap</tt> instance to a stream
+     * (that is, serialize it).
+     *
+     * @serialData The size of the map (the number of mappings) is
+     *             emitted (int), followed by the key (int) and value
+     *             (int) of each mapping, in no particular order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out the load factor and no-entry value
+        s.defaultWriteObject();
+        s.writeInt(size);
+        if (containsZero) {
+            s.writeInt(0);
+            s.writeInt(zeroValue);
+        }
+        int[] t = keys, vs = vals;
+        for (int i = 0; i < t.length; ++i) {
+            if (t[i] != 0) {
+                s.writeInt(t[i]);
+                s.writeInt(vs[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the <tt>IntIntHashMap</tt> instance from a stream (that
+     * is, deserialize it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        float lf = loadFactor;
+        if (!(lf > 0 && lf < 1))
+            throw new java.io.InvalidObjectException("Illegal load factor: " +
+                                                     lf);
+        int n = s.readInt();
+        if (n < 0)
+            throw new java.io.InvalidObjectException("Illegal mappings count: " +
+                                                     n);
+        int cap = capacityFor(n, lf);
+        sun.misc.SharedSecrets.getJavaOISAccess().checkArray(s, int[].class, cap);
+        init(cap);
+        for (int i = 0; i < n; i++) {
+            int k = s.readInt();
+            putVal(k, s.readInt(), false);
+        }
+    }
+}
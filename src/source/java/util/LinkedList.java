@@ -1172,8 +1172,6 @@ public class LinkedList<E>
 
     /** A customized variant of Spliterators.IteratorSpliterator */
     static final class LLSpliterator<E> implements Spliterator<E> {
-        static final int BATCH_UNIT = 1 << 10;  // batch array size increment
-        static final int MAX_BATCH = 1 << 25;  // max batch array size;
         final LinkedList<E> list; // null OK unless traversed
         Node<E> current;      // current node; null until initialized
         int est;              // size estimate; -1 until first needed
@@ -1204,21 +1202,30 @@ public class LinkedList<E>
         public long estimateSize() { return (long) getEst(); }
 
         public Spliterator<E> trySplit() {
+            /*
+             * Split off ranges of nodes of geometrically increasing
+             * size (see Spliterators.nextBatchSize) rather than
+             * copying elements into arrays.  A split then costs only
+             * the traversal of the range, and each range is itself
+             * split by whichever thread processes it, so that
+             * traversal as well as processing proceeds in parallel.
+             */
             Node<E> p;
             int s = getEst();
             if (s > 1 && (p = current) != null) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
-                Object[] a = new Object[n];
+                int n = Spliterators.nextBatchSize(batch, s);
+                if (n >= s)
+                    n = s >>> 1;
+                Node<E> q = p;
                 int j = 0;
-                do { a[j++] = p.item; } while ((p = p.next) != null && j < n);
-                current = p;
+                do { q = q.next; } while (++j < n && q != null);
+                LLSpliterator<E> r =
+                    new LLSpliterator<E>(list, j, expectedModCount);
+                r.current = p;
+                current = q;
                 batch = j;
                 est = s - j;
-                return Spliterators.spliterator(a, 0, j, Spliterator.ORDERED);
+                return r;
             }
             return null;
         }
@@ -27,6 +27,7 @@ package java.util;
 
 import java.util.function.Consumer;
 import sun.misc.SharedSecrets;
+import sun.util.HeapPositions;
 
 /**
  * An unbounded priority {@linkplain Queue queue} based on a priority heap.
@@ -65,12 +66,25 @@ import sun.misc.SharedSecrets;
  * Instead, use the thread-safe {@link
  * java.util.concurrent.PriorityBlockingQueue} class.
  *
+ * <p>A priority queue may be constructed with a heap <i>arity</i>
+ * (number of children per node) other than two.  Wider heaps are
+ * shallower, so they perform fewer element moves and cache misses
+ * in {@code offer}, at the price of more comparisons per level in
+ * {@code poll}.  A priority queue may also be constructed as
+ * <i>indexed</i>, in which case it keeps track of the position of
+ * each element, identified by reference equality, so that it may be
+ * removed or {@linkplain #update repositioned} after a change of
+ * priority in logarithmic time.  An indexed queue may not hold the
+ * same element more than once.
+ *
  * <p>Implementation note: this implementation provides
  * O(log(n)) time for the enqueuing and dequeuing methods
  * ({@code offer}, {@code poll}, {@code remove()} and {@code add});
  * linear time for the {@code remove(Object)} and {@code contains(Object)}
- * methods; and constant time for the retrieval methods
- * ({@code peek}, {@code element}, and {@code size}).
+ * methods, other than for elements of indexed queues, for which they
+ * take O(log(n)) and constant time respectively; and constant time
+ * for the retrieval methods ({@code peek}, {@code element}, and
+ * {@code size}).
  *
  * <p>This class is a member of the
  * <a href="{@docRoot}/../technotes/guides/collections/index.html">
@@ -88,8 +102,14 @@ public class PriorityQueue<E> extends AbstractQueue<E>
     private static final int DEFAULT_INITIAL_CAPACITY = 11;
 
     /**
-     * Priority queue represented as a balanced binary heap: the two
-     * children of queue[n] are queue[2*n+1] and queue[2*(n+1)].  The
+     * The largest supported heap arity.
+     */
+    private static final int MAX_ARITY = 64;
+
+    /**
+     * Priority queue represented as a balanced d-ary heap, where d
+     * is a power of two (by default, a binary heap): the children of
+     * queue[n] are queue[d*n+1] through queue[d*n+d].  The
      * priority queue is ordered by comparator, or by the elements'
      * natural ordering, if comparator is null: For each node n in the
      * heap and each descendant d of n, n <= d.  The element with the
@@ -114,6 +134,27 @@ public class PriorityQueue<E> extends AbstractQueue<E>
      */
     transient int modCount = 0; // non-private to simplify nested class access
 
+    /**
+     * The base 2 logarithm of the heap arity.  Streams written before
+     * the arity was configurable lack this field, in which case it
+     * reads as zero, and the heap is binary.
+     *
+     * @serial
+     */
+    private int arityShift = 1;
+
+    /**
+     * Whether the positions of elements are tracked.
+     *
+     * @serial
+     */
+    private boolean indexed;
+
+    /**
+     * The index in queue of each element, if indexed, else null.
+     */
+    private transient HeapPositions positions;
+
     /**
      * Creates a {@code PriorityQueue} with the default initial
      * capacity (11) that orders its elements according to their
@@ -170,6 +211,37 @@ public class PriorityQueue<E> extends AbstractQueue<E>
         this.comparator = comparator;
     }
 
+    /**
+     * Creates a {@code PriorityQueue} with the specified initial capacity
+     * and heap arity that orders its elements according to the specified
+     * comparator, and that tracks the positions of its elements if
+     * {@code indexed} is true.
+     *
+     * @param  initialCapacity the initial capacity for this priority queue
+     * @param  comparator the comparator that will be used to order this
+     *         priority queue.  If {@code null}, the {@linkplain Comparable
+     *         natural ordering} of the elements will be used.
+     * @param  arity the number of children of each node of the heap,
+     *         a power of two from 2 to 64
+     * @param  indexed whether this queue keeps track of the position
+     *         of each element
+     * @throws IllegalArgumentException if {@code initialCapacity} is
+     *         less than 1, or {@code arity} is not a power of two from
+     *         2 to 64
+     * @since 1.8
+     */
+    public PriorityQueue(int initialCapacity,
+                         Comparator<? super E> comparator,
+                         int arity, boolean indexed) {
+        this(initialCapacity, comparator);
+        if (arity < 2 || arity > MAX_ARITY || (arity & (arity - 1)) != 0)
+            throw new IllegalArgumentException();
+        this.arityShift = Integer.numberOfTrailingZeros(arity);
+        this.indexed = indexed;
+        if (indexed)
+            positions = new HeapPositions(initialCapacity);
+    }
+
     /**
      * Creates a {@code PriorityQueue} containing the elements in the
      * specified collection.  If the specified collection is an instance of
@@ -247,7 +319,13 @@ public class PriorityQueue<E> extends AbstractQueue<E>
         if (c.getClass() == PriorityQueue.class) {
             this.queue = c.toArray();
             this.size = c.size();
+            this.arityShift = c.arityShift; // same heap layout
+            if (c.indexed) {
+                this.indexed = true;
+                indexElements();
+            }
         } else {
+            this.indexed = c.indexed;
             initFromCollection(c);
         }
     }
@@ -272,6 +350,8 @@ public class PriorityQueue<E> extends AbstractQueue<E>
      */
     private void initFromCollection(Collection<? extends E> c) {
         initElementsFromCollection(c);
+        if (indexed && !indexElements())
+            throw new IllegalArgumentException("Duplicate element");
         heapify();
     }
 
@@ -316,6 +396,8 @@ public class PriorityQueue<E> extends AbstractQueue<E>
      *         compared with elements currently in this priority queue
      *         according to the priority queue's ordering
      * @throws NullPointerException if the specified element is null
+     * @throws IllegalArgumentException if this queue is indexed and
+     *         already contains the specified element
      */
     public boolean add(E e) {
         return offer(e);
@@ -329,17 +411,27 @@ public class PriorityQueue<E> extends AbstractQueue<E>
      *         compared with elements currently in this priority queue
      *         according to the priority queue's ordering
      * @throws NullPointerException if the specified element is null
+     * @throws IllegalArgumentException if this queue is indexed and
+     *         already contains the specified element
      */
     public boolean offer(E e) {
         if (e == null)
             throw new NullPointerException();
+        HeapPositions pos = positions;
+        if (pos != null && pos.indexOf(e) >= 0)
+            throw new IllegalArgumentException("Element already present");
         modCount++;
         int i = size;
         if (i >= queue.length)
             grow(i + 1);
         size = i + 1;
-        if (i == 0)
+        if (pos != null)
+            pos.reserve(i);
+        if (i == 0) {
             queue[0] = e;
+            if (pos != null)
+                pos.set(e, 0, -1);
+        }
         else
             siftUp(i, e);
         return true;
@@ -371,7 +463,9 @@ public class PriorityQueue<E> extends AbstractQueue<E>
      * @return {@code true} if this queue changed as a result of the call
      */
     public boolean remove(Object o) {
-        int i = indexOf(o);
+        int i = (positions != null) ? positions.indexOf(o) : -1;
+        if (i == -1)
+            i = indexOf(o);
         if (i == -1)
             return false;
         else {
@@ -388,13 +482,51 @@ public class PriorityQueue<E> extends AbstractQueue<E>
      * @return {@code true} if removed
      */
     boolean removeEq(Object o) {
+        int i = indexOfEq(o);
+        if (i == -1)
+            return false;
+        removeAt(i);
+        return true;
+    }
+
+    /**
+     * Returns the index of o, compared by reference equality, or -1.
+     */
+    private int indexOfEq(Object o) {
+        if (positions != null)
+            return positions.indexOf(o);
         for (int i = 0; i < size; i++) {
-            if (o == queue[i]) {
-                removeAt(i);
-                return true;
-            }
+            if (o == queue[i])
+                return i;
         }
-        return false;
+        return -1;
+    }
+
+    /**
+     * Restores the ordering of this queue after a change to the
+     * specified element that may have changed its priority, such as a
+     * decrease of its key.  The element is identified by reference
+     * equality.  This method takes logarithmic time if this queue is
+     * indexed, and linear time otherwise.  Other changes to the
+     * priority of elements while in the queue lead to unspecified
+     * behavior.
+     *
+     * @param e the element whose priority has changed
+     * @return {@code true} if this queue contains the element
+     * @throws ClassCastException if the element cannot be compared
+     *         with elements currently in this priority queue
+     *         according to the priority queue's ordering
+     * @since 1.8
+     */
+    public boolean update(E e) {
+        int i = indexOfEq(e);
+        if (i == -1)
+            return false;
+        modCount++;
+        siftUp(i, e);
+        if (queue[i] == e)
+            siftDown(i, e);
+        return true;
     }
 
     /**
@@ -406,7 +538,8 @@ public class PriorityQueue<E> extends AbstractQueue<E>
      * @return {@code true} if this queue contains the specified element
      */
     public boolean contains(Object o) {
-        return indexOf(o) != -1;
+        return (positions != null && positions.indexOf(o) >= 0) ||
+            indexOf(o) != -1;
     }
 
     /**
@@ -580,6 +713,8 @@ public class PriorityQueue<E> extends AbstractQueue<E>
         for (int i = 0; i < size; i++)
             queue[i] = null;
         size = 0;
+        if (positions != null)
+            positions.clear();
     }
 
     @SuppressWarnings("unchecked")
@@ -591,6 +726,11 @@ public class PriorityQueue<E> extends AbstractQueue<E>
         E result = (E) queue[0];
         E x = (E) queue[s];
         queue[s] = null;
+        if (positions != null) {
+            positions.remove(0);
+            if (s != 0)
+                positions.move(s, 0);
+        }
         if (s != 0)
             siftDown(0, x);
         return result;
@@ -612,12 +752,16 @@ public class PriorityQueue<E> extends AbstractQueue<E>
     private E removeAt(int i) {
         // assert i >= 0 && i < size;
         modCount++;
+        if (positions != null)
+            positions.remove(i);
         int s = --size;
         if (s == i) // removed last element
             queue[i] = null;
         else {
             E moved = (E) queue[s];
             queue[s] = null;
+            if (positions != null)
+                positions.move(s, i);
             siftDown(i, moved);
             if (queue[i] == moved) {
                 siftUp(i, moved);
@@ -650,28 +794,42 @@ public class PriorityQueue<E> extends AbstractQueue<E>
     @SuppressWarnings("unchecked")
     private void siftUpComparable(int k, E x) {
         Comparable<? super E> key = (Comparable<? super E>) x;
+        HeapPositions pos = positions;
+        int xs = (pos == null) ? 0 : pos.slotAt(k);
+        int s = arityShift;
         while (k > 0) {
-            int parent = (k - 1) >>> 1;
+            int parent = (k - 1) >>> s;
             Object e = queue[parent];
             if (key.compareTo((E) e) >= 0)
                 break;
             queue[k] = e;
+            if (pos != null)
+                pos.move(parent, k);
             k = parent;
         }
         queue[k] = key;
+        if (pos != null)
+            pos.set(key, k, xs);
     }
 
     @SuppressWarnings("unchecked")
     private void siftUpUsingComparator(int k, E x) {
+        HeapPositions pos = positions;
+        int xs = (pos == null) ? 0 : pos.slotAt(k);
+        int s = arityShift;
         while (k > 0) {
-            int parent = (k - 1) >>> 1;
+            int parent = (k - 1) >>> s;
             Object e = queue[parent];
             if (comparator.compare(x, (E) e) >= 0)
                 break;
             queue[k] = e;
+            if (pos != null)
+                pos.move(parent, k);
             k = parent;
         }
         queue[k] = x;
+        if (pos != null)
+            pos.set(x, k, xs);
     }
 
     /**
@@ -692,38 +850,54 @@ public class PriorityQueue<E> extends AbstractQueue<E>
     @SuppressWarnings("unchecked")
     private void siftDownComparable(int k, E x) {
         Comparable<? super E> key = (Comparable<? super E>)x;
-        int half = size >>> 1;        // loop while a non-leaf
-        while (k < half) {
-            int child = (k << 1) + 1; // assume left child is least
+        HeapPositions pos = positions;
+        int xs = (pos == null) ? 0 : pos.slotAt(k);
+        int s = arityShift, n = size;
+        int last = (n - 2) >> s;      // loop while a non-leaf
+        while (k <= last) {
+            int child = (k << s) + 1; // find least child
             Object c = queue[child];
-            int right = child + 1;
-            if (right < size &&
-                ((Comparable<? super E>) c).compareTo((E) queue[right]) > 0)
-                c = queue[child = right];
+            int end = Math.min(child + (1 << s), n);
+            for (int j = child + 1; j < end; j++) {
+                if (((Comparable<? super E>) c).compareTo((E) queue[j]) > 0)
+                    c = queue[child = j];
+            }
             if (key.compareTo((E) c) <= 0)
                 break;
             queue[k] = c;
+            if (pos != null)
+                pos.move(child, k);
             k = child;
         }
         queue[k] = key;
+        if (pos != null)
+            pos.set(key, k, xs);
     }
 
     @SuppressWarnings("unchecked")
     private void siftDownUsingComparator(int k, E x) {
-        int half = size >>> 1;
-        while (k < half) {
-            int child = (k << 1) + 1;
+        HeapPositions pos = positions;
+        int xs = (pos == null) ? 0 : pos.slotAt(k);
+        int s = arityShift, n = size;
+        int last = (n - 2) >> s;
+        while (k <= last) {
+            int child = (k << s) + 1;
             Object c = queue[child];
-            int right = child + 1;
-            if (right < size &&
-                comparator.compare((E) c, (E) queue[right]) > 0)
-                c = queue[child = right];
+            int end = Math.min(child + (1 << s), n);
+            for (int j = child + 1; j < end; j++) {
+                if (comparator.compare((E) c, (E) queue[j]) > 0)
+                    c = queue[child = j];
+            }
             if (comparator.compare(x, (E) c) <= 0)
                 break;
             queue[k] = c;
+            if (pos != null)
+                pos.move(child, k);
             k = child;
         }
         queue[k] = x;
+        if (pos != null)
+            pos.set(x, k, xs);
     }
 
     /**
@@ -732,10 +906,26 @@ public class PriorityQueue<E> extends AbstractQueue<E>
      */
     @SuppressWarnings("unchecked")
     private void heapify() {
-        for (int i = (size >>> 1) - 1; i >= 0; i--)
+        for (int i = (size - 2) >> arityShift; i >= 0; i--)
             siftDown(i, (E) queue[i]);
     }
 
+    /**
+     * Creates the position table of an indexed queue from the elements
+     * in the queue array.
+     *
+     * @return {@code false} if an element is held more than once
+     */
+    private boolean indexElements() {
+        HeapPositions pos = new HeapPositions(queue.length);
+        for (int i = 0; i < size; i++) {
+            if (!pos.add(queue[i], i))
+                return false;
+        }
+        positions = pos;
+        return true;
+    }
+
     /**
      * Returns the comparator used to order the elements in this
      * queue, or {@code null} if this queue is sorted according to
@@ -780,6 +970,10 @@ public class PriorityQueue<E> extends AbstractQueue<E>
         throws java.io.IOException, ClassNotFoundException {
         // Read in size, and any hidden stuff
         s.defaultReadObject();
+        if (arityShift == 0)
+            arityShift = 1;
+        else if (arityShift < 0 || (1 << arityShift) > MAX_ARITY)
+            throw new java.io.InvalidObjectException("Illegal arity");
 
         // Read in (and discard) array length
         s.readInt();
@@ -791,6 +985,9 @@ public class PriorityQueue<E> extends AbstractQueue<E>
         for (int i = 0; i < size; i++)
             queue[i] = s.readObject();
 
+        if (indexed && !indexElements())
+            throw new java.io.InvalidObjectException("Duplicate element");
+
         // Elements are guaranteed to be in "proper order", but the
         // spec has never explained what that might be.
         heapify();
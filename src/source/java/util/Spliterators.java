@@ -649,6 +649,45 @@ public final class Spliterators {
         return new DoubleIteratorSpliterator(Objects.requireNonNull(iterator), characteristics);
     }
 
+    // Batch sizing for sequentially accessed sources
+
+    /** Maximum size of a batch split off from a source of known size */
+    static final int MAX_BATCH = 1 << 25;
+
+    /** Maximum size of a batch split off from a source of unknown size */
+    static final int MAX_UNSIZED_BATCH = 1 << 16;
+
+    /**
+     * Returns the number of elements that a spliterator over a source
+     * that can only be traversed sequentially, such as a linked list or
+     * an iterator, should split off in its next call to trySplit.
+     * Batch sizes start at one and double on each split.  Small initial
+     * batches let other threads start processing elements after very
+     * little traversal, which matters when per-element actions are
+     * costly, while doubling bounds the number of splits, and so the
+     * per-split overhead, by the logarithm of the number of elements,
+     * which matters when they are cheap.  When the number of remaining
+     * elements is known, a batch never exceeds it (so that the last
+     * batch, which is typically half of the elements traversed so far,
+     * is itself balanced by splitting the resulting array or range);
+     * when it is not known, batches are bounded more tightly, to avoid
+     * allocating large arrays for sources that turn out to be small.
+     * java.util.concurrent.Helpers applies the same policy to the
+     * concurrent queues.
+     *
+     * @param previous the number of elements split off by the previous
+     *        call to trySplit, or zero if there was none
+     * @param remaining the estimated number of remaining elements, or
+     *        Long.MAX_VALUE if unknown
+     * @return the number of elements to split off, at least one
+     */
+    static int nextBatchSize(int previous, long remaining) {
+        int max = (remaining == Long.MAX_VALUE) ? MAX_UNSIZED_BATCH :
+            (remaining < MAX_BATCH) ? (int) Math.max(remaining, 1L) : MAX_BATCH;
+        int n = (previous <= 0) ? 1 : (previous >= (max >>> 1)) ? max : previous << 1;
+        return (n > max) ? max : n;
+    }
+
     // Iterators from Spliterators
 
     /**
@@ -1254,8 +1293,6 @@ public final class Spliterators {
      * @since 1.8
      */
     public static abstract class AbstractSpliterator<T> implements Spliterator<T> {
-        static final int BATCH_UNIT = 1 << 10;  // batch array size increment
-        static final int MAX_BATCH = 1 << 25;  // max batch array size;
         private final int characteristics;
         private long est;             // size estimate
         private int batch;            // batch size for splits
@@ -1294,26 +1331,20 @@ public final class Spliterators {
         @Override
         public Spliterator<T> trySplit() {
             /*
-             * Split into arrays of arithmetically increasing batch
-             * sizes.  This will only improve parallel performance if
-             * per-element Consumer actions are more costly than
-             * transferring them into an array.  The use of an
-             * arithmetic progression in split sizes provides overhead
-             * vs parallelism bounds that do not particularly favor or
-             * penalize cases of lightweight vs heavyweight element
-             * operations, across combinations of #elements vs #cores,
-             * whether or not either are known.  We generate
-             * O(sqrt(#elements)) splits, allowing O(sqrt(#cores))
-             * potential speedup.
+             * Split into arrays of geometrically increasing batch
+             * sizes (see nextBatchSize).  This will only improve
+             * parallel performance if per-element Consumer actions
+             * are more costly than transferring them into an array.
+             * Starting small lets other threads begin work early when
+             * element operations are heavyweight, and doubling
+             * generates only O(log(#elements)) splits when they are
+             * lightweight.  Because each batch is an array, the large
+             * later batches are themselves split evenly.
              */
             HoldingConsumer<T> holder = new HoldingConsumer<>();
             long s = est;
             if (s > 1 && tryAdvance(holder)) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                int n = nextBatchSize(batch, s);
                 Object[] a = new Object[n];
                 int j = 0;
                 do { a[j] = holder.value; } while (++j < n && tryAdvance(holder));
@@ -1377,8 +1408,6 @@ public final class Spliterators {
      * @since 1.8
      */
     public static abstract class AbstractIntSpliterator implements Spliterator.OfInt {
-        static final int MAX_BATCH = AbstractSpliterator.MAX_BATCH;
-        static final int BATCH_UNIT = AbstractSpliterator.BATCH_UNIT;
         private final int characteristics;
         private long est;             // size estimate
         private int batch;            // batch size for splits
@@ -1419,11 +1448,7 @@ public final class Spliterators {
             HoldingIntConsumer holder = new HoldingIntConsumer();
             long s = est;
             if (s > 1 && tryAdvance(holder)) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                int n = nextBatchSize(batch, s);
                 int[] a = new int[n];
                 int j = 0;
                 do { a[j] = holder.value; } while (++j < n && tryAdvance(holder));
@@ -1487,8 +1512,6 @@ public final class Spliterators {
      * @since 1.8
      */
     public static abstract class AbstractLongSpliterator implements Spliterator.OfLong {
-        static final int MAX_BATCH = AbstractSpliterator.MAX_BATCH;
-        static final int BATCH_UNIT = AbstractSpliterator.BATCH_UNIT;
         private final int characteristics;
         private long est;             // size estimate
         private int batch;            // batch size for splits
@@ -1529,11 +1552,7 @@ public final class Spliterators {
             HoldingLongConsumer holder = new HoldingLongConsumer();
             long s = est;
             if (s > 1 && tryAdvance(holder)) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                int n = nextBatchSize(batch, s);
                 long[] a = new long[n];
                 int j = 0;
                 do { a[j] = holder.value; } while (++j < n && tryAdvance(holder));
@@ -1597,8 +1616,6 @@ public final class Spliterators {
      * @since 1.8
      */
     public static abstract class AbstractDoubleSpliterator implements Spliterator.OfDouble {
-        static final int MAX_BATCH = AbstractSpliterator.MAX_BATCH;
-        static final int BATCH_UNIT = AbstractSpliterator.BATCH_UNIT;
         private final int characteristics;
         private long est;             // size estimate
         private int batch;            // batch size for splits
@@ -1639,11 +1656,7 @@ public final class Spliterators {
             HoldingDoubleConsumer holder = new HoldingDoubleConsumer();
             long s = est;
             if (s > 1 && tryAdvance(holder)) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                int n = nextBatchSize(batch, s);
                 double[] a = new double[n];
                 int j = 0;
                 do { a[j] = holder.value; } while (++j < n && tryAdvance(holder));
@@ -1689,8 +1702,6 @@ public final class Spliterators {
      * permit limited parallelism.
      */
     static class IteratorSpliterator<T> implements Spliterator<T> {
-        static final int BATCH_UNIT = 1 << 10;  // batch array size increment
-        static final int MAX_BATCH = 1 << 25;  // max batch array size;
         private final Collection<? extends T> collection; // null OK
         private Iterator<? extends T> it;
         private final int characteristics;
@@ -1753,17 +1764,15 @@ public final class Spliterators {
         @Override
         public Spliterator<T> trySplit() {
             /*
-             * Split into arrays of arithmetically increasing batch
-             * sizes.  This will only improve parallel performance if
-             * per-element Consumer actions are more costly than
-             * transferring them into an array.  The use of an
-             * arithmetic progression in split sizes provides overhead
-             * vs parallelism bounds that do not particularly favor or
-             * penalize cases of lightweight vs heavyweight element
-             * operations, across combinations of #elements vs #cores,
-             * whether or not either are known.  We generate
-             * O(sqrt(#elements)) splits, allowing O(sqrt(#cores))
-             * potential speedup.
+             * Split into arrays of geometrically increasing batch
+             * sizes (see nextBatchSize).  This will only improve
+             * parallel performance if per-element Consumer actions
+             * are more costly than transferring them into an array.
+             * Starting small lets other threads begin work early when
+             * element operations are heavyweight, and doubling
+             * generates only O(log(#elements)) splits when they are
+             * lightweight.  Because each batch is an array, the large
+             * later batches are themselves split evenly.
              */
             Iterator<? extends T> i;
             long s;
@@ -1774,11 +1783,7 @@ public final class Spliterators {
             else
                 s = est;
             if (s > 1 && i.hasNext()) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                int n = nextBatchSize(batch, s);
                 Object[] a = new Object[n];
                 int j = 0;
                 do { a[j] = i.next(); } while (++j < n && i.hasNext());
@@ -1841,8 +1846,6 @@ public final class Spliterators {
      * permit limited parallelism.
      */
     static final class IntIteratorSpliterator implements Spliterator.OfInt {
-        static final int BATCH_UNIT = IteratorSpliterator.BATCH_UNIT;
-        static final int MAX_BATCH = IteratorSpliterator.MAX_BATCH;
         private PrimitiveIterator.OfInt it;
         private final int characteristics;
         private long est;             // size estimate
@@ -1886,11 +1889,7 @@ public final class Spliterators {
             PrimitiveIterator.OfInt i = it;
             long s = est;
             if (s > 1 && i.hasNext()) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                int n = nextBatchSize(batch, s);
                 int[] a = new int[n];
                 int j = 0;
                 do { a[j] = i.nextInt(); } while (++j < n && i.hasNext());
@@ -1935,8 +1934,6 @@ public final class Spliterators {
     }
 
     static final class LongIteratorSpliterator implements Spliterator.OfLong {
-        static final int BATCH_UNIT = IteratorSpliterator.BATCH_UNIT;
-        static final int MAX_BATCH = IteratorSpliterator.MAX_BATCH;
         private PrimitiveIterator.OfLong it;
         private final int characteristics;
         private long est;             // size estimate
@@ -1980,11 +1977,7 @@ public final class Spliterators {
             PrimitiveIterator.OfLong i = it;
             long s = est;
             if (s > 1 && i.hasNext()) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                int n = nextBatchSize(batch, s);
                 long[] a = new long[n];
                 int j = 0;
                 do { a[j] = i.nextLong(); } while (++j < n && i.hasNext());
@@ -2029,8 +2022,6 @@ public final class Spliterators {
     }
 
     static final class DoubleIteratorSpliterator implements Spliterator.OfDouble {
-        static final int BATCH_UNIT = IteratorSpliterator.BATCH_UNIT;
-        static final int MAX_BATCH = IteratorSpliterator.MAX_BATCH;
         private PrimitiveIterator.OfDouble it;
         private final int characteristics;
         private long est;             // size estimate
@@ -2074,11 +2065,7 @@ public final class Spliterators {
             PrimitiveIterator.OfDouble i = it;
             long s = est;
             if (s > 1 && i.hasNext()) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                int n = nextBatchSize(batch, s);
                 double[] a = new double[n];
                 int j = 0;
                 do { a[j] = i.nextDouble(); } while (++j < n && i.hasNext());
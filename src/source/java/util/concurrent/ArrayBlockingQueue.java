@@ -350,7 +350,7 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
         lock.lockInterruptibly();
         try {
             while (count == items.length)
-                notFull.await();
+                ForkJoinPool.managedAwait(notFull);
             enqueue(e);
         } finally {
             lock.unlock();
@@ -376,7 +376,7 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
             while (count == items.length) {
                 if (nanos <= 0)
                     return false;
-                nanos = notFull.awaitNanos(nanos);
+                nanos = ForkJoinPool.managedAwaitNanos(notFull, nanos);
             }
             enqueue(e);
             return true;
@@ -385,6 +385,86 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Inserts the elements of the given collection at the tail of this
+     * queue, in the order returned by the collection's iterator, waiting
+     * if necessary up to the specified wait time for space to become
+     * available.  Unlike repeated calls to {@link #offer(Object, long,
+     * TimeUnit) offer}, this method acquires the lock once for the whole
+     * batch (plus once per wait for space), and signals only as many
+     * waiting consumers as there are elements inserted.
+     *
+     * <p>If the waiting time elapses, or the current thread is
+     * interrupted while waiting, after some but not all elements have
+     * been inserted, this method returns the number inserted so far;
+     * in the latter case the interrupt status is set.  Elements are
+     * inserted contiguously only as long as no wait is required.
+     *
+     * @param c the collection of elements to insert
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of elements inserted, which is less than the
+     *         size of the collection only if the waiting time elapsed
+     *         or the thread was interrupted
+     * @throws InterruptedException if interrupted before any element
+     *         was inserted
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     * @throws IllegalArgumentException if the collection is this queue
+     * @since 1.8
+     */
+    public int offerAll(Collection<? extends E> c, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        checkNotNull(c);
+        if (c == this)
+            throw new IllegalArgumentException();
+        Object[] a = c.toArray();
+        int n = a.length;
+        for (int j = 0; j < n; ++j)
+            checkNotNull(a[j]);
+        if (n == 0)
+            return 0;
+        long nanos = unit.toNanos(timeout);
+        int i = 0;
+        final Object[] items = this.items;
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            while (i < n) {
+                int k = Math.min(items.length - count, n - i);
+                if (k > 0) {
+                    int put = putIndex;
+                    for (int j = i + k; i < j; ++i) {
+                        items[put] = a[i];
+                        if (++put == items.length)
+                            put = 0;
+                    }
+                    putIndex = put;
+                    count += k;
+                    for (; k > 0 && lock.hasWaiters(notEmpty); k--)
+                        notEmpty.signal();
+                }
+                else {
+                    if (nanos <= 0)
+                        break;
+                    try {
+                        nanos = ForkJoinPool.managedAwaitNanos(notFull, nanos);
+                    } catch (InterruptedException ie) {
+                        if (i == 0)
+                            throw ie;
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            return i;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public E poll() {
         final ReentrantLock lock = this.lock;
         lock.lock();
@@ -400,7 +480,7 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
         lock.lockInterruptibly();
         try {
             while (count == 0)
-                notEmpty.await();
+                ForkJoinPool.managedAwait(notEmpty);
             return dequeue();
         } finally {
             lock.unlock();
@@ -415,7 +495,7 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
             while (count == 0) {
                 if (nanos <= 0)
                     return null;
-                nanos = notEmpty.awaitNanos(nanos);
+                nanos = ForkJoinPool.managedAwaitNanos(notEmpty, nanos);
             }
             return dequeue();
         } finally {
@@ -715,39 +795,123 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
             throw new IllegalArgumentException();
         if (maxElements <= 0)
             return 0;
-        final Object[] items = this.items;
         final ReentrantLock lock = this.lock;
         lock.lock();
         try {
-            int n = Math.min(maxElements, count);
-            int take = takeIndex;
-            int i = 0;
-            try {
-                while (i < n) {
-                    @SuppressWarnings("unchecked")
-                    E x = (E) items[take];
-                    c.add(x);
-                    items[take] = null;
-                    if (++take == items.length)
-                        take = 0;
-                    i++;
+            return drainAvailable(c, maxElements);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Transfers up to maxElements available elements to c, signalling
+     * waiting producers once per freed slot.  Call only when holding
+     * lock.
+     */
+    private int drainAvailable(Collection<? super E> c, int maxElements) {
+        // assert lock.getHoldCount() == 1;
+        final Object[] items = this.items;
+        int n = Math.min(maxElements, count);
+        int take = takeIndex;
+        int i = 0;
+        try {
+            while (i < n) {
+                @SuppressWarnings("unchecked")
+                E x = (E) items[take];
+                c.add(x);
+                items[take] = null;
+                if (++take == items.length)
+                    take = 0;
+                i++;
+            }
+            return n;
+        } finally {
+            // Restore invariants even if c.add() threw
+            if (i > 0) {
+                count -= i;
+                takeIndex = take;
+                if (itrs != null) {
+                    if (count == 0)
+                        itrs.queueIsEmpty();
+                    else if (i > take)
+                        itrs.takeIndexWrapped();
                 }
-                return n;
-            } finally {
-                // Restore invariants even if c.add() threw
-                if (i > 0) {
-                    count -= i;
-                    takeIndex = take;
-                    if (itrs != null) {
-                        if (count == 0)
-                            itrs.queueIsEmpty();
-                        else if (i > take)
-                            itrs.takeIndexWrapped();
-                    }
-                    for (; i > 0 && lock.hasWaiters(notFull); i--)
-                        notFull.signal();
+                for (; i > 0 && lock.hasWaiters(notFull); i--)
+                    notFull.signal();
+            }
+        }
+    }
+
+    /**
+     * Removes available elements from this queue and adds them to the
+     * given collection, waiting if necessary up to the specified wait
+     * time until at least {@code minElements} have been transferred.
+     * At most {@code maxElements} are transferred.  The lock is held
+     * while elements are transferred, and released only while waiting
+     * for more to arrive, so batches are moved with far fewer lock
+     * handoffs than by repeated calls to {@link #poll(long, TimeUnit)
+     * poll}.
+     *
+     * <p>Elements transferred before the waiting time elapses (or the
+     * current thread is interrupted while waiting) remain in the given
+     * collection, and are included in the returned count; in the case
+     * of interruption the interrupt status is set.  The behavior of
+     * this operation is undefined if the specified collection is
+     * modified while the operation is in progress.  A failure
+     * encountered while attempting to add elements to collection
+     * {@code c} may result in elements being in neither, either or
+     * both collections when the associated exception is thrown.
+     *
+     * @param c the collection to transfer elements into
+     * @param minElements the number of elements to wait for
+     * @param maxElements the maximum number of elements to transfer
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of elements transferred
+     * @throws InterruptedException if interrupted before any element
+     *         was transferred
+     * @throws UnsupportedOperationException if addition of elements
+     *         is not supported by the specified collection
+     * @throws ClassCastException if the class of an element of this queue
+     *         prevents it from being added to the specified collection
+     * @throws NullPointerException if the specified collection is null
+     * @throws IllegalArgumentException if the specified collection is this
+     *         queue, or some property of an element of this queue prevents
+     *         it from being added to the specified collection
+     * @since 1.8
+     */
+    public int drainTo(Collection<? super E> c, int minElements,
+                       int maxElements, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        checkNotNull(c);
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        long nanos = unit.toNanos(timeout);
+        int drained = 0;
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            for (;;) {
+                drained += drainAvailable(c, maxElements - drained);
+                if (drained >= minElements || drained >= maxElements)
+                    break;
+                if (nanos <= 0)
+                    break;
+                try {
+                    nanos = ForkJoinPool.managedAwaitNanos(notEmpty, nanos);
+                } catch (InterruptedException ie) {
+                    if (drained == 0)
+                        throw ie;
+                    Thread.currentThread().interrupt();
+                    break;
                 }
             }
+            return drained;
         } finally {
             lock.unlock();
         }
@@ -0,0 +1,774 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by an
+ * array, whose non-blocking operations are lock-free.  This queue
+ * orders elements FIFO (first-in-first-out).  Like {@link
+ * ArrayBlockingQueue}, the queue is a fixed-capacity ring; unlike it,
+ * producers and consumers never acquire a lock, and a successful
+ * {@code offer} or {@code poll} performs a single compare-and-set on
+ * a counter private to its end of the queue, so that neither end
+ * contends with the other.  No nodes are allocated on insertion.
+ * This class does not permit {@code null} elements.
+ *
+ * <p>The capacity is rounded up to the nearest power of two (and to
+ * at least two) when the queue is constructed, and cannot be changed
+ * thereafter.  Threads that {@code put} into a full queue or {@code
+ * take} from an empty one are parked (see {@link LockSupport#park}),
+ * and are unparked by the operation that makes progress possible.
+ * Threads are only parked when the queue is full or empty; when the
+ * queue is neither, all operations complete without blocking.
+ *
+ * <p>This queue is well suited as the work queue of a {@link
+ * ThreadPoolExecutor} with many submitting and worker threads, where
+ * a single lock guarding both ends becomes a point of contention.
+ *
+ * <p>Beware that, unlike in most collections, the {@code size} method
+ * is only an estimate when other threads are concurrently modifying
+ * the queue.  Elements removed by {@link #remove(Object)} (or by an
+ * iterator) are unlinked lazily: their slot is skipped, and its
+ * capacity released, only when consumers reach it.  Iterators operate
+ * over a snapshot of the elements, and never throw {@link
+ * java.util.ConcurrentModificationException}.
+ *
+ * <p>This class and its iterator implement all of the
+ * <em>optional</em> methods of the {@link Collection} and {@link
+ * Iterator} interfaces.
+ *
+ * <p>Memory consistency effects: As with other concurrent
+ * collections, actions in a thread prior to placing an object into a
+ * {@code ConcurrentArrayBlockingQueue}
+ * <a href="package-summary.html#MemoryVisibility"><i>happen-before</i></a>
+ * actions subsequent to the access or removal of that element from
+ * the {@code ConcurrentArrayBlockingQueue} in another thread.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class ConcurrentArrayBlockingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E> {
+
+    /*
+     * Overview:
+     *
+     * This is a variant of the bounded MPMC queue described by
+     * Dmitry Vyukov.  Each slot i of the ring has a sequence number
+     * seqs[i] in addition to its item.  A slot is free for the
+     * producer claiming position p iff seqs[p & mask] == p, and holds
+     * an item for the consumer claiming position p iff
+     * seqs[p & mask] == p + 1.  A producer reads tailPos, checks the
+     * slot, CASes tailPos forward, stores the item and then publishes
+     * it by setting the sequence to p + 1.  A consumer does the same
+     * with headPos, takes the item, and frees the slot for the next
+     * lap by setting the sequence to p + capacity.  A sequence that
+     * lags the claimed position means the ring is full (for
+     * producers) or empty (for consumers); one that leads it means
+     * another thread claimed the position first, and the operation
+     * rereads the counter and retries.  The two counters are updated
+     * only by CAS, are each read by both sides only to estimate size,
+     * and are padded apart (@Contended) to avoid false sharing.
+     *
+     * A producer that has claimed a position but not yet published
+     * it causes consumers of that position to report the queue as
+     * empty for the duration.  This is the usual trade-off of this
+     * design; it is harmless here because blocked consumers are
+     * woken by the publication itself.
+     *
+     * Removal of interior elements (needed for example by
+     * ThreadPoolExecutor.remove) is supported by CASing the item to
+     * the REMOVED marker.  Consumers therefore take items with an
+     * atomic swap rather than a plain read, so that exactly one of a
+     * consumer and a remover wins, and consumers that obtain REMOVED
+     * release the slot and retry.  Removed slots still count toward
+     * size until consumed.
+     *
+     * Blocking: Threads that find the queue empty (or full) push
+     * themselves onto takers (or putters), recheck the ring, and
+     * park.  Operations that publish an item (or free a slot) check
+     * whether there are waiters and if so pop and unpark one.  Both
+     * sides write before they read (the sequence stores are volatile,
+     * as is the CAS adding a waiter), so at least one sees the other.
+     * A waiter that finds it was popped (its own removal fails) but
+     * leaves without using the permit, or that obtains an element
+     * while others may be stranded, passes the signal on to the next
+     * waiter.  The waiter lists are only touched when the queue is
+     * full or empty, so the per-thread node allocation they incur
+     * does not affect the non-blocking path.
+     */
+
+    /** Marker for items removed by remove(Object) */
+    static final Object REMOVED = new Object();
+
+    /** The queued items, indexed by position & mask */
+    private final Object[] items;
+
+    /** Per-slot sequence numbers, as described above */
+    private final long[] seqs;
+
+    /** items.length - 1 */
+    private final int mask;
+
+    /** Next position to be claimed by a producer */
+    @sun.misc.Contended private volatile long tailPos;
+
+    /** Next position to be claimed by a consumer */
+    @sun.misc.Contended private volatile long headPos;
+
+    /** Threads waiting in take or timed poll */
+    private final ConcurrentLinkedQueue<Thread> takers =
+        new ConcurrentLinkedQueue<Thread>();
+
+    /** Threads waiting in put or timed offer */
+    private final ConcurrentLinkedQueue<Thread> putters =
+        new ConcurrentLinkedQueue<Thread>();
+
+    /**
+     * Creates a {@code ConcurrentArrayBlockingQueue} with the given
+     * capacity, rounded up to a power of two and at least two.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity < 1} or
+     *         {@code capacity > (1 << 30)}
+     */
+    public ConcurrentArrayBlockingQueue(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30))
+            throw new IllegalArgumentException();
+        int n = 2;                      // sequences need two slots
+        while (n < capacity)
+            n <<= 1;
+        this.items = new Object[n];
+        long[] ss = new long[n];
+        for (int i = 0; i < n; ++i)
+            ss[i] = i;
+        this.seqs = ss;
+        this.mask = n - 1;
+    }
+
+    /**
+     * Creates a {@code ConcurrentArrayBlockingQueue} with the given
+     * capacity, rounded up to a power of two, initially containing
+     * the elements of the given collection, added in traversal order
+     * of the collection's iterator.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @param c the collection of elements to initially contain
+     * @throws IllegalArgumentException if {@code capacity} is out of
+     *         range or is less than {@code c.size()}
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     */
+    public ConcurrentArrayBlockingQueue(int capacity,
+                                        Collection<? extends E> c) {
+        this(capacity);
+        for (E e : c) {
+            if (!offer(e))
+                throw new IllegalArgumentException();
+        }
+    }
+
+    // Slot access
+
+    private long seqAt(int i) {
+        return U.getLongVolatile(seqs, ((long)i << SSHIFT) + SBASE);
+    }
+
+    private void setSeqAt(int i, long s) {
+        U.putLongVolatile(seqs, ((long)i << SSHIFT) + SBASE, s);
+    }
+
+    private Object itemAt(int i) {
+        return U.getObjectVolatile(items, ((long)i << ASHIFT) + ABASE);
+    }
+
+    /**
+     * Tries to insert e at the tail.  Returns false if the ring is
+     * full.  Does not signal waiters.
+     */
+    private boolean enqueue(Object e) {
+        final int m = mask;
+        long p = tailPos;
+        for (;;) {
+            int i = (int)p & m;
+            long d = seqAt(i) - p;
+            if (d == 0L) {
+                if (U.compareAndSwapLong(this, TAILPOS, p, p + 1L)) {
+                    U.putOrderedObject(items, ((long)i << ASHIFT) + ABASE, e);
+                    setSeqAt(i, p + 1L);
+                    return true;
+                }
+                p = tailPos;
+            }
+            else if (d < 0L) {
+                if ((p = tailPos) - headPos > m)
+                    return false;               // full
+            }
+            else
+                p = tailPos;
+        }
+    }
+
+    /**
+     * Tries to remove the element at the head, skipping removed
+     * slots.  Returns null if the ring is empty.  Does not signal
+     * waiters.
+     */
+    @SuppressWarnings("unchecked")
+    private E dequeue() {
+        final int m = mask;
+        long p = headPos;
+        for (;;) {
+            int i = (int)p & m;
+            long d = seqAt(i) - (p + 1L);
+            if (d == 0L) {
+                if (U.compareAndSwapLong(this, HEADPOS, p, p + 1L)) {
+                    Object x = U.getAndSetObject
+                        (items, ((long)i << ASHIFT) + ABASE, null);
+                    setSeqAt(i, p + m + 1L);
+                    if (x != REMOVED)
+                        return (E)x;
+                }
+                p = headPos;
+            }
+            else if (d < 0L) {
+                if ((p = headPos) == tailPos)
+                    return null;                // empty
+                // else position claimed but not yet published
+                if (seqAt((int)p & m) - (p + 1L) < 0L)
+                    return null;
+            }
+            else
+                p = headPos;
+        }
+    }
+
+    // Waiting and signalling
+
+    /**
+     * Unparks the oldest thread waiting on the given list, if any.
+     */
+    private static void signal(ConcurrentLinkedQueue<Thread> waiters) {
+        Thread t;
+        if ((t = waiters.poll()) != null)
+            LockSupport.unpark(t);
+    }
+
+    /**
+     * Waits for a free slot and inserts e.  Called by put and timed
+     * offer after a failed attempt to insert without waiting.
+     *
+     * @return true if inserted, false if timed out
+     */
+    private boolean awaitEnqueue(E e, boolean timed, long nanos)
+        throws InterruptedException {
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        final Thread w = Thread.currentThread();
+        final ConcurrentLinkedQueue<Thread> ws = putters;
+        for (;;) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            ws.offer(w);
+            boolean inserted = enqueue(e);
+            if (!inserted) {
+                if (!timed)
+                    ForkJoinPool.managedPark(this);
+                else if ((nanos = deadline - System.nanoTime()) > 0L)
+                    ForkJoinPool.managedParkNanos(this, nanos);
+                inserted = enqueue(e);
+            }
+            boolean signalled = !ws.remove(w);
+            if (inserted) {
+                if (!takers.isEmpty())
+                    signal(takers);
+                if (signalled && remainingCapacity() > 0)
+                    signal(ws);
+                return true;
+            }
+            if (timed && nanos <= 0L) {
+                if (signalled)
+                    signal(ws);
+                return false;
+            }
+            if (signalled && Thread.currentThread().isInterrupted()) {
+                signal(ws);
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Waits for an element and removes it.  Called by take and timed
+     * poll after a failed attempt to remove without waiting.
+     *
+     * @return the element, or null if timed out
+     */
+    private E awaitDequeue(boolean timed, long nanos)
+        throws InterruptedException {
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        final Thread w = Thread.currentThread();
+        final ConcurrentLinkedQueue<Thread> ws = takers;
+        for (;;) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            ws.offer(w);
+            E x = dequeue();
+            if (x == null) {
+                if (!timed)
+                    ForkJoinPool.managedPark(this);
+                else if ((nanos = deadline - System.nanoTime()) > 0L)
+                    ForkJoinPool.managedParkNanos(this, nanos);
+                x = dequeue();
+            }
+            boolean signalled = !ws.remove(w);
+            if (x != null) {
+                if (!putters.isEmpty())
+                    signal(putters);
+                if (signalled && !isEmpty())
+                    signal(ws);
+                return x;
+            }
+            if (timed && nanos <= 0L) {
+                if (signalled)
+                    signal(ws);
+                return null;
+            }
+            if (signalled && Thread.currentThread().isInterrupted()) {
+                signal(ws);
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    // Queue and BlockingQueue methods
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and throwing an
+     * {@code IllegalStateException} if this queue is full.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link Collection#add})
+     * @throws IllegalStateException if this queue is full
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean add(E e) {
+        return super.add(e);
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false}
+     * if this queue is full.  This method never blocks or acquires a
+     * lock.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null) throw new NullPointerException();
+        if (!enqueue(e))
+            return false;
+        if (!takers.isEmpty())
+            signal(takers);
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * for space to become available if the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        if (!offer(e))
+            awaitEnqueue(e, false, 0L);
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * up to the specified wait time for space to become available if
+     * the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (offer(e))
+            return true;
+        long nanos = unit.toNanos(timeout);
+        return nanos > 0L && awaitEnqueue(e, true, nanos);
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, or returns
+     * {@code null} if this queue is empty.  This method never blocks
+     * or acquires a lock.
+     */
+    public E poll() {
+        E x = dequeue();
+        if (x != null && !putters.isEmpty())
+            signal(putters);
+        return x;
+    }
+
+    public E take() throws InterruptedException {
+        E x;
+        return ((x = poll()) != null) ? x : awaitDequeue(false, 0L);
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E x;
+        if ((x = poll()) != null)
+            return x;
+        long nanos = unit.toNanos(timeout);
+        return (nanos > 0L) ? awaitDequeue(true, nanos) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        final int m = mask;
+        for (;;) {
+            long h = headPos, t = tailPos;
+            if (h >= t)
+                return null;
+            for (long p = h; p < t; ++p) {
+                int i = (int)p & m;
+                if (seqAt(i) != p + 1L)
+                    break;
+                Object x = itemAt(i);
+                if (seqAt(i) != p + 1L)
+                    break;
+                if (x != null && x != REMOVED)
+                    return (E)x;
+            }
+            if (headPos == h)
+                return null;
+        }
+    }
+
+    // this doc comment is overridden to remove the reference to collections
+    // greater in size than Integer.MAX_VALUE
+    /**
+     * Returns the number of elements in this queue.  Elements removed
+     * by {@link #remove(Object)} but not yet reached by consumers are
+     * counted.  Because the two ends of the queue are updated
+     * independently, the result is only an estimate when the queue is
+     * being concurrently modified.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        for (;;) {
+            long h = headPos;
+            long t = tailPos;
+            if (headPos == h) {
+                long n = t - h;
+                return (n <= 0L) ? 0 : (n > mask + 1L) ? mask + 1 : (int)n;
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if this queue contains no elements.
+     *
+     * @return {@code true} if this queue contains no elements
+     */
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    // this doc comment is a modified copy of the inherited doc comment,
+    // without the reference to unlimited queues.
+    /**
+     * Returns the number of additional elements that this queue can ideally
+     * (in the absence of memory or resource constraints) accept without
+     * blocking.  This is always equal to the capacity of this queue
+     * less the current {@code size} of this queue.
+     *
+     * <p>Note that you <em>cannot</em> always tell if an attempt to insert
+     * an element will succeed by inspecting {@code remainingCapacity}
+     * because it may be the case that another thread is about to
+     * insert or remove an element.
+     */
+    public int remainingCapacity() {
+        return mask + 1 - size();
+    }
+
+    /**
+     * Removes a single instance of the specified element from this
+     * queue, if it is present.  The slot holding the element is
+     * reclaimed when consumers reach it.
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        if (o != null) {
+            final int m = mask;
+            for (long p = headPos, t = tailPos; p < t; ++p) {
+                int i = (int)p & m;
+                Object x = itemAt(i);
+                if (x != null && x != REMOVED && o.equals(x) &&
+                    seqAt(i) == p + 1L &&
+                    U.compareAndSwapObject(items, ((long)i << ASHIFT) + ABASE,
+                                           x, REMOVED))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if this queue contains the specified element.
+     * More formally, returns {@code true} if and only if this queue contains
+     * at least one element {@code e} such that {@code o.equals(e)}.
+     *
+     * @param o object to be checked for containment in this queue
+     * @return {@code true} if this queue contains the specified element
+     */
+    public boolean contains(Object o) {
+        if (o != null) {
+            for (Object x : toArray()) {
+                if (o.equals(x))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this queue,
+     * in proper sequence, as of some point during the call.
+     *
+     * @return an array containing all of the elements in this queue
+     */
+    public Object[] toArray() {
+        final int m = mask;
+        ArrayList<Object> a = new ArrayList<Object>();
+        for (long p = headPos, t = tailPos; p < t; ++p) {
+            int i = (int)p & m;
+            long s = seqAt(i);
+            if (s < p + 1L)
+                break;                          // not yet published
+            Object x = itemAt(i);
+            if (s == p + 1L && seqAt(i) == s && x != null && x != REMOVED)
+                a.add(x);
+        }
+        return a.toArray();
+    }
+
+    /**
+     * Returns an array containing all of the elements in this queue, in
+     * proper sequence, as of some point during the call; the runtime
+     * type of the returned array is that of the specified array.  If
+     * the queue fits in the specified array, it is returned therein.
+     * Otherwise, a new array is allocated with the runtime type of the
+     * specified array and the size of this queue.
+     *
+     * @param a the array into which the elements of the queue are to
+     *          be stored, if it is big enough; otherwise, a new array of the
+     *          same runtime type is allocated for this purpose
+     * @return an array containing all of the elements in this queue
+     * @throws ArrayStoreException if the runtime type of the specified array
+     *         is not a supertype of the runtime type of every element in
+     *         this queue
+     * @throws NullPointerException if the specified array is null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        Object[] es = toArray();
+        int n = es.length;
+        if (a.length < n)
+            return (T[]) Arrays.copyOf(es, n, a.getClass());
+        System.arraycopy(es, 0, a, 0, n);
+        if (a.length > n)
+            a[n] = null;
+        return a;
+    }
+
+    /**
+     * Atomically removes all of the elements from this queue that are
+     * present on entry.  Elements added concurrently may or may not
+     * be removed.
+     */
+    public void clear() {
+        int n = 0;
+        while (dequeue() != null)
+            ++n;
+        while (n-- > 0 && !putters.isEmpty())
+            signal(putters);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = 0;
+        try {
+            E x;
+            while (n < maxElements && (x = dequeue()) != null) {
+                c.add(x);
+                ++n;
+            }
+        } finally {
+            for (int k = n; k > 0 && !putters.isEmpty(); --k)
+                signal(putters);
+        }
+        return n;
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue in proper
+     * sequence.  The iterator traverses a snapshot of the elements
+     * taken when the iterator is created, and its {@code remove}
+     * method removes the corresponding element from the queue if it
+     * is still present.
+     *
+     * @return an iterator over the elements in this queue in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return new Itr(toArray());
+    }
+
+    /**
+     * Snapshot iterator that works off copy of underlying q array.
+     */
+    final class Itr implements Iterator<E> {
+        final Object[] array; // Array of all elements
+        int cursor;           // index of next element to return
+        int lastRet;          // index of last element, or -1 if no such
+
+        Itr(Object[] array) {
+            lastRet = -1;
+            this.array = array;
+        }
+
+        public boolean hasNext() {
+            return cursor < array.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= array.length)
+                throw new NoSuchElementException();
+            lastRet = cursor;
+            return (E)array[cursor++];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            ConcurrentArrayBlockingQueue.this.remove(array[lastRet]);
+            lastRet = -1;
+        }
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the elements in this queue.
+     *
+     * <p>The returned spliterator traverses a snapshot of the
+     * elements, as does the iterator.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#CONCURRENT},
+     * {@link Spliterator#ORDERED}, and {@link Spliterator#NONNULL}.
+     *
+     * @return a {@code Spliterator} over the elements in this queue
+     * @since 1.8
+     */
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator
+            (this, Spliterator.ORDERED | Spliterator.NONNULL |
+             Spliterator.CONCURRENT);
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long TAILPOS;
+    private static final long HEADPOS;
+    private static final long ABASE;
+    private static final int ASHIFT;
+    private static final long SBASE;
+    private static final int SSHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = ConcurrentArrayBlockingQueue.class;
+            TAILPOS = U.objectFieldOffset
+                (k.getDeclaredField("tailPos"));
+            HEADPOS = U.objectFieldOffset
+                (k.getDeclaredField("headPos"));
+            Class<?> ak = Object[].class;
+            ABASE = U.arrayBaseOffset(ak);
+            int scale = U.arrayIndexScale(ak);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+            Class<?> sk = long[].class;
+            SBASE = U.arrayBaseOffset(sk);
+            scale = U.arrayIndexScale(sk);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            SSHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
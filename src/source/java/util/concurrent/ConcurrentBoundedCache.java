@@ -0,0 +1,1246 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A concurrent map whose total weight is bounded, evicting entries
+ * that are unlikely to be used again when the bound is exceeded.
+ * This class serves the purpose of a {@link java.util.LinkedHashMap}
+ * that overrides {@code removeEldestEntry}, but supports full
+ * concurrency of retrievals and high expected concurrency for
+ * updates, as does the {@link ConcurrentHashMap} that holds its
+ * mappings.
+ *
+ * <p>Each entry has a <em>weight</em>, given by a weigher function
+ * supplied on construction, or one if there is none, in which case
+ * the maximum weight is the maximum number of entries.  Weights are
+ * computed when an entry is created or updated, and must not be
+ * negative.  Entries of weight zero are never evicted to make room.
+ *
+ * <p>Eviction follows the W-TinyLFU policy.  A newly added entry is
+ * first held in a small LRU <em>admission window</em>.  When it
+ * leaves the window, it is admitted to the main region only if it
+ * has been used more often in the recent past than the entry that
+ * would be evicted in its place, as estimated by a compact frequency
+ * sketch of recent accesses; otherwise it is evicted itself.  The
+ * main region is a segmented LRU, in which entries that are used
+ * again are protected from eviction by entries used only once.  This
+ * policy has hit rates close to optimal on a wide range of
+ * workloads, including those (such as scans) on which plain LRU
+ * performs poorly.
+ *
+ * <p>Accesses are recorded in striped, lossy buffers, and updates in
+ * a write buffer; both are applied to the eviction policy in batches
+ * by whichever thread acquires the policy lock.  So retrievals
+ * never block, and the policy lock is not held by callers of
+ * {@code get}.  As a consequence, the weight of the entries in the
+ * map may exceed the maximum for brief periods, until the updates
+ * are applied; {@link #cleanUp} applies them immediately.  Eviction
+ * listeners are invoked after the policy lock is released, by the
+ * thread that applied the updates or by another thread applying
+ * later ones, so they may be invoked concurrently, and may operate
+ * on this cache.
+ *
+ * <p>Statistics of hits, misses and evictions are kept in {@link
+ * LongAdder}s.  As with other concurrent collections, {@code size}
+ * and the statistics are estimates while updates are in progress.
+ *
+ * <p>This class and its views and iterators implement all of the
+ * <em>optional</em> methods of the {@link Map} and {@link Iterator}
+ * interfaces.  Like {@link ConcurrentHashMap}, this class does
+ * <em>not</em> allow {@code null} to be used as a key or value.
+ * Iterators are weakly consistent and do not record accesses.
+ *
+ * @since 1.8
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class ConcurrentBoundedCache<K,V> extends AbstractMap<K,V>
+        implements ConcurrentMap<K,V> {
+
+    /*
+     * Overview:
+     *
+     * The mappings are kept in a ConcurrentHashMap from keys to
+     * Nodes, which hold the value and weight, and also serve as the
+     * links of the policy's three access-ordered lists (window,
+     * probation and protected), which are accessed only while
+     * holding evictionLock.  Node value and weight updates, and the
+     * transition of a node from alive to retired (removed from the
+     * map), happen while synchronized on the node.  A retired node
+     * becomes dead when the policy unlinks it.
+     *
+     * Reads append the node to one of an array of ring buffers,
+     * selected using the ThreadLocalRandom probe (as in LongAdder),
+     * and drop the record if the buffer is full or contended.  Writes
+     * append a task to a ConcurrentLinkedQueue, which is never lossy.
+     * Either kind of buffer being full or nonempty causes the thread
+     * to try to acquire evictionLock and apply all pending records
+     * ("maintenance").  If writers outpace maintenance by more than
+     * WRITE_BUFFER_MAX tasks, they block on the lock to apply them,
+     * which bounds the write buffer.
+     *
+     * drainStatus avoids lost maintenance: writers set REQUIRED after
+     * enqueuing, and the lock holder only returns to IDLE if the
+     * status is still PROCESSING after it is done, otherwise it
+     * tries again after releasing the lock.
+     *
+     * Because tasks for the same node may be enqueued in an order
+     * that differs from the order of the operations (for example a
+     * removal may be enqueued before the task that adds the node),
+     * tasks do not carry weights.  An add links a node only if it is
+     * still alive, and accounts for its current weight; an update
+     * charges the difference between the current weight and that
+     * already accounted for in policyWeight; a removal unlinks the
+     * node if it is linked, and otherwise marks it dead so that a
+     * later add ignores it.
+     *
+     * The frequency sketch is a count-min sketch of 4-bit counters
+     * with four hash functions, packed sixteen to a long and
+     * periodically halved (aged) once the number of increments
+     * reaches ten times the number of counters per function, so it
+     * reflects recent history.  The window holds about 1% of the
+     * maximum weight, and the protected segment up to 80% of the
+     * rest.  Unlike some W-TinyLFU implementations, the window size
+     * is fixed rather than adapted to the workload.
+     */
+
+    /** Number of CPUS, to place bound on buffer count */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** Number of read buffers, a power of two */
+    static final int READ_BUFFERS = ceilingPowerOfTwo(Math.min(NCPU, 64));
+
+    /** Capacity of each read buffer, a power of two */
+    static final int READ_BUFFER_SIZE = 16;
+
+    /** Number of pending writes at which writers block */
+    static final int WRITE_BUFFER_MAX = 128 * ceilingPowerOfTwo(NCPU);
+
+    /** Fraction of the maximum weight not in the admission window */
+    static final double PERCENT_MAIN = 0.99d;
+
+    /** Fraction of the main region that may be protected */
+    static final double PERCENT_MAIN_PROTECTED = 0.80d;
+
+    // drainStatus values
+    static final int IDLE       = 0;
+    static final int REQUIRED   = 1;
+    static final int PROCESSING = 2;
+
+    // Node.queue values
+    static final int UNLINKED  = 0;
+    static final int WINDOW    = 1;
+    static final int PROBATION = 2;
+    static final int PROTECTED = 3;
+
+    // Node.state values
+    static final int ALIVE   = 0;
+    static final int RETIRED = 1;
+    static final int DEAD    = 2;
+
+    static int ceilingPowerOfTwo(int x) {
+        return (x <= 1) ? 1 : Integer.highestOneBit(x - 1) << 1;
+    }
+
+    /**
+     * A mapping.  Fields other than key, value, weight and state
+     * are accessed only under evictionLock.
+     */
+    static final class Node<K,V> {
+        final K key;
+        volatile V value;
+        volatile int weight;
+        volatile int state;
+        int policyWeight;
+        int queue;
+        Node<K,V> prev;
+        Node<K,V> next;
+
+        Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * A doubly-linked list of nodes in access order, least recently
+     * used first.
+     */
+    static final class AccessOrderList<K,V> {
+        Node<K,V> head;
+        Node<K,V> tail;
+
+        void linkLast(Node<K,V> p) {
+            Node<K,V> t = tail;
+            p.prev = t;
+            p.next = null;
+            if (t == null)
+                head = p;
+            else
+                t.next = p;
+            tail = p;
+        }
+
+        void unlink(Node<K,V> p) {
+            Node<K,V> b = p.prev, a = p.next;
+            if (b == null)
+                head = a;
+            else
+                b.next = a;
+            if (a == null)
+                tail = b;
+            else
+                a.prev = b;
+            p.prev = p.next = null;
+        }
+
+        void moveToBack(Node<K,V> p) {
+            if (p != tail) {
+                unlink(p);
+                linkLast(p);
+            }
+        }
+    }
+
+    /**
+     * A lossy ring buffer of accessed nodes, written by any thread
+     * and drained under evictionLock.
+     */
+    @sun.misc.Contended static final class ReadBuffer {
+        final AtomicReferenceArray<Node<?,?>> slots =
+            new AtomicReferenceArray<Node<?,?>>(READ_BUFFER_SIZE);
+        final AtomicLong writeCount = new AtomicLong();
+        volatile long readCount;
+
+        // offer results
+        static final int SUCCESS = 0;
+        static final int FAILED  = 1;
+        static final int FULL    = 2;
+
+        int offer(Node<?,?> p) {
+            long head = readCount, tail = writeCount.get();
+            long size = tail - head;
+            if (size >= READ_BUFFER_SIZE)
+                return FULL;
+            if (!writeCount.compareAndSet(tail, tail + 1))
+                return FAILED;
+            slots.lazySet((int)tail & (READ_BUFFER_SIZE - 1), p);
+            return (size + 1 >= READ_BUFFER_SIZE) ? FULL : SUCCESS;
+        }
+    }
+
+    /**
+     * A count-min sketch of the popularity of keys in the recent
+     * past, saturating at 15.  Accessed only under evictionLock.
+     */
+    static final class FrequencySketch {
+        static final long[] SEED = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        static final long RESET_MASK = 0x7777777777777777L;
+        static final int MAXIMUM_CAPACITY = 1 << 30;
+
+        long[] table = new long[0];
+        int tableMask;
+        int sampleSize;
+        int size;
+
+        /** Grows the sketch, discarding its history, to track n keys */
+        void ensureCapacity(long n) {
+            int c = (int)Math.min(n, MAXIMUM_CAPACITY);
+            if (table.length < c) {
+                int cap = Math.max(ceilingPowerOfTwo(c), 8);
+                table = new long[cap];
+                tableMask = cap - 1;
+                sampleSize = (cap <= MAXIMUM_CAPACITY / 10) ?
+                    10 * cap : Integer.MAX_VALUE;
+                size = 0;
+            }
+        }
+
+        static int spread(int h) {
+            h *= 0x9e3779b9;
+            return h ^ (h >>> 16);
+        }
+
+        int indexOf(int item, int i) {
+            long h = (item + SEED[i]) * SEED[i];
+            h += h >>> 32;
+            return (int)h & tableMask;
+        }
+
+        int frequency(Object key) {
+            if (table.length == 0)
+                return 0;
+            int item = spread(key.hashCode());
+            int start = (item & 3) << 2;
+            int f = 15;
+            for (int i = 0; i < 4; ++i) {
+                int offset = (start + i) << 2;
+                int c = (int)((table[indexOf(item, i)] >>> offset) & 0xfL);
+                if (c < f)
+                    f = c;
+            }
+            return f;
+        }
+
+        void increment(Object key) {
+            if (table.length == 0)
+                return;
+            int item = spread(key.hashCode());
+            int start = (item & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; ++i) {
+                int j = indexOf(item, i), offset = (start + i) << 2;
+                if (((table[j] >>> offset) & 0xfL) != 0xfL) {
+                    table[j] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++size >= sampleSize)
+                reset();
+        }
+
+        /** Halves all counters */
+        void reset() {
+            long[] t = table;
+            for (int i = 0; i < t.length; ++i)
+                t[i] = (t[i] >>> 1) & RESET_MASK;
+            size >>>= 1;
+        }
+    }
+
+    final ConcurrentHashMap<K,Node<K,V>> data;
+    final ToIntBiFunction<? super K, ? super V> weigher;
+    final BiConsumer<? super K, ? super V> evictionListener;
+
+    final ReadBuffer[] readBuffers;
+    final ConcurrentLinkedQueue<Runnable> writeBuffer;
+    final AtomicInteger pendingWrites = new AtomicInteger();
+    final AtomicInteger drainStatus = new AtomicInteger();
+    final ReentrantLock evictionLock = new ReentrantLock();
+    /** Evicted mappings whose listener invocation is pending */
+    final ConcurrentLinkedQueue<Map.Entry<K,V>> evictedEntries;
+
+    // Policy state, guarded by evictionLock
+    final long maximum;
+    final long windowMaximum;
+    final long protectedMaximum;
+    long weightedSize;
+    long windowWeight;
+    long protectedWeight;
+    final AccessOrderList<K,V> window = new AccessOrderList<K,V>();
+    final AccessOrderList<K,V> probation = new AccessOrderList<K,V>();
+    final AccessOrderList<K,V> protectedList = new AccessOrderList<K,V>();
+    final FrequencySketch sketch = new FrequencySketch();
+
+    // Statistics
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+    final LongAdder evictionWeight = new LongAdder();
+
+    // views
+    private transient EntrySetView entrySet;
+
+    /**
+     * Creates a new, empty cache holding at most the given number of
+     * entries.
+     *
+     * @param maximumSize the maximum number of entries
+     * @throws IllegalArgumentException if {@code maximumSize} is negative
+     */
+    public ConcurrentBoundedCache(long maximumSize) {
+        this(maximumSize, null, null);
+    }
+
+    /**
+     * Creates a new, empty cache whose entries, weighed by the given
+     * function, have at most the given total weight.
+     *
+     * @param maximumWeight the maximum total weight of the entries
+     * @param weigher the function computing the weight of an entry
+     *        from its key and value, or {@code null} if each entry
+     *        weighs one
+     * @throws IllegalArgumentException if {@code maximumWeight} is negative
+     */
+    public ConcurrentBoundedCache(long maximumWeight,
+                                  ToIntBiFunction<? super K, ? super V> weigher) {
+        this(maximumWeight, weigher, null);
+    }
+
+    /**
+     * Creates a new, empty cache whose entries, weighed by the given
+     * function, have at most the given total weight, and that invokes
+     * the given listener with the key and value of each entry evicted
+     * to satisfy that bound.
+     *
+     * @param maximumWeight the maximum total weight of the entries
+     * @param weigher the function computing the weight of an entry
+     *        from its key and value, or {@code null} if each entry
+     *        weighs one
+     * @param evictionListener the function invoked on eviction, or
+     *        {@code null} if none
+     * @throws IllegalArgumentException if {@code maximumWeight} is negative
+     */
+    public ConcurrentBoundedCache(long maximumWeight,
+                                  ToIntBiFunction<? super K, ? super V> weigher,
+                                  BiConsumer<? super K, ? super V> evictionListener) {
+        if (maximumWeight < 0L)
+            throw new IllegalArgumentException();
+        this.maximum = maximumWeight;
+        this.windowMaximum = maximumWeight - (long)(PERCENT_MAIN * maximumWeight);
+        this.protectedMaximum =
+            (long)(PERCENT_MAIN_PROTECTED * (maximumWeight - windowMaximum));
+        this.weigher = weigher;
+        this.evictionListener = evictionListener;
+        this.evictedEntries = (evictionListener == null) ? null :
+            new ConcurrentLinkedQueue<Map.Entry<K,V>>();
+        this.data = new ConcurrentHashMap<K,Node<K,V>>(
+            (int)Math.min(maximumWeight, 1 << 12));
+        ReadBuffer[] rbs = new ReadBuffer[READ_BUFFERS];
+        for (int i = 0; i < rbs.length; ++i)
+            rbs[i] = new ReadBuffer();
+        this.readBuffers = rbs;
+        this.writeBuffer = new ConcurrentLinkedQueue<Runnable>();
+        if (weigher == null)
+            sketch.ensureCapacity(maximumWeight);
+    }
+
+    int weigh(K key, V value) {
+        if (weigher == null)
+            return 1;
+        int w = weigher.applyAsInt(key, value);
+        if (w < 0)
+            throw new IllegalArgumentException("Negative weight: " + w);
+        return w;
+    }
+
+    /* ---------------- Buffers and maintenance -------------- */
+
+    /**
+     * Records an access to p, and performs maintenance if its read
+     * buffer is full or there are pending writes.
+     */
+    void afterRead(Node<K,V> p) {
+        int h;
+        if ((h = ThreadLocalRandom.getProbe()) == 0) {
+            ThreadLocalRandom.localInit();
+            h = ThreadLocalRandom.getProbe();
+        }
+        int r = readBuffers[h & (READ_BUFFERS - 1)].offer(p);
+        if (r == ReadBuffer.FAILED)
+            ThreadLocalRandom.advanceProbe(h);
+        if (r == ReadBuffer.FULL || drainStatus.get() == REQUIRED)
+            tryToDrain();
+    }
+
+    /**
+     * Enqueues a write task and performs maintenance, blocking for
+     * the lock if too many writes are pending.
+     */
+    void afterWrite(Runnable task) {
+        writeBuffer.offer(task);
+        drainStatus.set(REQUIRED);
+        if (pendingWrites.incrementAndGet() > WRITE_BUFFER_MAX)
+            cleanUp();
+        else
+            tryToDrain();
+    }
+
+    /**
+     * Performs maintenance if the lock is available, repeating if
+     * writes arrived while the lock was held.
+     */
+    void tryToDrain() {
+        final ReentrantLock lock = this.evictionLock;
+        do {
+            if (!lock.tryLock())
+                return;
+            try {
+                maintenance();
+            } finally {
+                lock.unlock();
+            }
+            notifyEvictions();
+        } while (drainStatus.get() == REQUIRED);
+    }
+
+    /**
+     * Applies all pending reads and writes to the policy and evicts
+     * entries as needed.  Performs the work without waiting if
+     * another thread is not already doing so, and otherwise waits
+     * for it.  Other operations perform this work incrementally, so
+     * calling this method is never needed for correctness.
+     */
+    public void cleanUp() {
+        final ReentrantLock lock = this.evictionLock;
+        lock.lock();
+        try {
+            maintenance();
+        } finally {
+            lock.unlock();
+        }
+        notifyEvictions();
+        if (drainStatus.get() == REQUIRED)
+            tryToDrain();
+    }
+
+    /**
+     * Invokes the eviction listener for each pending evicted
+     * mapping.  Called without holding evictionLock, so that the
+     * listener may operate on this cache.
+     */
+    void notifyEvictions() {
+        ConcurrentLinkedQueue<Map.Entry<K,V>> q;
+        if ((q = evictedEntries) != null) {
+            Map.Entry<K,V> e;
+            while ((e = q.poll()) != null)
+                evictionListener.accept(e.getKey(), e.getValue());
+        }
+    }
+
+    /** Called with evictionLock held */
+    void maintenance() {
+        drainStatus.set(PROCESSING);
+        drainReadBuffers();
+        drainWriteBuffer();
+        evictEntries();
+        drainStatus.compareAndSet(PROCESSING, IDLE);
+    }
+
+    @SuppressWarnings("unchecked")
+    void drainReadBuffers() {
+        for (ReadBuffer b : readBuffers) {
+            AtomicReferenceArray<Node<?,?>> slots = b.slots;
+            long head = b.readCount, tail = b.writeCount.get();
+            for (; head != tail; ++head) {
+                int i = (int)head & (READ_BUFFER_SIZE - 1);
+                Node<?,?> p = slots.get(i);
+                if (p == null)
+                    break; // writer has not yet published
+                slots.lazySet(i, null);
+                onAccess((Node<K,V>)p);
+            }
+            b.readCount = head;
+        }
+    }
+
+    void drainWriteBuffer() {
+        Runnable task;
+        int n = 0;
+        while ((task = writeBuffer.poll()) != null) {
+            task.run();
+            ++n;
+        }
+        if (n != 0)
+            pendingWrites.addAndGet(-n);
+    }
+
+    /**
+     * Updates the policy for an access to p: reorders its list, and
+     * promotes it from probation to protected, demoting the least
+     * recently used protected entries if needed.
+     */
+    void onAccess(Node<K,V> p) {
+        sketch.increment(p.key);
+        switch (p.queue) {
+        case WINDOW:
+            window.moveToBack(p);
+            break;
+        case PROBATION:
+            probation.unlink(p);
+            p.queue = PROTECTED;
+            protectedList.linkLast(p);
+            protectedWeight += p.policyWeight;
+            demoteFromProtected();
+            break;
+        case PROTECTED:
+            protectedList.moveToBack(p);
+            break;
+        default: // not linked
+            break;
+        }
+    }
+
+    void demoteFromProtected() {
+        Node<K,V> p;
+        while (protectedWeight > protectedMaximum &&
+               (p = protectedList.head) != null) {
+            protectedList.unlink(p);
+            protectedWeight -= p.policyWeight;
+            p.queue = PROBATION;
+            probation.linkLast(p);
+        }
+    }
+
+    /** Adds a new node to the window */
+    final class AddTask implements Runnable {
+        final Node<K,V> node;
+        AddTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            Node<K,V> p = node;
+            if (p.state != ALIVE) {
+                p.state = DEAD;
+                return;
+            }
+            int w = p.weight;
+            p.policyWeight = w;
+            weightedSize += w;
+            windowWeight += w;
+            p.queue = WINDOW;
+            window.linkLast(p);
+            sketch.increment(p.key);
+            if (weigher != null && sketch.table.length < data.size())
+                sketch.ensureCapacity(data.mappingCount());
+        }
+    }
+
+    /** Charges a change of weight of a node, and records an access */
+    final class UpdateTask implements Runnable {
+        final Node<K,V> node;
+        UpdateTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            Node<K,V> p = node;
+            int q = p.queue;
+            if (q == UNLINKED)
+                return; // not yet added, or already removed
+            int w = p.weight, d = w - p.policyWeight;
+            p.policyWeight = w;
+            weightedSize += d;
+            if (q == WINDOW)
+                windowWeight += d;
+            else if (q == PROTECTED)
+                protectedWeight += d;
+            onAccess(p);
+        }
+    }
+
+    /** Unlinks a node that was removed from the map */
+    final class RemovalTask implements Runnable {
+        final Node<K,V> node;
+        RemovalTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            unlink(node);
+        }
+    }
+
+    /** Unlinks p from the policy, if linked, and marks it dead */
+    void unlink(Node<K,V> p) {
+        switch (p.queue) {
+        case WINDOW:
+            window.unlink(p);
+            windowWeight -= p.policyWeight;
+            break;
+        case PROBATION:
+            probation.unlink(p);
+            break;
+        case PROTECTED:
+            protectedList.unlink(p);
+            protectedWeight -= p.policyWeight;
+            break;
+        default:
+            p.state = DEAD;
+            return;
+        }
+        weightedSize -= p.policyWeight;
+        p.queue = UNLINKED;
+        p.state = DEAD;
+    }
+
+    /**
+     * Moves entries overflowing the window to probation as
+     * candidates for admission, then evicts entries until the total
+     * weight is within bounds.  Entries of weight zero are passed
+     * over and left in place, since evicting them would not reduce
+     * the total weight.
+     */
+    void evictEntries() {
+        int candidates = 0;
+        Node<K,V> p;
+        while (windowWeight > windowMaximum && (p = window.head) != null) {
+            window.unlink(p);
+            windowWeight -= p.policyWeight;
+            p.queue = PROBATION;
+            probation.linkLast(p);
+            ++candidates;
+        }
+        // The candidates are at the back of probation, most recent
+        // last, and are scanned backwards; victims are scanned from
+        // the front of probation, then of protected, then of the window.
+        int queue = PROBATION;
+        Node<K,V> victim = probation.head, candidate = probation.tail;
+        while (weightedSize > maximum) {
+            while (candidates > 0 &&
+                   (candidate == null || candidate.policyWeight == 0)) {
+                --candidates;
+                if (candidate != null)
+                    candidate = candidate.prev;
+            }
+            while (victim != null && victim.policyWeight == 0)
+                victim = victim.next;
+            if (victim == null) {
+                if (queue == PROBATION) {
+                    queue = PROTECTED;
+                    victim = protectedList.head;
+                } else if (queue == PROTECTED) {
+                    queue = WINDOW;
+                    victim = window.head;
+                } else
+                    break;
+            } else if (queue != PROBATION || candidates == 0) {
+                p = victim.next;
+                evict(victim);
+                victim = p;
+            } else if (candidate == victim) {
+                --candidates;
+                candidate = candidate.prev;
+                p = victim.next;
+                evict(victim);
+                victim = p;
+            } else if (candidate.policyWeight <= maximum &&
+                       sketch.frequency(candidate.key) >
+                       sketch.frequency(victim.key)) {
+                p = victim.next;
+                evict(victim);
+                victim = p;
+            } else {
+                --candidates;
+                p = candidate.prev;
+                evict(candidate);
+                candidate = p;
+            }
+        }
+    }
+
+    /**
+     * Removes p from the map and the policy, queuing a notification
+     * of the listener if the entry was still present.
+     */
+    void evict(Node<K,V> p) {
+        K key = p.key;
+        V value = null;
+        boolean removed = data.remove(key, p);
+        if (removed) {
+            synchronized (p) {
+                value = p.value;
+                p.state = RETIRED;
+            }
+        }
+        int w = p.policyWeight;
+        unlink(p);
+        if (removed) {
+            evictions.increment();
+            evictionWeight.add(w);
+            ConcurrentLinkedQueue<Map.Entry<K,V>> q;
+            if ((q = evictedEntries) != null)
+                q.offer(new AbstractMap.SimpleImmutableEntry<K,V>(key, value));
+        }
+    }
+
+    /* ---------------- Map operations -------------- */
+
+    /**
+     * Returns the number of key-value mappings in this cache, which
+     * may temporarily include entries pending eviction.
+     *
+     * @return the number of key-value mappings in this cache
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * Returns {@code true} if this cache contains no key-value mappings.
+     *
+     * @return {@code true} if this cache contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this cache contains no mapping for the key,
+     * and records a hit or miss accordingly.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        Node<K,V> p = data.get(key);
+        if (p == null) {
+            misses.increment();
+            return null;
+        }
+        V v = p.value;
+        hits.increment();
+        afterRead(p);
+        return v;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or the
+     * given default value if this cache contains no mapping for the
+     * key, and records a hit or miss accordingly.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if this cache contains
+     * no mapping for the given key
+     * @return the mapping for the key, if present; else the default value
+     * @throws NullPointerException if the specified key is null
+     */
+    public V getOrDefault(Object key, V defaultValue) {
+        V v;
+        return (v = get(key)) == null ? defaultValue : v;
+    }
+
+    /**
+     * Tests if the specified object is a key in this cache.  This
+     * method does not count as an access of the entry.
+     *
+     * @param  key possible key
+     * @return {@code true} if and only if the specified object
+     *         is a key in this cache
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        return data.containsKey(key);
+    }
+
+    /**
+     * Maps the specified key to the specified value in this cache,
+     * which may cause other entries to be evicted.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the weigher returns a
+     *         negative weight
+     */
+    public V put(K key, V value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the weigher returns a
+     *         negative weight
+     */
+    public V putIfAbsent(K key, V value) {
+        return putVal(key, value, true);
+    }
+
+    final V putVal(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null) throw new NullPointerException();
+        int w = weigh(key, value);
+        Node<K,V> node = null;
+        for (;;) {
+            Node<K,V> p = data.get(key);
+            if (p == null) {
+                if (node == null)
+                    node = new Node<K,V>(key, value, w);
+                if ((p = data.putIfAbsent(key, node)) == null) {
+                    afterWrite(new AddTask(node));
+                    return null;
+                }
+            }
+            V old;
+            synchronized (p) {
+                if (p.state != ALIVE)
+                    continue; // removed; retry
+                old = p.value;
+                if (!onlyIfAbsent) {
+                    p.value = value;
+                    p.weight = w;
+                }
+            }
+            if (onlyIfAbsent)
+                afterRead(p);
+            else
+                afterWrite(new UpdateTask(p));
+            return old;
+        }
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this cache.
+     * This method does nothing if the key is not in the cache.
+     *
+     * @param  key the key that needs to be removed
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        Node<K,V> p = data.remove(key);
+        if (p == null)
+            return null;
+        V old;
+        synchronized (p) {
+            old = p.value;
+            p.state = RETIRED;
+        }
+        afterWrite(new RemovalTask(p));
+        return old;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        Node<K,V> p;
+        if (value == null || (p = data.get(key)) == null)
+            return false;
+        synchronized (p) {
+            if (p.state != ALIVE || !value.equals(p.value) ||
+                !data.remove(key, p))
+                return false;
+            p.state = RETIRED;
+        }
+        afterWrite(new RemovalTask(p));
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null
+     * @throws IllegalArgumentException if the weigher returns a
+     *         negative weight
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || oldValue == null || newValue == null)
+            throw new NullPointerException();
+        Node<K,V> p = data.get(key);
+        if (p == null)
+            return false;
+        int w = weigh(key, newValue);
+        synchronized (p) {
+            if (p.state != ALIVE || !oldValue.equals(p.value))
+                return false;
+            p.value = newValue;
+            p.weight = w;
+        }
+        afterWrite(new UpdateTask(p));
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the weigher returns a
+     *         negative weight
+     */
+    public V replace(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        Node<K,V> p = data.get(key);
+        if (p == null)
+            return null;
+        int w = weigh(key, value);
+        V old;
+        synchronized (p) {
+            if (p.state != ALIVE)
+                return null;
+            old = p.value;
+            p.value = value;
+            p.weight = w;
+        }
+        afterWrite(new UpdateTask(p));
+        return old;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * attempts to compute its value using the given mapping function
+     * and enters it into this cache unless {@code null}.  The entire
+     * method invocation is performed atomically, so the function is
+     * applied at most once per key, and counts as a miss; finding an
+     * existing value counts as a hit.  The mapping function must not
+     * attempt to update any other mappings of this cache.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key, or null if the computed value is null
+     * @throws NullPointerException if the specified key or mappingFunction
+     *         is null
+     * @throws IllegalArgumentException if the weigher returns a
+     *         negative weight
+     * @throws RuntimeException or Error if the mappingFunction does so,
+     *         in which case the mapping is left unestablished
+     */
+    public V computeIfAbsent(K key,
+                             Function<? super K, ? extends V> mappingFunction) {
+        if (key == null || mappingFunction == null)
+            throw new NullPointerException();
+        Node<K,V> p = data.get(key);
+        if (p == null) {
+            @SuppressWarnings("unchecked")
+            final Node<K,V>[] created = (Node<K,V>[])new Node<?,?>[1];
+            p = data.computeIfAbsent(key, k -> {
+                    V v = mappingFunction.apply(k);
+                    return (v == null) ? null :
+                        (created[0] = new Node<K,V>(k, v, weigh(k, v)));
+                });
+            if (p != null && p == created[0]) {
+                misses.increment();
+                afterWrite(new AddTask(p));
+                return p.value;
+            }
+            if (p == null) {
+                misses.increment();
+                return null;
+            }
+        }
+        V v = p.value;
+        hits.increment();
+        afterRead(p);
+        return v;
+    }
+
+    /**
+     * Removes all of the mappings from this cache.
+     */
+    public void clear() {
+        for (K key : data.keySet())
+            remove(key);
+        cleanUp();
+    }
+
+    /* ---------------- Policy and statistics -------------- */
+
+    /**
+     * Returns the maximum total weight of the entries in this cache.
+     *
+     * @return the maximum total weight
+     */
+    public long maximumWeight() {
+        return maximum;
+    }
+
+    /**
+     * Returns the total weight of the entries in this cache, as of
+     * the last application of pending updates.
+     *
+     * @return the total weight of the entries
+     */
+    public long weightedSize() {
+        final ReentrantLock lock = this.evictionLock;
+        lock.lock();
+        try {
+            return weightedSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of times a lookup found an entry.
+     *
+     * @return the number of hits
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of times a lookup found no entry.
+     *
+     * @return the number of misses
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of entries evicted to satisfy the maximum
+     * weight.  Entries removed explicitly are not counted.
+     *
+     * @return the number of evictions
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the total weight of the entries evicted to satisfy the
+     * maximum weight.
+     *
+     * @return the total weight of evicted entries
+     */
+    public long evictionWeight() {
+        return evictionWeight.sum();
+    }
+
+    /**
+     * Returns the ratio of hits to lookups, or {@code 1.0} if there
+     * have been no lookups.
+     *
+     * @return the hit rate
+     */
+    public double hitRate() {
+        long h = hits.sum(), n = h + misses.sum();
+        return (n == 0L) ? 1.0d : (double)h / n;
+    }
+
+    /**
+     * Resets the hit, miss and eviction statistics to zero.
+     */
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        evictionWeight.reset();
+    }
+
+    /* ---------------- Views -------------- */
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this
+     * cache.  The set is backed by the cache, so changes to the cache
+     * are reflected in the set, and vice-versa.  The set supports
+     * element removal, which removes the corresponding mapping from
+     * the cache, but not {@code add} or {@code addAll}.  Iteration
+     * does not count as access.
+     *
+     * <p>The view's iterators are
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>,
+     * and their entries' {@code setValue} writes through to the cache.
+     *
+     * @return the set view
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySetView es;
+        return (es = entrySet) != null ? es : (entrySet = new EntrySetView());
+    }
+
+    final class EntrySetView extends AbstractSet<Map.Entry<K,V>> {
+        public int size() { return ConcurrentBoundedCache.this.size(); }
+        public boolean isEmpty() { return ConcurrentBoundedCache.this.isEmpty(); }
+        public void clear() { ConcurrentBoundedCache.this.clear(); }
+        public Iterator<Map.Entry<K,V>> iterator() { return new EntryIterator(); }
+        public boolean contains(Object o) {
+            Object k, v, r; Map.Entry<?,?> e; Node<K,V> p;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (p = data.get(k)) != null &&
+                    (r = p.value) != null &&
+                    (v = e.getValue()) != null &&
+                    (v == r || v.equals(r)));
+        }
+        public boolean remove(Object o) {
+            Object k, v; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    ConcurrentBoundedCache.this.remove(k, v));
+        }
+    }
+
+    final class EntryIterator implements Iterator<Map.Entry<K,V>> {
+        final Iterator<Node<K,V>> it = data.values().iterator();
+        Node<K,V> next;
+        V nextValue;
+        K lastKey;
+
+        public boolean hasNext() {
+            while (next == null && it.hasNext()) {
+                Node<K,V> p = it.next();
+                V v;
+                if (p.state == ALIVE && (v = p.value) != null) {
+                    next = p;
+                    nextValue = v;
+                }
+            }
+            return next != null;
+        }
+
+        public Map.Entry<K,V> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            Node<K,V> p = next;
+            next = null;
+            return new WriteThroughEntry(lastKey = p.key, nextValue);
+        }
+
+        public void remove() {
+            K k;
+            if ((k = lastKey) == null)
+                throw new IllegalStateException();
+            lastKey = null;
+            ConcurrentBoundedCache.this.remove(k);
+        }
+    }
+
+    /**
+     * Exported entry, whose setValue writes through to the cache, as
+     * in ConcurrentHashMap.MapEntry.
+     */
+    final class WriteThroughEntry extends AbstractMap.SimpleEntry<K,V> {
+        private static final long serialVersionUID = -6476128376520937446L;
+
+        WriteThroughEntry(K key, V value) {
+            super(key, value);
+        }
+
+        public V setValue(V value) {
+            if (value == null) throw new NullPointerException();
+            V v = super.setValue(value);
+            put(getKey(), value);
+            return v;
+        }
+    }
+}
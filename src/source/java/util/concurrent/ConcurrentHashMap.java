@@ -588,6 +588,21 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
      */
     private static final int RESIZE_STAMP_SHIFT = 32 - RESIZE_STAMP_BITS;
 
+    /**
+     * The period, in nanoseconds, during which a count summed by
+     * estimatedSize may be reused.  Long enough to absorb bursts of
+     * calls from monitoring code, short enough that the estimate is
+     * not noticeably staler than the inherently racy mappingCount.
+     */
+    private static final long SIZE_ESTIMATE_NANOS = 1000L * 1000L;
+
+    /**
+     * The maximum number of bin ranges into which inputs of parallel
+     * putAll and computeAll are grouped. Each range then spans
+     * table.length / BATCH_BUCKETS adjacent bins.
+     */
+    private static final int BATCH_BUCKETS = 1 << 12;
+
     /*
      * Encodings for Node hash fields. See above for explanation.
      */
@@ -809,6 +824,13 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
      */
     private transient volatile CounterCell[] counterCells;
 
+    /**
+     * The last count summed by estimatedSize, and the System.nanoTime
+     * at which it was summed.  Races among updaters are benign.
+     */
+    private transient volatile long estimatedCount;
+    private transient volatile long estimatedCountTime;
+
     // views
     private transient KeySetView<K,V> keySet;
     private transient ValuesView<K,V> values;
@@ -2108,6 +2130,110 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         return (n < 0L) ? 0L : n; // ignore transient negative values
     }
 
+    /**
+     * Returns an approximation of the number of mappings that is
+     * cheaper to obtain than {@link #mappingCount} under contention.
+     * When updates have spread the count across multiple counter
+     * cells, the summed value is cached and reused for a short period
+     * (currently about a millisecond), so that frequent callers such
+     * as metrics collectors do not repeatedly read every cell.  The
+     * value returned may therefore lag behind concurrent insertions
+     * and removals slightly more than that of {@code mappingCount}.
+     *
+     * @return an estimate of the number of mappings
+     * @since 1.8
+     */
+    public long estimatedSize() {
+        long n;
+        if (counterCells == null)
+            n = baseCount;
+        else {
+            long now = System.nanoTime();
+            if (now - estimatedCountTime < SIZE_ESTIMATE_NANOS &&
+                estimatedCountTime != 0L)
+                n = estimatedCount;
+            else {
+                estimatedCount = n = sumCount();
+                estimatedCountTime = (now == 0L) ? 1L : now;
+            }
+        }
+        return (n < 0L) ? 0L : n; // ignore transient negative values
+    }
+
+    /**
+     * Returns statistics describing the bins of the current table,
+     * as by {@code binStatistics(0, Integer.MAX_VALUE)}.
+     *
+     * @return statistics for all bins of the current table
+     * @since 1.8
+     */
+    public BinStatistics binStatistics() {
+        return binStatistics(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns statistics describing the bins with indices from
+     * {@code fromIndex} (inclusive) to {@code toIndex} (exclusive)
+     * in the current table; indices beyond the table length are
+     * ignored.  The statistics are gathered without locking, by a
+     * single traversal of the bins in the given range, so may not
+     * reflect a consistent snapshot if the map is concurrently
+     * updated.  Bins already transferred by an in-progress resize
+     * are counted as forwarded rather than traversed.  The traversal
+     * takes time proportional to the number of bins and mappings in
+     * the range, so callers monitoring large maps may prefer to
+     * sample successive ranges.
+     *
+     * @param fromIndex the index of the first bin to examine
+     * @param toIndex the index after the last bin to examine
+     * @return statistics for the given range of bins
+     * @throws IllegalArgumentException if {@code fromIndex} is negative
+     *         or greater than {@code toIndex}
+     * @since 1.8
+     */
+    public BinStatistics binStatistics(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || fromIndex > toIndex)
+            throw new IllegalArgumentException();
+        Node<K,V>[] tab = table, nt = nextTable;
+        int n = (tab == null) ? 0 : tab.length;
+        int sc = sizeCtl, ti = transferIndex;
+        int f = Math.min(fromIndex, n), t = Math.min(toIndex, n);
+        int empty = 0, lists = 0, trees = 0, forwarded = 0;
+        int longest = 0, largestTree = 0;
+        long nodes = 0L;
+        for (int i = f; i < t; ++i) {
+            Node<K,V> e = tabAt(tab, i);
+            if (e == null || e.hash == RESERVED)
+                ++empty;
+            else if (e.hash == MOVED)
+                ++forwarded;
+            else if (e instanceof TreeBin) {
+                int c = 0;
+                for (Node<K,V> p = ((TreeBin<K,V>)e).first; p != null;
+                     p = p.next)
+                    ++c;
+                ++trees;
+                nodes += c;
+                if (c > largestTree)
+                    largestTree = c;
+            }
+            else {
+                int c = 0;
+                for (Node<K,V> p = e; p != null; p = p.next)
+                    ++c;
+                ++lists;
+                nodes += c;
+                if (c > longest)
+                    longest = c;
+            }
+        }
+        boolean resizing = (nt != null && sc < 0);
+        return new BinStatistics(n, f, t, empty, lists, trees, forwarded,
+                                 nodes, longest, largestTree, resizing,
+                                 resizing ? (nt == null ? 0 : nt.length) : 0,
+                                 resizing ? Math.max(ti, 0) : 0);
+    }
+
     /**
      * Creates a new {@link Set} backed by a ConcurrentHashMap
      * from the given type to {@code Boolean.TRUE}.
@@ -2155,6 +2281,172 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         return new KeySetView<K,V>(this, mappedValue);
     }
 
+    /**
+     * Statistics describing a range of bins of a ConcurrentHashMap,
+     * as returned by {@link #binStatistics(int, int)}.  Instances are
+     * immutable snapshots, useful for monitoring hash quality (via
+     * chain and tree bin lengths) and the progress of resizes.
+     *
+     * @since 1.8
+     */
+    public static final class BinStatistics {
+        private final int tableLength;
+        private final int fromIndex;
+        private final int toIndex;
+        private final int emptyBins;
+        private final int listBins;
+        private final int treeBins;
+        private final int forwardedBins;
+        private final long nodeCount;
+        private final int longestChain;
+        private final int largestTreeBin;
+        private final boolean resizing;
+        private final int nextTableLength;
+        private final int transferIndex;
+
+        BinStatistics(int tableLength, int fromIndex, int toIndex,
+                      int emptyBins, int listBins, int treeBins,
+                      int forwardedBins, long nodeCount, int longestChain,
+                      int largestTreeBin, boolean resizing,
+                      int nextTableLength, int transferIndex) {
+            this.tableLength = tableLength;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.emptyBins = emptyBins;
+            this.listBins = listBins;
+            this.treeBins = treeBins;
+            this.forwardedBins = forwardedBins;
+            this.nodeCount = nodeCount;
+            this.longestChain = longestChain;
+            this.largestTreeBin = largestTreeBin;
+            this.resizing = resizing;
+            this.nextTableLength = nextTableLength;
+            this.transferIndex = transferIndex;
+        }
+
+        /**
+         * Returns the length of the table, or zero if not yet initialized.
+         *
+         * @return the table length
+         */
+        public int getTableLength() { return tableLength; }
+
+        /**
+         * Returns the index of the first bin examined.
+         *
+         * @return the index of the first bin examined
+         */
+        public int getFromIndex() { return fromIndex; }
+
+        /**
+         * Returns the index after the last bin examined.
+         *
+         * @return the index after the last bin examined
+         */
+        public int getToIndex() { return toIndex; }
+
+        /**
+         * Returns the number of empty bins in the range.
+         *
+         * @return the number of empty bins
+         */
+        public int getEmptyBins() { return emptyBins; }
+
+        /**
+         * Returns the number of non-empty bins holding a linked list
+         * of nodes.
+         *
+         * @return the number of list bins
+         */
+        public int getListBins() { return listBins; }
+
+        /**
+         * Returns the number of bins that have been converted to
+         * balanced trees because of excessive collisions.  A non-zero
+         * count usually indicates poor key hash codes.
+         *
+         * @return the number of tree bins
+         */
+        public int getTreeBins() { return treeBins; }
+
+        /**
+         * Returns the number of bins already transferred to the next
+         * table by an in-progress resize.
+         *
+         * @return the number of forwarded bins
+         */
+        public int getForwardedBins() { return forwardedBins; }
+
+        /**
+         * Returns the number of mappings found in the traversed bins.
+         *
+         * @return the number of mappings traversed
+         */
+        public long getNodeCount() { return nodeCount; }
+
+        /**
+         * Returns the length of the longest list bin.
+         *
+         * @return the longest chain length
+         */
+        public int getLongestChain() { return longestChain; }
+
+        /**
+         * Returns the number of mappings in the largest tree bin.
+         *
+         * @return the largest tree bin size
+         */
+        public int getLargestTreeBin() { return largestTreeBin; }
+
+        /**
+         * Returns {@code true} if a resize was in progress.
+         *
+         * @return {@code true} if a resize was in progress
+         */
+        public boolean isResizing() { return resizing; }
+
+        /**
+         * Returns the length of the table being resized into, or zero
+         * if no resize was in progress.
+         *
+         * @return the next table length
+         */
+        public int getNextTableLength() { return nextTableLength; }
+
+        /**
+         * Returns the number of bins of the current table not yet
+         * claimed by resizing threads, or zero if no resize was in
+         * progress.  Bins are claimed from the top of the table
+         * downwards, so this value decreases to zero as the resize
+         * proceeds.
+         *
+         * @return the number of bins left to claim
+         */
+        public int getTransferIndex() { return transferIndex; }
+
+        /**
+         * Returns a string summarizing these statistics.
+         *
+         * @return a string summarizing these statistics
+         */
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("[table=").append(tableLength)
+                .append(", bins=").append(fromIndex).append("..").append(toIndex)
+                .append(", empty=").append(emptyBins)
+                .append(", lists=").append(listBins)
+                .append(", trees=").append(treeBins)
+                .append(", forwarded=").append(forwardedBins)
+                .append(", nodes=").append(nodeCount)
+                .append(", longestChain=").append(longestChain)
+                .append(", largestTree=").append(largestTreeBin);
+            if (resizing)
+                sb.append(", resizing to ").append(nextTableLength)
+                    .append(", transferIndex=").append(transferIndex);
+            return sb.append(']').toString();
+        }
+    }
+
     /* ---------------- Special Nodes -------------- */
 
     /**
@@ -4362,6 +4654,131 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
              null, transformer, basis, reducer).invoke();
     }
 
+    /**
+     * Copies all of the mappings from the specified map to this one,
+     * as by {@link #putAll(Map)}, but with work split across
+     * parallel tasks when the number of mappings is at least the
+     * given threshold.  The table is presized once for the incoming
+     * mappings, which are then grouped by the range of bins they
+     * hash to, so that each task inserts into a disjoint region of
+     * the table and rarely contends with others for bin locks.  As
+     * with {@code putAll}, mappings are not added atomically as a
+     * group, and concurrent readers may observe some but not all of
+     * them.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null, or
+     * contains a null key or value
+     * @since 1.8
+     */
+    public void putAll(long parallelismThreshold,
+                       Map<? extends K, ? extends V> m) {
+        int size = m.size();
+        tryPresize(size);
+        Object[] ks = new Object[size], vs = new Object[size];
+        int n = 0;
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+            K k = e.getKey(); V v = e.getValue();
+            if (k == null || v == null)
+                throw new NullPointerException();
+            if (n == ks.length) {
+                int cap = (n >= MAX_ARRAY_SIZE - (n >>> 1)) ?
+                    MAX_ARRAY_SIZE : n + (n >>> 1) + 1;
+                ks = Arrays.copyOf(ks, cap);
+                vs = Arrays.copyOf(vs, cap);
+            }
+            ks[n] = k;
+            vs[n++] = v;
+        }
+        batchUpdate(parallelismThreshold, ks, vs, n, null);
+    }
+
+    /**
+     * Attempts to compute a mapping for each of the given keys, as if
+     * by invoking {@link #compute} for each, but with work split
+     * across parallel tasks when the number of keys is at least the
+     * given threshold.  Keys are grouped by the range of bins they
+     * hash to, so that each task works on a disjoint region of the
+     * table, improving locality and avoiding contention among tasks
+     * for bin locks.  Each computation is performed atomically, but
+     * the group as a whole is not, and the order in which keys are
+     * processed is unspecified.  If a key appears more than once, the
+     * function is applied once per occurrence.  As for {@code
+     * compute}, the function should be short and simple, must not
+     * attempt to update any other mappings of this map, and, when
+     * used in parallel, must be safe to call concurrently.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param keys the keys for which to compute mappings
+     * @param remappingFunction the function to compute a value
+     * @throws NullPointerException if the specified collection or
+     * remappingFunction is null, or the collection contains a null key
+     * @throws IllegalStateException if a computation detectably
+     *         attempts a recursive update to this map that would
+     *         otherwise never complete
+     * @throws RuntimeException or Error if the remappingFunction does
+     *         so, in which case the mapping for that key is unchanged
+     * @since 1.8
+     */
+    public void computeAll(long parallelismThreshold,
+                           Collection<? extends K> keys,
+                           BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        Object[] ks = keys.toArray();
+        int n = ks.length;
+        for (int i = 0; i < n; ++i) {
+            if (ks[i] == null)
+                throw new NullPointerException();
+        }
+        batchUpdate(parallelismThreshold, ks, null, n, remappingFunction);
+    }
+
+    /**
+     * Implementation for parallel putAll and computeAll. Applies
+     * putVal (if vs is non-null) or compute to the first n keys. In
+     * parallel mode, the keys are first bucket-sorted by the high
+     * bits of their current bin index, so each BatchUpdateTask
+     * covers a contiguous, disjoint slice of the table.
+     */
+    @SuppressWarnings("unchecked")
+    private void batchUpdate(long parallelismThreshold, Object[] ks,
+                             Object[] vs, int n,
+                             BiFunction<? super K, ? super V, ? extends V> fn) {
+        Node<K,V>[] tab; int len, sp;
+        if (n < parallelismThreshold || parallelismThreshold == Long.MAX_VALUE ||
+            (sp = ForkJoinPool.getCommonPoolParallelism() << 2) <= 4 ||
+            (tab = table) == null || (len = tab.length) < 2) {
+            for (int i = 0; i < n; ++i) {
+                if (vs != null)
+                    putVal((K)ks[i], (V)vs[i], false);
+                else
+                    compute((K)ks[i], fn);
+            }
+            return;
+        }
+        int buckets = (len < BATCH_BUCKETS) ? len : BATCH_BUCKETS;
+        int shift = Integer.numberOfTrailingZeros(len) -
+            Integer.numberOfTrailingZeros(buckets);
+        int[] bucketOf = new int[n];
+        int[] counts = new int[buckets + 1];
+        for (int i = 0; i < n; ++i) {
+            int b = ((len - 1) & spread(ks[i].hashCode())) >>> shift;
+            bucketOf[i] = b;
+            ++counts[b + 1];
+        }
+        for (int b = 0; b < buckets; ++b)
+            counts[b + 1] += counts[b];
+        int[] order = new int[n];
+        for (int i = 0; i < n; ++i)
+            order[counts[bucketOf[i]]++] = i;
+        new BatchUpdateTask<K,V>(null, this, ks, vs, fn, order, 0, n,
+                                 Math.max(1, n / sp)).invoke();
+    }
+
 
     /* ----------------Views -------------- */
 
@@ -6272,6 +6689,54 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         }
     }
 
+    /**
+     * Task for putAll(long, Map) and computeAll, applying updates to
+     * a slice of the (bin-ordered) permutation of the inputs.
+     */
+    @SuppressWarnings("serial")
+    static final class BatchUpdateTask<K,V> extends CountedCompleter<Void> {
+        final ConcurrentHashMap<K,V> map;
+        final Object[] keys, vals;
+        final BiFunction<? super K, ? super V, ? extends V> fn;
+        final int[] order;
+        final int lo, grain;
+        int hi;
+        BatchUpdateTask(BatchUpdateTask<K,V> par, ConcurrentHashMap<K,V> map,
+                        Object[] keys, Object[] vals,
+                        BiFunction<? super K, ? super V, ? extends V> fn,
+                        int[] order, int lo, int hi, int grain) {
+            super(par);
+            this.map = map; this.keys = keys; this.vals = vals;
+            this.fn = fn; this.order = order;
+            this.lo = lo; this.hi = hi; this.grain = grain;
+        }
+        @SuppressWarnings("unchecked")
+        public final void compute() {
+            final ConcurrentHashMap<K,V> m; final Object[] ks, vs;
+            final int[] o;
+            if ((m = map) != null && (ks = keys) != null &&
+                (o = order) != null) {
+                vs = vals;
+                int l = lo, g = grain;
+                for (int h; hi - l > g; ) {
+                    addToPendingCount(1);
+                    new BatchUpdateTask<K,V>
+                        (this, m, ks, vs, fn, o, h = (l + hi) >>> 1, hi,
+                         g).fork();
+                    hi = h;
+                }
+                for (int i = l, f = hi; i < f; ++i) {
+                    int j = o[i];
+                    if (vs != null)
+                        m.putVal((K)ks[j], (V)vs[j], false);
+                    else
+                        m.compute((K)ks[j], fn);
+                }
+                propagateCompletion();
+            }
+        }
+    }
+
     // Unsafe mechanics
     private static final sun.misc.Unsafe U;
     private static final long SIZECTL;
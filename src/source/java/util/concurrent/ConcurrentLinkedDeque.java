@@ -1394,7 +1394,6 @@ public class ConcurrentLinkedDeque<E>
 
     /** A customized variant of Spliterators.IteratorSpliterator */
     static final class CLDSpliterator<E> implements Spliterator<E> {
-        static final int MAX_BATCH = 1 << 25;  // max batch array size;
         final ConcurrentLinkedDeque<E> queue;
         Node<E> current;    // current node; null until initialized
         int batch;          // batch size for splits
@@ -1406,8 +1405,7 @@ public class ConcurrentLinkedDeque<E>
         public Spliterator<E> trySplit() {
             Node<E> p;
             final ConcurrentLinkedDeque<E> q = this.queue;
-            int b = batch;
-            int n = (b <= 0) ? 1 : (b >= MAX_BATCH) ? MAX_BATCH : b + 1;
+            int n = Helpers.nextBatchSize(batch);
             if (!exhausted &&
                 ((p = current) != null || (p = q.first()) != null)) {
                 if (p.item == null && p == (p = p.next))
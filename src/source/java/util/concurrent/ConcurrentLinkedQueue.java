@@ -805,7 +805,6 @@ public class ConcurrentLinkedQueue<E> extends AbstractQueue<E>
 
     /** A customized variant of Spliterators.IteratorSpliterator */
     static final class CLQSpliterator<E> implements Spliterator<E> {
-        static final int MAX_BATCH = 1 << 25;  // max batch array size;
         final ConcurrentLinkedQueue<E> queue;
         Node<E> current;    // current node; null until initialized
         int batch;          // batch size for splits
@@ -817,8 +816,7 @@ public class ConcurrentLinkedQueue<E> extends AbstractQueue<E>
         public Spliterator<E> trySplit() {
             Node<E> p;
             final ConcurrentLinkedQueue<E> q = this.queue;
-            int b = batch;
-            int n = (b <= 0) ? 1 : (b >= MAX_BATCH) ? MAX_BATCH : b + 1;
+            int n = Helpers.nextBatchSize(batch);
             if (!exhausted &&
                 ((p = current) != null || (p = q.first()) != null) &&
                 p.next != null) {
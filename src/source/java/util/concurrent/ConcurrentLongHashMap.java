@@ -0,0 +1,850 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+
+/**
+ * A hash table mapping primitive {@code long} keys to object values,
+ * supporting full concurrency of retrievals and high expected
+ * concurrency for updates.  This class obeys the same functional
+ * specification as the corresponding methods of {@link
+ * ConcurrentHashMap}, restricted to {@code long} keys, but avoids
+ * boxing keys and allocating a node per mapping: mappings are held
+ * in parallel {@code long} and {@code Object} arrays using open
+ * addressing, so that a map holding many entries uses a small
+ * fraction of the memory of an equivalent {@code
+ * ConcurrentHashMap<Long,V>}, and creates little garbage.
+ *
+ * <p>The table is internally partitioned into sections, each of
+ * which may be updated independently.  Retrievals normally proceed
+ * without locking, and do not block.  Updates lock only the section
+ * holding the key, and sections resize independently when they
+ * become too full.  The {@code concurrencyLevel} constructor
+ * argument gives the estimated number of concurrently updating
+ * threads, and is used as a sizing hint for the number of sections.
+ *
+ * <p>Like {@link java.util.Hashtable} but unlike {@link java.util.HashMap},
+ * this class does <em>not</em> allow {@code null} to be used as a
+ * value.  Bulk methods such as {@link #forEach} operate over a
+ * weakly consistent view of each section in turn: they reflect the
+ * state of each section at some point at or since the method was
+ * invoked, and never throw {@link
+ * java.util.ConcurrentModificationException}.
+ * The results of aggregate status methods including {@code size}
+ * and {@code isEmpty} are typically useful only when a map is not
+ * undergoing concurrent updates in other threads.
+ *
+ * @since 1.8
+ * @param <V> the type of mapped values
+ */
+public class ConcurrentLongHashMap<V> {
+
+    /*
+     * Overview:
+     *
+     * The map is a fixed power-of-two sized array of Sections,
+     * playing the role of the Segments of previous versions of
+     * ConcurrentHashMap. Each Section is itself a StampedLock
+     * guarding a linear-probing hash table held as a long[] of keys
+     * and a parallel Object[] of values, in which a null value marks
+     * an empty slot (so that all long keys, including zero, may be
+     * used).
+     *
+     * Keys are first spread with a 64-bit finalizer (as in
+     * MurmurHash3), so that consecutive keys are scattered. The high
+     * half of the spread hash selects the section, and the low half
+     * the starting slot, so the two choices are independent.
+     *
+     * Retrievals use StampedLock optimistic reads: the arrays are
+     * read without locking and the result discarded and recomputed
+     * under a read lock if validation fails. Because the key and
+     * value arrays are replaced separately on resize, an optimistic
+     * reader may observe arrays of different lengths, which is
+     * treated as a miss pending validation. Probing is bounded by the
+     * table length so that torn reads cannot loop.
+     *
+     * Updates are performed under the section write lock. Removal
+     * uses backward-shift deletion (Knuth's Algorithm R), so no
+     * tombstones are needed and probe sequences stay short. Each
+     * section is resized (doubled) when its occupancy exceeds three
+     * quarters of its capacity; as in ConcurrentHashMap, resizing
+     * of one section never blocks retrievals or updates in others.
+     */
+
+    /**
+     * The largest possible section capacity.
+     */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The smallest section capacity.
+     */
+    private static final int MINIMUM_CAPACITY = 4;
+
+    /**
+     * The default initial capacity of the map.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The default number of sections.
+     */
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    /**
+     * The maximum number of sections.
+     */
+    private static final int MAX_SECTIONS = 1 << 16;
+
+    /**
+     * Spreads the bits of the given key, mixing higher bits into
+     * lower ones and vice versa.
+     */
+    static final long spread(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Returns a power of two size for the given target capacity.
+     */
+    static final int tableSizeFor(int c) {
+        int n = c - 1;
+        n |= n >>> 1;
+        n |= n >>> 2;
+        n |= n >>> 4;
+        n |= n >>> 8;
+        n |= n >>> 16;
+        return (n < 0) ? 1 : (n >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY : n + 1;
+    }
+
+    /**
+     * Represents an operation that accepts a {@code long} key and
+     * an object value.
+     *
+     * @param <V> the type of values
+     * @since 1.8
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        /**
+         * Performs this operation on the given mapping.
+         *
+         * @param key the key
+         * @param value the value
+         */
+        void accept(long key, V value);
+    }
+
+    /**
+     * Represents a function that accepts a {@code long} key and an
+     * object value and produces a result.
+     *
+     * @param <V> the type of values
+     * @param <R> the type of results
+     * @since 1.8
+     */
+    @FunctionalInterface
+    public interface LongObjFunction<V, R> {
+        /**
+         * Applies this function to the given mapping.
+         *
+         * @param key the key
+         * @param value the value
+         * @return the function result
+         */
+        R apply(long key, V value);
+    }
+
+    /**
+     * The sections, each guarding an independent hash table.
+     */
+    private final Section<V>[] sections;
+
+    /**
+     * Creates a new, empty map with the default initial table size
+     * and concurrency level.
+     */
+    public ConcurrentLongHashMap() {
+        this(DEFAULT_CAPACITY, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Creates a new, empty map with an initial table size
+     * accommodating the specified number of elements without the
+     * need to dynamically resize, and the default concurrency level.
+     *
+     * @param initialCapacity the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is
+     * negative
+     */
+    public ConcurrentLongHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Creates a new, empty map with an initial table size based on
+     * the given number of elements ({@code initialCapacity}) and
+     * number of concurrently updating threads ({@code
+     * concurrencyLevel}).
+     *
+     * @param initialCapacity the initial capacity. The implementation
+     * performs internal sizing to accommodate this many elements.
+     * @param concurrencyLevel the estimated number of concurrently
+     * updating threads. The implementation may use this value as
+     * a sizing hint.
+     * @throws IllegalArgumentException if the initial capacity is
+     * negative or the concurrencyLevel is nonpositive
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongHashMap(int initialCapacity, int concurrencyLevel) {
+        if (initialCapacity < 0 || concurrencyLevel <= 0)
+            throw new IllegalArgumentException();
+        int ns = tableSizeFor(Math.min(concurrencyLevel, MAX_SECTIONS));
+        long perSection = ((long)initialCapacity + ns - 1) / ns;
+        int cap = (perSection >= (MAXIMUM_CAPACITY >>> 1)) ? MAXIMUM_CAPACITY :
+            tableSizeFor((int)(perSection + (perSection >>> 1) + 1));
+        if (cap < MINIMUM_CAPACITY)
+            cap = MINIMUM_CAPACITY;
+        Section<V>[] ss = (Section<V>[])new Section<?>[ns];
+        for (int i = 0; i < ns; ++i)
+            ss[i] = new Section<V>(cap);
+        this.sections = ss;
+    }
+
+    private Section<V> sectionFor(long h) {
+        Section<V>[] ss = sections;
+        return ss[(int)(h >>> 32) & (ss.length - 1)];
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.  If the
+     * map contains more than {@code Integer.MAX_VALUE} elements,
+     * returns {@code Integer.MAX_VALUE}.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        long n = mappingCount();
+        return (n > (long)Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)n;
+    }
+
+    /**
+     * Returns the number of mappings, which may exceed {@code
+     * Integer.MAX_VALUE}.  The value returned is an estimate; the
+     * actual count may differ if there are concurrent insertions or
+     * removals.
+     *
+     * @return the number of mappings
+     */
+    public long mappingCount() {
+        long n = 0L;
+        for (Section<V> s : sections)
+            n += s.size;
+        return n;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        for (Section<V> s : sections) {
+            if (s.size != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key
+     */
+    public V get(long key) {
+        long h = spread(key);
+        return sectionFor(h).get(key, (int)h);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or the
+     * given default value if this map contains no mapping for the
+     * key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if this map contains
+     * no mapping for the given key
+     * @return the mapping for the key, if present; else the default value
+     */
+    public V getOrDefault(long key, V defaultValue) {
+        V v;
+        return (v = get(key)) == null ? defaultValue : v;
+    }
+
+    /**
+     * Tests if the specified key is a key in this table.
+     *
+     * @param key possible key
+     * @return {@code true} if and only if the specified key is a key
+     * in this table
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the specified key to the specified value in this table.
+     * The value cannot be null.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified value is null
+     */
+    public V put(long key, V value) {
+        if (value == null) throw new NullPointerException();
+        long h = spread(key);
+        return sectionFor(h).put(key, value, (int)h, false);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified value is null
+     */
+    public V putIfAbsent(long key, V value) {
+        if (value == null) throw new NullPointerException();
+        long h = spread(key);
+        return sectionFor(h).put(key, value, (int)h, true);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * attempts to compute its value using the given mapping function
+     * and enters it into this map unless {@code null}.  The entire
+     * method invocation is performed atomically, so the function is
+     * applied at most once per key.  Some attempted update operations
+     * on this map by other threads may be blocked while computation
+     * is in progress, so the computation should be short and simple,
+     * and must not attempt to update any other mappings of this map.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key, or null if the computed value is null
+     * @throws NullPointerException if the mappingFunction is null
+     * @throws RuntimeException or Error if the mappingFunction does so,
+     *         in which case the mapping is left unestablished
+     */
+    public V computeIfAbsent(long key,
+                             LongFunction<? extends V> mappingFunction) {
+        if (mappingFunction == null) throw new NullPointerException();
+        long h = spread(key);
+        Section<V> s = sectionFor(h);
+        V v;
+        if ((v = s.get(key, (int)h)) != null)
+            return v;
+        return s.computeIfAbsent(key, (int)h, mappingFunction);
+    }
+
+    /**
+     * Attempts to compute a mapping for the specified key and its
+     * current mapped value (or {@code null} if there is no current
+     * mapping). The entire method invocation is performed atomically.
+     * Some attempted update operations on this map by other threads
+     * may be blocked while computation is in progress, so the
+     * computation should be short and simple, and must not attempt to
+     * update any other mappings of this map.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param remappingFunction the function to compute a value
+     * @return the new value associated with the specified key, or null if none
+     * @throws NullPointerException if the remappingFunction is null
+     * @throws RuntimeException or Error if the remappingFunction does so,
+     *         in which case the mapping is unchanged
+     */
+    public V compute(long key,
+                     LongObjFunction<? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null) throw new NullPointerException();
+        long h = spread(key);
+        return sectionFor(h).compute(key, (int)h, remappingFunction, false);
+    }
+
+    /**
+     * If the value for the specified key is present, attempts to
+     * compute a new mapping given the key and its current mapped
+     * value.  The entire method invocation is performed atomically.
+     * Some attempted update operations on this map by other threads
+     * may be blocked while computation is in progress, so the
+     * computation should be short and simple, and must not attempt to
+     * update any other mappings of this map.
+     *
+     * @param key key with which a value may be associated
+     * @param remappingFunction the function to compute a value
+     * @return the new value associated with the specified key, or null if none
+     * @throws NullPointerException if the remappingFunction is null
+     * @throws RuntimeException or Error if the remappingFunction does so,
+     *         in which case the mapping is unchanged
+     */
+    public V computeIfPresent(long key,
+                              LongObjFunction<? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null) throw new NullPointerException();
+        long h = spread(key);
+        Section<V> s = sectionFor(h);
+        if (s.get(key, (int)h) == null)
+            return null;
+        return s.compute(key, (int)h, remappingFunction, true);
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this map.
+     * This method does nothing if the key is not in the map.
+     *
+     * @param key the key that needs to be removed
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     */
+    public V remove(long key) {
+        long h = spread(key);
+        return sectionFor(h).remove(key, (int)h, null);
+    }
+
+    /**
+     * Removes the entry for a key only if currently mapped to a given value.
+     *
+     * @param key key with which the specified value is associated
+     * @param value value expected to be associated with the specified key
+     * @return {@code true} if the value was removed
+     */
+    public boolean remove(long key, Object value) {
+        long h = spread(key);
+        return value != null &&
+            sectionFor(h).remove(key, (int)h, value) != null;
+    }
+
+    /**
+     * Replaces the entry for a key only if currently mapped to some value.
+     *
+     * @param key key with which the specified value is associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified value is null
+     */
+    public V replace(long key, V value) {
+        if (value == null) throw new NullPointerException();
+        long h = spread(key);
+        return sectionFor(h).replace(key, (int)h, null, value);
+    }
+
+    /**
+     * Replaces the entry for a key only if currently mapped to a given value.
+     *
+     * @param key key with which the specified value is associated
+     * @param oldValue value expected to be associated with the specified key
+     * @param newValue value to be associated with the specified key
+     * @return {@code true} if the value was replaced
+     * @throws NullPointerException if any of the values are null
+     */
+    public boolean replace(long key, V oldValue, V newValue) {
+        if (oldValue == null || newValue == null)
+            throw new NullPointerException();
+        long h = spread(key);
+        return sectionFor(h).replace(key, (int)h, oldValue, newValue) != null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        for (Section<V> s : sections)
+            s.clear();
+    }
+
+    /**
+     * Performs the given action for each mapping in this map.  Each
+     * section is traversed over a snapshot of its contents, so the
+     * action may update this map.
+     *
+     * @param action the action
+     * @throws NullPointerException if the action is null
+     */
+    public void forEach(EntryConsumer<? super V> action) {
+        if (action == null) throw new NullPointerException();
+        for (Section<V> s : sections)
+            s.forEach(action);
+    }
+
+    /**
+     * Returns an array containing the keys of this map, in no
+     * particular order.
+     *
+     * @return an array of the keys of this map
+     */
+    public long[] keys() {
+        long[] r = new long[size()];
+        int n = 0;
+        for (Section<V> s : sections) {
+            Object[] snapshot = s.snapshot();
+            long[] ks = (long[])snapshot[0];
+            Object[] vs = (Object[])snapshot[1];
+            for (int i = 0; i < vs.length; ++i) {
+                if (vs[i] != null) {
+                    if (n == r.length)
+                        r = Arrays.copyOf(r, n + (n >>> 1) + 1);
+                    r[n++] = ks[i];
+                }
+            }
+        }
+        return (n == r.length) ? r : Arrays.copyOf(r, n);
+    }
+
+    /**
+     * Returns a string representation of this map.  The string
+     * representation consists of a list of key-value mappings (in no
+     * particular order) enclosed in braces ("{@code {}}").  Adjacent
+     * mappings are separated by the characters {@code ", "} (comma
+     * and space).  Each key-value mapping is rendered as the key
+     * followed by an equals sign ("{@code =}") followed by the
+     * associated value.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        forEach(new EntryConsumer<V>() {
+            public void accept(long k, V v) {
+                if (sb.length() > 1)
+                    sb.append(',').append(' ');
+                sb.append(k).append('=').append(v == this ? "(this Map)" : v);
+            }
+        });
+        return sb.append('}').toString();
+    }
+
+    /**
+     * A section: an open-addressed table guarded by its own lock.
+     */
+    @SuppressWarnings("serial")
+    static final class Section<V> extends StampedLock {
+        long[] keys;
+        Object[] values;
+        volatile int size;
+        int threshold;
+        final int initialCapacity;
+
+        Section(int capacity) {
+            this.initialCapacity = capacity;
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.threshold = (capacity >>> 1) + (capacity >>> 2);
+        }
+
+        /**
+         * Returns the value for key, or null if absent, using an
+         * optimistic read when possible.
+         */
+        @SuppressWarnings("unchecked")
+        V get(long key, int h) {
+            long stamp = tryOptimisticRead();
+            Object v = find(key, h);
+            if (!validate(stamp)) {
+                stamp = readLock();
+                try {
+                    v = find(key, h);
+                } finally {
+                    unlockRead(stamp);
+                }
+            }
+            return (V)v;
+        }
+
+        /**
+         * Probes for key. May be called without locking, in which
+         * case the result must be validated.
+         */
+        private Object find(long key, int h) {
+            long[] ks = keys; Object[] vs = values;
+            int n;
+            if (ks == null || vs == null || (n = vs.length) != ks.length)
+                return null;
+            int m = n - 1;
+            for (int i = h & m, c = 0; c < n; i = (i + 1) & m, ++c) {
+                Object v = vs[i];
+                if (v == null)
+                    return null;
+                if (ks[i] == key)
+                    return v;
+            }
+            return null;
+        }
+
+        /**
+         * Returns the slot holding key, or the complement of the
+         * empty slot at which it would be inserted. Requires write lock.
+         */
+        private int indexFor(long key, int h) {
+            long[] ks = keys; Object[] vs = values;
+            int m = vs.length - 1;
+            for (int i = h & m;; i = (i + 1) & m) {
+                if (vs[i] == null)
+                    return ~i;
+                if (ks[i] == key)
+                    return i;
+            }
+        }
+
+        /**
+         * Inserts key and value at empty slot i, resizing if
+         * needed. Requires write lock.
+         */
+        private void insertAt(int i, long key, Object value) {
+            int s = size + 1;
+            // A full-sized table keeps one slot empty so probes end
+            if (s >= MAXIMUM_CAPACITY)
+                throw new IllegalStateException("Section full");
+            keys[i] = key;
+            values[i] = value;
+            size = s;
+            if (s > threshold)
+                resize();
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(long key, V value, int h, boolean onlyIfAbsent) {
+            long stamp = writeLock();
+            try {
+                int i = indexFor(key, h);
+                if (i < 0) {
+                    insertAt(~i, key, value);
+                    return null;
+                }
+                Object old = values[i];
+                if (!onlyIfAbsent)
+                    values[i] = value;
+                return (V)old;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V computeIfAbsent(long key, int h, LongFunction<? extends V> fn) {
+            long stamp = writeLock();
+            try {
+                int i = indexFor(key, h);
+                if (i >= 0)
+                    return (V)values[i];
+                V v = fn.apply(key);
+                if (v != null)
+                    insertAt(~i, key, v);
+                return v;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V compute(long key, int h,
+                  LongObjFunction<? super V, ? extends V> fn,
+                  boolean onlyIfPresent) {
+            long stamp = writeLock();
+            try {
+                int i = indexFor(key, h);
+                if (i < 0 && onlyIfPresent)
+                    return null;
+                V old = (i < 0) ? null : (V)values[i];
+                V v = fn.apply(key, old);
+                if (v != null) {
+                    if (i < 0)
+                        insertAt(~i, key, v);
+                    else
+                        values[i] = v;
+                }
+                else if (i >= 0)
+                    removeAt(i);
+                return v;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Removes key if present and, if expect is non-null, mapped
+         * to a value equal to expect.
+         */
+        @SuppressWarnings("unchecked")
+        V remove(long key, int h, Object expect) {
+            long stamp = writeLock();
+            try {
+                int i = indexFor(key, h);
+                if (i < 0)
+                    return null;
+                Object v = values[i];
+                if (expect != null && v != expect && !expect.equals(v))
+                    return null;
+                removeAt(i);
+                return (V)v;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Replaces the value for key if present and, if expect is
+         * non-null, mapped to a value equal to expect.
+         */
+        @SuppressWarnings("unchecked")
+        V replace(long key, int h, Object expect, V value) {
+            long stamp = writeLock();
+            try {
+                int i = indexFor(key, h);
+                if (i < 0)
+                    return null;
+                Object v = values[i];
+                if (expect != null && v != expect && !expect.equals(v))
+                    return null;
+                values[i] = value;
+                return (V)v;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Empties slot i, shifting back later entries of the same
+         * probe run so that no lookup terminates early. Requires
+         * write lock.
+         */
+        private void removeAt(int i) {
+            long[] ks = keys; Object[] vs = values;
+            int m = vs.length - 1;
+            for (int j = i;;) {
+                vs[i] = null;
+                for (;;) {
+                    j = (j + 1) & m;
+                    if (vs[j] == null) {
+                        size = size - 1;
+                        return;
+                    }
+                    int k = (int)spread(ks[j]) & m;
+                    // stop unless home slot k lies cyclically in (i, j]
+                    if ((i <= j) ? (i >= k || k > j) : (i >= k && k > j))
+                        break;
+                }
+                ks[i] = ks[j];
+                vs[i] = vs[j];
+                i = j;
+            }
+        }
+
+        /**
+         * Doubles the table. Requires write lock.
+         */
+        private void resize() {
+            long[] oldKeys = keys; Object[] oldValues = values;
+            int n = oldValues.length;
+            if (n >= MAXIMUM_CAPACITY) {
+                threshold = MAXIMUM_CAPACITY - 1;
+                return;
+            }
+            int nn = n << 1, m = nn - 1;
+            long[] ks = new long[nn];
+            Object[] vs = new Object[nn];
+            for (int j = 0; j < n; ++j) {
+                Object v;
+                if ((v = oldValues[j]) != null) {
+                    long k = oldKeys[j];
+                    int i = (int)spread(k) & m;
+                    while (vs[i] != null)
+                        i = (i + 1) & m;
+                    ks[i] = k;
+                    vs[i] = v;
+                }
+            }
+            keys = ks;
+            values = vs;
+            threshold = (nn >>> 1) + (nn >>> 2);
+        }
+
+        void clear() {
+            long stamp = writeLock();
+            try {
+                int c = initialCapacity;
+                keys = new long[c];
+                values = new Object[c];
+                threshold = (c >>> 1) + (c >>> 2);
+                size = 0;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Returns copies of the key and value arrays.
+         */
+        Object[] snapshot() {
+            long stamp = readLock();
+            try {
+                return new Object[] { keys.clone(), values.clone() };
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(EntryConsumer<? super V> action) {
+            if (size == 0)
+                return;
+            Object[] snapshot = snapshot();
+            long[] ks = (long[])snapshot[0];
+            Object[] vs = (Object[])snapshot[1];
+            for (int i = 0; i < vs.length; ++i) {
+                Object v;
+                if ((v = vs[i]) != null)
+                    action.accept(ks[i], (V)v);
+            }
+        }
+    }
+}
@@ -0,0 +1,775 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * A hash table mapping primitive {@code long} keys to primitive
+ * {@code long} values, supporting full concurrency of retrievals and
+ * high expected concurrency for updates.  This class is the
+ * counterpart of {@link ConcurrentLongHashMap} for {@code long}
+ * values: each mapping occupies two adjacent elements of a single
+ * {@code long} array, so no objects are allocated per mapping and
+ * a probe for a key usually touches a single cache line.
+ *
+ * <p>Since there is no {@code null} for primitive values, methods
+ * that would return {@code null} in a {@link ConcurrentHashMap}
+ * instead return this map's {@linkplain #noEntryValue() no-entry
+ * value}, which is zero unless otherwise specified on construction.
+ * Use {@link #containsKey} to distinguish absent keys from keys
+ * mapped to that value.  All {@code long} keys may be used.
+ *
+ * <p>As in {@code ConcurrentLongHashMap}, the table is partitioned
+ * into independently locked and resized sections, retrievals
+ * normally proceed without locking, and bulk methods such as {@link
+ * #forEach} are weakly consistent.  Method {@link #addAndGet}
+ * supports the common use of such maps as tables of counters.
+ *
+ * @since 1.8
+ */
+public class ConcurrentLongLongHashMap {
+
+    /*
+     * See ConcurrentLongHashMap for an overview. The differences
+     * here are that each section holds keys and values interleaved
+     * in a single long[], so resizes replace a single array and
+     * optimistic readers cannot observe torn key/value arrays, and
+     * that a zero key marks an empty slot. Mappings for key zero
+     * itself are held outside the table, in fields of the section
+     * that zero hashes to.
+     */
+
+    /**
+     * The largest possible section capacity (in mappings).
+     */
+    private static final int MAXIMUM_CAPACITY = 1 << 29;
+
+    /**
+     * The smallest section capacity.
+     */
+    private static final int MINIMUM_CAPACITY = 4;
+
+    /**
+     * The default initial capacity of the map.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The default number of sections.
+     */
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    /**
+     * The maximum number of sections.
+     */
+    private static final int MAX_SECTIONS = 1 << 16;
+
+    /**
+     * Returns a power of two size for the given target capacity.
+     */
+    static final int tableSizeFor(int c) {
+        int n = c - 1;
+        n |= n >>> 1;
+        n |= n >>> 2;
+        n |= n >>> 4;
+        n |= n >>> 8;
+        n |= n >>> 16;
+        return (n < 0) ? 1 : (n >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY : n + 1;
+    }
+
+    /**
+     * Represents an operation that accepts a {@code long} key and a
+     * {@code long} value.
+     *
+     * @since 1.8
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        /**
+         * Performs this operation on the given mapping.
+         *
+         * @param key the key
+         * @param value the value
+         */
+        void accept(long key, long value);
+    }
+
+    /**
+     * The sections, each guarding an independent hash table.
+     */
+    private final Section[] sections;
+
+    /**
+     * The value returned to indicate the absence of a mapping.
+     */
+    private final long noEntryValue;
+
+    /**
+     * Creates a new, empty map with the default initial table size
+     * and concurrency level, and a no-entry value of zero.
+     */
+    public ConcurrentLongLongHashMap() {
+        this(DEFAULT_CAPACITY, DEFAULT_CONCURRENCY_LEVEL, 0L);
+    }
+
+    /**
+     * Creates a new, empty map with an initial table size
+     * accommodating the specified number of elements without the
+     * need to dynamically resize, the default concurrency level, and
+     * a no-entry value of zero.
+     *
+     * @param initialCapacity the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is
+     * negative
+     */
+    public ConcurrentLongLongHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_CONCURRENCY_LEVEL, 0L);
+    }
+
+    /**
+     * Creates a new, empty map with an initial table size based on
+     * the given number of elements ({@code initialCapacity}), number
+     * of concurrently updating threads ({@code concurrencyLevel}),
+     * and value returned to indicate the absence of a mapping
+     * ({@code noEntryValue}).
+     *
+     * @param initialCapacity the initial capacity. The implementation
+     * performs internal sizing to accommodate this many elements.
+     * @param concurrencyLevel the estimated number of concurrently
+     * updating threads. The implementation may use this value as
+     * a sizing hint.
+     * @param noEntryValue the value returned by methods such as
+     * {@link #get} when there is no mapping for a key
+     * @throws IllegalArgumentException if the initial capacity is
+     * negative or the concurrencyLevel is nonpositive
+     */
+    public ConcurrentLongLongHashMap(int initialCapacity, int concurrencyLevel,
+                                     long noEntryValue) {
+        if (initialCapacity < 0 || concurrencyLevel <= 0)
+            throw new IllegalArgumentException();
+        int ns = tableSizeFor(Math.min(concurrencyLevel, MAX_SECTIONS));
+        long perSection = ((long)initialCapacity + ns - 1) / ns;
+        int cap = (perSection >= (MAXIMUM_CAPACITY >>> 1)) ? MAXIMUM_CAPACITY :
+            tableSizeFor((int)(perSection + (perSection >>> 1) + 1));
+        if (cap < MINIMUM_CAPACITY)
+            cap = MINIMUM_CAPACITY;
+        Section[] ss = new Section[ns];
+        for (int i = 0; i < ns; ++i)
+            ss[i] = new Section(cap);
+        this.sections = ss;
+        this.noEntryValue = noEntryValue;
+    }
+
+    private Section sectionFor(long h) {
+        Section[] ss = sections;
+        return ss[(int)(h >>> 32) & (ss.length - 1)];
+    }
+
+    /**
+     * Returns the value returned by methods such as {@link #get}
+     * to indicate the absence of a mapping.
+     *
+     * @return the no-entry value
+     */
+    public long noEntryValue() {
+        return noEntryValue;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.  If the
+     * map contains more than {@code Integer.MAX_VALUE} elements,
+     * returns {@code Integer.MAX_VALUE}.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        long n = mappingCount();
+        return (n > (long)Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)n;
+    }
+
+    /**
+     * Returns the number of mappings, which may exceed {@code
+     * Integer.MAX_VALUE}.  The value returned is an estimate; the
+     * actual count may differ if there are concurrent insertions or
+     * removals.
+     *
+     * @return the number of mappings
+     */
+    public long mappingCount() {
+        long n = 0L;
+        for (Section s : sections)
+            n += s.size;
+        return n;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        for (Section s : sections) {
+            if (s.size != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or the no-entry value if this map contains no mapping for the
+     * key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     * the no-entry value if this map contains no mapping for the key
+     */
+    public long get(long key) {
+        return getOrDefault(key, noEntryValue);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or the
+     * given default value if this map contains no mapping for the
+     * key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if this map contains
+     * no mapping for the given key
+     * @return the mapping for the key, if present; else the default value
+     */
+    public long getOrDefault(long key, long defaultValue) {
+        long h = ConcurrentLongHashMap.spread(key);
+        return sectionFor(h).get(key, (int)h, defaultValue);
+    }
+
+    /**
+     * Tests if the specified key is a key in this table.
+     *
+     * @param key possible key
+     * @return {@code true} if and only if the specified key is a key
+     * in this table
+     */
+    public boolean containsKey(long key) {
+        long h = ConcurrentLongHashMap.spread(key);
+        return sectionFor(h).containsKey(key, (int)h);
+    }
+
+    /**
+     * Maps the specified key to the specified value in this table.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         the no-entry value if there was no mapping for {@code key}
+     */
+    public long put(long key, long value) {
+        long h = ConcurrentLongHashMap.spread(key);
+        return sectionFor(h).put(key, value, (int)h, false, noEntryValue);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key,
+     *         or the no-entry value if there was no mapping for the key
+     */
+    public long putIfAbsent(long key, long value) {
+        long h = ConcurrentLongHashMap.spread(key);
+        return sectionFor(h).put(key, value, (int)h, true, noEntryValue);
+    }
+
+    /**
+     * Atomically adds the given value to the value mapped to the
+     * given key, treating an absent mapping as zero, and returns the
+     * updated value.
+     *
+     * @param key key with which the value is associated
+     * @param delta the value to add
+     * @return the updated value
+     */
+    public long addAndGet(long key, long delta) {
+        long h = ConcurrentLongHashMap.spread(key);
+        return sectionFor(h).addAndGet(key, (int)h, delta);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * attempts to compute its value using the given mapping function
+     * and enters it into this map.  The entire method invocation is
+     * performed atomically, so the function is applied at most once
+     * per key.  Some attempted update operations on this map by other
+     * threads may be blocked while computation is in progress, so the
+     * computation should be short and simple, and must not attempt to
+     * update any other mappings of this map.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key
+     * @throws NullPointerException if the mappingFunction is null
+     * @throws RuntimeException or Error if the mappingFunction does so,
+     *         in which case the mapping is left unestablished
+     */
+    public long computeIfAbsent(long key, LongUnaryOperator mappingFunction) {
+        if (mappingFunction == null) throw new NullPointerException();
+        long h = ConcurrentLongHashMap.spread(key);
+        return sectionFor(h).computeIfAbsent(key, (int)h, mappingFunction);
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this map.
+     * This method does nothing if the key is not in the map.
+     *
+     * @param key the key that needs to be removed
+     * @return the previous value associated with {@code key}, or
+     *         the no-entry value if there was no mapping for {@code key}
+     */
+    public long remove(long key) {
+        long h = ConcurrentLongHashMap.spread(key);
+        return sectionFor(h).remove(key, (int)h, false, 0L, noEntryValue);
+    }
+
+    /**
+     * Removes the entry for a key only if currently mapped to a given value.
+     *
+     * @param key key with which the specified value is associated
+     * @param value value expected to be associated with the specified key
+     * @return {@code true} if the value was removed
+     */
+    public boolean remove(long key, long value) {
+        long h = ConcurrentLongHashMap.spread(key);
+        Section s = sectionFor(h);
+        return s.remove(key, (int)h, true, value, ~value) == value;
+    }
+
+    /**
+     * Replaces the entry for a key only if currently mapped to a given value.
+     *
+     * @param key key with which the specified value is associated
+     * @param oldValue value expected to be associated with the specified key
+     * @param newValue value to be associated with the specified key
+     * @return {@code true} if the value was replaced
+     */
+    public boolean replace(long key, long oldValue, long newValue) {
+        long h = ConcurrentLongHashMap.spread(key);
+        return sectionFor(h).replace(key, (int)h, oldValue, newValue);
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        for (Section s : sections)
+            s.clear();
+    }
+
+    /**
+     * Performs the given action for each mapping in this map.  Each
+     * section is traversed over a snapshot of its contents, so the
+     * action may update this map.
+     *
+     * @param action the action
+     * @throws NullPointerException if the action is null
+     */
+    public void forEach(EntryConsumer action) {
+        if (action == null) throw new NullPointerException();
+        for (Section s : sections)
+            s.forEach(action);
+    }
+
+    /**
+     * Returns an array containing the keys of this map, in no
+     * particular order.
+     *
+     * @return an array of the keys of this map
+     */
+    public long[] keys() {
+        final long[][] r = { new long[size()] };
+        final int[] n = { 0 };
+        forEach(new EntryConsumer() {
+            public void accept(long k, long v) {
+                long[] a = r[0];
+                int i = n[0];
+                if (i == a.length)
+                    r[0] = a = Arrays.copyOf(a, i + (i >>> 1) + 1);
+                a[i] = k;
+                n[0] = i + 1;
+            }
+        });
+        return (n[0] == r[0].length) ? r[0] : Arrays.copyOf(r[0], n[0]);
+    }
+
+    /**
+     * Returns a string representation of this map.  The string
+     * representation consists of a list of key-value mappings (in no
+     * particular order) enclosed in braces ("{@code {}}").  Adjacent
+     * mappings are separated by the characters {@code ", "} (comma
+     * and space).  Each key-value mapping is rendered as the key
+     * followed by an equals sign ("{@code =}") followed by the
+     * associated value.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        forEach(new EntryConsumer() {
+            public void accept(long k, long v) {
+                if (sb.length() > 1)
+                    sb.append(',').append(' ');
+                sb.append(k).append('=').append(v);
+            }
+        });
+        return sb.append('}').toString();
+    }
+
+    /**
+     * A section: an open-addressed table guarded by its own lock.
+     * Slot i holds its key at table[2*i] and value at table[2*i+1].
+     */
+    @SuppressWarnings("serial")
+    static final class Section extends StampedLock {
+        long[] table;
+        volatile int size;
+        int threshold;
+        boolean hasZeroKey;
+        long zeroKeyValue;
+        final int initialCapacity;
+
+        Section(int capacity) {
+            this.initialCapacity = capacity;
+            this.table = new long[capacity << 1];
+            this.threshold = (capacity >>> 1) + (capacity >>> 2);
+        }
+
+        long get(long key, int h, long dflt) {
+            long stamp = tryOptimisticRead();
+            long v = find(key, h, dflt);
+            if (!validate(stamp)) {
+                stamp = readLock();
+                try {
+                    v = find(key, h, dflt);
+                } finally {
+                    unlockRead(stamp);
+                }
+            }
+            return v;
+        }
+
+        boolean containsKey(long key, int h) {
+            long stamp = tryOptimisticRead();
+            boolean found = (key == 0L) ? hasZeroKey : (indexOf(key, h) >= 0);
+            if (!validate(stamp)) {
+                stamp = readLock();
+                try {
+                    found = (key == 0L) ? hasZeroKey : (indexOf(key, h) >= 0);
+                } finally {
+                    unlockRead(stamp);
+                }
+            }
+            return found;
+        }
+
+        /**
+         * Probes for key. May be called without locking, in which
+         * case the result must be validated.
+         */
+        private long find(long key, int h, long dflt) {
+            if (key == 0L)
+                return hasZeroKey ? zeroKeyValue : dflt;
+            long[] tab = table;
+            int i = indexOf(key, h);
+            return (i < 0 || tab == null || i + 1 >= tab.length) ? dflt : tab[i + 1];
+        }
+
+        /**
+         * Returns the array index of nonzero key, or the complement
+         * of the index of the empty slot at which it would be
+         * inserted. Probing is bounded in case of torn optimistic reads.
+         */
+        private int indexOf(long key, int h) {
+            long[] tab = table;
+            if (tab == null)
+                return -1;
+            int n = tab.length >>> 1, m = n - 1;
+            for (int s = h & m, c = 0; c < n; s = (s + 1) & m, ++c) {
+                int i = s << 1;
+                long k = tab[i];
+                if (k == key)
+                    return i;
+                if (k == 0L)
+                    return ~i;
+            }
+            return ~0; // not reached when locked
+        }
+
+        /**
+         * Inserts key and value at empty array index i, resizing if
+         * needed. Requires write lock.
+         */
+        private void insertAt(int i, long key, long value) {
+            int s = size + 1;
+            // A full-sized table keeps one slot empty so probes end
+            if (s >= MAXIMUM_CAPACITY)
+                throw new IllegalStateException("Section full");
+            long[] tab = table;
+            tab[i + 1] = value;
+            tab[i] = key;
+            size = s;
+            if (s > threshold)
+                resize();
+        }
+
+        long put(long key, long value, int h, boolean onlyIfAbsent,
+                 long dflt) {
+            long stamp = writeLock();
+            try {
+                if (key == 0L) {
+                    if (hasZeroKey) {
+                        long old = zeroKeyValue;
+                        if (!onlyIfAbsent)
+                            zeroKeyValue = value;
+                        return old;
+                    }
+                    zeroKeyValue = value;
+                    hasZeroKey = true;
+                    size = size + 1;
+                    return dflt;
+                }
+                int i = indexOf(key, h);
+                if (i < 0) {
+                    insertAt(~i, key, value);
+                    return dflt;
+                }
+                long old = table[i + 1];
+                if (!onlyIfAbsent)
+                    table[i + 1] = value;
+                return old;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        long addAndGet(long key, int h, long delta) {
+            long stamp = writeLock();
+            try {
+                if (key == 0L) {
+                    if (!hasZeroKey) {
+                        hasZeroKey = true;
+                        zeroKeyValue = 0L;
+                        size = size + 1;
+                    }
+                    return zeroKeyValue += delta;
+                }
+                int i = indexOf(key, h);
+                if (i < 0) {
+                    insertAt(~i, key, delta);
+                    return delta;
+                }
+                return table[i + 1] += delta;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        long computeIfAbsent(long key, int h, LongUnaryOperator fn) {
+            long stamp = tryOptimisticRead();
+            int i = (key == 0L) ? (hasZeroKey ? 0 : -1) : indexOf(key, h);
+            long[] tab = table;
+            if (i >= 0 && tab != null && i + 1 < tab.length) {
+                long v = (key == 0L) ? zeroKeyValue : tab[i + 1];
+                if (validate(stamp))
+                    return v;
+            }
+            stamp = writeLock();
+            try {
+                if (key == 0L) {
+                    if (!hasZeroKey) {
+                        zeroKeyValue = fn.applyAsLong(key);
+                        hasZeroKey = true;
+                        size = size + 1;
+                    }
+                    return zeroKeyValue;
+                }
+                if ((i = indexOf(key, h)) >= 0)
+                    return table[i + 1];
+                long v = fn.applyAsLong(key);
+                insertAt(~i, key, v);
+                return v;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Removes key if present and, if matchValue, mapped to
+         * expect. Returns the removed value, or dflt if none.
+         */
+        long remove(long key, int h, boolean matchValue, long expect,
+                    long dflt) {
+            long stamp = writeLock();
+            try {
+                if (key == 0L) {
+                    if (!hasZeroKey ||
+                        (matchValue && zeroKeyValue != expect))
+                        return dflt;
+                    hasZeroKey = false;
+                    size = size - 1;
+                    return zeroKeyValue;
+                }
+                int i = indexOf(key, h);
+                if (i < 0)
+                    return dflt;
+                long v = table[i + 1];
+                if (matchValue && v != expect)
+                    return dflt;
+                removeAt(i);
+                return v;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        boolean replace(long key, int h, long expect, long value) {
+            long stamp = writeLock();
+            try {
+                if (key == 0L) {
+                    if (!hasZeroKey || zeroKeyValue != expect)
+                        return false;
+                    zeroKeyValue = value;
+                    return true;
+                }
+                int i = indexOf(key, h);
+                if (i < 0 || table[i + 1] != expect)
+                    return false;
+                table[i + 1] = value;
+                return true;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Empties the slot at array index i, shifting back later
+         * entries of the same probe run. Requires write lock.
+         */
+        private void removeAt(int i) {
+            long[] tab = table;
+            int m = (tab.length >>> 1) - 1;
+            int gap = i >>> 1;
+            for (int j = gap;;) {
+                tab[gap << 1] = 0L;
+                tab[(gap << 1) + 1] = 0L;
+                long k;
+                for (;;) {
+                    j = (j + 1) & m;
+                    if ((k = tab[j << 1]) == 0L) {
+                        size = size - 1;
+                        return;
+                    }
+                    int home = (int)ConcurrentLongHashMap.spread(k) & m;
+                    // stop unless home lies cyclically in (gap, j]
+                    if ((gap <= j) ? (gap >= home || home > j) :
+                        (gap >= home && home > j))
+                        break;
+                }
+                tab[(gap << 1) + 1] = tab[(j << 1) + 1];
+                tab[gap << 1] = k;
+                gap = j;
+            }
+        }
+
+        /**
+         * Doubles the table. Requires write lock.
+         */
+        private void resize() {
+            long[] old = table;
+            int n = old.length >>> 1;
+            if (n >= MAXIMUM_CAPACITY) {
+                threshold = MAXIMUM_CAPACITY - 1;
+                return;
+            }
+            int nn = n << 1, m = nn - 1;
+            long[] tab = new long[nn << 1];
+            for (int j = 0; j < old.length; j += 2) {
+                long k;
+                if ((k = old[j]) != 0L) {
+                    int s = (int)ConcurrentLongHashMap.spread(k) & m;
+                    while (tab[s << 1] != 0L)
+                        s = (s + 1) & m;
+                    tab[s << 1] = k;
+                    tab[(s << 1) + 1] = old[j + 1];
+                }
+            }
+            table = tab;
+            threshold = (nn >>> 1) + (nn >>> 2);
+        }
+
+        void clear() {
+            long stamp = writeLock();
+            try {
+                int c = initialCapacity;
+                table = new long[c << 1];
+                threshold = (c >>> 1) + (c >>> 2);
+                hasZeroKey = false;
+                zeroKeyValue = 0L;
+                size = 0;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        void forEach(EntryConsumer action) {
+            if (size == 0)
+                return;
+            long[] tab;
+            boolean hasZero;
+            long zeroValue;
+            long stamp = readLock();
+            try {
+                tab = table.clone();
+                hasZero = hasZeroKey;
+                zeroValue = zeroKeyValue;
+            } finally {
+                unlockRead(stamp);
+            }
+            if (hasZero)
+                action.accept(0L, zeroValue);
+            for (int i = 0; i < tab.length; i += 2) {
+                long k;
+                if ((k = tab[i]) != 0L)
+                    action.accept(k, tab[i + 1]);
+            }
+        }
+    }
+}
@@ -208,19 +208,19 @@ public class DelayQueue<E extends Delayed> extends AbstractQueue<E>
             for (;;) {
                 E first = q.peek();
                 if (first == null)
-                    available.await();
+                    ForkJoinPool.managedAwait(available);
                 else {
                     long delay = first.getDelay(NANOSECONDS);
                     if (delay <= 0)
                         return q.poll();
                     first = null; // don't retain ref while waiting
                     if (leader != null)
-                        available.await();
+                        ForkJoinPool.managedAwait(available);
                     else {
                         Thread thisThread = Thread.currentThread();
                         leader = thisThread;
                         try {
-                            available.awaitNanos(delay);
+                            ForkJoinPool.managedAwaitNanos(available, delay);
                         } finally {
                             if (leader == thisThread)
                                 leader = null;
@@ -256,7 +256,8 @@ public class DelayQueue<E extends Delayed> extends AbstractQueue<E>
                     if (nanos <= 0)
                         return null;
                     else
-                        nanos = available.awaitNanos(nanos);
+                        nanos = ForkJoinPool.managedAwaitNanos
+                            (available, nanos);
                 } else {
                     long delay = first.getDelay(NANOSECONDS);
                     if (delay <= 0)
@@ -265,12 +266,14 @@ public class DelayQueue<E extends Delayed> extends AbstractQueue<E>
                         return null;
                     first = null; // don't retain ref while waiting
                     if (nanos < delay || leader != null)
-                        nanos = available.awaitNanos(nanos);
+                        nanos = ForkJoinPool.managedAwaitNanos
+                            (available, nanos);
                     else {
                         Thread thisThread = Thread.currentThread();
                         leader = thisThread;
                         try {
-                            long timeLeft = available.awaitNanos(delay);
+                            long timeLeft = ForkJoinPool.managedAwaitNanos
+                                (available, delay);
                             nanos -= delay - timeLeft;
                         } finally {
                             if (leader == thisThread)
@@ -128,6 +128,46 @@ public class Executors {
              null, true);
     }
 
+    /**
+     * Creates an executor for large numbers of short-lived tasks that
+     * may block, such as request handlers performing I/O.  The
+     * executor is a {@link ForkJoinPool} in asynchronous (FIFO) mode,
+     * configured as by {@link #newWorkStealingPool(int)}.  Blocked
+     * tasks are not suspended: each one occupies a thread until it
+     * resumes.  When a task blocks in one of the blocking queues of
+     * this package (for example {@link BlockingQueue#take}), the pool
+     * is informed, as by {@link
+     * ForkJoinPool#managedBlock(ForkJoinPool.ManagedBlocker)
+     * managedBlock}, and may activate a spare thread, if one is
+     * available, so that other tasks keep running.  Tasks blocking in
+     * other ways (such as socket I/O) should use {@code managedBlock}
+     * directly to obtain the same effect.
+     *
+     * @param parallelism the targeted parallelism level
+     * @return the newly created executor
+     * @throws IllegalArgumentException if {@code parallelism <= 0}
+     * @since 1.8
+     */
+    public static ExecutorService newLightweightTaskExecutor(int parallelism) {
+        return new ForkJoinPool
+            (parallelism,
+             ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+             null, true);
+    }
+
+    /**
+     * Creates an executor for large numbers of short-lived tasks that
+     * may block, using all {@link Runtime#availableProcessors available
+     * processors} as its target parallelism level.
+     * @return the newly created executor
+     * @see #newLightweightTaskExecutor(int)
+     * @since 1.8
+     */
+    public static ExecutorService newLightweightTaskExecutor() {
+        return newLightweightTaskExecutor
+            (Runtime.getRuntime().availableProcessors());
+    }
+
     /**
      * Creates a thread pool that reuses a fixed number of threads
      * operating off a shared unbounded queue, using the provided
@@ -50,6 +50,8 @@ import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
 import java.security.AccessControlContext;
 import java.security.ProtectionDomain;
 import java.security.Permissions;
@@ -3335,6 +3337,103 @@ public class ForkJoinPool extends AbstractExecutorService {
         }
     }
 
+    /*
+     * Support for blocking queues and other synchronizers in this
+     * package.  The following methods behave as the corresponding
+     * Condition and LockSupport methods, except that when called
+     * from a ForkJoinWorkerThread they first try to compensate, as
+     * in managedBlock, so that the pool may activate a spare thread
+     * while the caller is blocked instead of losing parallelism.
+     * Unlike managedBlock, they try only once: callers typically hold
+     * a lock, so they must not spin waiting for compensation, and
+     * compensation may be unavailable for long periods (when the
+     * pool is terminating or at its thread limit).  If it is, they
+     * block uncompensated, exactly as the underlying methods do.
+     * Callers must recheck their wait condition on return, as with
+     * the underlying methods.
+     */
+
+    /**
+     * If the caller is a worker thread, tries to compensate for it
+     * blocking.
+     *
+     * @return the caller's pool if compensated, else null
+     */
+    private static ForkJoinPool tryCompensateForBlock() {
+        Thread t = Thread.currentThread();
+        ForkJoinWorkerThread wt; ForkJoinPool p;
+        if ((t instanceof ForkJoinWorkerThread) &&
+            (p = (wt = (ForkJoinWorkerThread)t).pool) != null) {
+            try {
+                if (p.tryCompensate(wt.workQueue))
+                    return p;
+            } catch (RejectedExecutionException ignore) {
+                // thread limit reached; block uncompensated
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Waits on the given condition, as by {@link Condition#await}.
+     */
+    static void managedAwait(Condition cond) throws InterruptedException {
+        ForkJoinPool p = tryCompensateForBlock();
+        try {
+            cond.await();
+        } finally {
+            if (p != null)
+                U.getAndAddLong(p, CTL, AC_UNIT);
+        }
+    }
+
+    /**
+     * Waits on the given condition, as by {@link Condition#awaitNanos}.
+     *
+     * @return an estimate of the remaining wait time
+     */
+    static long managedAwaitNanos(Condition cond, long nanos)
+        throws InterruptedException {
+        if (nanos <= 0L)
+            return cond.awaitNanos(nanos);
+        ForkJoinPool p = tryCompensateForBlock();
+        try {
+            return cond.awaitNanos(nanos);
+        } finally {
+            if (p != null)
+                U.getAndAddLong(p, CTL, AC_UNIT);
+        }
+    }
+
+    /**
+     * Parks the current thread, as by {@link LockSupport#park(Object)}.
+     */
+    static void managedPark(Object blocker) {
+        ForkJoinPool p = tryCompensateForBlock();
+        try {
+            LockSupport.park(blocker);
+        } finally {
+            if (p != null)
+                U.getAndAddLong(p, CTL, AC_UNIT);
+        }
+    }
+
+    /**
+     * Parks the current thread, as by {@link
+     * LockSupport#parkNanos(Object, long)}.
+     */
+    static void managedParkNanos(Object blocker, long nanos) {
+        if (nanos <= 0L)
+            return;
+        ForkJoinPool p = tryCompensateForBlock();
+        try {
+            LockSupport.parkNanos(blocker, nanos);
+        } finally {
+            if (p != null)
+                U.getAndAddLong(p, CTL, AC_UNIT);
+        }
+    }
+
     // AbstractExecutorService overrides.  These rely on undocumented
     // fact that ForkJoinTask.adapt returns ForkJoinTasks that also
     // implement RunnableFuture.
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+/**
+ * Shared implementation code for java.util.concurrent.
+ */
+final class Helpers {
+    private Helpers() {}
+
+    /**
+     * Maximum size of a batch split off by the spliterators of the
+     * concurrent queues, whose sizes are not known when splitting.
+     * Matches the bound used by java.util.Spliterators for sources of
+     * unknown size.
+     */
+    static final int MAX_BATCH = 1 << 16;
+
+    /**
+     * Returns the number of elements that a queue spliterator should
+     * copy out in its next call to trySplit.  Batch sizes start at one
+     * and double on each split, up to MAX_BATCH, so that other
+     * threads may start work after very little traversal, while the
+     * number of splits stays logarithmic in the number of elements.
+     *
+     * @param previous the size of the previous batch, or zero if none
+     * @return the size of the next batch, at least one
+     */
+    static int nextBatchSize(int previous) {
+        return (previous <= 0) ? 1 :
+            (previous >= (MAX_BATCH >>> 1)) ? MAX_BATCH : previous << 1;
+    }
+}
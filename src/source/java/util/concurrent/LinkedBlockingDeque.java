@@ -376,7 +376,7 @@ public class LinkedBlockingDeque<E>
         lock.lock();
         try {
             while (!linkFirst(node))
-                notFull.await();
+                ForkJoinPool.managedAwait(notFull);
         } finally {
             lock.unlock();
         }
@@ -393,7 +393,7 @@ public class LinkedBlockingDeque<E>
         lock.lock();
         try {
             while (!linkLast(node))
-                notFull.await();
+                ForkJoinPool.managedAwait(notFull);
         } finally {
             lock.unlock();
         }
@@ -414,7 +414,7 @@ public class LinkedBlockingDeque<E>
             while (!linkFirst(node)) {
                 if (nanos <= 0)
                     return false;
-                nanos = notFull.awaitNanos(nanos);
+                nanos = ForkJoinPool.managedAwaitNanos(notFull, nanos);
             }
             return true;
         } finally {
@@ -437,7 +437,7 @@ public class LinkedBlockingDeque<E>
             while (!linkLast(node)) {
                 if (nanos <= 0)
                     return false;
-                nanos = notFull.awaitNanos(nanos);
+                nanos = ForkJoinPool.managedAwaitNanos(notFull, nanos);
             }
             return true;
         } finally {
@@ -489,7 +489,7 @@ public class LinkedBlockingDeque<E>
         try {
             E x;
             while ( (x = unlinkFirst()) == null)
-                notEmpty.await();
+                ForkJoinPool.managedAwait(notEmpty);
             return x;
         } finally {
             lock.unlock();
@@ -502,7 +502,7 @@ public class LinkedBlockingDeque<E>
         try {
             E x;
             while ( (x = unlinkLast()) == null)
-                notEmpty.await();
+                ForkJoinPool.managedAwait(notEmpty);
             return x;
         } finally {
             lock.unlock();
@@ -519,7 +519,7 @@ public class LinkedBlockingDeque<E>
             while ( (x = unlinkFirst()) == null) {
                 if (nanos <= 0)
                     return null;
-                nanos = notEmpty.awaitNanos(nanos);
+                nanos = ForkJoinPool.managedAwaitNanos(notEmpty, nanos);
             }
             return x;
         } finally {
@@ -537,7 +537,7 @@ public class LinkedBlockingDeque<E>
             while ( (x = unlinkLast()) == null) {
                 if (nanos <= 0)
                     return null;
-                nanos = notEmpty.awaitNanos(nanos);
+                nanos = ForkJoinPool.managedAwaitNanos(notEmpty, nanos);
             }
             return x;
         } finally {
@@ -1147,7 +1147,6 @@ public class LinkedBlockingDeque<E>
 
     /** A customized variant of Spliterators.IteratorSpliterator */
     static final class LBDSpliterator<E> implements Spliterator<E> {
-        static final int MAX_BATCH = 1 << 25;  // max batch array size;
         final LinkedBlockingDeque<E> queue;
         Node<E> current;    // current node; null until initialized
         int batch;          // batch size for splits
@@ -1163,8 +1162,7 @@ public class LinkedBlockingDeque<E>
         public Spliterator<E> trySplit() {
             Node<E> h;
             final LinkedBlockingDeque<E> q = this.queue;
-            int b = batch;
-            int n = (b <= 0) ? 1 : (b >= MAX_BATCH) ? MAX_BATCH : b + 1;
+            int n = Helpers.nextBatchSize(batch);
             if (!exhausted &&
                 ((h = current) != null || (h = q.first) != null) &&
                 h.next != null) {
@@ -347,7 +347,7 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
              * for all other uses of count in other wait guards.
              */
             while (count.get() == capacity) {
-                notFull.await();
+                ForkJoinPool.managedAwait(notFull);
             }
             enqueue(node);
             c = count.getAndIncrement();
@@ -382,7 +382,7 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
             while (count.get() == capacity) {
                 if (nanos <= 0)
                     return false;
-                nanos = notFull.awaitNanos(nanos);
+                nanos = ForkJoinPool.managedAwaitNanos(notFull, nanos);
             }
             enqueue(new Node<E>(e));
             c = count.getAndIncrement();
@@ -431,6 +431,94 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         return c >= 0;
     }
 
+    /**
+     * Inserts the elements of the given collection at the tail of this
+     * queue, in the order returned by the collection's iterator, waiting
+     * if necessary up to the specified wait time for space to become
+     * available.  Unlike repeated calls to {@link #offer(Object, long,
+     * TimeUnit) offer}, this method acquires the lock once for the whole
+     * batch (plus once per wait for space), and signals waiting
+     * consumers at most once per run of insertions.
+     *
+     * <p>If the waiting time elapses, or the current thread is
+     * interrupted while waiting, after some but not all elements have
+     * been inserted, this method returns the number inserted so far;
+     * in the latter case the interrupt status is set.  Elements are
+     * inserted contiguously only as long as no wait is required.
+     *
+     * @param c the collection of elements to insert
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of elements inserted, which is less than the
+     *         size of the collection only if the waiting time elapsed
+     *         or the thread was interrupted
+     * @throws InterruptedException if interrupted before any element
+     *         was inserted
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     * @throws IllegalArgumentException if the collection is this queue
+     * @since 1.8
+     */
+    @SuppressWarnings("unchecked")
+    public int offerAll(Collection<? extends E> c, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        Object[] a = c.toArray();
+        int n = a.length;
+        for (int j = 0; j < n; ++j) {
+            if (a[j] == null)
+                throw new NullPointerException();
+        }
+        if (n == 0)
+            return 0;
+        long nanos = unit.toNanos(timeout);
+        int i = 0;
+        boolean signalNotEmpty = false;
+        final ReentrantLock putLock = this.putLock;
+        final AtomicInteger count = this.count;
+        putLock.lockInterruptibly();
+        try {
+            while (i < n) {
+                int k = Math.min(capacity - count.get(), n - i);
+                if (k > 0) {
+                    for (int j = i + k; i < j; ++i)
+                        enqueue(new Node<E>((E)a[i]));
+                    if (count.getAndAdd(k) == 0)
+                        signalNotEmpty = true;
+                }
+                else {
+                    // Let consumers make progress before waiting for room
+                    if (signalNotEmpty) {
+                        signalNotEmpty = false;
+                        signalNotEmpty();
+                    }
+                    if (nanos <= 0)
+                        break;
+                    try {
+                        nanos = ForkJoinPool.managedAwaitNanos(notFull, nanos);
+                    } catch (InterruptedException ie) {
+                        if (i == 0)
+                            throw ie;
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            if (count.get() < capacity)
+                notFull.signal();
+        } finally {
+            putLock.unlock();
+        }
+        if (signalNotEmpty)
+            signalNotEmpty();
+        return i;
+    }
+
     public E take() throws InterruptedException {
         E x;
         int c = -1;
@@ -439,7 +527,7 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         takeLock.lockInterruptibly();
         try {
             while (count.get() == 0) {
-                notEmpty.await();
+                ForkJoinPool.managedAwait(notEmpty);
             }
             x = dequeue();
             c = count.getAndDecrement();
@@ -464,7 +552,7 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
             while (count.get() == 0) {
                 if (nanos <= 0)
                     return null;
-                nanos = notEmpty.awaitNanos(nanos);
+                nanos = ForkJoinPool.managedAwaitNanos(notEmpty, nanos);
             }
             x = dequeue();
             c = count.getAndDecrement();
@@ -762,6 +850,123 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Removes available elements from this queue and adds them to the
+     * given collection, waiting if necessary up to the specified wait
+     * time until at least {@code minElements} have been transferred.
+     * At most {@code maxElements} are transferred.  The take lock is
+     * held while elements are transferred, and released only while
+     * waiting for more to arrive, so batches are moved with far fewer
+     * lock handoffs than by repeated calls to {@link #poll(long,
+     * TimeUnit) poll}.
+     *
+     * <p>Elements transferred before the waiting time elapses (or the
+     * current thread is interrupted while waiting) remain in the given
+     * collection, and are included in the returned count; in the case
+     * of interruption the interrupt status is set.  The behavior of
+     * this operation is undefined if the specified collection is
+     * modified while the operation is in progress.  A failure
+     * encountered while attempting to add elements to collection
+     * {@code c} may result in elements being in neither, either or
+     * both collections when the associated exception is thrown.
+     *
+     * @param c the collection to transfer elements into
+     * @param minElements the number of elements to wait for
+     * @param maxElements the maximum number of elements to transfer
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of elements transferred
+     * @throws InterruptedException if interrupted before any element
+     *         was transferred
+     * @throws UnsupportedOperationException if addition of elements
+     *         is not supported by the specified collection
+     * @throws ClassCastException if the class of an element of this queue
+     *         prevents it from being added to the specified collection
+     * @throws NullPointerException if the specified collection is null
+     * @throws IllegalArgumentException if the specified collection is this
+     *         queue, or some property of an element of this queue prevents
+     *         it from being added to the specified collection
+     * @since 1.8
+     */
+    public int drainTo(Collection<? super E> c, int minElements,
+                       int maxElements, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        long nanos = unit.toNanos(timeout);
+        int drained = 0;
+        final AtomicInteger count = this.count;
+        final ReentrantLock takeLock = this.takeLock;
+        for (boolean done = false; !done; ) {
+            boolean signalNotFull = false;
+            // Once elements are in c, the count must be returned
+            if (drained == 0)
+                takeLock.lockInterruptibly();
+            else
+                takeLock.lock();
+            try {
+                int n = Math.min(maxElements - drained, count.get());
+                if (n > 0) {
+                    Node<E> h = head;
+                    int i = 0;
+                    try {
+                        while (i < n) {
+                            Node<E> p = h.next;
+                            c.add(p.item);
+                            p.item = null;
+                            h.next = h;
+                            h = p;
+                            ++i;
+                        }
+                    } finally {
+                        // Restore invariants even if c.add() threw
+                        if (i > 0) {
+                            head = h;
+                            drained += i;
+                            int prev = count.getAndAdd(-i);
+                            signalNotFull = (prev == capacity);
+                            if (prev > i)
+                                notEmpty.signal();
+                        }
+                    }
+                }
+                if (drained >= minElements || drained >= maxElements)
+                    done = true;
+                else if (!signalNotFull) {
+                    // Producers are not blocked on us, so wait here
+                    while (count.get() == 0) {
+                        if (nanos <= 0) {
+                            done = true;
+                            break;
+                        }
+                        try {
+                            nanos = ForkJoinPool.managedAwaitNanos
+                                (notEmpty, nanos);
+                        } catch (InterruptedException ie) {
+                            if (drained == 0)
+                                throw ie;
+                            Thread.currentThread().interrupt();
+                            done = true;
+                            break;
+                        }
+                    }
+                }
+            } finally {
+                takeLock.unlock();
+            }
+            // Cannot acquire putLock while holding takeLock
+            if (signalNotFull)
+                signalNotFull();
+        }
+        return drained;
+    }
+
     /**
      * Returns an iterator over the elements in this queue in proper sequence.
      * The elements will be returned in order from first (head) to last (tail).
@@ -857,7 +1062,6 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
 
     /** A customized variant of Spliterators.IteratorSpliterator */
     static final class LBQSpliterator<E> implements Spliterator<E> {
-        static final int MAX_BATCH = 1 << 25;  // max batch array size;
         final LinkedBlockingQueue<E> queue;
         Node<E> current;    // current node; null until initialized
         int batch;          // batch size for splits
@@ -873,8 +1077,7 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         public Spliterator<E> trySplit() {
             Node<E> h;
             final LinkedBlockingQueue<E> q = this.queue;
-            int b = batch;
-            int n = (b <= 0) ? 1 : (b >= MAX_BATCH) ? MAX_BATCH : b + 1;
+            int n = Helpers.nextBatchSize(batch);
             if (!exhausted &&
                 ((h = current) != null || (h = q.head.next) != null) &&
                 h.next != null) {
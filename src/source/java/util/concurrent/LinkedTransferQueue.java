@@ -731,10 +731,10 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
             else if (timed) {
                 nanos = deadline - System.nanoTime();
                 if (nanos > 0L)
-                    LockSupport.parkNanos(this, nanos);
+                    ForkJoinPool.managedParkNanos(this, nanos);
             }
             else {
-                LockSupport.park(this);
+                ForkJoinPool.managedPark(this);
             }
         }
     }
@@ -935,7 +935,6 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
 
     /** A customized variant of Spliterators.IteratorSpliterator */
     static final class LTQSpliterator<E> implements Spliterator<E> {
-        static final int MAX_BATCH = 1 << 25;  // max batch array size;
         final LinkedTransferQueue<E> queue;
         Node current;    // current node; null until initialized
         int batch;          // batch size for splits
@@ -947,8 +946,7 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
         public Spliterator<E> trySplit() {
             Node p;
             final LinkedTransferQueue<E> q = this.queue;
-            int b = batch;
-            int n = (b <= 0) ? 1 : (b >= MAX_BATCH) ? MAX_BATCH : b + 1;
+            int n = Helpers.nextBatchSize(batch);
             if (!exhausted &&
                 ((p = current) != null || (p = q.firstDataNode()) != null) &&
                 p.next != null) {
@@ -49,6 +49,7 @@ import java.util.SortedSet;
 import java.util.Spliterator;
 import java.util.function.Consumer;
 import sun.misc.SharedSecrets;
+import sun.util.HeapPositions;
 
 /**
  * An unbounded {@linkplain BlockingQueue blocking queue} that uses
@@ -71,6 +72,11 @@ import sun.misc.SharedSecrets;
  * can be used to <em>remove</em> some or all elements in priority
  * order and place them in another collection.
  *
+ * <p>As for {@code PriorityQueue}, a heap arity other than two may be
+ * specified on construction, as may an <i>indexed</i> queue, which
+ * supports removal and {@linkplain #update repositioning} of elements
+ * in logarithmic time.
+ *
  * <p>Operations on this class make no guarantees about the ordering
  * of elements with equal priority. If you need to enforce an
  * ordering, you can define custom classes or comparators that use a
@@ -112,11 +118,11 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
     private static final long serialVersionUID = 5595510919245408276L;
 
     /*
-     * The implementation uses an array-based binary heap, with public
-     * operations protected with a single lock. However, allocation
-     * during resizing uses a simple spinlock (used only while not
-     * holding main lock) in order to allow takes to operate
-     * concurrently with allocation.  This avoids repeated
+     * The implementation uses an array-based d-ary heap (binary by
+     * default), with public operations protected with a single lock.
+     * However, allocation during resizing uses a simple spinlock
+     * (used only while not holding main lock) in order to allow takes
+     * to operate concurrently with allocation.  This avoids repeated
      * postponement of waiting consumers and consequent element
      * build-up. The need to back away from lock during allocation
      * makes it impossible to simply wrap delegated
@@ -125,6 +131,12 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
      * interoperability, a plain PriorityQueue is still used during
      * serialization, which maintains compatibility at the expense of
      * transiently doubling overhead.
+     *
+     * The sift methods take the base 2 logarithm of the arity, and
+     * the table of element positions of an indexed queue (or null),
+     * which they keep up to date as they move elements.  The table
+     * holds the table slot of the element at each heap index, so
+     * that a sift step moves an index without hashing.
      */
 
     /**
@@ -141,8 +153,14 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
     private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
 
     /**
-     * Priority queue represented as a balanced binary heap: the two
-     * children of queue[n] are queue[2*n+1] and queue[2*(n+1)].  The
+     * The largest supported heap arity.
+     */
+    private static final int MAX_ARITY = 64;
+
+    /**
+     * Priority queue represented as a balanced d-ary heap, where d
+     * is a power of two (by default, a binary heap): the children of
+     * queue[n] are queue[d*n+1] through queue[d*n+d].  The
      * priority queue is ordered by comparator, or by the elements'
      * natural ordering, if comparator is null: For each node n in the
      * heap and each descendant d of n, n <= d.  The element with the
@@ -183,6 +201,26 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
      */
     private PriorityQueue<E> q;
 
+    /**
+     * The base 2 logarithm of the heap arity, or zero (meaning a
+     * binary heap) in streams written before it was configurable.
+     *
+     * @serial
+     */
+    private int arityShift = 1;
+
+    /**
+     * Whether the positions of elements are tracked.
+     *
+     * @serial
+     */
+    private boolean indexed;
+
+    /**
+     * The index in queue of each element, if indexed, else null.
+     */
+    private transient HeapPositions positions;
+
     /**
      * Creates a {@code PriorityBlockingQueue} with the default
      * initial capacity (11) that orders its elements according to
@@ -227,6 +265,37 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         this.queue = new Object[initialCapacity];
     }
 
+    /**
+     * Creates a {@code PriorityBlockingQueue} with the specified initial
+     * capacity and heap arity that orders its elements according to the
+     * specified comparator, and that tracks the positions of its
+     * elements if {@code indexed} is true, as described for {@link
+     * PriorityQueue#PriorityQueue(int, Comparator, int, boolean)}.
+     *
+     * @param initialCapacity the initial capacity for this priority queue
+     * @param  comparator the comparator that will be used to order this
+     *         priority queue.  If {@code null}, the {@linkplain Comparable
+     *         natural ordering} of the elements will be used.
+     * @param  arity the number of children of each node of the heap,
+     *         a power of two from 2 to 64
+     * @param  indexed whether this queue keeps track of the position
+     *         of each element
+     * @throws IllegalArgumentException if {@code initialCapacity} is less
+     *         than 1, or {@code arity} is not a power of two from 2 to 64
+     * @since 1.8
+     */
+    public PriorityBlockingQueue(int initialCapacity,
+                                 Comparator<? super E> comparator,
+                                 int arity, boolean indexed) {
+        this(initialCapacity, comparator);
+        if (arity < 2 || arity > MAX_ARITY || (arity & (arity - 1)) != 0)
+            throw new IllegalArgumentException();
+        this.arityShift = Integer.numberOfTrailingZeros(arity);
+        this.indexed = indexed;
+        if (indexed)
+            positions = new HeapPositions(initialCapacity);
+    }
+
     /**
      * Creates a {@code PriorityBlockingQueue} containing the elements
      * in the specified collection.  If the specified collection is a
@@ -258,8 +327,11 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
                 (PriorityBlockingQueue<? extends E>) c;
             this.comparator = (Comparator<? super E>) pq.comparator();
             screen = false;
-            if (pq.getClass() == PriorityBlockingQueue.class) // exact match
+            this.indexed = pq.indexed;
+            if (pq.getClass() == PriorityBlockingQueue.class) { // exact match
+                this.arityShift = pq.arityShift; // same heap layout
                 heapify = false;
+            }
         }
         Object[] a = c.toArray();
         int n = a.length;
@@ -272,6 +344,8 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         }
         this.queue = a;
         this.size = n;
+        if (indexed && !indexElements())
+            throw new IllegalArgumentException("Duplicate element");
         if (heapify)
             heapify();
     }
@@ -328,11 +402,17 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
             E result = (E) array[0];
             E x = (E) array[n];
             array[n] = null;
+            HeapPositions pos = positions;
+            if (pos != null) {
+                pos.remove(0);
+                if (n != 0)
+                    pos.move(n, 0);
+            }
             Comparator<? super E> cmp = comparator;
             if (cmp == null)
-                siftDownComparable(0, x, array, n);
+                siftDownComparable(0, x, array, n, arityShift, pos);
             else
-                siftDownUsingComparator(0, x, array, n, cmp);
+                siftDownUsingComparator(0, x, array, n, cmp, arityShift, pos);
             size = n;
             return result;
         }
@@ -352,31 +432,46 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
      * @param k the position to fill
      * @param x the item to insert
      * @param array the heap array
+     * @param s log2 of the heap arity
+     * @param pos the element positions, or null
      */
-    private static <T> void siftUpComparable(int k, T x, Object[] array) {
+    private static <T> void siftUpComparable(int k, T x, Object[] array,
+                                             int s,
+                                             HeapPositions pos) {
         Comparable<? super T> key = (Comparable<? super T>) x;
+        int xs = (pos == null) ? 0 : pos.slotAt(k);
         while (k > 0) {
-            int parent = (k - 1) >>> 1;
+            int parent = (k - 1) >>> s;
             Object e = array[parent];
             if (key.compareTo((T) e) >= 0)
                 break;
             array[k] = e;
+            if (pos != null)
+                pos.move(parent, k);
             k = parent;
         }
         array[k] = key;
+        if (pos != null)
+            pos.set(key, k, xs);
     }
 
     private static <T> void siftUpUsingComparator(int k, T x, Object[] array,
-                                       Comparator<? super T> cmp) {
+                                       Comparator<? super T> cmp, int s,
+                                       HeapPositions pos) {
+        int xs = (pos == null) ? 0 : pos.slotAt(k);
         while (k > 0) {
-            int parent = (k - 1) >>> 1;
+            int parent = (k - 1) >>> s;
             Object e = array[parent];
             if (cmp.compare(x, (T) e) >= 0)
                 break;
             array[k] = e;
+            if (pos != null)
+                pos.move(parent, k);
             k = parent;
         }
         array[k] = x;
+        if (pos != null)
+            pos.set(x, k, xs);
     }
 
     /**
@@ -388,45 +483,63 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
      * @param x the item to insert
      * @param array the heap array
      * @param n heap size
+     * @param s log2 of the heap arity
+     * @param pos the element positions, or null
      */
     private static <T> void siftDownComparable(int k, T x, Object[] array,
-                                               int n) {
+                                               int n, int s,
+                                               HeapPositions pos) {
         if (n > 0) {
             Comparable<? super T> key = (Comparable<? super T>)x;
-            int half = n >>> 1;           // loop while a non-leaf
-            while (k < half) {
-                int child = (k << 1) + 1; // assume left child is least
+            int xs = (pos == null) ? 0 : pos.slotAt(k);
+            int last = (n - 2) >> s;      // loop while a non-leaf
+            while (k <= last) {
+                int child = (k << s) + 1; // find least child
                 Object c = array[child];
-                int right = child + 1;
-                if (right < n &&
-                    ((Comparable<? super T>) c).compareTo((T) array[right]) > 0)
-                    c = array[child = right];
+                int end = Math.min(child + (1 << s), n);
+                for (int j = child + 1; j < end; j++) {
+                    if (((Comparable<? super T>) c).compareTo((T) array[j]) > 0)
+                        c = array[child = j];
+                }
                 if (key.compareTo((T) c) <= 0)
                     break;
                 array[k] = c;
+                if (pos != null)
+                    pos.move(child, k);
                 k = child;
             }
             array[k] = key;
+            if (pos != null)
+                pos.set(key, k, xs);
         }
     }
 
     private static <T> void siftDownUsingComparator(int k, T x, Object[] array,
                                                     int n,
-                                                    Comparator<? super T> cmp) {
+                                                    Comparator<? super T> cmp,
+                                                    int s,
+                                                    HeapPositions pos) {
         if (n > 0) {
-            int half = n >>> 1;
-            while (k < half) {
-                int child = (k << 1) + 1;
+            int xs = (pos == null) ? 0 : pos.slotAt(k);
+            int last = (n - 2) >> s;
+            while (k <= last) {
+                int child = (k << s) + 1;
                 Object c = array[child];
-                int right = child + 1;
-                if (right < n && cmp.compare((T) c, (T) array[right]) > 0)
-                    c = array[child = right];
+                int end = Math.min(child + (1 << s), n);
+                for (int j = child + 1; j < end; j++) {
+                    if (cmp.compare((T) c, (T) array[j]) > 0)
+                        c = array[child = j];
+                }
                 if (cmp.compare(x, (T) c) <= 0)
                     break;
                 array[k] = c;
+                if (pos != null)
+                    pos.move(child, k);
                 k = child;
             }
             array[k] = x;
+            if (pos != null)
+                pos.set(x, k, xs);
         }
     }
 
@@ -436,19 +549,35 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
      */
     private void heapify() {
         Object[] array = queue;
-        int n = size;
-        int half = (n >>> 1) - 1;
+        int n = size, s = arityShift;
+        int last = (n - 2) >> s;
         Comparator<? super E> cmp = comparator;
         if (cmp == null) {
-            for (int i = half; i >= 0; i--)
-                siftDownComparable(i, (E) array[i], array, n);
+            for (int i = last; i >= 0; i--)
+                siftDownComparable(i, (E) array[i], array, n, s, positions);
         }
         else {
-            for (int i = half; i >= 0; i--)
-                siftDownUsingComparator(i, (E) array[i], array, n, cmp);
+            for (int i = last; i >= 0; i--)
+                siftDownUsingComparator(i, (E) array[i], array, n, cmp, s, positions);
         }
     }
 
+    /**
+     * Creates the position table of an indexed queue from the elements
+     * in the queue array.
+     *
+     * @return {@code false} if an element is held more than once
+     */
+    private boolean indexElements() {
+        HeapPositions pos = new HeapPositions(queue.length);
+        for (int i = 0, n = size; i < n; i++) {
+            if (!pos.add(queue[i], i))
+                return false;
+        }
+        positions = pos;
+        return true;
+    }
+
     /**
      * Inserts the specified element into this priority queue.
      *
@@ -458,6 +587,8 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
      *         with elements currently in the priority queue according to the
      *         priority queue's ordering
      * @throws NullPointerException if the specified element is null
+     * @throws IllegalArgumentException if this queue is indexed and
+     *         already contains the specified element
      */
     public boolean add(E e) {
         return offer(e);
@@ -473,6 +604,8 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
      *         with elements currently in the priority queue according to the
      *         priority queue's ordering
      * @throws NullPointerException if the specified element is null
+     * @throws IllegalArgumentException if this queue is indexed and
+     *         already contains the specified element
      */
     public boolean offer(E e) {
         if (e == null)
@@ -484,11 +617,17 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         while ((n = size) >= (cap = (array = queue).length))
             tryGrow(array, cap);
         try {
+            HeapPositions pos = positions;
+            if (pos != null) {
+                if (pos.indexOf(e) >= 0)
+                    throw new IllegalArgumentException("Element already present");
+                pos.reserve(n);
+            }
             Comparator<? super E> cmp = comparator;
             if (cmp == null)
-                siftUpComparable(n, e, array);
+                siftUpComparable(n, e, array, arityShift, pos);
             else
-                siftUpUsingComparator(n, e, array, cmp);
+                siftUpUsingComparator(n, e, array, cmp, arityShift, pos);
             size = n + 1;
             notEmpty.signal();
         } finally {
@@ -506,6 +645,8 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
      *         with elements currently in the priority queue according to the
      *         priority queue's ordering
      * @throws NullPointerException if the specified element is null
+     * @throws IllegalArgumentException if this queue is indexed and
+     *         already contains the specified element
      */
     public void put(E e) {
         offer(e); // never need to block
@@ -525,6 +666,8 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
      *         with elements currently in the priority queue according to the
      *         priority queue's ordering
      * @throws NullPointerException if the specified element is null
+     * @throws IllegalArgumentException if this queue is indexed and
+     *         already contains the specified element
      */
     public boolean offer(E e, long timeout, TimeUnit unit) {
         return offer(e); // never need to block
@@ -546,7 +689,7 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         E result;
         try {
             while ( (result = dequeue()) == null)
-                notEmpty.await();
+                ForkJoinPool.managedAwait(notEmpty);
         } finally {
             lock.unlock();
         }
@@ -560,7 +703,7 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         E result;
         try {
             while ( (result = dequeue()) == null && nanos > 0)
-                nanos = notEmpty.awaitNanos(nanos);
+                nanos = ForkJoinPool.managedAwaitNanos(notEmpty, nanos);
         } finally {
             lock.unlock();
         }
@@ -620,32 +763,95 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         return -1;
     }
 
+    /**
+     * Returns the index of o, compared by reference equality, or -1.
+     * Call only while holding lock.
+     */
+    private int indexOfEq(Object o) {
+        HeapPositions pos = positions;
+        if (pos != null)
+            return pos.indexOf(o);
+        Object[] array = queue;
+        for (int i = 0, n = size; i < n; i++) {
+            if (o == array[i])
+                return i;
+        }
+        return -1;
+    }
+
     /**
      * Removes the ith element from queue.
      */
     private void removeAt(int i) {
         Object[] array = queue;
         int n = size - 1;
+        int s = arityShift;
+        HeapPositions pos = positions;
+        if (pos != null)
+            pos.remove(i);
         if (n == i) // removed last element
             array[i] = null;
         else {
             E moved = (E) array[n];
             array[n] = null;
+            if (pos != null)
+                pos.move(n, i);
             Comparator<? super E> cmp = comparator;
             if (cmp == null)
-                siftDownComparable(i, moved, array, n);
+                siftDownComparable(i, moved, array, n, s, pos);
             else
-                siftDownUsingComparator(i, moved, array, n, cmp);
+                siftDownUsingComparator(i, moved, array, n, cmp, s, pos);
             if (array[i] == moved) {
                 if (cmp == null)
-                    siftUpComparable(i, moved, array);
+                    siftUpComparable(i, moved, array, s, pos);
                 else
-                    siftUpUsingComparator(i, moved, array, cmp);
+                    siftUpUsingComparator(i, moved, array, cmp, s, pos);
             }
         }
         size = n;
     }
 
+    /**
+     * Restores the ordering of this queue after a change to the
+     * specified element that may have changed its priority, such as a
+     * decrease of its key, as described for {@link
+     * PriorityQueue#update}.  The element is identified by reference
+     * equality.  This method takes logarithmic time if this queue is
+     * indexed, and linear time otherwise.
+     *
+     * @param e the element whose priority has changed
+     * @return {@code true} if this queue contains the element
+     * @throws ClassCastException if the element cannot be compared
+     *         with elements currently in this priority queue
+     *         according to the priority queue's ordering
+     * @since 1.8
+     */
+    public boolean update(E e) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int i = indexOfEq(e);
+            if (i == -1)
+                return false;
+            Object[] array = queue;
+            int n = size, s = arityShift;
+            HeapPositions pos = positions;
+            Comparator<? super E> cmp = comparator;
+            if (cmp == null) {
+                siftUpComparable(i, e, array, s, pos);
+                if (array[i] == e)
+                    siftDownComparable(i, e, array, n, s, pos);
+            } else {
+                siftUpUsingComparator(i, e, array, cmp, s, pos);
+                if (array[i] == e)
+                    siftDownUsingComparator(i, e, array, n, cmp, s, pos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Removes a single instance of the specified element from this queue,
      * if it is present.  More formally, removes an element {@code e} such
@@ -661,7 +867,9 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         final ReentrantLock lock = this.lock;
         lock.lock();
         try {
-            int i = indexOf(o);
+            int i = (positions != null) ? positions.indexOf(o) : -1;
+            if (i == -1)
+                i = indexOf(o);
             if (i == -1)
                 return false;
             removeAt(i);
@@ -678,13 +886,9 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         final ReentrantLock lock = this.lock;
         lock.lock();
         try {
-            Object[] array = queue;
-            for (int i = 0, n = size; i < n; i++) {
-                if (o == array[i]) {
-                    removeAt(i);
-                    break;
-                }
-            }
+            int i = indexOfEq(o);
+            if (i != -1)
+                removeAt(i);
         } finally {
             lock.unlock();
         }
@@ -702,7 +906,8 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         final ReentrantLock lock = this.lock;
         lock.lock();
         try {
-            return indexOf(o) != -1;
+            return (positions != null && positions.indexOf(o) >= 0) ||
+                indexOf(o) != -1;
         } finally {
             lock.unlock();
         }
@@ -802,6 +1007,8 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
             size = 0;
             for (int i = 0; i < n; i++)
                 array[i] = null;
+            if (positions != null)
+                positions.clear();
         } finally {
             lock.unlock();
         }
@@ -940,10 +1147,16 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         throws java.io.IOException, ClassNotFoundException {
         try {
             s.defaultReadObject();
+            if (arityShift == 0)
+                arityShift = 1;
+            else if (arityShift < 0 || (1 << arityShift) > MAX_ARITY)
+                throw new java.io.InvalidObjectException("Illegal arity");
             int sz = q.size();
             SharedSecrets.getJavaOISAccess().checkArray(s, Object[].class, sz);
             this.queue = new Object[sz];
             comparator = q.comparator();
+            if (indexed)
+                positions = new HeapPositions(sz);
             addAll(q);
         } finally {
             q = null;
@@ -0,0 +1,503 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An unbounded thread-safe queue that retrieves elements in
+ * <em>approximate</em> priority order, in exchange for scalability
+ * under contention.  Elements are ordered according to their
+ * {@linkplain Comparable natural ordering}, or by a {@link
+ * Comparator} provided at queue construction time, as in {@link
+ * PriorityBlockingQueue}, which should be used when exact ordering is
+ * needed.  This class does not permit {@code null} elements.
+ *
+ * <p>The queue consists of several independently locked heaps
+ * ("lanes"), by default twice as many as there are processors.  Each
+ * insertion goes to a randomly chosen lane, and each removal takes
+ * the head of the better of two randomly chosen lanes.  So threads
+ * rarely contend, but {@code poll} need not return the least
+ * element: it returns one whose rank among the elements is, in
+ * expectation, proportional to the number of lanes, and which is
+ * the least element with a probability that rises with the number
+ * of elements per lane.  However, {@code poll} returns {@code null}
+ * only if it found every lane empty.  This trade-off suits
+ * schedulers with many consumer threads, for which the single lock of
+ * a {@code PriorityBlockingQueue} would be the bottleneck, and which
+ * tolerate running slightly lower priority tasks first.
+ *
+ * <p>Bulk operations, {@code size}, {@code peek}, and iteration are
+ * weakly consistent: they visit the lanes one at a time, and so may
+ * not reflect concurrent insertions and removals.  The iterator
+ * traverses a snapshot, in no particular order.
+ *
+ * <p>This class and its iterator implement all of the
+ * <em>optional</em> methods of the {@link Collection} and {@link
+ * Iterator} interfaces.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class RelaxedPriorityQueue<E> extends AbstractQueue<E>
+    implements java.io.Serializable {
+    private static final long serialVersionUID = -4913578405146379012L;
+
+    /*
+     * This is the "MultiQueue" design: the lanes are
+     * java.util.PriorityQueues, each guarded by the lane itself.  The
+     * head of each lane is mirrored in a volatile field, so that
+     * poll can compare the two candidate lanes without locking them,
+     * and sweeps can skip empty lanes.  Operations that find a lane
+     * locked pick another lane rather than wait, except in the final
+     * sweep of poll, which must not miss any element.
+     *
+     * The lanes are not serialized.  The serialized form holds the
+     * number of lanes and the elements; on deserialization the
+     * elements are dealt out to new lanes in turn.
+     */
+
+    /** Number of CPUS, to place bound on lane count */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** Number of random picks before poll falls back to a sweep */
+    static final int MAX_PICKS = 8;
+
+    /**
+     * A lane: a heap guarded by the lane itself.
+     */
+    @sun.misc.Contended static final class Lane<E> extends ReentrantLock {
+        private static final long serialVersionUID = 4426101307567153434L;
+        final PriorityQueue<E> heap;
+        volatile E top;
+        volatile int size;
+
+        Lane(Comparator<? super E> comparator) {
+            heap = new PriorityQueue<E>(16, comparator);
+        }
+    }
+
+    /** The lanes; non-final only so that readObject can set it */
+    private transient Lane<E>[] lanes;
+
+    /**
+     * The comparator, or null if priority queue uses elements'
+     * natural ordering.
+     */
+    private final Comparator<? super E> comparator;
+
+    /**
+     * Creates a {@code RelaxedPriorityQueue} with the default number
+     * of lanes that orders its elements according to their
+     * {@linkplain Comparable natural ordering}.
+     */
+    public RelaxedPriorityQueue() {
+        this(null, 2 * NCPU);
+    }
+
+    /**
+     * Creates a {@code RelaxedPriorityQueue} with the default number
+     * of lanes that orders its elements according to the specified
+     * comparator.
+     *
+     * @param  comparator the comparator that will be used to order this
+     *         priority queue.  If {@code null}, the {@linkplain Comparable
+     *         natural ordering} of the elements will be used.
+     */
+    public RelaxedPriorityQueue(Comparator<? super E> comparator) {
+        this(comparator, 2 * NCPU);
+    }
+
+    /**
+     * Creates a {@code RelaxedPriorityQueue} with the specified
+     * number of lanes that orders its elements according to the
+     * specified comparator.  More lanes reduce contention, and fewer
+     * lanes make the ordering more nearly exact; a single lane gives
+     * exact ordering.
+     *
+     * @param  comparator the comparator that will be used to order this
+     *         priority queue.  If {@code null}, the {@linkplain Comparable
+     *         natural ordering} of the elements will be used.
+     * @param  lanes the number of lanes
+     * @throws IllegalArgumentException if {@code lanes} is less than 1
+     */
+    public RelaxedPriorityQueue(Comparator<? super E> comparator, int lanes) {
+        if (lanes < 1)
+            throw new IllegalArgumentException();
+        this.lanes = newLanes(comparator, lanes);
+        this.comparator = comparator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> Lane<E>[] newLanes(Comparator<? super E> comparator,
+                                          int n) {
+        Lane<E>[] ls = (Lane<E>[])new Lane<?>[n];
+        for (int i = 0; i < n; ++i)
+            ls[i] = new Lane<E>(comparator);
+        return ls;
+    }
+
+    /**
+     * Returns the comparator used to order the elements in this queue,
+     * or {@code null} if this queue uses the {@linkplain Comparable
+     * natural ordering} of its elements.
+     *
+     * @return the comparator used to order the elements in this queue,
+     *         or {@code null} if this queue uses the natural
+     *         ordering of its elements
+     */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(E a, E b) {
+        Comparator<? super E> cmp;
+        return ((cmp = comparator) == null) ?
+            ((Comparable<? super E>)a).compareTo(b) : cmp.compare(a, b);
+    }
+
+    /**
+     * Inserts the specified element into this priority queue.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link Collection#add})
+     * @throws ClassCastException if the specified element cannot be compared
+     *         with elements currently in the priority queue according to the
+     *         priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean add(E e) {
+        return offer(e);
+    }
+
+    /**
+     * Inserts the specified element into this priority queue.
+     * As the queue is unbounded, this method will never return {@code false}.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link java.util.Queue#offer})
+     * @throws ClassCastException if the specified element cannot be compared
+     *         with elements currently in the priority queue according to the
+     *         priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        Lane<E>[] ls = lanes;
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        Lane<E> l = ls[r.nextInt(ls.length)];
+        for (int picks = 1; !l.tryLock(); ++picks) {
+            if (picks >= MAX_PICKS) {
+                l.lock();
+                break;
+            }
+            l = ls[r.nextInt(ls.length)];
+        }
+        try {
+            PriorityQueue<E> h = l.heap;
+            h.offer(e);
+            l.top = h.peek();
+            l.size = h.size();
+        } finally {
+            l.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Removes the head of lane l, if it is nonempty.
+     */
+    private static <E> E pollLane(Lane<E> l) {
+        PriorityQueue<E> h = l.heap;
+        E e = h.poll();
+        if (e != null) {
+            l.top = h.peek();
+            l.size = h.size();
+        }
+        return e;
+    }
+
+    /**
+     * Retrieves and removes an element near the head of this queue,
+     * or returns {@code null} if this queue is empty.
+     *
+     * @return an element near the head of this queue, or {@code null}
+     *         if this queue is empty
+     */
+    public E poll() {
+        Lane<E>[] ls = lanes;
+        int n = ls.length;
+        if (n > 1) {
+            ThreadLocalRandom r = ThreadLocalRandom.current();
+            for (int picks = 0; picks < MAX_PICKS; ++picks) {
+                Lane<E> a = ls[r.nextInt(n)], b = ls[r.nextInt(n)];
+                E ta = a.top, tb = b.top;
+                Lane<E> l = (ta == null) ? b :
+                    (tb == null || compare(ta, tb) <= 0) ? a : b;
+                if (l.top == null)
+                    continue;
+                if (l.tryLock()) {
+                    try {
+                        E e = pollLane(l);
+                        if (e != null)
+                            return e;
+                    } finally {
+                        l.unlock();
+                    }
+                }
+            }
+        }
+        for (Lane<E> l : ls) {
+            if (l.top != null) {
+                l.lock();
+                try {
+                    E e = pollLane(l);
+                    if (e != null)
+                        return e;
+                } finally {
+                    l.unlock();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves, but does not remove, the least of the heads of the
+     * lanes of this queue, or returns {@code null} if this queue is
+     * empty.
+     *
+     * @return the least element at the head of a lane, or {@code null}
+     *         if this queue is empty
+     */
+    public E peek() {
+        E best = null;
+        for (Lane<E> l : lanes) {
+            E t = l.top;
+            if (t != null && (best == null || compare(t, best) < 0))
+                best = t;
+        }
+        return best;
+    }
+
+    public int size() {
+        long n = 0L;
+        for (Lane<E> l : lanes)
+            n += l.size;
+        return (n >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)n;
+    }
+
+    public boolean isEmpty() {
+        for (Lane<E> l : lanes) {
+            if (l.top != null)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes a single instance of the specified element from this queue,
+     * if it is present.  More formally, removes an element {@code e} such
+     * that {@code o.equals(e)}, if this queue contains one or more such
+     * elements.  Returns {@code true} if and only if this queue contained
+     * the specified element (or equivalently, if this queue changed as a
+     * result of the call).
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        if (o != null) {
+            for (Lane<E> l : lanes) {
+                if (l.top == null)
+                    continue;
+                l.lock();
+                try {
+                    PriorityQueue<E> h = l.heap;
+                    if (h.remove(o)) {
+                        l.top = h.peek();
+                        l.size = h.size();
+                        return true;
+                    }
+                } finally {
+                    l.unlock();
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if this queue contains the specified element.
+     * More formally, returns {@code true} if and only if this queue contains
+     * at least one element {@code e} such that {@code o.equals(e)}.
+     *
+     * @param o object to be checked for containment in this queue
+     * @return {@code true} if this queue contains the specified element
+     */
+    public boolean contains(Object o) {
+        if (o != null) {
+            for (Lane<E> l : lanes) {
+                if (l.top == null)
+                    continue;
+                l.lock();
+                try {
+                    if (l.heap.contains(o))
+                        return true;
+                } finally {
+                    l.unlock();
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all of the elements from this queue.
+     */
+    public void clear() {
+        for (Lane<E> l : lanes) {
+            l.lock();
+            try {
+                l.heap.clear();
+                l.top = null;
+                l.size = 0;
+            } finally {
+                l.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns an array containing all of the elements in this queue.
+     * The returned array elements are in no particular order.
+     *
+     * <p>The returned array will be "safe" in that no references to it are
+     * maintained by this queue.  (In other words, this method must allocate
+     * a new array).  The caller is thus free to modify the returned array.
+     *
+     * <p>This method acts as bridge between array-based and collection-based
+     * APIs.
+     *
+     * @return an array containing all of the elements in this queue
+     */
+    public Object[] toArray() {
+        ArrayList<E> a = new ArrayList<E>();
+        for (Lane<E> l : lanes) {
+            l.lock();
+            try {
+                a.addAll(l.heap);
+            } finally {
+                l.unlock();
+            }
+        }
+        return a.toArray();
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements in this
+     * queue, in no particular order.  The iterator's {@code remove}
+     * method removes an equal element from this queue, if still
+     * present.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    public Iterator<E> iterator() {
+        final Object[] array = toArray();
+        return new Iterator<E>() {
+            int cursor;
+            int lastRet = -1;
+            public boolean hasNext() {
+                return cursor < array.length;
+            }
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (cursor >= array.length)
+                    throw new NoSuchElementException();
+                lastRet = cursor;
+                return (E)array[cursor++];
+            }
+            public void remove() {
+                if (lastRet < 0)
+                    throw new IllegalStateException();
+                RelaxedPriorityQueue.this.remove(array[lastRet]);
+                lastRet = -1;
+            }
+        };
+    }
+
+    /**
+     * Saves this queue to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The number of lanes ({@code int}), followed by all
+     * of the elements (each an {@code E}) in no particular order,
+     * followed by a null
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeInt(lanes.length);
+        for (Object e : toArray())
+            s.writeObject(e);
+        s.writeObject(null);
+    }
+
+    /**
+     * Reconstitutes this queue from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int n = s.readInt();
+        if (n < 1)
+            throw new java.io.InvalidObjectException("lanes");
+        Lane<E>[] ls = newLanes(comparator, n);
+        Object item;
+        for (int i = 0; (item = s.readObject()) != null; ++i) {
+            @SuppressWarnings("unchecked") E e = (E) item;
+            ls[i % n].heap.offer(e);
+        }
+        for (Lane<E> l : ls) {
+            l.top = l.heap.peek();
+            l.size = l.heap.size();
+        }
+        lanes = ls;
+    }
+}
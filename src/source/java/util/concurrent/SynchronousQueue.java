@@ -455,9 +455,9 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
                 else if (s.waiter == null)
                     s.waiter = w; // establish waiter so can park next iter
                 else if (!timed)
-                    LockSupport.park(this);
+                    ForkJoinPool.managedPark(this);
                 else if (nanos > spinForTimeoutThreshold)
-                    LockSupport.parkNanos(this, nanos);
+                    ForkJoinPool.managedParkNanos(this, nanos);
             }
         }
 
@@ -759,9 +759,9 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
                 else if (s.waiter == null)
                     s.waiter = w;
                 else if (!timed)
-                    LockSupport.park(this);
+                    ForkJoinPool.managedPark(this);
                 else if (nanos > spinForTimeoutThreshold)
-                    LockSupport.parkNanos(this, nanos);
+                    ForkJoinPool.managedParkNanos(this, nanos);
             }
         }
 
@@ -196,6 +196,16 @@ import java.util.*;
  * may encounter unacceptable scheduling overhead, which also
  * decreases throughput.  </li>
  *
+ * <li><em>Work-stealing queues.</em> When many threads submit short
+ * tasks, a single shared queue becomes the main point of contention.
+ * The constructors taking a {@code queueCapacity} instead of a
+ * {@code BlockingQueue} partition the work queue into per-worker
+ * deques. Each thread submits to and takes from its own deque, and
+ * idle workers steal from their siblings before blocking. Pool
+ * sizing, rejection and hook methods behave as for a bounded queue
+ * of the given total capacity, but tasks are only approximately
+ * executed in submission order.  </li>
+ *
  * </ol>
  *
  * </dd>
@@ -1325,6 +1335,89 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         this.handler = handler;
     }
 
+    /**
+     * Creates a new {@code ThreadPoolExecutor} with the given initial
+     * parameters, default thread factory and rejected execution
+     * handler, and a work-stealing work queue.  The queue is
+     * partitioned into per-worker deques holding at most
+     * {@code queueCapacity} tasks in total; idle workers steal tasks
+     * from other deques before blocking.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param maximumPoolSize the maximum number of threads to allow in the
+     *        pool
+     * @param keepAliveTime when the number of threads is greater than
+     *        the core, this is the maximum time that excess idle threads
+     *        will wait for new tasks before terminating.
+     * @param unit the time unit for the {@code keepAliveTime} argument
+     * @param queueCapacity the total number of tasks the work queue
+     *        may hold before new threads are added or tasks rejected,
+     *        or {@link Integer#MAX_VALUE} for an unbounded queue
+     * @throws IllegalArgumentException if one of the following holds:<br>
+     *         {@code corePoolSize < 0}<br>
+     *         {@code keepAliveTime < 0}<br>
+     *         {@code maximumPoolSize <= 0}<br>
+     *         {@code maximumPoolSize < corePoolSize}<br>
+     *         {@code queueCapacity <= 0}
+     * @since 1.8
+     */
+    public ThreadPoolExecutor(int corePoolSize,
+                              int maximumPoolSize,
+                              long keepAliveTime,
+                              TimeUnit unit,
+                              int queueCapacity) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, queueCapacity,
+             Executors.defaultThreadFactory(), defaultHandler);
+    }
+
+    /**
+     * Creates a new {@code ThreadPoolExecutor} with the given initial
+     * parameters and a work-stealing work queue.  The queue is
+     * partitioned into per-worker deques holding at most
+     * {@code queueCapacity} tasks in total; idle workers steal tasks
+     * from other deques before blocking.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param maximumPoolSize the maximum number of threads to allow in the
+     *        pool
+     * @param keepAliveTime when the number of threads is greater than
+     *        the core, this is the maximum time that excess idle threads
+     *        will wait for new tasks before terminating.
+     * @param unit the time unit for the {@code keepAliveTime} argument
+     * @param queueCapacity the total number of tasks the work queue
+     *        may hold before new threads are added or tasks rejected,
+     *        or {@link Integer#MAX_VALUE} for an unbounded queue
+     * @param threadFactory the factory to use when the executor
+     *        creates a new thread
+     * @param handler the handler to use when execution is blocked
+     *        because the thread bounds and queue capacities are reached
+     * @throws IllegalArgumentException if one of the following holds:<br>
+     *         {@code corePoolSize < 0}<br>
+     *         {@code keepAliveTime < 0}<br>
+     *         {@code maximumPoolSize <= 0}<br>
+     *         {@code maximumPoolSize < corePoolSize}<br>
+     *         {@code queueCapacity <= 0}
+     * @throws NullPointerException if {@code threadFactory}
+     *         or {@code handler} is null
+     * @since 1.8
+     */
+    public ThreadPoolExecutor(int corePoolSize,
+                              int maximumPoolSize,
+                              long keepAliveTime,
+                              TimeUnit unit,
+                              int queueCapacity,
+                              ThreadFactory threadFactory,
+                              RejectedExecutionHandler handler) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit,
+             new WorkStealingQueue(queueCapacity,
+                                   Math.max(1, Math.min(
+                                       maximumPoolSize,
+                                       WorkStealingQueue.NCPU))),
+             threadFactory, handler);
+    }
+
     /**
      * Executes the given task sometime in the future.  The task
      * may execute in a new thread or in an existing pooled thread.
@@ -2012,6 +2105,492 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      */
     protected void terminated() { }
 
+    /**
+     * The work queue used by the work-stealing constructors.  Tasks
+     * are held in a power-of-two sized table of lanes, each a small
+     * locked deque padded against false sharing.  Lanes are selected
+     * using the per-thread probe also used by Striped64, so that in
+     * steady state each worker (and each submitting thread) mostly
+     * touches its own lane.  Offers that find their lane locked
+     * rehash to another lane rather than waiting.  Takers first
+     * look at their own lane and then sweep the others, stealing the
+     * oldest task of the first non-empty lane they can lock.
+     *
+     * Blocking is only needed when all lanes are empty (or the queue
+     * is full, for put).  Waiting takers register in takeWaiters
+     * under waitLock and recheck the lanes before awaiting; producers
+     * read takeWaiters after enqueuing and only then acquire waitLock
+     * to signal.  Because both sides write before they read (the lane
+     * size, the count and the waiter counts are all volatile), at
+     * least one of them sees the other, so no wakeups are lost.  The
+     * same protocol with putWaiters handles blocking puts.
+     *
+     * The lanes themselves are unbounded.  A bounded queue reserves a
+     * slot in the shared count before adding a task to a lane, and
+     * releases it after removing one, so an offer fails exactly when
+     * the total would exceed the capacity.  (Dividing the capacity
+     * among lanes would avoid the shared count, but rounding would
+     * let the queue hold more than its capacity.)  Unbounded queues
+     * do not count.  Iteration is over a snapshot, as in
+     * PriorityBlockingQueue.
+     */
+    static final class WorkStealingQueue extends AbstractQueue<Runnable>
+        implements BlockingQueue<Runnable> {
+
+        /** Number of CPUS, to place bound on table size */
+        static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * A lane: a FIFO of tasks guarded by the lane itself.
+         * The size field is volatile so that sweeps can skip empty
+         * lanes without locking them.
+         */
+        @sun.misc.Contended static final class Lane extends ReentrantLock {
+            private static final long serialVersionUID = -2479577540566432151L;
+            final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+            volatile int size;
+        }
+
+        private final Lane[] lanes;
+        private final int capacity;
+        /** Number of tasks added and not yet removed; null if unbounded */
+        private final AtomicInteger count;
+
+        /** Lock held by waiting takers and putters */
+        private final ReentrantLock waitLock = new ReentrantLock();
+        private final Condition notEmpty = waitLock.newCondition();
+        private final Condition notFull = waitLock.newCondition();
+        private volatile int takeWaiters;
+        private volatile int putWaiters;
+
+        WorkStealingQueue(int capacity, int parallelism) {
+            if (capacity <= 0)
+                throw new IllegalArgumentException();
+            int n = 1;
+            while (n < parallelism && n < (1 << 16))
+                n <<= 1;
+            Lane[] ls = new Lane[n];
+            for (int i = 0; i < n; ++i)
+                ls[i] = new Lane();
+            this.lanes = ls;
+            this.capacity = capacity;
+            this.count = (capacity == Integer.MAX_VALUE) ?
+                null : new AtomicInteger();
+        }
+
+        /**
+         * Reserves room for one task, returning false if the queue is
+         * full.
+         */
+        private boolean reserve() {
+            AtomicInteger ct = count;
+            if (ct != null) {
+                for (int c;;) {
+                    if ((c = ct.get()) >= capacity)
+                        return false;
+                    if (ct.compareAndSet(c, c + 1))
+                        break;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Releases the room of n removed tasks.
+         */
+        private void release(int n) {
+            AtomicInteger ct = count;
+            if (ct != null && n != 0)
+                ct.addAndGet(-n);
+        }
+
+        /**
+         * Returns the current thread's probe, initializing it if needed.
+         */
+        private static int probe() {
+            int h;
+            if ((h = ThreadLocalRandom.getProbe()) == 0) {
+                ThreadLocalRandom.localInit();
+                h = ThreadLocalRandom.getProbe();
+            }
+            return h;
+        }
+
+        /**
+         * Tries to add e to some lane, starting with the caller's own,
+         * returning false only if the queue is full.  Contended lanes
+         * are skipped; if every lane was contended, the caller waits
+         * for its own.
+         */
+        private boolean tryEnqueue(Runnable e) {
+            if (!reserve())
+                return false;
+            Lane[] ls = lanes;
+            int m = ls.length - 1, h = probe();
+            for (int i = 0; i <= m; ++i) {
+                Lane l = ls[(h + i) & m];
+                if (l.tryLock()) {
+                    try {
+                        l.tasks.addLast(e);
+                        l.size = l.size + 1;
+                    } finally {
+                        l.unlock();
+                    }
+                    if (i != 0)
+                        ThreadLocalRandom.advanceProbe(h);
+                    return true;
+                }
+            }
+            Lane l = ls[h & m];
+            l.lock();
+            try {
+                l.tasks.addLast(e);
+                l.size = l.size + 1;
+            } finally {
+                l.unlock();
+            }
+            ThreadLocalRandom.advanceProbe(h);
+            return true;
+        }
+
+        /**
+         * Takes the oldest task of the caller's lane, or else steals
+         * one from another lane.  Returns null only if a full sweep
+         * found every lane empty.
+         */
+        private Runnable tryDequeue() {
+            Lane[] ls = lanes;
+            int m = ls.length - 1, h = probe();
+            for (boolean contended = true; contended; ) {
+                contended = false;
+                for (int i = 0; i <= m; ++i) {
+                    Lane l = ls[(h + i) & m];
+                    if (l.size == 0)
+                        continue;
+                    if (!l.tryLock()) {
+                        contended = true;
+                        continue;
+                    }
+                    Runnable r;
+                    try {
+                        if ((r = l.tasks.pollFirst()) != null)
+                            l.size = l.size - 1;
+                    } finally {
+                        l.unlock();
+                    }
+                    if (r != null) {
+                        release(1);
+                        return r;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private void signalNotEmpty() {
+            final ReentrantLock lock = this.waitLock;
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void signalNotFull() {
+            final ReentrantLock lock = this.waitLock;
+            lock.lock();
+            try {
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean offer(Runnable e) {
+            if (e == null) throw new NullPointerException();
+            if (!tryEnqueue(e))
+                return false;
+            if (takeWaiters > 0)
+                signalNotEmpty();
+            return true;
+        }
+
+        public Runnable poll() {
+            Runnable r = tryDequeue();
+            if (r != null && putWaiters > 0)
+                signalNotFull();
+            return r;
+        }
+
+        public void put(Runnable e) throws InterruptedException {
+            if (!offer(e, Long.MAX_VALUE, TimeUnit.NANOSECONDS))
+                throw new InterruptedException(); // not reached
+        }
+
+        public boolean offer(Runnable e, long timeout, TimeUnit unit)
+            throws InterruptedException {
+            if (e == null) throw new NullPointerException();
+            if (!offer(e)) {
+                long nanos = unit.toNanos(timeout);
+                final ReentrantLock lock = this.waitLock;
+                lock.lockInterruptibly();
+                try {
+                    ++putWaiters;
+                    try {
+                        while (!tryEnqueue(e)) {
+                            if (nanos <= 0)
+                                return false;
+                            if (nanos == Long.MAX_VALUE)
+                                ForkJoinPool.managedAwait(notFull);
+                            else
+                                nanos = ForkJoinPool.managedAwaitNanos
+                                    (notFull, nanos);
+                        }
+                    } finally {
+                        --putWaiters;
+                    }
+                    if (takeWaiters > 0)
+                        notEmpty.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return true;
+        }
+
+        public Runnable take() throws InterruptedException {
+            Runnable r = poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            if (r == null)
+                throw new InterruptedException(); // not reached
+            return r;
+        }
+
+        public Runnable poll(long timeout, TimeUnit unit)
+            throws InterruptedException {
+            Runnable r;
+            if ((r = poll()) == null) {
+                long nanos = unit.toNanos(timeout);
+                final ReentrantLock lock = this.waitLock;
+                lock.lockInterruptibly();
+                try {
+                    ++takeWaiters;
+                    try {
+                        while ((r = tryDequeue()) == null) {
+                            if (nanos <= 0)
+                                return null;
+                            if (nanos == Long.MAX_VALUE)
+                                ForkJoinPool.managedAwait(notEmpty);
+                            else
+                                nanos = ForkJoinPool.managedAwaitNanos
+                                    (notEmpty, nanos);
+                        }
+                    } finally {
+                        --takeWaiters;
+                    }
+                    if (putWaiters > 0)
+                        notFull.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return r;
+        }
+
+        public Runnable peek() {
+            for (Lane l : lanes) {
+                if (l.size != 0) {
+                    l.lock();
+                    try {
+                        Runnable r = l.tasks.peekFirst();
+                        if (r != null)
+                            return r;
+                    } finally {
+                        l.unlock();
+                    }
+                }
+            }
+            return null;
+        }
+
+        public int size() {
+            long n = 0L;
+            for (Lane l : lanes)
+                n += l.size;
+            return (n >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)n;
+        }
+
+        public boolean isEmpty() {
+            for (Lane l : lanes) {
+                if (l.size != 0)
+                    return false;
+            }
+            return true;
+        }
+
+        public int remainingCapacity() {
+            AtomicInteger ct = count;
+            return (ct == null) ?
+                Integer.MAX_VALUE : Math.max(0, capacity - ct.get());
+        }
+
+        public boolean remove(Object o) {
+            if (o != null) {
+                for (Lane l : lanes) {
+                    boolean removed;
+                    l.lock();
+                    try {
+                        if (removed = l.tasks.removeFirstOccurrence(o))
+                            l.size = l.size - 1;
+                    } finally {
+                        l.unlock();
+                    }
+                    if (removed) {
+                        release(1);
+                        if (putWaiters > 0)
+                            signalNotFull();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        public boolean contains(Object o) {
+            if (o != null) {
+                for (Lane l : lanes) {
+                    l.lock();
+                    try {
+                        if (l.tasks.contains(o))
+                            return true;
+                    } finally {
+                        l.unlock();
+                    }
+                }
+            }
+            return false;
+        }
+
+        public void clear() {
+            for (Lane l : lanes) {
+                int n;
+                l.lock();
+                try {
+                    n = l.tasks.size();
+                    l.tasks.clear();
+                    l.size = 0;
+                } finally {
+                    l.unlock();
+                }
+                release(n);
+            }
+            if (putWaiters > 0) {
+                final ReentrantLock lock = this.waitLock;
+                lock.lock();
+                try {
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        public Object[] toArray() {
+            ArrayList<Runnable> a = new ArrayList<Runnable>();
+            for (Lane l : lanes) {
+                l.lock();
+                try {
+                    a.addAll(l.tasks);
+                } finally {
+                    l.unlock();
+                }
+            }
+            return a.toArray();
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T[] toArray(T[] a) {
+            Object[] es = toArray();
+            int n = es.length;
+            if (a.length < n)
+                return (T[]) Arrays.copyOf(es, n, a.getClass());
+            System.arraycopy(es, 0, a, 0, n);
+            if (a.length > n)
+                a[n] = null;
+            return a;
+        }
+
+        public int drainTo(Collection<? super Runnable> c) {
+            return drainTo(c, Integer.MAX_VALUE);
+        }
+
+        public int drainTo(Collection<? super Runnable> c, int maxElements) {
+            if (c == null)
+                throw new NullPointerException();
+            if (c == this)
+                throw new IllegalArgumentException();
+            int n = 0;
+            try {
+                for (Lane l : lanes) {
+                    if (n >= maxElements)
+                        break;
+                    l.lock();
+                    try {
+                        Runnable r;
+                        while (n < maxElements &&
+                               (r = l.tasks.pollFirst()) != null) {
+                            l.size = l.size - 1;
+                            ++n;
+                            c.add(r);
+                        }
+                    } finally {
+                        l.unlock();
+                    }
+                }
+            } finally {
+                release(n);
+            }
+            if (n > 0 && putWaiters > 0) {
+                final ReentrantLock lock = this.waitLock;
+                lock.lock();
+                try {
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return n;
+        }
+
+        /**
+         * Returns an iterator over a snapshot of the tasks in this
+         * queue, in lane order.  The iterator's remove method removes
+         * the corresponding task from the queue if still present.
+         */
+        public Iterator<Runnable> iterator() {
+            final Object[] array = toArray();
+            return new Iterator<Runnable>() {
+                int cursor;
+                int lastRet = -1;
+                public boolean hasNext() {
+                    return cursor < array.length;
+                }
+                public Runnable next() {
+                    if (cursor >= array.length)
+                        throw new NoSuchElementException();
+                    lastRet = cursor;
+                    return (Runnable)array[cursor++];
+                }
+                public void remove() {
+                    if (lastRet < 0)
+                        throw new IllegalStateException();
+                    WorkStealingQueue.this.remove(array[lastRet]);
+                    lastRet = -1;
+                }
+            };
+        }
+    }
+
     /* Predefined RejectedExecutionHandlers */
 
     /**
@@ -0,0 +1,873 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.*;
+
+/**
+ * A {@link ScheduledExecutorService} that keeps delayed tasks in a
+ * hierarchical timing wheel, and hands each task to a pool of worker
+ * threads when its delay elapses.  Scheduling and cancelling a task
+ * take constant time regardless of the number of pending tasks, and
+ * cancelled tasks are unlinked promptly, so this class is preferable
+ * to {@link ScheduledThreadPoolExecutor} when there are very many
+ * pending tasks (for example, timeouts) most of which are cancelled
+ * before they fire.
+ *
+ * <p>Time is divided into <em>ticks</em> of a duration given at
+ * construction.  A single timer thread advances the wheel once per
+ * tick, and a task is enabled at the first tick boundary at or after
+ * its trigger time.  Delayed tasks therefore execute no sooner than
+ * they are enabled, but may be enabled up to one tick late (and
+ * later still if the timer thread is delayed).  Tasks enabled at the
+ * same tick are submitted to the workers in no particular order.  A
+ * coarser tick reduces the overhead of the timer thread; a finer
+ * tick improves precision.
+ *
+ * <p>When a submitted task is cancelled before it is run, execution
+ * is suppressed, and the task is removed from the wheel at the next
+ * tick.  Tasks scheduled with a delay of zero or less, and tasks
+ * submitted via {@code execute} or {@code submit}, bypass the wheel
+ * and go directly to the workers.
+ *
+ * <p>Successive executions of a periodic task scheduled via {@link
+ * #scheduleAtFixedRate scheduleAtFixedRate} or {@link
+ * #scheduleWithFixedDelay scheduleWithFixedDelay} do not overlap.
+ *
+ * <p>After {@link #shutdown}, periodic tasks are cancelled and
+ * pending delayed tasks still run when enabled, as with the default
+ * policies of {@code ScheduledThreadPoolExecutor}.  The executor
+ * terminates once no delayed tasks remain and the workers are idle.
+ *
+ * @since 1.8
+ */
+public class TimingWheelScheduledExecutor extends AbstractExecutorService
+        implements ScheduledExecutorService {
+
+    /*
+     * Implementation overview.
+     *
+     * The wheel has LEVELS levels of SLOTS buckets each.  Ticks are
+     * counted from the time the executor was created.  A task
+     * enabled at tick d, when the wheel is at tick c < d, lives at
+     * the level of the highest SLOT_BITS-sized digit in which d and c
+     * differ, in the bucket indexed by d's digit at that level.  Each
+     * time the wheel advances to a tick c whose level-l digits (and
+     * all lower digits) are zero, the bucket for c's level-l digit is
+     * "cascaded": its tasks are re-placed, which moves them to a
+     * lower level or enables them.  Level 0 buckets hold only tasks
+     * due at exactly their tick.  So each task is touched at most
+     * LEVELS times in total, and each tick costs O(1) amortized
+     * beyond the tasks that it enables.  Eleven levels of 64 slots
+     * cover every positive long tick count.
+     *
+     * Buckets are intrusive doubly-linked lists, and the wheel is
+     * accessed only by the timer thread.  Other threads communicate
+     * with it via two lock-free queues: tasks to add (newly scheduled
+     * or periodic tasks being re-armed), and tasks that have been
+     * cancelled and should be unlinked.  This makes schedule and
+     * cancel O(1) and free of locks.  The timer thread drains both
+     * queues at each tick.  When the wheel is empty, the timer thread
+     * parks without a timeout; producers unpark it if they see it is
+     * idle.  (The idle flag and the add queue are each written before
+     * the other is read, so one of the two sides always sees the
+     * other.)
+     *
+     * Lifecycle: runState only increases, under mainLock.  The timer
+     * thread is started on the first delayed schedule.  On shutdown
+     * it cancels periodic tasks and exits once the wheel and the add
+     * queue are empty; on shutdownNow it exits at once, leaving the
+     * remaining tasks for shutdownNow to return.  It then shuts down
+     * the worker pool.  A task added while another thread shuts down
+     * the executor is removed again by its adder if the timer thread
+     * might have missed it.
+     */
+
+    /** Number of bits of tick count per wheel level */
+    private static final int SLOT_BITS = 6;
+
+    /** Number of buckets per wheel level */
+    private static final int SLOTS = 1 << SLOT_BITS;
+
+    /** Mask for bucket indices */
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    /** Number of levels needed to cover all long tick counts */
+    private static final int LEVELS = (64 + SLOT_BITS - 1) / SLOT_BITS;
+
+    // runState values
+    private static final int RUNNING    = 0;
+    private static final int SHUTDOWN   = 1;
+    private static final int STOP       = 2;
+
+    /**
+     * Sequence number to break scheduling ties in compareTo.
+     */
+    private static final AtomicLong sequencer = new AtomicLong();
+
+    /** The duration of a tick in nanoseconds */
+    private final long tickNanos;
+
+    /** The nanoTime at tick zero */
+    private final long origin;
+
+    /** The pool running enabled tasks */
+    private final ThreadPoolExecutor workers;
+
+    /** Factory for the timer thread */
+    private final ThreadFactory threadFactory;
+
+    /** Lock held on lifecycle transitions */
+    private final ReentrantLock mainLock = new ReentrantLock();
+
+    /** Released when the timer thread has exited (or was never needed) */
+    private final CountDownLatch timerDone = new CountDownLatch(1);
+
+    /** Tasks to be placed in the wheel by the timer thread */
+    private final ConcurrentLinkedQueue<WheelTask<?>> additions =
+        new ConcurrentLinkedQueue<WheelTask<?>>();
+
+    /** Cancelled tasks to be unlinked by the timer thread */
+    private final ConcurrentLinkedQueue<WheelTask<?>> cancellations =
+        new ConcurrentLinkedQueue<WheelTask<?>>();
+
+    /** The timer thread, or null if not yet started; set under mainLock */
+    private volatile Thread timer;
+
+    /** True while the timer thread is parked with an empty wheel */
+    private volatile boolean timerIdle;
+
+    /** RUNNING, SHUTDOWN or STOP */
+    private volatile int runState;
+
+    // Fields accessed only by the timer thread
+
+    /** Bucket heads, indexed by level * SLOTS + slot */
+    private final WheelTask<?>[] buckets = new WheelTask<?>[LEVELS * SLOTS];
+
+    /** The last tick processed */
+    private long currentTick;
+
+    /** Number of tasks in the wheel */
+    private long wheelCount;
+
+    /** Tasks left in the wheel by the timer thread on shutdownNow */
+    private List<Runnable> stranded;
+
+    private class WheelTask<V>
+            extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+        /** Sequence number to break ties FIFO */
+        private final long sequenceNumber;
+
+        /** The time the task is enabled to execute in nanoTime units */
+        private long time;
+
+        /**
+         * Period in nanoseconds for repeating tasks.  A positive
+         * value indicates fixed-rate execution.  A negative value
+         * indicates fixed-delay execution.  A value of 0 indicates a
+         * non-repeating task.
+         */
+        private final long period;
+
+        /** Bucket links; accessed only by the timer thread */
+        WheelTask<?> prev, next;
+
+        /**
+         * Index of the bucket holding this task, or -1 if none.
+         * Written only by the timer thread; volatile so that a task
+         * linked concurrently with its cancellation is seen as linked
+         * either by cancel or by place.
+         */
+        volatile int bucket = -1;
+
+        /**
+         * Creates a one-shot action with given nanoTime-based trigger time.
+         */
+        WheelTask(Runnable r, V result, long ns) {
+            super(r, result);
+            this.time = ns;
+            this.period = 0;
+            this.sequenceNumber = sequencer.getAndIncrement();
+        }
+
+        /**
+         * Creates a periodic action with given nano time and period.
+         */
+        WheelTask(Runnable r, V result, long ns, long period) {
+            super(r, result);
+            this.time = ns;
+            this.period = period;
+            this.sequenceNumber = sequencer.getAndIncrement();
+        }
+
+        /**
+         * Creates a one-shot action with given nanoTime-based trigger time.
+         */
+        WheelTask(Callable<V> callable, long ns) {
+            super(callable);
+            this.time = ns;
+            this.period = 0;
+            this.sequenceNumber = sequencer.getAndIncrement();
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - System.nanoTime(), NANOSECONDS);
+        }
+
+        public int compareTo(Delayed other) {
+            if (other == this) // compare zero if same object
+                return 0;
+            if (other instanceof WheelTask) {
+                WheelTask<?> x = (WheelTask<?>)other;
+                long diff = time - x.time;
+                if (diff < 0)
+                    return -1;
+                else if (diff > 0)
+                    return 1;
+                else if (sequenceNumber < x.sequenceNumber)
+                    return -1;
+                else
+                    return 1;
+            }
+            long diff = getDelay(NANOSECONDS) - other.getDelay(NANOSECONDS);
+            return (diff < 0) ? -1 : (diff > 0) ? 1 : 0;
+        }
+
+        /**
+         * Returns {@code true} if this is a periodic (not a one-shot) action.
+         *
+         * @return {@code true} if periodic
+         */
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        /**
+         * Returns the tick at which this task is enabled.
+         */
+        long deadlineTick() {
+            long d = time - origin;
+            return (d <= 0L) ? 0L : (d - 1L) / tickNanos + 1L;
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && bucket >= 0) {
+                cancellations.offer(this);
+                wakeTimer();
+            }
+            return cancelled;
+        }
+
+        /**
+         * Overrides FutureTask version so as to reset and re-arm if
+         * periodic.
+         */
+        public void run() {
+            boolean periodic = isPeriodic();
+            if (periodic && runState != RUNNING)
+                cancel(false);
+            else if (!periodic)
+                WheelTask.super.run();
+            else if (WheelTask.super.runAndReset()) {
+                long p = period;
+                if (p > 0)
+                    time += p;
+                else
+                    time = triggerTime(-p);
+                add(this);
+            }
+        }
+    }
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the
+     * given number of worker threads and tick duration.
+     *
+     * @param corePoolSize the number of threads to run enabled tasks
+     * @param tickDuration the duration of a tick
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @throws IllegalArgumentException if {@code corePoolSize <= 0}
+     *         or {@code tickDuration <= 0}
+     * @throws NullPointerException if {@code unit} is null
+     */
+    public TimingWheelScheduledExecutor(int corePoolSize,
+                                        long tickDuration,
+                                        TimeUnit unit) {
+        this(corePoolSize, tickDuration, unit,
+             Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the
+     * given initial parameters.  The thread factory is used for the
+     * timer thread as well as for the worker threads.
+     *
+     * @param corePoolSize the number of threads to run enabled tasks
+     * @param tickDuration the duration of a tick
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @param threadFactory the factory to use when the executor
+     *        creates a new thread
+     * @throws IllegalArgumentException if {@code corePoolSize <= 0}
+     *         or {@code tickDuration <= 0}
+     * @throws NullPointerException if {@code unit} or
+     *         {@code threadFactory} is null
+     */
+    public TimingWheelScheduledExecutor(int corePoolSize,
+                                        long tickDuration,
+                                        TimeUnit unit,
+                                        ThreadFactory threadFactory) {
+        if (unit == null || threadFactory == null)
+            throw new NullPointerException();
+        long tick = unit.toNanos(tickDuration);
+        if (corePoolSize <= 0 || tick <= 0L)
+            throw new IllegalArgumentException();
+        this.tickNanos = tick;
+        this.threadFactory = threadFactory;
+        this.workers = new ThreadPoolExecutor
+            (corePoolSize, corePoolSize, 0L, NANOSECONDS,
+             new LinkedBlockingQueue<Runnable>(), threadFactory);
+        this.origin = System.nanoTime();
+    }
+
+    /**
+     * Returns the tick duration of this executor.
+     *
+     * @param unit the time unit of the result
+     * @return the tick duration, in the given unit
+     */
+    public long getTickDuration(TimeUnit unit) {
+        return unit.convert(tickNanos, NANOSECONDS);
+    }
+
+    /**
+     * Returns the trigger time of a delayed action.
+     */
+    private long triggerTime(long delay, TimeUnit unit) {
+        return triggerTime(unit.toNanos((delay < 0) ? 0 : delay));
+    }
+
+    /**
+     * Returns the trigger time of a delayed action.
+     */
+    long triggerTime(long delay) {
+        return System.nanoTime() +
+            ((delay < (Long.MAX_VALUE >> 1)) ? delay : (Long.MAX_VALUE >> 1));
+    }
+
+    /**
+     * Unparks the timer thread if it is waiting with an empty wheel.
+     */
+    final void wakeTimer() {
+        Thread t;
+        if (timerIdle && (t = timer) != null)
+            LockSupport.unpark(t);
+    }
+
+    /**
+     * Starts the timer thread if not already started.
+     *
+     * @return false if the executor has been shut down
+     */
+    private boolean ensureTimer() {
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (runState != RUNNING)
+                return false;
+            if (timer == null) {
+                Thread t = threadFactory.newThread(new Runnable() {
+                        public void run() { runTimer(); }});
+                if (t == null)
+                    throw new RejectedExecutionException();
+                t.start();
+                timer = t;
+            }
+            return true;
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    /**
+     * Hands an enabled task to the workers, cancelling it if they
+     * have been shut down.
+     */
+    private void enable(WheelTask<?> t) {
+        try {
+            workers.execute(t);
+        } catch (RejectedExecutionException ex) {
+            t.cancel(false);
+        }
+    }
+
+    /**
+     * Main execution method for delayed or periodic tasks.  Hands
+     * one-shot tasks that are already due to the workers, and queues
+     * others for the timer thread, starting it if necessary.  If the
+     * executor is shut down while the task is being added, and the
+     * timer thread may not have seen the task, removes and cancels it.
+     *
+     * @param t the task
+     */
+    private void delayedExecute(WheelTask<?> t) {
+        if (runState != RUNNING)
+            throw new RejectedExecutionException();
+        if (!t.isPeriodic() && t.time - System.nanoTime() <= 0L)
+            workers.execute(t);
+        else if (timer == null && !ensureTimer())
+            throw new RejectedExecutionException();
+        else
+            add(t);
+    }
+
+    /**
+     * Queues a task for placement in the wheel, or cancels it if the
+     * executor is shutting down and the timer thread may have exited.
+     */
+    final void add(WheelTask<?> t) {
+        additions.offer(t);
+        if (runState != RUNNING) {
+            if (additions.remove(t))
+                t.cancel(false);
+        }
+        else
+            wakeTimer();
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public ScheduledFuture<?> schedule(Runnable command,
+                                       long delay,
+                                       TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        WheelTask<Void> t =
+            new WheelTask<Void>(command, null, triggerTime(delay, unit));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable,
+                                           long delay,
+                                           TimeUnit unit) {
+        if (callable == null || unit == null)
+            throw new NullPointerException();
+        WheelTask<V> t =
+            new WheelTask<V>(callable, triggerTime(delay, unit));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command,
+                                                  long initialDelay,
+                                                  long period,
+                                                  TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (period <= 0)
+            throw new IllegalArgumentException();
+        WheelTask<Void> t =
+            new WheelTask<Void>(command,
+                                null,
+                                triggerTime(initialDelay, unit),
+                                unit.toNanos(period));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command,
+                                                     long initialDelay,
+                                                     long delay,
+                                                     TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (delay <= 0)
+            throw new IllegalArgumentException();
+        WheelTask<Void> t =
+            new WheelTask<Void>(command,
+                                null,
+                                triggerTime(initialDelay, unit),
+                                unit.toNanos(-delay));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * Executes {@code command} with zero required delay, by handing
+     * it directly to the worker threads.
+     *
+     * @throws RejectedExecutionException if the task cannot be
+     *         accepted for execution because the executor has been
+     *         shut down
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void execute(Runnable command) {
+        if (command == null)
+            throw new NullPointerException();
+        if (runState != RUNNING)
+            throw new RejectedExecutionException();
+        workers.execute(command);
+    }
+
+    // Timer thread
+
+    /**
+     * Links t into the wheel, or enables it if already due.
+     */
+    private void place(WheelTask<?> t) {
+        if (t.isDone())
+            return;
+        if (t.isPeriodic() && runState != RUNNING) {
+            t.cancel(false);
+            return;
+        }
+        long c = currentTick, d = t.deadlineTick();
+        if (d <= c) {
+            enable(t);
+            return;
+        }
+        int level = (63 - Long.numberOfLeadingZeros(d ^ c)) / SLOT_BITS;
+        int b = (level << SLOT_BITS) +
+            ((int)(d >>> (level * SLOT_BITS)) & SLOT_MASK);
+        WheelTask<?> h = buckets[b];
+        t.prev = null;
+        t.next = h;
+        if (h != null)
+            h.prev = t;
+        buckets[b] = t;
+        t.bucket = b;
+        ++wheelCount;
+        if (t.isCancelled())            // may have missed cancellation
+            cancellations.offer(t);
+    }
+
+    /**
+     * Removes t from its bucket, if linked.
+     */
+    private void unlink(WheelTask<?> t) {
+        int b = t.bucket;
+        if (b >= 0) {
+            WheelTask<?> p = t.prev, n = t.next;
+            if (p == null)
+                buckets[b] = n;
+            else
+                p.next = n;
+            if (n != null)
+                n.prev = p;
+            t.prev = t.next = null;
+            t.bucket = -1;
+            --wheelCount;
+        }
+    }
+
+    /**
+     * Detaches and returns the list of tasks in bucket b.
+     */
+    private WheelTask<?> detach(int b) {
+        WheelTask<?> h = buckets[b];
+        if (h != null) {
+            buckets[b] = null;
+            for (WheelTask<?> t = h; t != null; t = t.next) {
+                t.bucket = -1;
+                --wheelCount;
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Advances the wheel by one tick, cascading higher levels as
+     * needed and enabling the tasks due at the new tick.
+     */
+    private void advance() {
+        long c = ++currentTick;
+        int top = 0;
+        while (top < LEVELS - 1 &&
+               (c & ((1L << ((top + 1) * SLOT_BITS)) - 1L)) == 0L)
+            ++top;
+        for (int level = top; level >= 0; --level) {
+            int b = (level << SLOT_BITS) +
+                ((int)(c >>> (level * SLOT_BITS)) & SLOT_MASK);
+            WheelTask<?> t = detach(b), n;
+            for (; t != null; t = n) {
+                n = t.next;
+                t.prev = t.next = null;
+                if (level == 0) {
+                    if (!t.isDone())
+                        enable(t);
+                }
+                else
+                    place(t);
+            }
+        }
+    }
+
+    /**
+     * Places added tasks and unlinks cancelled ones.
+     */
+    private void drainQueues() {
+        WheelTask<?> t;
+        while ((t = additions.poll()) != null)
+            place(t);
+        while ((t = cancellations.poll()) != null)
+            unlink(t);
+    }
+
+    /**
+     * Cancels and unlinks all periodic tasks in the wheel.
+     */
+    private void cancelPeriodicTasks() {
+        for (int b = 0; b < buckets.length; ++b) {
+            WheelTask<?> t = buckets[b], n;
+            for (; t != null; t = n) {
+                n = t.next;
+                if (t.isPeriodic()) {
+                    unlink(t);
+                    t.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Main loop of the timer thread.
+     */
+    final void runTimer() {
+        boolean shutdownSeen = false;
+        try {
+            for (;;) {
+                drainQueues();
+                int rs = runState;
+                if (rs == STOP)
+                    break;
+                if (rs == SHUTDOWN) {
+                    if (!shutdownSeen) {
+                        shutdownSeen = true;
+                        cancelPeriodicTasks();
+                    }
+                    if (wheelCount == 0L && additions.isEmpty())
+                        break;
+                }
+                long now = System.nanoTime();
+                long target = (now - origin) / tickNanos;
+                if (wheelCount == 0L) {
+                    if (target > currentTick)
+                        currentTick = target;   // nothing to cascade
+                    timerIdle = true;
+                    if (additions.isEmpty() && runState == rs)
+                        LockSupport.park(this);
+                    timerIdle = false;
+                    continue;
+                }
+                while (currentTick < target && wheelCount != 0L)
+                    advance();
+                if (currentTick < target)
+                    currentTick = target;
+                if (wheelCount != 0L) {
+                    long wait = origin + (currentTick + 1L) * tickNanos -
+                        System.nanoTime();
+                    if (wait > 0L)
+                        LockSupport.parkNanos(this, wait);
+                }
+                Thread.interrupted();           // clear spurious interrupt
+            }
+        } finally {
+            if (runState == STOP) {
+                ArrayList<Runnable> list = new ArrayList<Runnable>();
+                for (int b = 0; b < buckets.length; ++b) {
+                    WheelTask<?> t = detach(b), n;
+                    for (; t != null; t = n) {
+                        n = t.next;
+                        t.prev = t.next = null;
+                        if (!t.isDone())
+                            list.add(t);
+                    }
+                }
+                WheelTask<?> t;
+                while ((t = additions.poll()) != null) {
+                    if (!t.isDone())
+                        list.add(t);
+                }
+                stranded = list;
+            }
+            workers.shutdown();
+            timerDone.countDown();
+        }
+    }
+
+    // Lifecycle
+
+    /**
+     * Initiates an orderly shutdown in which previously submitted
+     * tasks are executed, but no new tasks will be accepted.
+     * Periodic tasks are cancelled; delayed tasks are executed when
+     * enabled.  Invocation has no additional effect if already shut
+     * down.
+     *
+     * <p>This method does not wait for previously submitted tasks to
+     * complete execution.  Use {@link #awaitTermination awaitTermination}
+     * to do that.
+     *
+     * @throws SecurityException {@inheritDoc}
+     */
+    public void shutdown() {
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (runState == RUNNING)
+                runState = SHUTDOWN;
+            if (timer == null) {
+                workers.shutdown();
+                timerDone.countDown();
+            }
+        } finally {
+            mainLock.unlock();
+        }
+        Thread t;
+        if ((t = timer) != null)
+            LockSupport.unpark(t);
+    }
+
+    /**
+     * Attempts to stop all actively executing tasks, halts the
+     * processing of waiting tasks, and returns a list of the tasks
+     * that were awaiting execution.  These tasks are drained (removed)
+     * from the wheel and the worker queue upon return from this
+     * method.
+     *
+     * <p>This method waits for the timer thread to stop, but does not
+     * wait for actively executing tasks to terminate.  Use {@link
+     * #awaitTermination awaitTermination} to do that.
+     *
+     * <p>There are no guarantees beyond best-effort attempts to stop
+     * processing actively executing tasks.  This implementation
+     * interrupts tasks via {@link Thread#interrupt}; any task that
+     * fails to respond to interrupts may never terminate.
+     *
+     * @return list of tasks that never commenced execution.  Tasks
+     *         scheduled using the {@code schedule} methods are listed
+     *         as their {@link ScheduledFuture}s.  Tasks submitted using
+     *         {@code execute} or {@code submit}, which bypass the
+     *         wheel, are listed as handed to the workers: the command
+     *         itself for {@code execute}, and a {@link Future} for
+     *         {@code submit}.
+     * @throws SecurityException {@inheritDoc}
+     */
+    public List<Runnable> shutdownNow() {
+        final ReentrantLock mainLock = this.mainLock;
+        Thread t;
+        mainLock.lock();
+        try {
+            runState = STOP;
+            if ((t = timer) == null) {
+                workers.shutdown();
+                timerDone.countDown();
+            }
+        } finally {
+            mainLock.unlock();
+        }
+        ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+        if (t != null) {
+            LockSupport.unpark(t);
+            boolean interrupted = false;
+            for (;;) {
+                try {
+                    timerDone.await();
+                    break;
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+            if (stranded != null)
+                tasks.addAll(stranded);
+        }
+        tasks.addAll(workers.shutdownNow());
+        return tasks;
+    }
+
+    public boolean isShutdown() {
+        return runState != RUNNING;
+    }
+
+    public boolean isTerminated() {
+        return timerDone.getCount() == 0L && workers.isTerminated();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!timerDone.await(timeout, unit))
+            return false;
+        return workers.awaitTermination(deadline - System.nanoTime(),
+                                        NANOSECONDS);
+    }
+
+    /**
+     * Returns a string identifying this executor, as well as its
+     * state, including indications of run state and the estimated
+     * number of worker threads and active tasks.
+     *
+     * @return a string identifying this executor, as well as its state
+     */
+    public String toString() {
+        int rs = runState;
+        String rsText =
+            isTerminated() ? "Terminated" :
+            (rs == RUNNING) ? "Running" : "Shutting down";
+        return super.toString() +
+            "[" + rsText +
+            ", tick = " + tickNanos + "ns" +
+            ", pool size = " + workers.getPoolSize() +
+            ", active threads = " + workers.getActiveCount() +
+            ", queued tasks = " + workers.getQueue().size() +
+            ", completed tasks = " + workers.getCompletedTaskCount() +
+            "]";
+    }
+}
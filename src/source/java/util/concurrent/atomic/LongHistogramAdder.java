@@ -0,0 +1,726 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.atomic;
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One or more arrays of counters that together maintain a histogram
+ * of recorded non-negative {@code long} values, such as latencies.
+ * As with {@link LongAdder}, when updates (method {@link #record}) are
+ * contended across threads, the set of arrays may grow dynamically to
+ * reduce contention, so that recording a value costs about as much as
+ * {@link LongAdder#increment}.  Methods {@link #snapshot} and {@link
+ * #intervalSnapshot} combine the arrays into a {@link Snapshot}
+ * supporting counts, means and percentiles.
+ *
+ * <p>Values are counted in buckets whose width grows with their
+ * magnitude: each power-of-two range is divided into
+ * 2<sup>{@code precisionBits}</sup> equal sub-ranges, so that
+ * values are resolved to within a relative error of
+ * 2<sup>-{@code precisionBits}</sup>, and values less than
+ * 2<sup>{@code precisionBits}</sup> are counted exactly.  The number
+ * of buckets, and so the footprint of each array, is
+ * {@code (64 - precisionBits) << precisionBits}.
+ *
+ * <p>Unlike {@link LongAdder#sumThenReset}, which may lose updates
+ * made between reading and clearing a variable, {@link
+ * #intervalSnapshot} never resets the underlying counters.  Each
+ * interval is instead computed as the difference from the previous
+ * interval's totals, so that every recorded value is reported in
+ * exactly one interval.  A value recorded concurrently with a
+ * snapshot may be reported in either that interval or the next,
+ * and its contribution to {@link Snapshot#getSum} may be reported
+ * one interval later than its count.
+ *
+ * <p>Sample usage, reporting request latencies once per period:
+ *
+ * <pre> {@code
+ * LongHistogramAdder latencies = new LongHistogramAdder();
+ * // in request handlers:
+ * latencies.record(System.nanoTime() - startTime);
+ * // in a periodic reporter:
+ * LongHistogramAdder.Snapshot s = latencies.intervalSnapshot();
+ * log(s.getCount(), s.getValueAtPercentile(50.0),
+ *     s.getValueAtPercentile(99.0), s.getMax());}</pre>
+ *
+ * <p>This class does <em>not</em> define methods such as {@code
+ * equals} and {@code hashCode} because instances are expected to be
+ * mutated.
+ *
+ * @since 1.8
+ */
+public class LongHistogramAdder implements Serializable {
+    private static final long serialVersionUID = -6155938296722104839L;
+
+    /*
+     * The representation follows Striped64, with arrays of counts in
+     * place of Cells: a base array, used when there is no contention,
+     * plus a lazily created table of arrays indexed by the Thread
+     * probe shared with Striped64 and ThreadLocalRandom.  Bucket
+     * counts are updated by CAS, so that failures indicate contention
+     * and trigger table creation, growth (up to the number of CPUs)
+     * and rehashing exactly as in Striped64.longAccumulate.  The sum
+     * of recorded values is then added to the same array without
+     * retry, since it is not used to detect contention.
+     *
+     * Each array is padded at both ends so that the counts of arrays
+     * that happen to be allocated adjacently do not share cache
+     * lines, which would otherwise defeat striping in the same way
+     * that unpadded Cells would.
+     *
+     * Counters are never reset while in use except by the explicitly
+     * racy reset method.  Interval snapshots keep the totals of the
+     * previous interval and report differences, under a lock that
+     * serializes interval snapshots with each other but not with
+     * recording.
+     */
+
+    /** Default number of sub-bucket bits */
+    private static final int DEFAULT_PRECISION = 4;
+
+    /** Maximum number of sub-bucket bits */
+    private static final int MAX_PRECISION = 10;
+
+    /** Number of longs of padding at each end of count arrays */
+    private static final int PAD = 16;
+
+    /** Number of sub-bucket bits */
+    final int precision;
+
+    /** Number of buckets */
+    final int buckets;
+
+    /** Index of the sum of recorded values in count arrays */
+    final int sumIndex;
+
+    /** Count array used when there is no contention */
+    final transient long[] base;
+
+    /** Table of count arrays.  When non-null, size is a power of 2 */
+    transient volatile long[][] stripes;
+
+    /** Spinlock (locked via CAS) used when resizing and/or creating stripes */
+    transient volatile int stripesBusy;
+
+    /** Totals as of the previous interval snapshot, guarded by this */
+    private transient long[] intervalTotals;
+
+    /**
+     * Creates a new histogram with no recorded values, resolving
+     * values to within a relative error of 1/16.
+     */
+    public LongHistogramAdder() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a new histogram with no recorded values, resolving
+     * values to within a relative error of
+     * 2<sup>-{@code precisionBits}</sup>.
+     *
+     * @param precisionBits the number of bits of each value, after
+     * its highest one bit, that are retained
+     * @throws IllegalArgumentException if {@code precisionBits} is
+     * negative or greater than 10
+     */
+    public LongHistogramAdder(int precisionBits) {
+        if (precisionBits < 0 || precisionBits > MAX_PRECISION)
+            throw new IllegalArgumentException();
+        this.precision = precisionBits;
+        this.buckets = (64 - precisionBits) << precisionBits;
+        this.sumIndex = PAD + buckets;
+        this.base = newCounts();
+    }
+
+    /**
+     * Returns the precision given at construction.
+     *
+     * @return the number of sub-bucket bits
+     */
+    public int getPrecisionBits() {
+        return precision;
+    }
+
+    private long[] newCounts() {
+        return new long[sumIndex + 1 + PAD];
+    }
+
+    /**
+     * Returns the bucket index for the given non-negative value.
+     */
+    static int bucketIndex(long value, int precision) {
+        int e = 63 - Long.numberOfLeadingZeros(value);
+        if (e < precision)
+            return (int)value;
+        int shift = e - precision;
+        return ((shift + 1) << precision) |
+            (int)((value >>> shift) & ((1L << precision) - 1));
+    }
+
+    /**
+     * Returns the least value counted in the given bucket.
+     */
+    static long lowerBound(int index, int precision) {
+        int k = index >>> precision;
+        if (k == 0)
+            return index;
+        int shift = k - 1;
+        long sub = index & ((1L << precision) - 1);
+        return (1L << (shift + precision)) | (sub << shift);
+    }
+
+    /**
+     * Returns the greatest value counted in the given bucket.
+     */
+    static long upperBound(int index, int precision) {
+        int k = index >>> precision;
+        return (k == 0) ? index :
+            lowerBound(index, precision) + ((1L << (k - 1)) - 1L);
+    }
+
+    /**
+     * Records the given value.
+     *
+     * @param value the value to record
+     * @throws IllegalArgumentException if {@code value} is negative
+     */
+    public void record(long value) {
+        record(value, 1L);
+    }
+
+    /**
+     * Records the given value {@code count} times.
+     *
+     * @param value the value to record
+     * @param count the number of occurrences
+     * @throws IllegalArgumentException if {@code value} or {@code count}
+     * is negative
+     */
+    public void record(long value, long count) {
+        if (value < 0L || count < 0L)
+            throw new IllegalArgumentException();
+        long off = ((long)(PAD + bucketIndex(value, precision)) << ASHIFT) +
+            ABASE;
+        long[][] as; long[] a; long v; int m;
+        if ((as = stripes) != null ||
+            !U.compareAndSwapLong(a = base, off,
+                                  v = U.getLongVolatile(a, off), v + count)) {
+            boolean uncontended = true;
+            if (as == null || (m = as.length - 1) < 0 ||
+                (a = as[Striped64.getProbe() & m]) == null ||
+                !(uncontended = U.compareAndSwapLong
+                  (a, off, v = U.getLongVolatile(a, off), v + count)))
+                a = accumulate(off, count, uncontended);
+        }
+        U.getAndAddLong(a, ((long)sumIndex << ASHIFT) + ABASE, value * count);
+    }
+
+    /**
+     * Handles cases of updates involving initialization, resizing,
+     * creating new stripes, and/or contention, as in
+     * Striped64.longAccumulate.
+     *
+     * @param off the offset of the bucket count
+     * @param x the count to add
+     * @param wasUncontended false if CAS failed before call
+     * @return the array in which the count was added
+     */
+    private long[] accumulate(long off, long x, boolean wasUncontended) {
+        int h;
+        if ((h = Striped64.getProbe()) == 0) {
+            ThreadLocalRandom.current(); // force initialization
+            h = Striped64.getProbe();
+            wasUncontended = true;
+        }
+        boolean collide = false;                // True if last slot nonempty
+        for (;;) {
+            long[][] as; long[] a; int n; long v;
+            if ((as = stripes) != null && (n = as.length) > 0) {
+                if ((a = as[(n - 1) & h]) == null) {
+                    if (stripesBusy == 0) {     // Try to attach new stripe
+                        long[] r = newCounts(); // Optimistically create
+                        U.putLong(r, off, x);
+                        if (stripesBusy == 0 && casStripesBusy()) {
+                            boolean created = false;
+                            try {               // Recheck under lock
+                                long[][] rs; int m, j;
+                                if ((rs = stripes) != null &&
+                                    (m = rs.length) > 0 &&
+                                    rs[j = (m - 1) & h] == null) {
+                                    rs[j] = r;
+                                    created = true;
+                                }
+                            } finally {
+                                stripesBusy = 0;
+                            }
+                            if (created)
+                                return r;
+                            continue;           // Slot is now non-empty
+                        }
+                    }
+                    collide = false;
+                }
+                else if (!wasUncontended)       // CAS already known to fail
+                    wasUncontended = true;      // Continue after rehash
+                else if (U.compareAndSwapLong(a, off,
+                                              v = U.getLongVolatile(a, off),
+                                              v + x))
+                    return a;
+                else if (n >= Striped64.NCPU || stripes != as)
+                    collide = false;            // At max size or stale
+                else if (!collide)
+                    collide = true;
+                else if (stripesBusy == 0 && casStripesBusy()) {
+                    try {
+                        if (stripes == as) {    // Expand table unless stale
+                            long[][] rs = new long[n << 1][];
+                            for (int i = 0; i < n; ++i)
+                                rs[i] = as[i];
+                            stripes = rs;
+                        }
+                    } finally {
+                        stripesBusy = 0;
+                    }
+                    collide = false;
+                    continue;                   // Retry with expanded table
+                }
+                h = Striped64.advanceProbe(h);
+            }
+            else if (stripesBusy == 0 && stripes == as && casStripesBusy()) {
+                long[] r = null;
+                try {                           // Initialize table
+                    if (stripes == as) {
+                        long[][] rs = new long[2][];
+                        rs[h & 1] = r = newCounts();
+                        U.putLong(r, off, x);
+                        stripes = rs;
+                    }
+                } finally {
+                    stripesBusy = 0;
+                }
+                if (r != null)
+                    return r;
+            }
+            else if (U.compareAndSwapLong(a = base, off,
+                                          v = U.getLongVolatile(a, off),
+                                          v + x))
+                return a;                       // Fall back on using base
+        }
+    }
+
+    /**
+     * CASes the stripesBusy field from 0 to 1 to acquire lock.
+     */
+    final boolean casStripesBusy() {
+        return U.compareAndSwapInt(this, STRIPESBUSY, 0, 1);
+    }
+
+    /**
+     * Returns the bucket counts combined across all arrays, followed
+     * by the sum of recorded values.
+     */
+    private long[] totals() {
+        int n = buckets;
+        long[] t = new long[n + 1];
+        addCounts(t, base);
+        long[][] as = stripes; long[] a;
+        if (as != null) {
+            for (int i = 0; i < as.length; ++i) {
+                if ((a = as[i]) != null)
+                    addCounts(t, a);
+            }
+        }
+        return t;
+    }
+
+    private void addCounts(long[] t, long[] a) {
+        for (int i = 0, n = t.length; i < n; ++i)
+            t[i] += U.getLongVolatile(a, ((long)(PAD + i) << ASHIFT) + ABASE);
+    }
+
+    /**
+     * Returns the total number of values recorded.  The returned
+     * value is <em>NOT</em> an atomic snapshot; invocation in the
+     * absence of concurrent updates returns an accurate result, but
+     * concurrent updates that occur while the count is being
+     * calculated might not be incorporated.
+     *
+     * @return the number of values recorded
+     */
+    public long count() {
+        long[] t = totals();
+        long c = 0L;
+        for (int i = 0; i < buckets; ++i)
+            c += t[i];
+        return c;
+    }
+
+    /**
+     * Returns a snapshot of all values recorded since construction or
+     * the last {@link #reset}.  Updates concurrent with this method
+     * might not be incorporated.
+     *
+     * @return a snapshot of all recorded values
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(totals(), precision);
+    }
+
+    /**
+     * Returns a snapshot of the values recorded since the previous
+     * invocation of this method, or since construction or the last
+     * {@link #reset} if this is the first invocation.  Each recorded
+     * value is reported by exactly one invocation; a value recorded
+     * concurrently with this method may be reported by either this
+     * invocation or the next.
+     *
+     * @return a snapshot of the values recorded in the interval
+     */
+    public synchronized Snapshot intervalSnapshot() {
+        long[] t = totals();
+        long[] prev = intervalTotals;
+        intervalTotals = t.clone();
+        if (prev != null) {
+            for (int i = 0; i < t.length; ++i)
+                t[i] -= prev[i];
+        }
+        return new Snapshot(t, precision);
+    }
+
+    /**
+     * Resets all counts to zero.  This method may be a useful
+     * alternative to creating a new histogram, but is only effective
+     * if there are no concurrent updates.  Because this method is
+     * intrinsically racy, it should only be used when it is known
+     * that no threads are concurrently updating; {@link
+     * #intervalSnapshot} should be used otherwise.
+     */
+    public void reset() {
+        synchronized (this) {
+            intervalTotals = null;
+        }
+        clearCounts(base);
+        long[][] as = stripes; long[] a;
+        if (as != null) {
+            for (int i = 0; i < as.length; ++i) {
+                if ((a = as[i]) != null)
+                    clearCounts(a);
+            }
+        }
+    }
+
+    private void clearCounts(long[] a) {
+        for (int i = PAD, n = sumIndex; i <= n; ++i)
+            U.putLongVolatile(a, ((long)i << ASHIFT) + ABASE, 0L);
+    }
+
+    /**
+     * Returns a string representation of a {@link #snapshot} of
+     * this histogram.
+     *
+     * @return a string representation of this histogram
+     */
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * An immutable view of the bucket counts of a {@link
+     * LongHistogramAdder} at some point, or over some interval.
+     * Buckets are indexed from zero in increasing order of the
+     * values they count.
+     *
+     * @since 1.8
+     */
+    public static final class Snapshot implements Serializable {
+        private static final long serialVersionUID = 3581217325962475011L;
+
+        /** Bucket counts */
+        private final long[] counts;
+        /** Sub-bucket bits of the originating histogram */
+        private final int precision;
+        /** Total count */
+        private final long count;
+        /** Sum of recorded values */
+        private final long sum;
+
+        Snapshot(long[] totals, int precision) {
+            int n = totals.length - 1;
+            long c = 0L;
+            for (int i = 0; i < n; ++i)
+                c += totals[i];
+            this.counts = java.util.Arrays.copyOf(totals, n);
+            this.sum = totals[n];
+            this.count = c;
+            this.precision = precision;
+        }
+
+        /**
+         * Returns the number of values recorded.
+         *
+         * @return the number of values recorded
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the sum of values recorded.  If the sum overflows,
+         * the result wraps around, as with {@code long} addition.
+         *
+         * @return the sum of values recorded
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * Returns the arithmetic mean of values recorded, or zero if
+         * none were recorded.
+         *
+         * @return the arithmetic mean of values recorded
+         */
+        public double getAverage() {
+            return (count > 0L) ? (double)sum / count : 0.0d;
+        }
+
+        /**
+         * Returns the least value counted in the lowest non-empty
+         * bucket, or {@code Long.MAX_VALUE} if none were recorded.
+         *
+         * @return a lower bound on the minimum value recorded
+         */
+        public long getMin() {
+            for (int i = 0; i < counts.length; ++i) {
+                if (counts[i] != 0L)
+                    return lowerBound(i, precision);
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * Returns the greatest value counted in the highest non-empty
+         * bucket, or {@code Long.MIN_VALUE} if none were recorded.
+         *
+         * @return an upper bound on the maximum value recorded
+         */
+        public long getMax() {
+            for (int i = counts.length - 1; i >= 0; --i) {
+                if (counts[i] != 0L)
+                    return upperBound(i, precision);
+            }
+            return Long.MIN_VALUE;
+        }
+
+        /**
+         * Returns the greatest value counted in the bucket holding
+         * the value at the given percentile, that is, an upper bound
+         * on the least recorded value that is greater than or equal
+         * to the given percentage of all recorded values.
+         *
+         * @param percentile the percentile, from 0.0 to 100.0
+         * @return an upper bound on the value at the given percentile,
+         * or zero if no values were recorded
+         * @throws IllegalArgumentException if {@code percentile} is
+         * not in the range 0.0 to 100.0
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (!(percentile >= 0.0d && percentile <= 100.0d))
+                throw new IllegalArgumentException();
+            if (count <= 0L)
+                return 0L;
+            long rank = (long)Math.ceil(percentile / 100.0d * count);
+            if (rank < 1L)
+                rank = 1L;
+            long c = 0L;
+            int last = 0;
+            for (int i = 0; i < counts.length; ++i) {
+                long k = counts[i];
+                if (k != 0L) {
+                    last = i;
+                    if ((c += k) >= rank)
+                        break;
+                }
+            }
+            return upperBound(last, precision);
+        }
+
+        /**
+         * Returns the number of buckets.
+         *
+         * @return the number of buckets
+         */
+        public int getBucketCount() {
+            return counts.length;
+        }
+
+        /**
+         * Returns the number of values counted in the given bucket.
+         *
+         * @param index the bucket index
+         * @return the number of values counted in the bucket
+         * @throws IndexOutOfBoundsException if the index is out of range
+         */
+        public long getCount(int index) {
+            return counts[index];
+        }
+
+        /**
+         * Returns the least value counted in the given bucket.
+         *
+         * @param index the bucket index
+         * @return the least value counted in the bucket
+         * @throws IndexOutOfBoundsException if the index is out of range
+         */
+        public long getLowerBound(int index) {
+            if (index < 0 || index >= counts.length)
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            return lowerBound(index, precision);
+        }
+
+        /**
+         * Returns the greatest value counted in the given bucket.
+         *
+         * @param index the bucket index
+         * @return the greatest value counted in the bucket
+         * @throws IndexOutOfBoundsException if the index is out of range
+         */
+        public long getUpperBound(int index) {
+            if (index < 0 || index >= counts.length)
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            return upperBound(index, precision);
+        }
+
+        /**
+         * Returns a String summarizing the count, average, minimum,
+         * median, 99th percentile and maximum of this snapshot.
+         *
+         * @return a String representation of this snapshot
+         */
+        public String toString() {
+            return String.format(
+                "%s{count=%d, average=%f, min=%d, p50=%d, p99=%d, max=%d}",
+                this.getClass().getSimpleName(),
+                getCount(),
+                getAverage(),
+                (count > 0L) ? getMin() : 0L,
+                getValueAtPercentile(50.0d),
+                getValueAtPercentile(99.0d),
+                (count > 0L) ? getMax() : 0L);
+        }
+    }
+
+    /**
+     * Serialization proxy, used to avoid serializing the internal
+     * striped representation.
+     * @serial include
+     */
+    private static class SerializationProxy implements Serializable {
+        private static final long serialVersionUID = -6155938296722104839L;
+
+        /**
+         * The number of sub-bucket bits.
+         * @serial
+         */
+        private final int precision;
+
+        /**
+         * The combined bucket counts, followed by the sum of values.
+         * @serial
+         */
+        private final long[] totals;
+
+        SerializationProxy(LongHistogramAdder a) {
+            precision = a.precision;
+            totals = a.totals();
+        }
+
+        /**
+         * Return a {@code LongHistogramAdder} object with initial state
+         * held by this proxy.
+         *
+         * @return a {@code LongHistogramAdder} object with initial state
+         * held by this proxy.
+         */
+        private Object readResolve() throws java.io.InvalidObjectException {
+            LongHistogramAdder a;
+            try {
+                a = new LongHistogramAdder(precision);
+            } catch (IllegalArgumentException ex) {
+                throw new java.io.InvalidObjectException("Bad precision");
+            }
+            if (totals == null || totals.length != a.buckets + 1)
+                throw new java.io.InvalidObjectException("Bad counts");
+            System.arraycopy(totals, 0, a.base, PAD, totals.length);
+            return a;
+        }
+    }
+
+    /**
+     * Returns a
+     * <a href="../../../../serialized-form.html#java.util.concurrent.atomic.LongHistogramAdder.SerializationProxy">
+     * SerializationProxy</a>
+     * representing the state of this instance.
+     *
+     * @return a {@link SerializationProxy}
+     * representing the state of this instance
+     */
+    private Object writeReplace() {
+        return new SerializationProxy(this);
+    }
+
+    /**
+     * @param s the stream
+     * @throws java.io.InvalidObjectException always
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.InvalidObjectException {
+        throw new java.io.InvalidObjectException("Proxy required");
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long STRIPESBUSY;
+    private static final long ABASE;
+    private static final int ASHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = LongHistogramAdder.class;
+            STRIPESBUSY = U.objectFieldOffset
+                (k.getDeclaredField("stripesBusy"));
+            Class<?> ak = long[].class;
+            ABASE = U.arrayBaseOffset(ak);
+            int scale = U.arrayIndexScale(ak);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
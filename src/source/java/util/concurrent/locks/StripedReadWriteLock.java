@@ -0,0 +1,919 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.locks;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ReadWriteLock} for read-mostly workloads with many
+ * concurrent readers.  The read lock is acquired and released by
+ * updating one of several padded counters, chosen per thread, so
+ * that readers on different processors do not contend on a single
+ * memory location as they do in {@link ReentrantReadWriteLock}.  In
+ * exchange, acquiring the write lock requires summing all of the
+ * counters, and waiting for them to drain.
+ *
+ * <p>This class has the following properties:
+ *
+ * <ul>
+ * <li><b>Acquisition order</b>
+ *
+ * <p>Writers have preference: once a thread has requested the write
+ * lock, new readers wait until it has been acquired and released.
+ * Writers are ordered among themselves according to the fairness
+ * policy given at construction, as with {@link ReentrantLock}.
+ *
+ * <li><b>Reentrancy</b>
+ *
+ * <p>The write lock is reentrant, and a writer may also acquire the
+ * read lock, so that it may be downgraded by acquiring the read lock
+ * and then releasing the write lock.  The read lock is also
+ * reentrant: a thread that holds it may acquire it again even while
+ * a writer is waiting.  Upgrading from a read lock to the write lock
+ * is not possible.
+ *
+ * <li><b>Condition support</b>
+ *
+ * <p>Neither lock supports {@link Condition}s;
+ * {@code newCondition} throws {@code UnsupportedOperationException}.
+ *
+ * <li><b>Instrumentation</b>
+ *
+ * <p>This class supports methods to determine whether locks are held
+ * or contended.  These methods are designed for monitoring system
+ * state, not for synchronization control.
+ * </ul>
+ *
+ * <p>Sample usage:
+ *
+ * <pre> {@code
+ * class Registry {
+ *   private final Map<String, Config> m = new HashMap<String, Config>();
+ *   private final StripedReadWriteLock rwl = new StripedReadWriteLock();
+ *   private final Lock r = rwl.readLock();
+ *   private final Lock w = rwl.writeLock();
+ *
+ *   public Config get(String key) {
+ *     r.lock();
+ *     try { return m.get(key); }
+ *     finally { r.unlock(); }
+ *   }
+ *   public Config put(String key, Config value) {
+ *     w.lock();
+ *     try { return m.put(key, value); }
+ *     finally { w.unlock(); }
+ *   }
+ * }}</pre>
+ *
+ * @since 1.8
+ */
+public class StripedReadWriteLock
+        implements ReadWriteLock, java.io.Serializable {
+
+    /*
+     * Overview:
+     *
+     * The number of read holds is kept as a sum of a base field and a
+     * table of cells, maintained as in java.util.concurrent.atomic.
+     * Striped64: readers CAS the base until that fails, after which
+     * the table is created and grown (up to the number of CPUs) on
+     * further contention, with each thread using the cell indexed by
+     * its ThreadLocalRandom probe.  A read release may update a
+     * different cell than the matching acquire (probes change on
+     * collision), so individual cells may go negative; only the sum
+     * is meaningful.
+     *
+     * Writers first acquire writerLock, which serializes them, and
+     * then set the volatile field writing.  A reader increments a
+     * counter and then rechecks writing; a writer sets writing and
+     * then sums the counters.  Since both sides write before reading,
+     * either the reader sees the writer and backs out (decrementing
+     * the same cell, so that a writer that has already scanned it
+     * cannot undercount), or the writer sees the reader and waits.
+     * A writer waits by parking until the sum is zero; readers
+     * releasing while writing is set unpark it.  Readers that find
+     * writing set wait for the writer by acquiring and releasing
+     * writerLock, which the writer holds until it releases the write
+     * lock.  This gives writers preference.
+     *
+     * Each thread's read hold count is kept in a ThreadLocal, as in
+     * ReentrantReadWriteLock, but without its cached counters, which
+     * would be written by every reader.  The counts are used only to
+     * allow reentrant reads, which bypass the check of writing since a
+     * waiting writer must wait for the outer hold anyway, and to detect
+     * releases by threads not holding the read lock.
+     */
+
+    private static final long serialVersionUID = -3206587640372838934L;
+
+    /** Number of CPUS, to place bound on table size */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Padded variant of AtomicLong supporting only raw accesses plus
+     * CAS, as in Striped64.
+     */
+    @sun.misc.Contended static final class Cell {
+        volatile long value;
+        Cell(long x) { value = x; }
+        final boolean cas(long cmp, long val) {
+            return U.compareAndSwapLong(this, VALUE, cmp, val);
+        }
+
+        // Unsafe mechanics
+        private static final long VALUE;
+        static {
+            try {
+                Class<?> ak = Cell.class;
+                VALUE = U.objectFieldOffset
+                    (ak.getDeclaredField("value"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /** Inner class providing readlock */
+    private final StripedReadWriteLock.ReadLock readerLock;
+    /** Inner class providing writelock */
+    private final StripedReadWriteLock.WriteLock writerLockView;
+
+    /** Held by writers, and briefly by readers waiting for writers */
+    final ReentrantLock writerLock;
+
+    /** Table of reader-count cells; when non-null, size is a power of 2 */
+    transient volatile Cell[] cells;
+
+    /** Base reader count, used mainly when there is no contention */
+    transient volatile long base;
+
+    /** Spinlock (locked via CAS) used when resizing and/or creating Cells */
+    transient volatile int cellsBusy;
+
+    /** True while a writer holds or is acquiring the write lock */
+    transient volatile boolean writing;
+
+    /** Thread waiting for readers to drain, or null if none */
+    transient volatile Thread waitingWriter;
+
+    /** The number of read holds of the current thread */
+    private transient ThreadLocalHoldCounter readHolds;
+
+    /**
+     * A counter for the read holds of one thread.
+     */
+    static final class HoldCounter {
+        int count;
+    }
+
+    /**
+     * ThreadLocal subclass, as in ReentrantReadWriteLock.
+     */
+    static final class ThreadLocalHoldCounter
+        extends ThreadLocal<HoldCounter> {
+        public HoldCounter initialValue() {
+            return new HoldCounter();
+        }
+    }
+
+    /**
+     * Creates a new {@code StripedReadWriteLock} with a non-fair
+     * ordering of writers.
+     */
+    public StripedReadWriteLock() {
+        this(false);
+    }
+
+    /**
+     * Creates a new {@code StripedReadWriteLock} with the given
+     * fairness policy for writers.
+     *
+     * @param fair {@code true} if writers should use a fair ordering
+     * policy
+     */
+    public StripedReadWriteLock(boolean fair) {
+        writerLock = new ReentrantLock(fair);
+        readHolds = new ThreadLocalHoldCounter();
+        readerLock = new ReadLock(this);
+        writerLockView = new WriteLock(this);
+    }
+
+    public StripedReadWriteLock.WriteLock writeLock() { return writerLockView; }
+    public StripedReadWriteLock.ReadLock  readLock()  { return readerLock; }
+
+    // Reader counting
+
+    static final int getProbe() {
+        return U.getInt(Thread.currentThread(), PROBE);
+    }
+
+    static final int advanceProbe(int probe) {
+        probe ^= probe << 13;   // xorshift
+        probe ^= probe >>> 17;
+        probe ^= probe << 5;
+        U.putInt(Thread.currentThread(), PROBE, probe);
+        return probe;
+    }
+
+    final boolean casBase(long cmp, long val) {
+        return U.compareAndSwapLong(this, BASE, cmp, val);
+    }
+
+    final boolean casCellsBusy() {
+        return U.compareAndSwapInt(this, CELLSBUSY, 0, 1);
+    }
+
+    /**
+     * Adds x to the reader count.
+     *
+     * @return the cell updated, or null if base was updated
+     */
+    final Cell addReaders(long x) {
+        Cell[] as; Cell a; long b, v; int m;
+        if ((as = cells) == null) {
+            if (casBase(b = base, b + x))
+                return null;
+        }
+        else if ((m = as.length - 1) >= 0 &&
+                 (a = as[getProbe() & m]) != null &&
+                 a.cas(v = a.value, v + x))
+            return a;
+        return accumulate(x);
+    }
+
+    /**
+     * Handles cases of updates involving initialization, resizing,
+     * creating new Cells, and/or contention, as in
+     * Striped64.longAccumulate.
+     *
+     * @return the cell updated, or null if base was updated
+     */
+    private Cell accumulate(long x) {
+        int h;
+        if ((h = getProbe()) == 0) {
+            ThreadLocalRandom.current(); // force initialization
+            h = getProbe();
+        }
+        boolean collide = false;                // True if last slot nonempty
+        for (;;) {
+            Cell[] as; Cell a; int n; long v;
+            if ((as = cells) != null && (n = as.length) > 0) {
+                if ((a = as[(n - 1) & h]) == null) {
+                    if (cellsBusy == 0) {       // Try to attach new Cell
+                        Cell r = new Cell(x);   // Optimistically create
+                        if (cellsBusy == 0 && casCellsBusy()) {
+                            boolean created = false;
+                            try {               // Recheck under lock
+                                Cell[] rs; int m, j;
+                                if ((rs = cells) != null &&
+                                    (m = rs.length) > 0 &&
+                                    rs[j = (m - 1) & h] == null) {
+                                    rs[j] = r;
+                                    created = true;
+                                }
+                            } finally {
+                                cellsBusy = 0;
+                            }
+                            if (created)
+                                return r;
+                            continue;           // Slot is now non-empty
+                        }
+                    }
+                    collide = false;
+                }
+                else if (a.cas(v = a.value, v + x))
+                    return a;
+                else if (n >= NCPU || cells != as)
+                    collide = false;            // At max size or stale
+                else if (!collide)
+                    collide = true;
+                else if (cellsBusy == 0 && casCellsBusy()) {
+                    try {
+                        if (cells == as) {      // Expand table unless stale
+                            Cell[] rs = new Cell[n << 1];
+                            for (int i = 0; i < n; ++i)
+                                rs[i] = as[i];
+                            cells = rs;
+                        }
+                    } finally {
+                        cellsBusy = 0;
+                    }
+                    collide = false;
+                    continue;                   // Retry with expanded table
+                }
+                h = advanceProbe(h);
+            }
+            else if (cellsBusy == 0 && cells == as && casCellsBusy()) {
+                Cell r = null;
+                try {                           // Initialize table
+                    if (cells == as) {
+                        Cell[] rs = new Cell[2];
+                        rs[h & 1] = r = new Cell(x);
+                        cells = rs;
+                    }
+                } finally {
+                    cellsBusy = 0;
+                }
+                if (r != null)
+                    return r;
+            }
+            else if (casBase(v = base, v + x))
+                return null;                    // Fall back on using base
+        }
+    }
+
+    /**
+     * Reverses an increment of the reader count made in the given
+     * cell (or base, if null).
+     */
+    final void undoReader(Cell c) {
+        if (c == null)
+            U.getAndAddLong(this, BASE, -1L);
+        else
+            U.getAndAddLong(c, Cell.VALUE, -1L);
+    }
+
+    /**
+     * Returns the number of read holds.  Exact only when there are
+     * no concurrent updates.
+     */
+    final long readerCount() {
+        Cell[] as = cells;
+        long sum = base;
+        if (as != null) {
+            for (Cell a : as) {
+                if (a != null)
+                    sum += a.value;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Unparks the writer waiting for readers to drain, if any.
+     */
+    final void signalWriter() {
+        Thread w;
+        if ((w = waitingWriter) != null)
+            LockSupport.unpark(w);
+    }
+
+    // Read lock
+
+    /**
+     * Tries to acquire the read lock without waiting.  Fails only if
+     * a writer holds or is acquiring the write lock and the current
+     * thread holds neither lock, in which case the increment is
+     * reversed and the writer is signalled.
+     */
+    final boolean tryAcquireRead() {
+        HoldCounter h = readHolds.get();
+        if (!writing) {
+            Cell c = addReaders(1L);
+            if (!writing) {
+                ++h.count;
+                return true;
+            }
+            undoReader(c);
+            signalWriter();
+        }
+        if (h.count > 0 ||                      // reentrant
+            writerLock.isHeldByCurrentThread()) { // downgrade
+            addReaders(1L);
+            ++h.count;
+            return true;
+        }
+        return false;
+    }
+
+    final void acquireRead() {
+        while (!tryAcquireRead()) {
+            writerLock.lock();                  // wait out writer
+            writerLock.unlock();
+        }
+    }
+
+    final void acquireReadInterruptibly() throws InterruptedException {
+        while (!tryAcquireRead()) {
+            writerLock.lockInterruptibly();
+            writerLock.unlock();
+        }
+    }
+
+    final boolean tryAcquireReadNanos(long nanos)
+        throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        final long deadline = System.nanoTime() + nanos;
+        while (!tryAcquireRead()) {
+            if (nanos <= 0L ||
+                !writerLock.tryLock(nanos, TimeUnit.NANOSECONDS))
+                return false;
+            writerLock.unlock();
+            nanos = deadline - System.nanoTime();
+        }
+        return true;
+    }
+
+    final void releaseRead() {
+        HoldCounter h = readHolds.get();
+        if (h.count == 0)
+            throw new IllegalMonitorStateException();
+        --h.count;
+        addReaders(-1L);
+        if (writing)
+            signalWriter();
+    }
+
+    // Write lock
+
+    /**
+     * Called by a thread that has just acquired writerLock for the
+     * first time.  Announces the writer and waits for readers to
+     * drain, up to the given deadline if timed.
+     *
+     * @return true if readers drained, else false, after retracting
+     * the announcement, if timed out or interrupted (in which case
+     * the interrupt status is left set)
+     */
+    private boolean awaitReaders(boolean interruptible,
+                                 boolean timed, long deadline) {
+        writing = true;
+        if (readerCount() == 0L)
+            return true;
+        boolean interrupted = false, drained = false;
+        Thread wt = Thread.currentThread();
+        waitingWriter = wt;
+        try {
+            for (int spins = NCPU > 1 ? 64 : 0;;) {
+                if (readerCount() == 0L) {
+                    drained = true;
+                    break;
+                }
+                if (spins > 0) {
+                    --spins;
+                    continue;
+                }
+                if (timed) {
+                    long nanos = deadline - System.nanoTime();
+                    if (nanos <= 0L)
+                        break;
+                    LockSupport.parkNanos(this, nanos);
+                }
+                else
+                    LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                    if (interruptible)
+                        break;
+                }
+            }
+        } finally {
+            waitingWriter = null;
+            if (!drained)
+                writing = false;
+        }
+        if (interrupted)
+            wt.interrupt();                     // callers recheck
+        return drained;
+    }
+
+    final void acquireWrite() {
+        writerLock.lock();
+        if (writerLock.getHoldCount() == 1)
+            awaitReaders(false, false, 0L);
+    }
+
+    final void acquireWriteInterruptibly() throws InterruptedException {
+        writerLock.lockInterruptibly();
+        if (writerLock.getHoldCount() == 1 && !awaitReaders(true, false, 0L)) {
+            writerLock.unlock();
+            Thread.interrupted();
+            throw new InterruptedException();
+        }
+    }
+
+    final boolean tryAcquireWrite() {
+        if (!writerLock.tryLock())
+            return false;
+        if (writerLock.getHoldCount() > 1)
+            return true;
+        writing = true;
+        if (readerCount() == 0L)
+            return true;
+        writing = false;
+        writerLock.unlock();
+        return false;
+    }
+
+    final boolean tryAcquireWriteNanos(long nanos)
+        throws InterruptedException {
+        final long deadline = System.nanoTime() + nanos;
+        if (!writerLock.tryLock(nanos, TimeUnit.NANOSECONDS))
+            return false;
+        if (writerLock.getHoldCount() > 1 ||
+            awaitReaders(true, true, deadline))
+            return true;
+        writerLock.unlock();
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        return false;
+    }
+
+    final void releaseWrite() {
+        if (!writerLock.isHeldByCurrentThread())
+            throw new IllegalMonitorStateException();
+        if (writerLock.getHoldCount() == 1)
+            writing = false;
+        writerLock.unlock();
+    }
+
+    /**
+     * The lock returned by method {@link StripedReadWriteLock#readLock}.
+     */
+    public static class ReadLock implements Lock, java.io.Serializable {
+        private static final long serialVersionUID = 4062946618437004127L;
+        private final StripedReadWriteLock lock;
+
+        /**
+         * Constructor for use by subclasses
+         *
+         * @param lock the outer lock object
+         * @throws NullPointerException if the lock is null
+         */
+        protected ReadLock(StripedReadWriteLock lock) {
+            if (lock == null)
+                throw new NullPointerException();
+            this.lock = lock;
+        }
+
+        /**
+         * Acquires the read lock.
+         *
+         * <p>Acquires the read lock if the write lock is neither held
+         * nor requested by another thread and returns immediately.
+         *
+         * <p>Otherwise the current thread becomes disabled for thread
+         * scheduling purposes and lies dormant until the read lock has
+         * been acquired.
+         */
+        public void lock() {
+            lock.acquireRead();
+        }
+
+        /**
+         * Acquires the read lock unless the current thread is
+         * {@linkplain Thread#interrupt interrupted}.
+         *
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            lock.acquireReadInterruptibly();
+        }
+
+        /**
+         * Acquires the read lock only if the write lock is neither
+         * held nor requested by another thread at the time of
+         * invocation.
+         *
+         * @return {@code true} if the read lock was acquired
+         */
+        public boolean tryLock() {
+            return lock.tryAcquireRead();
+        }
+
+        /**
+         * Acquires the read lock if the write lock is not held or
+         * requested by another thread within the given waiting time
+         * and the current thread has not been {@linkplain
+         * Thread#interrupt interrupted}.
+         *
+         * @param timeout the time to wait for the read lock
+         * @param unit the time unit of the timeout argument
+         * @return {@code true} if the read lock was acquired
+         * @throws InterruptedException if the current thread is interrupted
+         * @throws NullPointerException if the time unit is null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            return lock.tryAcquireReadNanos(unit.toNanos(timeout));
+        }
+
+        /**
+         * Attempts to release this lock.
+         *
+         * <p>If the number of readers is now zero then the lock
+         * is made available for write lock attempts.
+         *
+         * @throws IllegalMonitorStateException if the current thread
+         * does not hold this lock
+         */
+        public void unlock() {
+            lock.releaseRead();
+        }
+
+        /**
+         * Throws {@code UnsupportedOperationException} because
+         * {@code ReadLocks} do not support conditions.
+         *
+         * @throws UnsupportedOperationException always
+         */
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Returns a string identifying this lock, as well as its lock state.
+         * The state, in brackets, includes the String {@code "Read locks ="}
+         * followed by the number of held read locks.
+         *
+         * @return a string identifying this lock, as well as its lock state
+         */
+        public String toString() {
+            return super.toString() +
+                "[Read locks = " + lock.getReadLockCount() + "]";
+        }
+    }
+
+    /**
+     * The lock returned by method {@link StripedReadWriteLock#writeLock}.
+     */
+    public static class WriteLock implements Lock, java.io.Serializable {
+        private static final long serialVersionUID = -1538240371287393137L;
+        private final StripedReadWriteLock lock;
+
+        /**
+         * Constructor for use by subclasses
+         *
+         * @param lock the outer lock object
+         * @throws NullPointerException if the lock is null
+         */
+        protected WriteLock(StripedReadWriteLock lock) {
+            if (lock == null)
+                throw new NullPointerException();
+            this.lock = lock;
+        }
+
+        /**
+         * Acquires the write lock.
+         *
+         * <p>Acquires the write lock if neither the read nor write
+         * lock are held by another thread and returns immediately,
+         * setting the write lock hold count to one.  If the current
+         * thread already holds the write lock then the hold count is
+         * incremented by one and the method returns immediately.
+         *
+         * <p>Otherwise the current thread becomes disabled for thread
+         * scheduling purposes and lies dormant until the write lock
+         * has been acquired.  New readers wait from the time the
+         * request is made.
+         */
+        public void lock() {
+            lock.acquireWrite();
+        }
+
+        /**
+         * Acquires the write lock unless the current thread is
+         * {@linkplain Thread#interrupt interrupted}.
+         *
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            lock.acquireWriteInterruptibly();
+        }
+
+        /**
+         * Acquires the write lock only if it is not held by another
+         * thread and no read locks are held at the time of invocation.
+         *
+         * @return {@code true} if the lock was free and was acquired
+         * by the current thread, or the write lock was already held
+         * by the current thread; and {@code false} otherwise.
+         */
+        public boolean tryLock() {
+            return lock.tryAcquireWrite();
+        }
+
+        /**
+         * Acquires the write lock if it is not held by another thread
+         * and all read locks are released within the given waiting
+         * time and the current thread has not been {@linkplain
+         * Thread#interrupt interrupted}.
+         *
+         * @param timeout the time to wait for the write lock
+         * @param unit the time unit of the timeout argument
+         * @return {@code true} if the lock was free and was acquired
+         * by the current thread, or the write lock was already held by the
+         * current thread; and {@code false} if the waiting time
+         * elapsed before the lock could be acquired.
+         * @throws InterruptedException if the current thread is interrupted
+         * @throws NullPointerException if the time unit is null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            return lock.tryAcquireWriteNanos(unit.toNanos(timeout));
+        }
+
+        /**
+         * Attempts to release this lock.
+         *
+         * <p>If the current thread is the holder of this lock then
+         * the hold count is decremented. If the hold count is now
+         * zero then the lock is released.  If the current thread is
+         * not the holder of this lock then {@link
+         * IllegalMonitorStateException} is thrown.
+         *
+         * @throws IllegalMonitorStateException if the current thread does not
+         * hold this lock
+         */
+        public void unlock() {
+            lock.releaseWrite();
+        }
+
+        /**
+         * Throws {@code UnsupportedOperationException} because
+         * conditions are not supported by this class.
+         *
+         * @throws UnsupportedOperationException always
+         */
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Queries if this write lock is held by the current thread.
+         *
+         * @return {@code true} if the current thread holds this lock and
+         *         {@code false} otherwise
+         */
+        public boolean isHeldByCurrentThread() {
+            return lock.isWriteLockedByCurrentThread();
+        }
+
+        /**
+         * Queries the number of holds on this write lock by the current
+         * thread.
+         *
+         * @return the number of holds on this lock by the current thread,
+         *         or zero if this lock is not held by the current thread
+         */
+        public int getHoldCount() {
+            return lock.getWriteHoldCount();
+        }
+
+        /**
+         * Returns a string identifying this lock, as well as its lock
+         * state.  The state, in brackets includes either the String
+         * {@code "Unlocked"} or the String {@code "Locked"}.
+         *
+         * @return a string identifying this lock, as well as its lock state
+         */
+        public String toString() {
+            return super.toString() + (lock.isWriteLocked() ?
+                                       "[Locked]" : "[Unlocked]");
+        }
+    }
+
+    // Instrumentation and status
+
+    /**
+     * Returns {@code true} if writers are ordered fairly.
+     *
+     * @return {@code true} if writers are ordered fairly
+     */
+    public final boolean isFair() {
+        return writerLock.isFair();
+    }
+
+    /**
+     * Queries the number of read locks held for this lock.  The
+     * result is computed by summing the reader counters, and is only
+     * an estimate if readers concurrently acquire or release the lock.
+     * This method is designed for use in monitoring system state, not
+     * for synchronization control.
+     *
+     * @return the number of read locks held
+     */
+    public int getReadLockCount() {
+        long n = readerCount();
+        return (n <= 0L) ? 0 :
+            (n >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)n;
+    }
+
+    /**
+     * Queries if the write lock is held, or requested, by any
+     * thread.  This method is designed for use in monitoring system
+     * state, not for synchronization control.
+     *
+     * @return {@code true} if a writer holds or is acquiring the
+     *         write lock and {@code false} otherwise
+     */
+    public boolean isWriteLocked() {
+        return writing;
+    }
+
+    /**
+     * Queries if the write lock is held by the current thread.
+     *
+     * @return {@code true} if the current thread holds the write lock and
+     *         {@code false} otherwise
+     */
+    public boolean isWriteLockedByCurrentThread() {
+        return writerLock.isHeldByCurrentThread() && writing;
+    }
+
+    /**
+     * Queries the number of reentrant write holds on this lock by the
+     * current thread.
+     *
+     * @return the number of holds on the write lock by the current thread,
+     *         or zero if the write lock is not held by the current thread
+     */
+    public int getWriteHoldCount() {
+        return writing ? writerLock.getHoldCount() : 0;
+    }
+
+    /**
+     * Queries whether any threads are waiting to acquire the write
+     * lock, or for a writer to release it.
+     *
+     * @return {@code true} if there may be other threads waiting
+     */
+    public final boolean hasQueuedThreads() {
+        return writerLock.hasQueuedThreads() || waitingWriter != null;
+    }
+
+    /**
+     * Returns a string identifying this lock, as well as its lock state.
+     * The state, in brackets, includes the String {@code "Write locks ="}
+     * followed by the number of reentrantly held write locks by the
+     * writer, if any, and the String {@code "Read locks ="} followed by
+     * the number of held read locks.
+     *
+     * @return a string identifying this lock, as well as its lock state
+     */
+    public String toString() {
+        return super.toString() +
+            "[Write locks = " + (writing ? 1 : 0) +
+            ", Read locks = " + getReadLockCount() + "]";
+    }
+
+    /**
+     * Reconstitutes the instance from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        readHolds = new ThreadLocalHoldCounter();
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long BASE;
+    private static final long CELLSBUSY;
+    private static final long PROBE;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> sk = StripedReadWriteLock.class;
+            BASE = U.objectFieldOffset
+                (sk.getDeclaredField("base"));
+            CELLSBUSY = U.objectFieldOffset
+                (sk.getDeclaredField("cellsBusy"));
+            Class<?> tk = Thread.class;
+            PROBE = U.objectFieldOffset
+                (tk.getDeclaredField("threadLocalRandomProbe"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -140,6 +140,14 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
      */
     private boolean sourceAnyStateful;
 
+    /**
+     * True if the output of the pipeline may be consumed only in part,
+     * because the terminal operation short-circuits or the output is
+     * traversed through a spliterator; only valid for the source stage,
+     * while the source spliterator is being prepared.
+     */
+    private boolean sourceShortCircuit;
+
     private Runnable sourceCloseAction;
 
     /**
@@ -362,7 +370,7 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             }
         }
         else {
-            return wrap(this, () -> sourceSpliterator(0), isParallel());
+            return wrap(this, () -> sourceSpliterator(0, true), isParallel());
         }
     }
 
@@ -391,8 +399,22 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
      * of all computations up to and including the most recent stateful
      * operation.
      */
-    @SuppressWarnings("unchecked")
     private Spliterator<?> sourceSpliterator(int terminalFlags) {
+        return sourceSpliterator(terminalFlags,
+                                 StreamOpFlag.SHORT_CIRCUIT.isKnown(terminalFlags));
+    }
+
+    /**
+     * Get the source spliterator for this pipeline stage, as above.
+     *
+     * @param terminalFlags Operation flags for the terminal operation to be
+     *        applied to the pipeline.
+     * @param shortCircuit true if the output of the pipeline may be
+     *        consumed only in part
+     * @return the source spliterator
+     */
+    @SuppressWarnings("unchecked")
+    private Spliterator<?> sourceSpliterator(int terminalFlags, boolean shortCircuit) {
         // Get the source spliterator of the pipeline
         Spliterator<?> spliterator = null;
         if (sourceStage.sourceSpliterator != null) {
@@ -408,6 +430,7 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         }
 
         if (isParallel() && sourceStage.sourceAnyStateful) {
+            sourceStage.sourceShortCircuit = shortCircuit;
             // Adapt the source spliterator, evaluating each stateful op
             // in the pipeline up to and including this pipeline stage.
             // The depth and flags of each pipeline stage are adjusted accordingly.
@@ -704,4 +727,24 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
                                                      Spliterator<P_IN> spliterator) {
         return opEvaluateParallel(helper, spliterator, i -> (E_OUT[]) new Object[i]).spliterator();
     }
+
+    /**
+     * Returns whether the output of this stateful operation may be consumed
+     * only in part, because a later operation or the terminal operation
+     * short-circuits, or the output of the pipeline is traversed through a
+     * spliterator.  Only valid when called from
+     * {@link #opEvaluateParallelLazy}, for which a full evaluation is then
+     * preferable only if the whole output will be consumed.
+     *
+     * @return {@code true} if the output may be consumed only in part
+     */
+    final boolean isShortCircuitingDownstream() {
+        if (sourceStage.sourceShortCircuit)
+            return true;
+        for (AbstractPipeline<?, ?, ?> p = nextStage; p != null; p = p.nextStage) {
+            if (StreamOpFlag.SHORT_CIRCUIT.isKnown(p.sourceOrOpFlags))
+                return true;
+        }
+        return false;
+    }
 }
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Factory methods for streams whose elements are produced, or whose
+ * terminal actions are performed, by other threads.
+ *
+ * <p>Sources take elements from a {@link BlockingQueue}.  For
+ * {@link #fromProducer producer} streams the queue is bounded, so that a
+ * producer running ahead of the stream blocks once the buffer is full:
+ * the free space in the buffer is the demand signalled to the producer.
+ *
+ * <p>The asynchronous terminal operations traverse the stream in the
+ * calling thread and hand each element to an {@link Executor}, admitting at
+ * most a given number of elements into flight at a time with a
+ * {@link Semaphore}; traversal blocks while all permits are taken.  They
+ * close the stream when traversal ends, so that a producer is cancelled
+ * if traversal stops early because an action failed.
+ *
+ * @since 1.8
+ */
+final class AsyncOps {
+
+    private AsyncOps() { }
+
+    /**
+     * Returns a sequential stream of the elements taken from the given
+     * queue, up to but excluding the first element identical to
+     * {@code endOfStream}.
+     */
+    static <T> Stream<T> fromQueue(BlockingQueue<? extends T> queue, T endOfStream) {
+        return StreamSupport.stream(new QueueSpliterator<>(queue, endOfStream), false);
+    }
+
+    /**
+     * Returns a sequential stream of the elements emitted by the given
+     * producer, which is run by the given executor once the stream's
+     * terminal operation commences.
+     */
+    static <T> Stream<T> fromProducer(Consumer<? super Consumer<? super T>> producer,
+                                      int bufferSize, Executor executor) {
+        ProducerSpliterator<T> s = new ProducerSpliterator<>(producer, bufferSize, executor);
+        return StreamSupport.stream(s, false).onClose(s::cancel);
+    }
+
+    /**
+     * Takes elements from a blocking queue until the end marker is seen.
+     * Interruption while waiting cancels traversal.
+     */
+    static final class QueueSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final BlockingQueue<? extends T> queue;
+        private final T endOfStream;
+        private boolean done;
+
+        QueueSpliterator(BlockingQueue<? extends T> queue, T endOfStream) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.queue = Objects.requireNonNull(queue);
+            this.endOfStream = Objects.requireNonNull(endOfStream);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            if (done)
+                return false;
+            T t;
+            try {
+                t = queue.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw cancelled(ex);
+            }
+            if (t == endOfStream) {
+                done = true;
+                return false;
+            }
+            action.accept(t);
+            return true;
+        }
+    }
+
+    /**
+     * Runs a producer on an executor, passing it an emitter that puts
+     * elements into a bounded queue read by the stream.  The producer
+     * signals the end of the stream by returning from its accept method;
+     * an exception it throws is rethrown to the stream's consumer, wrapped
+     * in a {@code CompletionException}, once the elements emitted before it
+     * have been delivered.
+     *
+     * <p>Cancellation (by closing the stream, or by interrupting a
+     * consumer blocked waiting for an element) clears the queue, which
+     * releases a producer blocked in {@code put}; each later emit throws
+     * {@code CancellationException}, unwinding the producer.
+     */
+    static final class ProducerSpliterator<T> extends Spliterators.AbstractSpliterator<T>
+        implements Consumer<T> {
+        /** Marks the end of the elements in the queue */
+        private static final Object END = new Object();
+        /** Stands for null elements in the queue */
+        private static final Object NULL = new Object();
+
+        private final Consumer<? super Consumer<? super T>> producer;
+        private final ArrayBlockingQueue<Object> queue;
+        private final Executor executor;
+        private volatile boolean cancelled;
+        /** The exception thrown by the producer; read after taking END */
+        private volatile Throwable failure;
+        private boolean started, done;
+
+        ProducerSpliterator(Consumer<? super Consumer<? super T>> producer,
+                            int bufferSize, Executor executor) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            if (bufferSize <= 0)
+                throw new IllegalArgumentException(Integer.toString(bufferSize));
+            this.producer = Objects.requireNonNull(producer);
+            this.executor = Objects.requireNonNull(executor);
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        /**
+         * Emits an element on behalf of the producer, waiting for space
+         * in the buffer.
+         */
+        @Override
+        public void accept(T t) {
+            if (cancelled)
+                throw new CancellationException();
+            try {
+                queue.put((t == null) ? NULL : t);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw cancelled(ex);
+            }
+        }
+
+        private void produce() {
+            try {
+                producer.accept(this);
+            } catch (Throwable ex) {
+                if (!cancelled)
+                    failure = ex;
+            }
+            if (!cancelled) {
+                try {
+                    queue.put(END);
+                } catch (InterruptedException ex) {
+                    // The consumer would otherwise wait forever
+                    queue.clear();
+                    failure = ex;
+                    queue.offer(END);
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            queue.clear();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            if (done)
+                return false;
+            if (!started) {
+                started = true;
+                executor.execute(this::produce);
+            }
+            Object x;
+            try {
+                x = queue.take();
+            } catch (InterruptedException ex) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw cancelled(ex);
+            }
+            if (x == END) {
+                done = true;
+                Throwable ex = failure;
+                if (ex != null)
+                    throw new CompletionException(ex);
+                return false;
+            }
+            action.accept((x == NULL) ? null : (T) x);
+            return true;
+        }
+    }
+
+    private static CancellationException cancelled(InterruptedException cause) {
+        CancellationException ex = new CancellationException("interrupted");
+        ex.initCause(cause);
+        return ex;
+    }
+
+    /**
+     * Performs the action for each element of the stream on the executor,
+     * with at most {@code parallelism} actions in flight.
+     */
+    static <T> CompletableFuture<Void> forEach(Stream<T> stream,
+                                               Consumer<? super T> action,
+                                               Executor executor, int parallelism) {
+        Objects.requireNonNull(action);
+        Objects.requireNonNull(executor);
+        if (parallelism <= 0)
+            throw new IllegalArgumentException(Integer.toString(parallelism));
+        Spliterator<T> spliterator = stream.spliterator();
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Semaphore permits = new Semaphore(parallelism);
+        // One count is held by the traversal itself
+        AtomicInteger pending = new AtomicInteger(1);
+        try {
+            Consumer<T> dispatch = t -> {
+                acquire(permits);
+                pending.incrementAndGet();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            if (!result.isDone())
+                                action.accept(t);
+                        } catch (Throwable ex) {
+                            result.completeExceptionally(ex);
+                        } finally {
+                            permits.release();
+                            if (pending.decrementAndGet() == 0)
+                                result.complete(null);
+                        }
+                    });
+                } catch (Throwable ex) {
+                    permits.release();
+                    pending.decrementAndGet();
+                    throw ex;
+                }
+            };
+            while (!result.isDone() && spliterator.tryAdvance(dispatch)) { }
+        } catch (Throwable ex) {
+            result.completeExceptionally(ex);
+        }
+        try {
+            stream.close();
+        } catch (Throwable ex) {
+            result.completeExceptionally(ex);
+        }
+        if (pending.decrementAndGet() == 0)
+            result.complete(null);
+        return result;
+    }
+
+    /**
+     * Applies the mapper to each element of the stream on the
+     * executor, with at most {@code parallelism} elements in flight, and
+     * performs the action on the results in encounter order.  Each
+     * element's action is a stage depending on the previous element's
+     * action and on its own mapping, so actions are performed one at a
+     * time in order, and a failure completes every later stage.
+     */
+    static <T, R> CompletableFuture<Void> forEachOrdered(Stream<T> stream,
+                                                         Function<? super T, ? extends R> mapper,
+                                                         Consumer<? super R> action,
+                                                         Executor executor, int parallelism) {
+        Objects.requireNonNull(mapper);
+        Objects.requireNonNull(action);
+        Objects.requireNonNull(executor);
+        if (parallelism <= 0)
+            throw new IllegalArgumentException(Integer.toString(parallelism));
+        Spliterator<T> spliterator = stream.spliterator();
+        Semaphore permits = new Semaphore(parallelism);
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Void>[] tail = new CompletableFuture[] {
+            CompletableFuture.completedFuture(null) };
+        Throwable failure = null;
+        try {
+            Consumer<T> dispatch = t -> {
+                acquire(permits);
+                CompletableFuture<Void> next;
+                try {
+                    CompletableFuture<R> mapped =
+                        CompletableFuture.supplyAsync(() -> mapper.apply(t), executor);
+                    next = tail[0].thenCombineAsync(mapped, (v, r) -> {
+                        action.accept(r);
+                        return null;
+                    }, executor);
+                } catch (Throwable ex) {
+                    permits.release();
+                    throw ex;
+                }
+                next.whenComplete((v, ex) -> permits.release());
+                tail[0] = next;
+            };
+            while (!tail[0].isCompletedExceptionally() && spliterator.tryAdvance(dispatch)) { }
+        } catch (Throwable ex) {
+            failure = ex;
+        }
+        try {
+            stream.close();
+        } catch (Throwable ex) {
+            if (failure == null)
+                failure = ex;
+            else
+                failure.addSuppressed(ex);
+        }
+        if (failure != null) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(failure);
+            // Report the traversal failure once the dispatched actions are done
+            return tail[0].handle((v, e) -> null).thenCompose(v -> failed);
+        }
+        return tail[0];
+    }
+
+    private static void acquire(Semaphore permits) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw cancelled(ex);
+        }
+    }
+}
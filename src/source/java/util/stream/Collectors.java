@@ -46,6 +46,7 @@ import java.util.Set;
 import java.util.StringJoiner;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
@@ -405,12 +406,17 @@ public final class Collectors {
      *     reducing(0L, e -> 1L, Long::sum)
      * }</pre>
      *
+     * @implNote
+     * The count is accumulated in a mutable {@code long} cell, as in
+     * {@link #summingLong(ToLongFunction)}, so that no {@code Long} is
+     * allocated per element.
+     *
      * @param <T> the type of the input elements
      * @return a {@code Collector} that counts the input elements
      */
     public static <T> Collector<T, ?, Long>
     counting() {
-        return reducing(0L, e -> 1L, Long::sum);
+        return summingLong(e -> 1L);
     }
 
     /**
@@ -928,6 +934,108 @@ public final class Collectors {
         }
     }
 
+    /**
+     * Returns a {@code Collector} implementing a cascaded "group by" operation
+     * on input elements of type {@code T}, grouping elements according to an
+     * {@code int}-valued classification function, and then performing a
+     * reduction operation on the values associated with a given key using the
+     * specified downstream {@code Collector}.
+     *
+     * <p>The result is the same as that of
+     * {@code groupingBy(t -> classifier.applyAsInt(t), downstream)}, but keys
+     * are not boxed during accumulation: elements are grouped in a table
+     * indexed by primitive keys, and an {@code Integer} is created only once
+     * per distinct key, when the resulting {@code Map} is built.
+     *
+     * <p>For example, to count words by length:
+     * <pre>{@code
+     *     Map<Integer, Long> countsByLength
+     *         = words.stream().collect(groupingByInt(String::length, counting()));
+     * }</pre>
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a {@code Collector} implementing the cascaded group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     * @see #groupingByLong(ToLongFunction, Collector)
+     * @since 1.8
+     */
+    public static <T, A, D>
+    Collector<T, ?, Map<Integer, D>> groupingByInt(ToIntFunction<? super T> classifier,
+                                                   Collector<? super T, A, D> downstream) {
+        Objects.requireNonNull(classifier);
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BinaryOperator<A> downstreamCombiner = downstream.combiner();
+        Function<A, D> downstreamFinisher = downstream.finisher();
+        return new CollectorImpl<T, PrimitiveKeyedTable<A>, Map<Integer, D>>(
+                PrimitiveKeyedTable::new,
+                (m, t) -> downstreamAccumulator.accept(
+                        m.computeIfAbsent(classifier.applyAsInt(t), downstreamSupplier), t),
+                (m1, m2) -> m1.merge(m2, downstreamCombiner),
+                m -> {
+                    Map<Integer, D> result = new HashMap<>(m.capacityFor());
+                    m.forEach((k, v) -> result.put((int) k, downstreamFinisher.apply(v)));
+                    return result;
+                },
+                CH_NOID);
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a cascaded "group by" operation
+     * on input elements of type {@code T}, grouping elements according to a
+     * {@code long}-valued classification function, and then performing a
+     * reduction operation on the values associated with a given key using the
+     * specified downstream {@code Collector}.
+     *
+     * <p>The result is the same as that of
+     * {@code groupingBy(t -> classifier.applyAsLong(t), downstream)}, but
+     * keys are not boxed during accumulation: elements are grouped in a table
+     * indexed by primitive keys, and a {@code Long} is created only once per
+     * distinct key, when the resulting {@code Map} is built.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a {@code Collector} implementing the cascaded group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     * @see #groupingByInt(ToIntFunction, Collector)
+     * @since 1.8
+     */
+    public static <T, A, D>
+    Collector<T, ?, Map<Long, D>> groupingByLong(ToLongFunction<? super T> classifier,
+                                                 Collector<? super T, A, D> downstream) {
+        Objects.requireNonNull(classifier);
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BinaryOperator<A> downstreamCombiner = downstream.combiner();
+        Function<A, D> downstreamFinisher = downstream.finisher();
+        return new CollectorImpl<T, PrimitiveKeyedTable<A>, Map<Long, D>>(
+                PrimitiveKeyedTable::new,
+                (m, t) -> downstreamAccumulator.accept(
+                        m.computeIfAbsent(classifier.applyAsLong(t), downstreamSupplier), t),
+                (m1, m2) -> m1.merge(m2, downstreamCombiner),
+                m -> {
+                    Map<Long, D> result = new HashMap<>(m.capacityFor());
+                    m.forEach((k, v) -> result.put(k, downstreamFinisher.apply(v)));
+                    return result;
+                },
+                CH_NOID);
+    }
+
     /**
      * Returns a concurrent {@code Collector} implementing a "group by"
      * operation on input elements of type {@code T}, grouping elements
@@ -1091,6 +1199,98 @@ public final class Collectors {
         }
     }
 
+    /**
+     * Returns a concurrent {@code Collector} that counts the input elements
+     * of type {@code T} associated with each key produced by a
+     * classification function.
+     *
+     * <p>This is a {@link Collector.Characteristics#CONCURRENT concurrent} and
+     * {@link Collector.Characteristics#UNORDERED unordered} Collector.
+     *
+     * <p>The result is the same as that of
+     * {@code groupingByConcurrent(classifier, counting())}, but each count is
+     * accumulated in a {@link LongAdder}, so that threads counting elements
+     * with the same key update separate cells instead of contending for a
+     * lock on a single container.
+     *
+     * <p>For example, to count page views by URL across a parallel stream of
+     * log entries:
+     * <pre>{@code
+     *     ConcurrentMap<String, Long> viewsByUrl
+     *         = entries.parallelStream().collect(countingByConcurrent(Entry::getUrl));
+     * }</pre>
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the type of the keys
+     * @param classifier a classifier function mapping input elements to keys
+     * @return a concurrent, unordered {@code Collector} implementing the
+     *         counting operation
+     *
+     * @see #groupingByConcurrent(Function, Collector)
+     * @see #summingLongByConcurrent(Function, ToLongFunction)
+     * @since 1.8
+     */
+    public static <T, K>
+    Collector<T, ?, ConcurrentMap<K, Long>>
+    countingByConcurrent(Function<? super T, ? extends K> classifier) {
+        return summingLongByConcurrent(classifier, e -> 1L);
+    }
+
+    /**
+     * Returns a concurrent {@code Collector} that produces, for each key
+     * produced by a classification function, the sum of a long-valued
+     * function applied to the input elements associated with that key.
+     *
+     * <p>This is a {@link Collector.Characteristics#CONCURRENT concurrent} and
+     * {@link Collector.Characteristics#UNORDERED unordered} Collector.
+     *
+     * <p>The result is the same as that of
+     * {@code groupingByConcurrent(classifier, summingLong(mapper))}, but each
+     * sum is accumulated in a {@link LongAdder}, so that threads updating the
+     * same key update separate cells instead of contending for a lock on a
+     * single container.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the type of the keys
+     * @param classifier a classifier function mapping input elements to keys
+     * @param mapper a function extracting the property to be summed
+     * @return a concurrent, unordered {@code Collector} implementing the
+     *         summing operation
+     *
+     * @see #groupingByConcurrent(Function, Collector)
+     * @see #countingByConcurrent(Function)
+     * @since 1.8
+     */
+    public static <T, K>
+    Collector<T, ?, ConcurrentMap<K, Long>>
+    summingLongByConcurrent(Function<? super T, ? extends K> classifier,
+                            ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(classifier);
+        Objects.requireNonNull(mapper);
+        BiConsumer<ConcurrentMap<K, LongAdder>, T> accumulator = (m, t) -> {
+            K key = Objects.requireNonNull(classifier.apply(t), "element cannot be mapped to a null key");
+            LongAdder adder = m.get(key);
+            if (adder == null)
+                adder = m.computeIfAbsent(key, k -> new LongAdder());
+            adder.add(mapper.applyAsLong(t));
+        };
+        BinaryOperator<ConcurrentMap<K, LongAdder>> merger = (m1, m2) -> {
+            for (Map.Entry<K, LongAdder> e : m2.entrySet())
+                m1.computeIfAbsent(e.getKey(), k -> new LongAdder()).add(e.getValue().sum());
+            return m1;
+        };
+        Function<ConcurrentMap<K, LongAdder>, ConcurrentMap<K, Long>> finisher = intermediate -> {
+            @SuppressWarnings("unchecked")
+            ConcurrentMap<K, Object> mangled = (ConcurrentMap<K, Object>) (ConcurrentMap<K, ?>) intermediate;
+            mangled.replaceAll((k, v) -> ((LongAdder) v).sum());
+            @SuppressWarnings("unchecked")
+            ConcurrentMap<K, Long> castResult = (ConcurrentMap<K, Long>) (ConcurrentMap<K, ?>) mangled;
+            return castResult;
+        };
+        return new CollectorImpl<>(ConcurrentHashMap::new, accumulator, merger, finisher,
+                                   CH_CONCURRENT_NOID);
+    }
+
     /**
      * Returns a {@code Collector} which partitions the input elements according
      * to a {@code Predicate}, and organizes them into a
@@ -1534,6 +1734,155 @@ public final class Collectors {
                 (l, r) -> { l.combine(r); return l; }, CH_ID);
     }
 
+    /**
+     * Implementation class used by groupingByInt and groupingByLong: an
+     * open-addressed, linear-probing table from primitive keys (ints are
+     * widened) to downstream result containers.  An empty slot is one with a
+     * null value; as with {@code HashMap.computeIfAbsent}, a null container
+     * is never stored.
+     */
+    static final class PrimitiveKeyedTable<A> {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Object[] vals = new Object[INITIAL_CAPACITY];
+        private int size;
+
+        /** Spreads keys using the 64-bit golden ratio. */
+        private static int hash(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        @SuppressWarnings("unchecked")
+        A computeIfAbsent(long key, Supplier<A> supplier) {
+            long[] ks = keys;
+            Object[] vs = vals;
+            int mask = ks.length - 1;
+            for (int i = hash(key, mask); ; i = (i + 1) & mask) {
+                Object v = vs[i];
+                if (v == null) {
+                    A a = supplier.get();
+                    if (a != null) {
+                        ks[i] = key;
+                        vs[i] = a;
+                        if (++size > (mask >>> 1) + (mask >>> 2))
+                            resize();
+                    }
+                    return a;
+                }
+                if (ks[i] == key)
+                    return (A) v;
+            }
+        }
+
+        private void put(long key, Object value) {
+            long[] ks = keys;
+            Object[] vs = vals;
+            int mask = ks.length - 1;
+            for (int i = hash(key, mask); ; i = (i + 1) & mask) {
+                if (vs[i] == null) {
+                    ks[i] = key;
+                    vs[i] = value;
+                    if (++size > (mask >>> 1) + (mask >>> 2))
+                        resize();
+                    return;
+                }
+                if (ks[i] == key) {
+                    vs[i] = value;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Removes the key, if present, shifting back later entries of
+         * its probe cluster so that no lookup stops short at the hole.
+         */
+        private void remove(long key) {
+            long[] ks = keys;
+            Object[] vs = vals;
+            int mask = ks.length - 1;
+            int i = hash(key, mask);
+            for (; ; i = (i + 1) & mask) {
+                if (vs[i] == null)
+                    return;
+                if (ks[i] == key)
+                    break;
+            }
+            for (int j = (i + 1) & mask; vs[j] != null; j = (j + 1) & mask) {
+                // The entry at j may fill the hole at i if i lies
+                // between its home slot and j
+                if (((j - hash(ks[j], mask)) & mask) >= ((j - i) & mask)) {
+                    ks[i] = ks[j];
+                    vs[i] = vs[j];
+                    i = j;
+                }
+            }
+            ks[i] = 0L;
+            vs[i] = null;
+            --size;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldVals = vals;
+            int n = oldKeys.length << 1;
+            if (n <= 0)
+                throw new IllegalStateException("Too many keys");
+            keys = new long[n];
+            vals = new Object[n];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldVals[i] != null)
+                    put(oldKeys[i], oldVals[i]);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        PrimitiveKeyedTable<A> merge(PrimitiveKeyedTable<A> other, BinaryOperator<A> combiner) {
+            if (size < other.size)  // merge into the larger table
+                return other.merge(this, (x, y) -> combiner.apply(y, x));
+            long[] oks = other.keys;
+            Object[] ovs = other.vals;
+            for (int i = 0; i < oks.length; i++) {
+                Object v = ovs[i];
+                if (v != null) {
+                    long k = oks[i];
+                    A existing = computeIfAbsent(k, () -> (A) v);
+                    if (existing != v) {
+                        A merged = combiner.apply(existing, (A) v);
+                        // As in Map.merge, a null result removes the key
+                        if (merged == null)
+                            remove(k);
+                        else
+                            put(k, merged);
+                    }
+                }
+            }
+            return this;
+        }
+
+        /** Returns an initial capacity for a HashMap holding all entries. */
+        int capacityFor() {
+            return (int) Math.min((long) size * 4 / 3 + 1, 1 << 30);
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(KeyValueConsumer<A> action) {
+            long[] ks = keys;
+            Object[] vs = vals;
+            for (int i = 0; i < ks.length; i++) {
+                if (vs[i] != null)
+                    action.accept(ks[i], (A) vs[i]);
+            }
+        }
+
+        interface KeyValueConsumer<A> {
+            void accept(long key, A value);
+        }
+    }
+
     /**
      * Implementation class used by partitioningBy.
      */
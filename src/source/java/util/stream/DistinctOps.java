@@ -24,19 +24,28 @@
  */
 package java.util.stream;
 
-import java.util.HashSet;
-import java.util.LinkedHashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Objects;
-import java.util.Set;
 import java.util.Spliterator;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 /**
  * Factory methods for transforming streams into duplicate-free streams, using
  * {@link Object#equals(Object)} to determine equality.
  *
+ * <p>Seen elements are tracked in open-addressed sets, with specializations
+ * for int and long streams that do not box.  Unordered parallel evaluation
+ * hash-partitions the elements seen by each leaf task into separate sets,
+ * and then merges each partition across leaves in parallel.  This is done
+ * whenever the whole of a sized source will be consumed; otherwise, since
+ * only part of the output may be demanded, elements are filtered lazily
+ * through one shared concurrent set (keyed without boxing for int and long
+ * streams).
+ *
  * @since 1.8
  */
 final class DistinctOps {
@@ -55,13 +64,33 @@ final class DistinctOps {
         return new ReferencePipeline.StatefulOp<T, T>(upstream, StreamShape.REFERENCE,
                                                       StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
 
-            <P_IN> Node<T> reduce(PipelineHelper<T> helper, Spliterator<P_IN> spliterator) {
+            <P_IN> Node<T> reduce(PipelineHelper<T> helper, Spliterator<P_IN> spliterator,
+                                  IntFunction<T[]> generator) {
                 // If the stream is SORTED then it should also be ORDERED so the following will also
                 // preserve the sort order
-                TerminalOp<T, LinkedHashSet<T>> reduceOp
-                        = ReduceOps.<T, LinkedHashSet<T>>makeRef(LinkedHashSet::new, LinkedHashSet::add,
-                                                                 LinkedHashSet::addAll);
-                return Nodes.node(reduceOp.evaluateParallel(helper, spliterator));
+                TerminalOp<T, RefSet<T>> reduceOp
+                        = ReduceOps.<T, RefSet<T>>makeRef(RefSet::new, RefSet::add, RefSet::addAll);
+                RefSet<T> set = reduceOp.evaluateParallel(helper, spliterator);
+                T[] array = generator.apply(set.size);
+                set.copyTo(array, 0);
+                return Nodes.node(array);
+            }
+
+            <P_IN> Node<T> partition(PipelineHelper<T> helper, Spliterator<P_IN> spliterator,
+                                     IntFunction<T[]> generator) {
+                TerminalOp<T, Partitioned<RefSet<T>>> reduceOp
+                        = ReduceOps.<T, Partitioned<RefSet<T>>>makeRef(
+                                () -> new Partitioned<>(RefSet::new),
+                                (c, t) -> {
+                                    int h = RefSet.hash(t);
+                                    c.part(h).add(t, h);
+                                },
+                                Partitioned::combine);
+                Partitioned<RefSet<T>> leaves = reduceOp.evaluateParallel(helper, spliterator);
+                Object[] parts = leaves.merge();
+                T[] array = generator.apply(sizeOf(parts));
+                copyTo(parts, array);
+                return Nodes.node(array);
             }
 
             @Override
@@ -73,29 +102,10 @@ final class DistinctOps {
                     return helper.evaluate(spliterator, false, generator);
                 }
                 else if (StreamOpFlag.ORDERED.isKnown(helper.getStreamAndOpFlags())) {
-                    return reduce(helper, spliterator);
+                    return reduce(helper, spliterator, generator);
                 }
                 else {
-                    // Holder of null state since ConcurrentHashMap does not support null values
-                    AtomicBoolean seenNull = new AtomicBoolean(false);
-                    ConcurrentHashMap<T, Boolean> map = new ConcurrentHashMap<>();
-                    TerminalOp<T, Void> forEachOp = ForEachOps.makeRef(t -> {
-                        if (t == null)
-                            seenNull.set(true);
-                        else
-                            map.putIfAbsent(t, Boolean.TRUE);
-                    }, false);
-                    forEachOp.evaluateParallel(helper, spliterator);
-
-                    // If null has been seen then copy the key set into a HashSet that supports null values
-                    // and add null
-                    Set<T> keys = map.keySet();
-                    if (seenNull.get()) {
-                        // TODO Implement a more efficient set-union view, rather than copying
-                        keys = new HashSet<>(keys);
-                        keys.add(null);
-                    }
-                    return Nodes.node(keys);
+                    return partition(helper, spliterator, generator);
                 }
             }
 
@@ -107,10 +117,21 @@ final class DistinctOps {
                 }
                 else if (StreamOpFlag.ORDERED.isKnown(helper.getStreamAndOpFlags())) {
                     // Not lazy, barrier required to preserve order
-                    return reduce(helper, spliterator).spliterator();
+                    @SuppressWarnings("unchecked")
+                    IntFunction<T[]> generator = i -> (T[]) new Object[i];
+                    return reduce(helper, spliterator, generator).spliterator();
+                }
+                else if (StreamOpFlag.SIZED.isKnown(helper.getStreamAndOpFlags()) &&
+                         !isShortCircuitingDownstream()) {
+                    // Not lazy, since the whole of a finite source will be
+                    // consumed; partitioning avoids contention on one set
+                    @SuppressWarnings("unchecked")
+                    IntFunction<T[]> generator = i -> (T[]) new Object[i];
+                    return partition(helper, spliterator, generator).spliterator();
                 }
                 else {
-                    // Lazy
+                    // Lazy, since the source may be infinite or a
+                    // short-circuiting operation may follow
                     return new StreamSpliterators.DistinctSpliterator<>(helper.wrapSpliterator(spliterator));
                 }
             }
@@ -154,11 +175,11 @@ final class DistinctOps {
                     };
                 } else {
                     return new Sink.ChainedReference<T, T>(sink) {
-                        Set<T> seen;
+                        RefSet<T> seen;
 
                         @Override
                         public void begin(long size) {
-                            seen = new HashSet<>();
+                            seen = new RefSet<>();
                             downstream.begin(-1);
                         }
 
@@ -170,14 +191,625 @@ final class DistinctOps {
 
                         @Override
                         public void accept(T t) {
-                            if (!seen.contains(t)) {
-                                seen.add(t);
+                            if (seen.add(t))
                                 downstream.accept(t);
+                        }
+                    };
+                }
+            }
+        };
+    }
+
+    /**
+     * Appends a "distinct" operation to the provided stream, and returns the
+     * new stream.
+     *
+     * @param upstream a stream with element type Integer
+     * @return the new stream
+     */
+    static IntStream makeInt(AbstractPipeline<?, Integer, ?> upstream) {
+        return new IntPipeline.StatefulOp<Integer>(upstream, StreamShape.INT_VALUE,
+                                                  StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
+
+            <P_IN> Node<Integer> reduce(PipelineHelper<Integer> helper, Spliterator<P_IN> spliterator) {
+                TerminalOp<Integer, IntSet> reduceOp
+                        = ReduceOps.<IntSet>makeInt(IntSet::new, IntSet::add,
+                                                        (a, b) -> { a.addAll(b); return a; });
+                IntSet set = reduceOp.evaluateParallel(helper, spliterator);
+                int[] array = new int[set.size];
+                set.copyTo(array, 0);
+                return Nodes.node(array);
+            }
+
+            <P_IN> Node<Integer> partition(PipelineHelper<Integer> helper, Spliterator<P_IN> spliterator) {
+                TerminalOp<Integer, Partitioned<IntSet>> reduceOp
+                        = ReduceOps.<Partitioned<IntSet>>makeInt(
+                                () -> new Partitioned<>(IntSet::new),
+                                (c, t) -> {
+                                    int h = IntSet.hash(t);
+                                    c.part(h).add(t, h);
+                                },
+                                (a, b) -> { a.combine(b); return a; });
+                Partitioned<IntSet> leaves = reduceOp.evaluateParallel(helper, spliterator);
+                Object[] parts = leaves.merge();
+                int[] array = new int[sizeOf(parts)];
+                copyTo(parts, array);
+                return Nodes.node(array);
+            }
+
+            @Override
+            <P_IN> Node<Integer> opEvaluateParallel(PipelineHelper<Integer> helper,
+                                                  Spliterator<P_IN> spliterator,
+                                                  IntFunction<Integer[]> generator) {
+                if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                    // No-op
+                    return helper.evaluate(spliterator, false, generator);
+                }
+                else if (StreamOpFlag.ORDERED.isKnown(helper.getStreamAndOpFlags())) {
+                    return reduce(helper, spliterator);
+                }
+                else {
+                    return partition(helper, spliterator);
+                }
+            }
+
+            @Override
+            <P_IN> Spliterator<Integer> opEvaluateParallelLazy(PipelineHelper<Integer> helper,
+                                                           Spliterator<P_IN> spliterator) {
+                if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                    // No-op
+                    return helper.wrapSpliterator(spliterator);
+                }
+                else if (StreamOpFlag.ORDERED.isKnown(helper.getStreamAndOpFlags())) {
+                    // Not lazy, barrier required to preserve order
+                    return reduce(helper, spliterator).spliterator();
+                }
+                else if (StreamOpFlag.SIZED.isKnown(helper.getStreamAndOpFlags()) &&
+                         !isShortCircuitingDownstream()) {
+                    // Not lazy, since the whole of a finite source will be
+                    // consumed; partitioning avoids contention on one set
+                    return partition(helper, spliterator).spliterator();
+                }
+                else {
+                    // Lazy, since the source may be infinite or a
+                    // short-circuiting operation may follow
+                    return new StreamSpliterators.DistinctSpliterator.OfInt(
+                            (Spliterator.OfInt) helper.wrapSpliterator(spliterator));
+                }
+            }
+
+            @Override
+            Sink<Integer> opWrapSink(int flags, Sink<Integer> sink) {
+                Objects.requireNonNull(sink);
+
+                if (StreamOpFlag.DISTINCT.isKnown(flags)) {
+                    return sink;
+                } else if (StreamOpFlag.SORTED.isKnown(flags)) {
+                    return new Sink.ChainedInt<Integer>(sink) {
+                        boolean seenAny;
+                        int lastSeen;
+
+                        @Override
+                        public void begin(long size) {
+                            seenAny = false;
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void accept(int t) {
+                            if (!seenAny || t != lastSeen) {
+                                seenAny = true;
+                                downstream.accept(lastSeen = t);
                             }
                         }
                     };
+                } else {
+                    return new Sink.ChainedInt<Integer>(sink) {
+                        IntSet seen;
+
+                        @Override
+                        public void begin(long size) {
+                            seen = new IntSet();
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void end() {
+                            seen = null;
+                            downstream.end();
+                        }
+
+                        @Override
+                        public void accept(int t) {
+                            if (seen.add(t))
+                                downstream.accept(t);
+                        }
+                    };
                 }
             }
         };
     }
+
+    /**
+     * Appends a "distinct" operation to the provided stream, and returns the
+     * new stream.
+     *
+     * @param upstream a stream with element type Long
+     * @return the new stream
+     */
+    static LongStream makeLong(AbstractPipeline<?, Long, ?> upstream) {
+        return new LongPipeline.StatefulOp<Long>(upstream, StreamShape.LONG_VALUE,
+                                                  StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
+
+            <P_IN> Node<Long> reduce(PipelineHelper<Long> helper, Spliterator<P_IN> spliterator) {
+                TerminalOp<Long, LongSet> reduceOp
+                        = ReduceOps.<LongSet>makeLong(LongSet::new, LongSet::add,
+                                                        (a, b) -> { a.addAll(b); return a; });
+                LongSet set = reduceOp.evaluateParallel(helper, spliterator);
+                long[] array = new long[set.size];
+                set.copyTo(array, 0);
+                return Nodes.node(array);
+            }
+
+            <P_IN> Node<Long> partition(PipelineHelper<Long> helper, Spliterator<P_IN> spliterator) {
+                TerminalOp<Long, Partitioned<LongSet>> reduceOp
+                        = ReduceOps.<Partitioned<LongSet>>makeLong(
+                                () -> new Partitioned<>(LongSet::new),
+                                (c, t) -> {
+                                    int h = LongSet.hash(t);
+                                    c.part(h).add(t, h);
+                                },
+                                (a, b) -> { a.combine(b); return a; });
+                Partitioned<LongSet> leaves = reduceOp.evaluateParallel(helper, spliterator);
+                Object[] parts = leaves.merge();
+                long[] array = new long[sizeOf(parts)];
+                copyTo(parts, array);
+                return Nodes.node(array);
+            }
+
+            @Override
+            <P_IN> Node<Long> opEvaluateParallel(PipelineHelper<Long> helper,
+                                                  Spliterator<P_IN> spliterator,
+                                                  IntFunction<Long[]> generator) {
+                if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                    // No-op
+                    return helper.evaluate(spliterator, false, generator);
+                }
+                else if (StreamOpFlag.ORDERED.isKnown(helper.getStreamAndOpFlags())) {
+                    return reduce(helper, spliterator);
+                }
+                else {
+                    return partition(helper, spliterator);
+                }
+            }
+
+            @Override
+            <P_IN> Spliterator<Long> opEvaluateParallelLazy(PipelineHelper<Long> helper,
+                                                           Spliterator<P_IN> spliterator) {
+                if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                    // No-op
+                    return helper.wrapSpliterator(spliterator);
+                }
+                else if (StreamOpFlag.ORDERED.isKnown(helper.getStreamAndOpFlags())) {
+                    // Not lazy, barrier required to preserve order
+                    return reduce(helper, spliterator).spliterator();
+                }
+                else if (StreamOpFlag.SIZED.isKnown(helper.getStreamAndOpFlags()) &&
+                         !isShortCircuitingDownstream()) {
+                    // Not lazy, since the whole of a finite source will be
+                    // consumed; partitioning avoids contention on one set
+                    return partition(helper, spliterator).spliterator();
+                }
+                else {
+                    // Lazy, since the source may be infinite or a
+                    // short-circuiting operation may follow
+                    return new StreamSpliterators.DistinctSpliterator.OfLong(
+                            (Spliterator.OfLong) helper.wrapSpliterator(spliterator));
+                }
+            }
+
+            @Override
+            Sink<Long> opWrapSink(int flags, Sink<Long> sink) {
+                Objects.requireNonNull(sink);
+
+                if (StreamOpFlag.DISTINCT.isKnown(flags)) {
+                    return sink;
+                } else if (StreamOpFlag.SORTED.isKnown(flags)) {
+                    return new Sink.ChainedLong<Long>(sink) {
+                        boolean seenAny;
+                        long lastSeen;
+
+                        @Override
+                        public void begin(long size) {
+                            seenAny = false;
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void accept(long t) {
+                            if (!seenAny || t != lastSeen) {
+                                seenAny = true;
+                                downstream.accept(lastSeen = t);
+                            }
+                        }
+                    };
+                } else {
+                    return new Sink.ChainedLong<Long>(sink) {
+                        LongSet seen;
+
+                        @Override
+                        public void begin(long size) {
+                            seen = new LongSet();
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void end() {
+                            seen = null;
+                            downstream.end();
+                        }
+
+                        @Override
+                        public void accept(long t) {
+                            if (seen.add(t))
+                                downstream.accept(t);
+                        }
+                    };
+                }
+            }
+        };
+    }
+
+    // Open-addressed sets
+
+    /** The largest table length */
+    private static final int MAXIMUM_TABLE_LENGTH = 1 << 30;
+
+    /** The most elements a set can hold, at the maximum load factor */
+    private static final int MAXIMUM_SIZE = MAXIMUM_TABLE_LENGTH - (MAXIMUM_TABLE_LENGTH >>> 2);
+
+    /**
+     * Base class of the sets used to track seen elements.  Elements are kept
+     * in insertion order in an array maintained by subclasses; the table is
+     * a linear-probing index into that array, holding the position of an
+     * element plus one, or zero for a free slot.  Compared to a HashSet (or,
+     * when order matters, a LinkedHashSet) no node is allocated per element,
+     * and adding all the elements of another set appends them in order.
+     *
+     * <p>The table index is taken from the low bits of an element's spread
+     * hash, and the partition used by unordered parallel evaluation (see
+     * {@link Partitioned}) from the high bits, so elements of one partition
+     * are still spread over the table.
+     */
+    static abstract class OpenSet<S extends OpenSet<S>> {
+        int[] table;
+        int size;
+
+        OpenSet() {
+            table = new int[16];
+        }
+
+        /** Returns the spread hash of the element at the given position */
+        abstract int hashAt(int index);
+
+        /** Adds all elements of the given set */
+        abstract void addAll(S other);
+
+        /** Copies the elements to the given array, starting at offset */
+        abstract void copyTo(Object array, int offset);
+
+        /**
+         * Returns the capacity of the element array that should replace
+         * one of the given length, which is full.
+         */
+        static int grow(int length) {
+            if (length >= MAXIMUM_SIZE)
+                throw new OutOfMemoryError("Required array size too large");
+            return Math.min(length << 1, MAXIMUM_SIZE);
+        }
+
+        /**
+         * Records that the element at position {@code size} was placed in
+         * the given table slot, doubling the table if it is too full.
+         */
+        final void inserted(int slot) {
+            int[] tab = table;
+            int n = tab.length, s = size + 1;
+            tab[slot] = s;
+            size = s;
+            if (s > n - (n >>> 2) && n < MAXIMUM_TABLE_LENGTH) {
+                int m = (n << 1) - 1;
+                int[] t = new int[n << 1];
+                for (int j = 0; j < s; ++j) {
+                    int i = hashAt(j) & m;
+                    while (t[i] != 0)
+                        i = (i + 1) & m;
+                    t[i] = j + 1;
+                }
+                table = t;
+            }
+        }
+    }
+
+    /**
+     * An insertion-ordered set of references, also holding null.
+     */
+    static final class RefSet<T> extends OpenSet<RefSet<T>> {
+        Object[] elements = new Object[8];
+        int[] hashes = new int[8];
+
+        static int hash(Object o) {
+            int h = (o == null) ? 0 : o.hashCode() * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        int hashAt(int index) {
+            return hashes[index];
+        }
+
+        boolean add(T t) {
+            return add(t, hash(t));
+        }
+
+        boolean add(Object t, int h) {
+            int[] tab = table;
+            int m = tab.length - 1, i = h & m;
+            for (int j; (j = tab[i]) != 0; i = (i + 1) & m) {
+                if (hashes[--j] == h && Objects.equals(t, elements[j]))
+                    return false;
+            }
+            int s = size;
+            if (s == elements.length) {
+                int n = grow(s);
+                elements = Arrays.copyOf(elements, n);
+                hashes = Arrays.copyOf(hashes, n);
+            }
+            elements[s] = t;
+            hashes[s] = h;
+            inserted(i);
+            return true;
+        }
+
+        void addAll(RefSet<T> other) {
+            Object[] es = other.elements;
+            int[] hs = other.hashes;
+            for (int i = 0, n = other.size; i < n; ++i)
+                add(es[i], hs[i]);
+        }
+
+        void copyTo(Object array, int offset) {
+            System.arraycopy(elements, 0, array, offset, size);
+        }
+    }
+
+    /**
+     * An insertion-ordered set of ints.
+     */
+    static final class IntSet extends OpenSet<IntSet> {
+        int[] elements = new int[8];
+
+        static int hash(int x) {
+            int h = x * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        int hashAt(int index) {
+            return hash(elements[index]);
+        }
+
+        boolean add(int x) {
+            return add(x, hash(x));
+        }
+
+        boolean add(int x, int h) {
+            int[] tab = table;
+            int m = tab.length - 1, i = h & m;
+            for (int j; (j = tab[i]) != 0; i = (i + 1) & m) {
+                if (elements[j - 1] == x)
+                    return false;
+            }
+            int s = size;
+            if (s == elements.length)
+                elements = Arrays.copyOf(elements, grow(s));
+            elements[s] = x;
+            inserted(i);
+            return true;
+        }
+
+        void addAll(IntSet other) {
+            int[] es = other.elements;
+            for (int i = 0, n = other.size; i < n; ++i)
+                add(es[i]);
+        }
+
+        void copyTo(Object array, int offset) {
+            System.arraycopy(elements, 0, array, offset, size);
+        }
+    }
+
+    /**
+     * An insertion-ordered set of longs.
+     */
+    static final class LongSet extends OpenSet<LongSet> {
+        long[] elements = new long[8];
+
+        static int hash(long x) {
+            long g = x * 0x9E3779B97F4A7C15L;
+            int h = (int)(g ^ (g >>> 32));
+            return h ^ (h >>> 16);
+        }
+
+        int hashAt(int index) {
+            return hash(elements[index]);
+        }
+
+        boolean add(long x) {
+            return add(x, hash(x));
+        }
+
+        boolean add(long x, int h) {
+            int[] tab = table;
+            int m = tab.length - 1, i = h & m;
+            for (int j; (j = tab[i]) != 0; i = (i + 1) & m) {
+                if (elements[j - 1] == x)
+                    return false;
+            }
+            int s = size;
+            if (s == elements.length)
+                elements = Arrays.copyOf(elements, grow(s));
+            elements[s] = x;
+            inserted(i);
+            return true;
+        }
+
+        void addAll(LongSet other) {
+            long[] es = other.elements;
+            for (int i = 0, n = other.size; i < n; ++i)
+                add(es[i]);
+        }
+
+        void copyTo(Object array, int offset) {
+            System.arraycopy(elements, 0, array, offset, size);
+        }
+    }
+
+    // Partitioned evaluation
+
+    /**
+     * The number of hash partitions used by unordered parallel evaluation,
+     * a power of two at least the common pool parallelism.
+     */
+    static final int PARTITIONS =
+        Math.max(2, Integer.highestOneBit(ForkJoinPool.getCommonPoolParallelism() - 1) << 1);
+
+    /** Shift selecting the partition from the high bits of a spread hash */
+    static final int PARTITION_SHIFT = 32 - Integer.numberOfTrailingZeros(PARTITIONS);
+
+    /**
+     * The result container of a leaf task of unordered parallel evaluation:
+     * one set per hash partition, created when first needed.  Combining
+     * containers just links them, so that no element is copied as the
+     * computation tree completes; {@link #merge} then merges each partition
+     * across all leaves exactly once, with the partitions merged in
+     * parallel.  Since partitions are disjoint, merging takes no locks and
+     * contention on hot elements is confined to a single thread.
+     */
+    static final class Partitioned<S extends OpenSet<S>> {
+        final Supplier<S> factory;
+        final Object[] parts = new Object[PARTITIONS];
+        Partitioned<S> next, last = this;
+
+        Partitioned(Supplier<S> factory) {
+            this.factory = factory;
+        }
+
+        @SuppressWarnings("unchecked")
+        S part(int h) {
+            int p = h >>> PARTITION_SHIFT;
+            S s = (S) parts[p];
+            if (s == null)
+                parts[p] = s = factory.get();
+            return s;
+        }
+
+        void combine(Partitioned<S> other) {
+            last.next = other;
+            last = other.last;
+        }
+
+        /**
+         * Merges the partitions of this and all linked containers, returning
+         * the merged set (or null) for each partition.  The merge tasks run
+         * in the pool of the calling task, if any.
+         */
+        Object[] merge() {
+            ArrayList<Partitioned<S>> leaves = new ArrayList<>();
+            for (Partitioned<S> c = this; c != null; c = c.next)
+                leaves.add(c);
+            Object[] merged = new Object[PARTITIONS];
+            new MergeTask<>(null, leaves, merged, 0, PARTITIONS).invoke();
+            return merged;
+        }
+    }
+
+    /**
+     * A {@code ForkJoinTask} merging a range of partitions across all
+     * leaves, halving the range until it holds a single partition.
+     */
+    @SuppressWarnings("serial")
+    static final class MergeTask<S extends OpenSet<S>> extends CountedCompleter<Void> {
+        private final ArrayList<Partitioned<S>> leaves;
+        private final Object[] merged;
+        private final int lo, hi;
+
+        MergeTask(MergeTask<S> parent, ArrayList<Partitioned<S>> leaves,
+                  Object[] merged, int lo, int hi) {
+            super(parent);
+            this.leaves = leaves;
+            this.merged = merged;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        public void compute() {
+            int l = lo, h = hi;
+            while (h - l > 1) {
+                int mid = (l + h) >>> 1;
+                addToPendingCount(1);
+                new MergeTask<>(this, leaves, merged, mid, h).fork();
+                h = mid;
+            }
+            mergePartition(l);
+            propagateCompletion();
+        }
+
+        /**
+         * Merges partition p into the largest of its sets, and clears it
+         * in the leaves.
+         */
+        @SuppressWarnings("unchecked")
+        private void mergePartition(int p) {
+            S target = null;
+            for (Partitioned<S> c : leaves) {
+                S s = (S) c.parts[p];
+                if (s != null && (target == null || s.size > target.size))
+                    target = s;
+            }
+            for (Partitioned<S> c : leaves) {
+                S s = (S) c.parts[p];
+                c.parts[p] = null;
+                if (s != null && s != target)
+                    target.addAll(s);
+            }
+            merged[p] = target;
+        }
+    }
+
+    /**
+     * Returns the total size of merged partitions.
+     */
+    static int sizeOf(Object[] parts) {
+        long n = 0L;
+        for (Object s : parts) {
+            if (s != null)
+                n += ((OpenSet<?>) s).size;
+        }
+        if (n >= Nodes.MAX_ARRAY_SIZE)
+            throw new IllegalArgumentException(Nodes.BAD_SIZE);
+        return (int) n;
+    }
+
+    /**
+     * Copies the elements of merged partitions to the given array.
+     */
+    static void copyTo(Object[] parts, Object array) {
+        int offset = 0;
+        for (Object o : parts) {
+            if (o != null) {
+                OpenSet<?> s = (OpenSet<?>) o;
+                s.copyTo(array, offset);
+                offset += s.size;
+            }
+        }
+    }
 }
@@ -364,6 +364,16 @@ abstract class DoublePipeline<E_IN>
         return boxed().distinct().mapToDouble(i -> (double) i);
     }
 
+    @Override
+    public final DoubleStream scan(double identity, DoubleBinaryOperator op) {
+        return ScanOps.makeDouble(this, identity, op);
+    }
+
+    @Override
+    public final Stream<double[]> window(int size, int step) {
+        return WindowOps.makeDouble(this, size, step);
+    }
+
     // Terminal ops from DoubleStream
 
     @Override
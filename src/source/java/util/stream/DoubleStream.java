@@ -180,6 +180,103 @@ public interface DoubleStream extends BaseStream<Double, DoubleStream> {
      */
     DoubleStream distinct();
 
+    /**
+     * Returns a stream consisting of the running reductions of the elements
+     * of this stream: the element at each position of the new stream is the
+     * reduction, using the provided identity value and associative
+     * accumulation function, of the elements of this stream up to and
+     * including that position.  This is equivalent to:
+     * <pre>{@code
+     *     double result = identity;
+     *     for (double element : this stream)
+     *         emit(result = op.applyAsDouble(result, element));
+     * }</pre>
+     *
+     * but is not constrained to execute sequentially.  The new stream has as
+     * many elements as this stream, in encounter order.
+     *
+     * <p>The {@code identity} value must be an identity for the accumulator
+     * function, and the function must be
+     * <a href="package-summary.html#Associativity">associative</a>.  Since
+     * floating-point addition is not associative, the results of a scan
+     * with, for example, {@code Double::sum} may differ between sequential
+     * and parallel execution, in the same way as those of {@link #sum()}.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote Running totals of a stream of amounts can be computed with:
+     * <pre>{@code
+     *     DoubleStream totals = amounts.scan(0, Double::sum);
+     * }</pre>
+     *
+     * @implSpec
+     * The default implementation obtains the {@link #spliterator spliterator}
+     * of this stream, wraps it in a new stream using
+     * {@link StreamSupport#doubleStream StreamSupport.doubleStream}, and returns
+     * the scan of that stream.  The returned stream closes this stream
+     * when it is closed.
+     *
+     * @implNote
+     * In parallel, the elements are collected into an array which is then
+     * scanned in place with {@link java.util.Arrays#parallelPrefix}.
+     *
+     * @param identity the identity value for the accumulating function
+     * @param op an <a href="package-summary.html#Associativity">associative</a>,
+     *           <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *           <a href="package-summary.html#Statelessness">stateless</a>
+     *           function for combining two values
+     * @return the new stream
+     * @see #reduce(double, DoubleBinaryOperator)
+     * @since 1.8
+     */
+    default DoubleStream scan(double identity, DoubleBinaryOperator op) {
+        return StreamSupport.doubleStream(spliterator(), isParallel())
+                .onClose(this::close)
+                .scan(identity, op);
+    }
+
+    /**
+     * Returns a stream of fixed-size windows over the elements of this
+     * stream.  Each window is a new array holding {@code size} consecutive
+     * elements of this stream in encounter order, and the first element of
+     * each window is {@code step} elements after the first element of the
+     * previous window.  Windows overlap (sliding windows) if {@code step} is
+     * less than {@code size}, are adjacent (tumbling windows) if it is equal,
+     * and elements between windows are skipped if it is greater.  Only
+     * complete windows are included, so a stream of {@code n >= size}
+     * elements has {@code (n - size) / step + 1} windows.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote A moving average over five elements can be computed with:
+     * <pre>{@code
+     *     DoubleStream averages = values.window(5, 1)
+     *         .mapToDouble(w -> Arrays.stream(w).average().getAsDouble());
+     * }</pre>
+     *
+     * @implSpec
+     * The default implementation obtains the {@link #spliterator spliterator}
+     * of this stream, wraps it in a new stream using
+     * {@link StreamSupport#doubleStream StreamSupport.doubleStream}, and returns
+     * the windows of that stream.  The returned stream closes this stream
+     * when it is closed.
+     *
+     * @param size the number of elements in each window
+     * @param step the distance, in elements, between the starts of
+     *        successive windows
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} or {@code step} is not
+     *         positive
+     * @since 1.8
+     */
+    default Stream<double[]> window(int size, int step) {
+        return StreamSupport.doubleStream(spliterator(), isParallel())
+                .onClose(this::close)
+                .window(size, step);
+    }
+
     /**
      * Returns a stream consisting of the elements of this stream in sorted
      * order. The elements are compared for equality according to
@@ -393,9 +393,17 @@ abstract class IntPipeline<E_IN>
 
     @Override
     public final IntStream distinct() {
-        // While functional and quick to implement, this approach is not very efficient.
-        // An efficient version requires an int-specific map/set implementation.
-        return boxed().distinct().mapToInt(i -> i);
+        return DistinctOps.makeInt(this);
+    }
+
+    @Override
+    public final IntStream scan(int identity, IntBinaryOperator op) {
+        return ScanOps.makeInt(this, identity, op);
+    }
+
+    @Override
+    public final Stream<int[]> window(int size, int step) {
+        return WindowOps.makeInt(this, size, step);
     }
 
     // Terminal ops from IntStream
@@ -374,9 +374,17 @@ abstract class LongPipeline<E_IN>
 
     @Override
     public final LongStream distinct() {
-        // While functional and quick to implement, this approach is not very efficient.
-        // An efficient version requires a long-specific map/set implementation.
-        return boxed().distinct().mapToLong(i -> (long) i);
+        return DistinctOps.makeLong(this);
+    }
+
+    @Override
+    public final LongStream scan(long identity, LongBinaryOperator op) {
+        return ScanOps.makeLong(this, identity, op);
+    }
+
+    @Override
+    public final Stream<long[]> window(int size, int step) {
+        return WindowOps.makeLong(this, size, step);
     }
 
     // Terminal ops from LongStream
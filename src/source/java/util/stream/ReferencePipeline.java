@@ -394,6 +394,14 @@ abstract class ReferencePipeline<P_IN, P_OUT>
         return SortedOps.makeRef(this, comparator);
     }
 
+    @Override
+    public final Stream<P_OUT> sorted(Comparator<? super P_OUT> comparator,
+                                      SortOptions options) {
+        return options.spills()
+               ? SortedOps.makeRef(this, comparator, options)
+               : SortedOps.makeRef(this, comparator);
+    }
+
     @Override
     public final Stream<P_OUT> limit(long maxSize) {
         if (maxSize < 0)
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+
+/**
+ * Factory methods for transforming primitive streams into streams of their
+ * running (inclusive prefix) reductions.
+ *
+ * <p>Sequentially, a scan carries its accumulated value from one element to
+ * the next and needs no buffering.  In parallel, when the upstream is of
+ * known size and the whole output will be consumed, the elements are first
+ * collected into an array, to which the identity is applied on the left of
+ * the first element, and the array is then scanned in place by
+ * {@link Arrays#parallelPrefix}, whose {@code CountedCompleter} tasks compute
+ * the sums of subranges in a first pass and propagate the prefixes in a
+ * second; this materializes the upstream.  Otherwise, when the upstream may
+ * be infinite or a later operation short-circuits, the elements are scanned
+ * sequentially as they are pulled by the downstream operations, which may
+ * still run in parallel.
+ *
+ * @since 1.8
+ */
+final class ScanOps {
+
+    private ScanOps() { }
+
+    /** Scans preserve order and size, but not sortedness or distinctness */
+    private static final int FLAGS = StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT;
+
+    /**
+     * Appends a "scan" operation to the provided stream, and returns the new
+     * stream.
+     *
+     * @param upstream a stream with element type Integer
+     * @param identity the identity value for the operator
+     * @param op the associative operator
+     * @return the new stream
+     */
+    static IntStream makeInt(AbstractPipeline<?, Integer, ?> upstream,
+                                 int identity, IntBinaryOperator op) {
+        Objects.requireNonNull(op);
+        return new IntPipeline.StatefulOp<Integer>(upstream, StreamShape.INT_VALUE, FLAGS) {
+            @Override
+            Sink<Integer> opWrapSink(int flags, Sink<Integer> sink) {
+                return new Sink.ChainedInt<Integer>(sink) {
+                    int acc;
+
+                    @Override
+                    public void begin(long size) {
+                        acc = identity;
+                        downstream.begin(size);
+                    }
+
+                    @Override
+                    public void accept(int t) {
+                        downstream.accept(acc = op.applyAsInt(acc, t));
+                    }
+                };
+            }
+
+            @Override
+            <P_IN> Spliterator<Integer> opEvaluateParallelLazy(PipelineHelper<Integer> helper,
+                                                           Spliterator<P_IN> spliterator) {
+                // Collecting the upstream is worthwhile only if it is
+                // finite and all of the output will be consumed
+                if (StreamOpFlag.SIZED.isKnown(helper.getStreamAndOpFlags()) &&
+                    !isShortCircuitingDownstream())
+                    return super.opEvaluateParallelLazy(helper, spliterator);
+                Spliterator.OfInt s = (Spliterator.OfInt) helper.wrapSpliterator(spliterator);
+                return new Spliterators.AbstractIntSpliterator(
+                    s.estimateSize(),
+                    s.characteristics() & (Spliterator.ORDERED | Spliterator.SIZED)) {
+                    int acc = identity;
+
+                    @Override
+                    public boolean tryAdvance(IntConsumer action) {
+                        Objects.requireNonNull(action);
+                        return s.tryAdvance((int t) ->
+                            action.accept(acc = op.applyAsInt(acc, t)));
+                    }
+                };
+            }
+
+            @Override
+            <P_IN> Node<Integer> opEvaluateParallel(PipelineHelper<Integer> helper,
+                                                Spliterator<P_IN> spliterator,
+                                                IntFunction<Integer[]> generator) {
+                Node.OfInt n = (Node.OfInt) helper.evaluate(spliterator, true, generator);
+                int[] array = n.asPrimitiveArray();
+                if (array.length > 0) {
+                    array[0] = op.applyAsInt(identity, array[0]);
+                    Arrays.parallelPrefix(array, op);
+                }
+                return Nodes.node(array);
+            }
+        };
+    }
+
+    /**
+     * Appends a "scan" operation to the provided stream, and returns the new
+     * stream.
+     *
+     * @param upstream a stream with element type Long
+     * @param identity the identity value for the operator
+     * @param op the associative operator
+     * @return the new stream
+     */
+    static LongStream makeLong(AbstractPipeline<?, Long, ?> upstream,
+                                 long identity, LongBinaryOperator op) {
+        Objects.requireNonNull(op);
+        return new LongPipeline.StatefulOp<Long>(upstream, StreamShape.LONG_VALUE, FLAGS) {
+            @Override
+            Sink<Long> opWrapSink(int flags, Sink<Long> sink) {
+                return new Sink.ChainedLong<Long>(sink) {
+                    long acc;
+
+                    @Override
+                    public void begin(long size) {
+                        acc = identity;
+                        downstream.begin(size);
+                    }
+
+                    @Override
+                    public void accept(long t) {
+                        downstream.accept(acc = op.applyAsLong(acc, t));
+                    }
+                };
+            }
+
+            @Override
+            <P_IN> Spliterator<Long> opEvaluateParallelLazy(PipelineHelper<Long> helper,
+                                                           Spliterator<P_IN> spliterator) {
+                // Collecting the upstream is worthwhile only if it is
+                // finite and all of the output will be consumed
+                if (StreamOpFlag.SIZED.isKnown(helper.getStreamAndOpFlags()) &&
+                    !isShortCircuitingDownstream())
+                    return super.opEvaluateParallelLazy(helper, spliterator);
+                Spliterator.OfLong s = (Spliterator.OfLong) helper.wrapSpliterator(spliterator);
+                return new Spliterators.AbstractLongSpliterator(
+                    s.estimateSize(),
+                    s.characteristics() & (Spliterator.ORDERED | Spliterator.SIZED)) {
+                    long acc = identity;
+
+                    @Override
+                    public boolean tryAdvance(LongConsumer action) {
+                        Objects.requireNonNull(action);
+                        return s.tryAdvance((long t) ->
+                            action.accept(acc = op.applyAsLong(acc, t)));
+                    }
+                };
+            }
+
+            @Override
+            <P_IN> Node<Long> opEvaluateParallel(PipelineHelper<Long> helper,
+                                                Spliterator<P_IN> spliterator,
+                                                IntFunction<Long[]> generator) {
+                Node.OfLong n = (Node.OfLong) helper.evaluate(spliterator, true, generator);
+                long[] array = n.asPrimitiveArray();
+                if (array.length > 0) {
+                    array[0] = op.applyAsLong(identity, array[0]);
+                    Arrays.parallelPrefix(array, op);
+                }
+                return Nodes.node(array);
+            }
+        };
+    }
+
+    /**
+     * Appends a "scan" operation to the provided stream, and returns the new
+     * stream.
+     *
+     * @param upstream a stream with element type Double
+     * @param identity the identity value for the operator
+     * @param op the associative operator
+     * @return the new stream
+     */
+    static DoubleStream makeDouble(AbstractPipeline<?, Double, ?> upstream,
+                                 double identity, DoubleBinaryOperator op) {
+        Objects.requireNonNull(op);
+        return new DoublePipeline.StatefulOp<Double>(upstream, StreamShape.DOUBLE_VALUE, FLAGS) {
+            @Override
+            Sink<Double> opWrapSink(int flags, Sink<Double> sink) {
+                return new Sink.ChainedDouble<Double>(sink) {
+                    double acc;
+
+                    @Override
+                    public void begin(long size) {
+                        acc = identity;
+                        downstream.begin(size);
+                    }
+
+                    @Override
+                    public void accept(double t) {
+                        downstream.accept(acc = op.applyAsDouble(acc, t));
+                    }
+                };
+            }
+
+            @Override
+            <P_IN> Spliterator<Double> opEvaluateParallelLazy(PipelineHelper<Double> helper,
+                                                           Spliterator<P_IN> spliterator) {
+                // Collecting the upstream is worthwhile only if it is
+                // finite and all of the output will be consumed
+                if (StreamOpFlag.SIZED.isKnown(helper.getStreamAndOpFlags()) &&
+                    !isShortCircuitingDownstream())
+                    return super.opEvaluateParallelLazy(helper, spliterator);
+                Spliterator.OfDouble s = (Spliterator.OfDouble) helper.wrapSpliterator(spliterator);
+                return new Spliterators.AbstractDoubleSpliterator(
+                    s.estimateSize(),
+                    s.characteristics() & (Spliterator.ORDERED | Spliterator.SIZED)) {
+                    double acc = identity;
+
+                    @Override
+                    public boolean tryAdvance(DoubleConsumer action) {
+                        Objects.requireNonNull(action);
+                        return s.tryAdvance((double t) ->
+                            action.accept(acc = op.applyAsDouble(acc, t)));
+                    }
+                };
+            }
+
+            @Override
+            <P_IN> Node<Double> opEvaluateParallel(PipelineHelper<Double> helper,
+                                                Spliterator<P_IN> spliterator,
+                                                IntFunction<Double[]> generator) {
+                Node.OfDouble n = (Node.OfDouble) helper.evaluate(spliterator, true, generator);
+                double[] array = n.asPrimitiveArray();
+                if (array.length > 0) {
+                    array[0] = op.applyAsDouble(identity, array[0]);
+                    Arrays.parallelPrefix(array, op);
+                }
+                return Nodes.node(array);
+            }
+        };
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Options controlling how {@link Stream#sorted(java.util.Comparator, SortOptions)}
+ * buffers the elements it sorts.
+ *
+ * <p>By default all elements of a sorted stream are held in memory until
+ * the upstream is exhausted.  A stream sorted with {@link #spillTo spillTo}
+ * options instead bounds the amount of buffered data: whenever the buffered
+ * elements are estimated to exceed the given number of bytes they are sorted
+ * and written to a temporary file in the given directory as a sorted
+ * <em>run</em>.  Once the upstream is exhausted the runs are merged, and the
+ * merged elements are read back lazily as downstream operations consume
+ * them.  Such streams can sort more data than fits in the heap, at the cost
+ * of serializing every spilled element, so their elements must be
+ * {@link java.io.Serializable}.
+ *
+ * <p>The size of buffered data is estimated from the serialized size of a
+ * sample of the elements, and refined using the sizes of the runs written.
+ * It is not a bound on heap usage, which is typically some small multiple of
+ * the serialized size.
+ *
+ * @since 1.8
+ */
+public final class SortOptions {
+
+    private static final SortOptions IN_MEMORY = new SortOptions(null, Long.MAX_VALUE);
+
+    /** The directory to write runs to, or null to sort in memory */
+    private final Path directory;
+
+    /** The estimated number of bytes buffered before a run is written */
+    private final long maxBytes;
+
+    private SortOptions(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns options that sort all elements in memory, as
+     * {@link Stream#sorted(java.util.Comparator)} does.
+     *
+     * @return options for sorting in memory
+     */
+    public static SortOptions inMemory() {
+        return IN_MEMORY;
+    }
+
+    /**
+     * Returns options that spill sorted runs to temporary files in the
+     * given directory whenever the buffered elements are estimated to occupy
+     * more than {@code maxBytes} bytes when serialized.  The files are
+     * deleted once they have been merged, or, if the sorted stream is not
+     * fully consumed or its evaluation fails, when the stream is
+     * {@linkplain BaseStream#close closed}.
+     *
+     * @param directory the directory in which to create temporary files
+     * @param maxBytes the estimated number of bytes of elements to buffer
+     *        in memory before writing a sorted run
+     * @return options for sorting with spilling to {@code directory}
+     * @throws NullPointerException if {@code directory} is null
+     * @throws IllegalArgumentException if {@code maxBytes} is not positive
+     */
+    public static SortOptions spillTo(Path directory, long maxBytes) {
+        Objects.requireNonNull(directory);
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException(Long.toString(maxBytes));
+        return new SortOptions(directory, maxBytes);
+    }
+
+    /**
+     * Returns the directory in which runs are written, or an empty
+     * {@code Optional} if elements are sorted in memory.
+     *
+     * @return the spill directory, if any
+     */
+    public Optional<Path> spillDirectory() {
+        return Optional.ofNullable(directory);
+    }
+
+    /**
+     * Returns the estimated number of bytes of elements buffered in memory
+     * before a sorted run is written, or {@code Long.MAX_VALUE} if elements
+     * are sorted in memory.
+     *
+     * @return the memory budget in bytes
+     */
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns {@code true} if these options spill runs to disk.
+     */
+    boolean spills() {
+        return directory != null;
+    }
+
+    @Override
+    public String toString() {
+        return (directory == null) ? "SortOptions[inMemory]" :
+            "SortOptions[spillTo=" + directory + ", maxBytes=" + maxBytes + "]";
+    }
+}
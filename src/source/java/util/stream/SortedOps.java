@@ -24,11 +24,29 @@
  */
 package java.util.stream;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.function.IntFunction;
 
 
@@ -63,6 +81,21 @@ final class SortedOps {
         return new OfRef<>(upstream, comparator);
     }
 
+    /**
+     * Appends a "sorted" operation to the provided stream that may spill
+     * sorted runs to disk.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param comparator the comparator to order elements by
+     * @param options the options controlling spilling
+     */
+    static <T> Stream<T> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                Comparator<? super T> comparator,
+                                SortOptions options) {
+        return new OfRef<>(upstream, comparator, options);
+    }
+
     /**
      * Appends a "sorted" operation to the provided stream.
      *
@@ -102,6 +135,15 @@ final class SortedOps {
          */
         private final boolean isNaturalSort;
         private final Comparator<? super T> comparator;
+        /**
+         * Options for spilling runs to disk, or null to sort in memory
+         */
+        private final SortOptions options;
+        /**
+         * The sorter of the current evaluation when spilling, closed
+         * (deleting its run files) when the stream is closed
+         */
+        private SpillingSorter<T> sorter;
 
         /**
          * Sort using natural order of {@literal <T>} which must be
@@ -115,6 +157,7 @@ final class SortedOps {
             @SuppressWarnings("unchecked")
             Comparator<? super T> comp = (Comparator<? super T>) Comparator.naturalOrder();
             this.comparator = comp;
+            this.options = null;
         }
 
         /**
@@ -127,6 +170,42 @@ final class SortedOps {
                   StreamOpFlag.IS_ORDERED | StreamOpFlag.NOT_SORTED);
             this.isNaturalSort = false;
             this.comparator = Objects.requireNonNull(comparator);
+            this.options = null;
+        }
+
+        /**
+         * Sort using the provided comparator, spilling sorted runs to disk
+         * as directed by the provided options.
+         *
+         * @param comparator The comparator to be used to evaluate ordering.
+         * @param options The options controlling spilling.
+         */
+        OfRef(AbstractPipeline<?, T, ?> upstream, Comparator<? super T> comparator,
+              SortOptions options) {
+            super(upstream, StreamShape.REFERENCE,
+                  StreamOpFlag.IS_ORDERED | StreamOpFlag.NOT_SORTED);
+            this.isNaturalSort = false;
+            this.comparator = Objects.requireNonNull(comparator);
+            this.options = options.spills() ? options : null;
+            if (this.options != null)
+                onClose(this::closeSorter);
+        }
+
+        /**
+         * Creates the sorter for an evaluation, closing any left by an
+         * earlier one.
+         */
+        SpillingSorter<T> newSorter() {
+            closeSorter();
+            return sorter = new SpillingSorter<>(comparator, options);
+        }
+
+        void closeSorter() {
+            SpillingSorter<T> s = sorter;
+            if (s != null) {
+                sorter = null;
+                s.close();
+            }
         }
 
         @Override
@@ -137,6 +216,8 @@ final class SortedOps {
             // also naturally sorted then this is a no-op
             if (StreamOpFlag.SORTED.isKnown(flags) && isNaturalSort)
                 return sink;
+            else if (options != null)
+                return new SpillingRefSortingSink<>(sink, comparator, this);
             else if (StreamOpFlag.SIZED.isKnown(flags))
                 return new SizedRefSortingSink<>(sink, comparator);
             else
@@ -152,6 +233,14 @@ final class SortedOps {
             if (StreamOpFlag.SORTED.isKnown(helper.getStreamAndOpFlags()) && isNaturalSort) {
                 return helper.evaluate(spliterator, false, generator);
             }
+            else if (options != null) {
+                Spliterator<T> sorted = opEvaluateParallelLazy(helper, spliterator);
+                Node.Builder<T> nb = Nodes.builder(sorted.getExactSizeIfKnown(), generator);
+                nb.begin(sorted.getExactSizeIfKnown());
+                sorted.forEachRemaining(nb);
+                nb.end();
+                return nb.build();
+            }
             else {
                 // @@@ Weak two-pass parallel implementation; parallel collect, parallel sort
                 T[] flattenedData = helper.evaluate(spliterator, true, generator).asArray(generator);
@@ -159,6 +248,27 @@ final class SortedOps {
                 return Nodes.node(flattenedData);
             }
         }
+
+        @Override
+        public <P_IN> Spliterator<T> opEvaluateParallelLazy(PipelineHelper<T> helper,
+                                                            Spliterator<P_IN> spliterator) {
+            if (options == null)
+                return super.opEvaluateParallelLazy(helper, spliterator);
+            // Runs are produced sequentially, since the memory budget
+            // applies to the operation as a whole; the merge is then
+            // pulled lazily by the downstream stages.  Runs not consumed
+            // are deleted when the stream is closed
+            SpillingSorter<T> sorter = newSorter();
+            try {
+                Sink<T> sink = sorter::add;
+                helper.wrapAndCopyInto(sink, spliterator);
+                sorter.finish();
+            } catch (Throwable ex) {
+                closeSorter();
+                throw ex;
+            }
+            return sorter.spliterator();
+        }
     }
 
     /**
@@ -405,6 +515,467 @@ final class SortedOps {
         }
     }
 
+    /**
+     * {@link Sink} for implementing sort on reference streams with spilling
+     * of sorted runs to disk.
+     */
+    private static final class SpillingRefSortingSink<T> extends AbstractRefSortingSink<T> {
+        private final OfRef<T> op;
+        private SpillingSorter<T> sorter;
+
+        SpillingRefSortingSink(Sink<? super T> sink, Comparator<? super T> comparator,
+                               OfRef<T> op) {
+            super(sink, comparator);
+            this.op = op;
+        }
+
+        @Override
+        public void begin(long size) {
+            // The op closes the sorter when the stream is closed, in case
+            // evaluation fails before end()
+            sorter = op.newSorter();
+        }
+
+        @Override
+        public void end() {
+            SpillingSorter<T> s = sorter;
+            sorter = null;
+            try {
+                s.finish();
+                downstream.begin(s.count());
+                Iterator<T> it = s.iterator();
+                if (!cancellationWasRequested) {
+                    while (it.hasNext())
+                        downstream.accept(it.next());
+                }
+                else {
+                    while (it.hasNext() && !downstream.cancellationRequested())
+                        downstream.accept(it.next());
+                }
+                downstream.end();
+            } finally {
+                op.closeSorter();
+            }
+        }
+
+        @Override
+        public void accept(T t) {
+            sorter.add(t);
+        }
+    }
+
+    /**
+     * An external merge sort.  Elements are buffered in memory until their
+     * estimated serialized size exceeds the budget given by the
+     * {@link SortOptions}; the buffer is then sorted (with the stable
+     * {@code List.sort}) and written to a temporary file as a run.  When
+     * all elements have been added, any runs beyond {@link #MAX_MERGE_WIDTH}
+     * are merged in earlier passes, and the remaining runs together with
+     * the final in-memory buffer are merged lazily by {@link #iterator()}.
+     * Runs are kept in encounter order and ties are broken in favour of the
+     * earlier run, so the sort is stable.
+     *
+     * <p>The serialized size of elements is estimated by writing a sample
+     * of them to a stream that only counts bytes.  The estimate is replaced
+     * by the actual average each time a run is written.
+     */
+    private static final class SpillingSorter<T> {
+        /** Size of the buffers used to read and write runs */
+        static final int BUFFER_SIZE = 1 << 16;
+        /** The maximum number of runs merged at once */
+        static final int MAX_MERGE_WIDTH = 64;
+        /** Elements written between resets of run output streams */
+        static final int RESET_INTERVAL = 1 << 10;
+        /** All of the first elements are sampled, then one in SAMPLE_MASK + 1 */
+        static final int INITIAL_SAMPLES = 16;
+        static final int SAMPLE_MASK = (1 << 6) - 1;
+        /** Samples written between resets of the sampling stream */
+        static final int SAMPLE_RESET_INTERVAL = 64;
+
+        /**
+         * An output stream that discards its data, counting its length.
+         */
+        static final class CountingOutputStream extends OutputStream {
+            long count;
+            @Override public void write(int b) { ++count; }
+            @Override public void write(byte[] b, int off, int len) { count += len; }
+        }
+
+        /**
+         * A sorted run on disk.
+         */
+        static final class Run {
+            final Path file;
+            final long count;
+            Run(Path file, long count) {
+                this.file = file;
+                this.count = count;
+            }
+        }
+
+        /**
+         * The position of the merge within a run.
+         */
+        static abstract class Cursor<T> {
+            /** The index of the run, used to break ties */
+            final int index;
+            T head;
+            Cursor(int index) { this.index = index; }
+            /** Sets head to the next element, returning false if none */
+            abstract boolean advance() throws IOException;
+            void close() throws IOException { }
+        }
+
+        static final class ListCursor<T> extends Cursor<T> {
+            final Iterator<T> it;
+            ListCursor(int index, List<T> list) {
+                super(index);
+                this.it = list.iterator();
+            }
+            boolean advance() {
+                if (!it.hasNext())
+                    return false;
+                head = it.next();
+                return true;
+            }
+        }
+
+        static final class RunCursor<T> extends Cursor<T> {
+            final Path file;
+            final ObjectInputStream in;
+            long remaining;
+            RunCursor(int index, Run run) throws IOException {
+                super(index);
+                FileChannel ch = FileChannel.open(run.file, StandardOpenOption.READ);
+                try {
+                    this.in = new ObjectInputStream(new BufferedInputStream(
+                        Channels.newInputStream(ch), BUFFER_SIZE));
+                } catch (IOException | RuntimeException ex) {
+                    ch.close();
+                    throw ex;
+                }
+                this.file = run.file;
+                this.remaining = run.count;
+            }
+            @SuppressWarnings("unchecked")
+            boolean advance() throws IOException {
+                if (remaining == 0)
+                    return false;
+                --remaining;
+                try {
+                    head = (T) in.readObject();
+                } catch (ClassNotFoundException ex) {
+                    throw new IOException(ex);
+                }
+                return true;
+            }
+            /** Closes the run and deletes its file */
+            void close() throws IOException {
+                try {
+                    in.close();
+                } finally {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+
+        /**
+         * Merges cursors.  Only the cursors in live, each of which already
+         * holds its first element, take part in the merge; all cursors are
+         * closed by close().
+         */
+        static final class Merger<T> implements Iterator<T> {
+            final PriorityQueue<Cursor<T>> queue;
+            final List<Cursor<T>> cursors;
+
+            Merger(Comparator<? super T> comparator, List<Cursor<T>> cursors,
+                   List<Cursor<T>> live) {
+                this.cursors = cursors;
+                this.queue = new PriorityQueue<>(Math.max(1, live.size()), (a, b) -> {
+                    int c = comparator.compare(a.head, b.head);
+                    return (c != 0) ? c : Integer.compare(a.index, b.index);
+                });
+                queue.addAll(live);
+            }
+
+            public boolean hasNext() {
+                return !queue.isEmpty();
+            }
+
+            public T next() {
+                Cursor<T> c = queue.poll();
+                if (c == null)
+                    throw new NoSuchElementException();
+                T t = c.head;
+                try {
+                    if (c.advance())
+                        queue.add(c);
+                    else {
+                        c.head = null;
+                        c.close();
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                return t;
+            }
+
+            void close() throws IOException {
+                IOException failure = null;
+                for (Cursor<T> c : cursors) {
+                    try {
+                        c.close();
+                    } catch (IOException ex) {
+                        if (failure == null)
+                            failure = ex;
+                    }
+                }
+                queue.clear();
+                if (failure != null)
+                    throw failure;
+            }
+        }
+
+        final Comparator<? super T> comparator;
+        final Path directory;
+        final long maxBytes;
+
+        ArrayList<T> buffer = new ArrayList<>();
+        final ArrayList<Run> runs = new ArrayList<>();
+        long count;
+
+        /** Sampling state; totals are in bytes and elements */
+        CountingOutputStream sampleCounter;
+        ObjectOutputStream sampler;
+        int samplesSinceReset;
+        long sampledBytes, sampledElements;
+        /** Current estimate of bytes per element, at least 1 */
+        long bytesPerElement = 1L;
+
+        Merger<T> merger;
+
+        SpillingSorter(Comparator<? super T> comparator, SortOptions options) {
+            this.comparator = comparator;
+            this.directory = options.spillDirectory().get();
+            this.maxBytes = options.maxBytes();
+        }
+
+        long count() {
+            return count;
+        }
+
+        void add(T t) {
+            ArrayList<T> b = buffer;
+            b.add(t);
+            long n = ++count;
+            try {
+                if (n <= INITIAL_SAMPLES || (n & SAMPLE_MASK) == 0)
+                    sample(t);
+                if (b.size() * bytesPerElement >= maxBytes)
+                    spill();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private void sample(T t) throws IOException {
+            CountingOutputStream c = sampleCounter;
+            if (c == null) {
+                sampleCounter = c = new CountingOutputStream();
+                sampler = new ObjectOutputStream(c);
+            }
+            ObjectOutputStream out = sampler;
+            if (++samplesSinceReset == SAMPLE_RESET_INTERVAL) {
+                samplesSinceReset = 0;
+                out.reset();
+            }
+            long before = c.count;
+            out.writeObject(t);
+            out.flush();
+            sampledBytes += c.count - before;
+            bytesPerElement = Math.max(1L, sampledBytes / ++sampledElements);
+        }
+
+        /**
+         * Sorts the buffer and writes it out as a new run.
+         */
+        private void spill() throws IOException {
+            ArrayList<T> b = buffer;
+            b.sort(comparator);
+            Run r = writeRun(b.iterator(), b.size());
+            runs.add(r);
+            buffer = new ArrayList<>(b.size());
+            long bytes = Files.size(r.file);
+            sampledBytes = bytes;
+            sampledElements = r.count;
+            bytesPerElement = Math.max(1L, bytes / r.count);
+        }
+
+        private Run writeRun(Iterator<? extends T> it, long n) throws IOException {
+            Path file = Files.createTempFile(directory, "sorted", ".run");
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE);
+                 ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(
+                     Channels.newOutputStream(ch), BUFFER_SIZE))) {
+                for (int i = 0; it.hasNext(); ) {
+                    out.writeObject(it.next());
+                    if (++i == RESET_INTERVAL) {
+                        i = 0;
+                        out.reset();
+                    }
+                }
+            } catch (IOException | RuntimeException | Error ex) {
+                deleteQuietly(file);
+                throw ex;
+            }
+            return new Run(file, n);
+        }
+
+        /**
+         * Called after all elements have been added.  Sorts the buffer and
+         * merges runs until at most MAX_MERGE_WIDTH remain.  Each pass
+         * merges consecutive groups of MAX_MERGE_WIDTH runs, so that every
+         * element is read and written once per pass.
+         */
+        void finish() {
+            sampler = null;
+            sampleCounter = null;
+            buffer.sort(comparator);
+            ArrayList<Run> merged = new ArrayList<>();
+            try {
+                while (runs.size() > MAX_MERGE_WIDTH) {
+                    for (int i = 0, n = runs.size(); i < n; i += MAX_MERGE_WIDTH) {
+                        List<Run> group = runs.subList(i, Math.min(n, i + MAX_MERGE_WIDTH));
+                        merged.add((group.size() == 1) ? group.get(0) : merge(group));
+                    }
+                    runs.clear();
+                    runs.addAll(merged);
+                    merged.clear();
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } finally {
+                // Empty unless a pass failed, leaving runs unknown to close()
+                for (Run r : merged)
+                    deleteQuietly(r.file);
+            }
+        }
+
+        /**
+         * Merges the given runs into a new run, deleting their files.
+         */
+        private Run merge(List<Run> group) throws IOException {
+            long n = 0L;
+            for (Run r : group)
+                n += r.count;
+            Merger<T> m = open(group, null);
+            Run merged;
+            try {
+                merged = writeRun(m, n);
+            } finally {
+                m.close();
+            }
+            for (Run r : group)
+                deleteQuietly(r.file);
+            return merged;
+        }
+
+        /**
+         * Returns an iterator over all elements in sorted order.  The
+         * iterator may throw {@code UncheckedIOException} if a run cannot
+         * be read.  Runs are closed and deleted as they are exhausted.
+         */
+        Iterator<T> iterator() {
+            try {
+                return merger = open(runs, buffer);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /**
+         * Returns a spliterator over all elements in sorted order, as by
+         * {@link #iterator}.  The spliterator does not split: splitting
+         * would copy a prefix of the merge into an array, which may
+         * exceed the memory budget that caused the runs to be spilled.
+         */
+        Spliterator<T> spliterator() {
+            Iterator<T> it = iterator();
+            return new Spliterators.AbstractSpliterator<T>(
+                count, Spliterator.ORDERED | Spliterator.SIZED) {
+                public boolean tryAdvance(Consumer<? super T> action) {
+                    if (action == null) throw new NullPointerException();
+                    if (!it.hasNext())
+                        return false;
+                    action.accept(it.next());
+                    return true;
+                }
+                public void forEachRemaining(Consumer<? super T> action) {
+                    if (action == null) throw new NullPointerException();
+                    it.forEachRemaining(action);
+                }
+                public Spliterator<T> trySplit() {
+                    return null;
+                }
+            };
+        }
+
+        private Merger<T> open(List<Run> rs, List<T> last) throws IOException {
+            List<Cursor<T>> cursors = new ArrayList<>(rs.size() + 1);
+            List<Cursor<T>> live = new ArrayList<>(rs.size() + 1);
+            try {
+                int i = 0;
+                for (Run r : rs) {
+                    RunCursor<T> c = new RunCursor<>(i++, r);
+                    cursors.add(c);
+                    if (c.advance())
+                        live.add(c);
+                    else
+                        c.close();
+                }
+                if (last != null) {
+                    ListCursor<T> c = new ListCursor<>(i, last);
+                    cursors.add(c);
+                    if (c.advance())
+                        live.add(c);
+                }
+            } catch (IOException | RuntimeException ex) {
+                for (Cursor<T> c : cursors) {
+                    try {
+                        c.close();
+                    } catch (IOException ignore) {
+                    }
+                }
+                throw ex;
+            }
+            return new Merger<>(comparator, cursors, live);
+        }
+
+        /**
+         * Releases all resources and deletes all run files.
+         */
+        void close() {
+            Merger<T> m = merger;
+            merger = null;
+            buffer = null;
+            try {
+                if (m != null)
+                    m.close();
+            } catch (IOException ignore) {
+            } finally {
+                for (Run r : runs)
+                    deleteQuietly(r.file);
+                runs.clear();
+            }
+        }
+
+        private static void deleteQuietly(Path file) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
     /**
      * Abstract {@link Sink} for implementing sort on int streams.
      */
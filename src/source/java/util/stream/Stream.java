@@ -35,7 +35,9 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
@@ -391,6 +393,50 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> sorted(Comparator<? super T> comparator);
 
+    /**
+     * Returns a stream consisting of the elements of this stream, sorted
+     * according to the provided {@code Comparator}, buffering elements as
+     * directed by the provided {@link SortOptions}.
+     *
+     * <p>With {@link SortOptions#inMemory()} this method behaves as
+     * {@link #sorted(Comparator)}.  With {@link SortOptions#spillTo spillTo}
+     * options, sorted runs of elements are written to temporary files
+     * whenever the buffered elements exceed the memory budget, and the runs
+     * are merged lazily as the resulting stream is consumed, so that streams
+     * larger than the available memory can be sorted.  In that case elements
+     * must be {@link java.io.Serializable}, and the elements of the resulting
+     * stream are deserialized copies of the elements of this stream.  An
+     * {@link java.io.UncheckedIOException} is thrown if an element cannot be
+     * serialized or a run cannot be written or read.
+     *
+     * <p>For ordered streams, the sort is stable.  For unordered streams, no
+     * stability guarantees are made.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * When spilling, the upstream elements are consumed sequentially even
+     * if this stream is parallel, since the memory budget applies to the
+     * operation as a whole.
+     *
+     * @implSpec
+     * The default implementation ignores {@code options} and returns
+     * {@code sorted(comparator)}.
+     *
+     * @param comparator a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *                   <a href="package-summary.html#Statelessness">stateless</a>
+     *                   {@code Comparator} to be used to compare stream elements
+     * @param options the options controlling how elements are buffered
+     * @return the new stream
+     * @throws NullPointerException if {@code options} is null
+     * @since 1.8
+     */
+    default Stream<T> sorted(Comparator<? super T> comparator, SortOptions options) {
+        Objects.requireNonNull(options);
+        return sorted(comparator);
+    }
+
     /**
      * Returns a stream consisting of the elements of this stream, additionally
      * performing the provided action on each element as elements are consumed
@@ -516,6 +562,94 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     void forEachOrdered(Consumer<? super T> action);
 
+    /**
+     * Performs an action for each element of this stream, asynchronously
+     * using the given executor, with at most {@code parallelism} actions
+     * running or awaiting execution at any time.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">terminal
+     * operation</a>.  The stream is traversed by the calling thread, which
+     * submits the action for each element to the executor and blocks while
+     * {@code parallelism} actions are outstanding, so that upstream
+     * operations on later elements are pipelined with the actions on
+     * earlier ones.  The method returns once every element has been
+     * submitted; the returned future completes when all actions have.
+     * This stream is {@linkplain #close closed} once traversal ends, even
+     * if it ends early.
+     *
+     * <p>The behavior of this operation is explicitly nondeterministic: the
+     * actions are performed in no particular order and possibly concurrently.
+     * If an action throws an exception, or traversal of the stream fails, the
+     * returned future completes exceptionally with it, and actions not yet
+     * started are skipped.  If the calling thread is interrupted while
+     * waiting to submit an action, the future completes exceptionally with a
+     * {@link java.util.concurrent.CancellationException} and the thread's
+     * interrupt status is set.
+     *
+     * @param action a <a href="package-summary.html#NonInterference">
+     *               non-interfering</a> action to perform on the elements
+     * @param executor the executor to perform the actions
+     * @param parallelism the maximum number of outstanding actions
+     * @return a future completed when all actions have been performed
+     * @throws IllegalArgumentException if {@code parallelism} is not positive
+     * @since 1.8
+     */
+    default CompletableFuture<Void> asyncForEach(Consumer<? super T> action,
+                                                 Executor executor, int parallelism) {
+        return AsyncOps.forEach(this, action, executor, parallelism);
+    }
+
+    /**
+     * Applies a function to each element of this stream asynchronously using
+     * the given executor, and performs an action on the results in the
+     * encounter order of the stream, with at most {@code parallelism}
+     * elements in flight at any time.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">terminal
+     * operation</a>.  The stream is traversed by the calling thread, which
+     * blocks while {@code parallelism} elements are mapped or awaiting their
+     * action.  The mapper is applied to up to {@code parallelism} elements
+     * concurrently.  The action is performed by the executor one result at a
+     * time: performing the action for one element
+     * <a href="../concurrent/package-summary.html#MemoryVisibility"><i>happens-before</i></a>
+     * performing the action for subsequent elements.  The method returns
+     * once every element has been submitted; the returned future completes
+     * when all actions have been performed.  This stream is
+     * {@linkplain #close closed} once traversal ends, even if it ends early.
+     *
+     * <p>If the mapper or action throws an exception, the returned future
+     * completes exceptionally with a
+     * {@link java.util.concurrent.CompletionException} with it as its cause,
+     * no action is performed for later elements, and traversal stops.  If
+     * traversal of the stream fails, the future completes exceptionally with
+     * that exception once the actions already submitted are done.
+     *
+     * @apiNote
+     * This is useful when the per-element work is expensive but its results
+     * must be consumed in order, such as when writing them to a file:
+     * <pre>{@code
+     *     lines.asyncForEachOrdered(Record::parse, writer::write, pool, 8)
+     *          .join();
+     * }</pre>
+     *
+     * @param <R> the type of the results of the mapper
+     * @param mapper a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *               <a href="package-summary.html#Statelessness">stateless</a>
+     *               function to apply to each element
+     * @param action a <a href="package-summary.html#NonInterference">
+     *               non-interfering</a> action to perform on the results
+     * @param executor the executor to apply the mapper and perform the actions
+     * @param parallelism the maximum number of elements in flight
+     * @return a future completed when all actions have been performed
+     * @throws IllegalArgumentException if {@code parallelism} is not positive
+     * @since 1.8
+     */
+    default <R> CompletableFuture<Void> asyncForEachOrdered(Function<? super T, ? extends R> mapper,
+                                                            Consumer<? super R> action,
+                                                            Executor executor, int parallelism) {
+        return AsyncOps.forEachOrdered(this, mapper, action, executor, parallelism);
+    }
+
     /**
      * Returns an array containing the elements of this stream.
      *
@@ -28,6 +28,7 @@ import java.util.Comparator;
 import java.util.Objects;
 import java.util.Spliterator;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLongHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
@@ -1312,6 +1313,132 @@ class StreamSpliterators {
         public Comparator<? super T> getComparator() {
             return s.getComparator();
         }
+
+        /**
+         * A distinct spliterator over int elements, holding the elements
+         * seen as keys of a ConcurrentLongHashMap so that they are not boxed.
+         */
+        static final class OfInt implements Spliterator.OfInt, IntConsumer {
+            private final Spliterator.OfInt s;
+            private final ConcurrentLongHashMap<Boolean> seen;
+            // Temporary element, only used with tryAdvance
+            private int tmpSlot;
+
+            OfInt(Spliterator.OfInt s) {
+                this(s, new ConcurrentLongHashMap<>());
+            }
+
+            private OfInt(Spliterator.OfInt s, ConcurrentLongHashMap<Boolean> seen) {
+                this.s = s;
+                this.seen = seen;
+            }
+
+            @Override
+            public void accept(int t) {
+                this.tmpSlot = t;
+            }
+
+            @Override
+            public boolean tryAdvance(IntConsumer action) {
+                while (s.tryAdvance((IntConsumer) this)) {
+                    if (seen.putIfAbsent(tmpSlot, Boolean.TRUE) == null) {
+                        action.accept(tmpSlot);
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public void forEachRemaining(IntConsumer action) {
+                s.forEachRemaining((int t) -> {
+                    if (seen.putIfAbsent(t, Boolean.TRUE) == null) {
+                        action.accept(t);
+                    }
+                });
+            }
+
+            @Override
+            public Spliterator.OfInt trySplit() {
+                Spliterator.OfInt split = s.trySplit();
+                return (split != null) ? new DistinctSpliterator.OfInt(split, seen) : null;
+            }
+
+            @Override
+            public long estimateSize() {
+                return s.estimateSize();
+            }
+
+            @Override
+            public int characteristics() {
+                return (s.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED |
+                                                Spliterator.SORTED | Spliterator.ORDERED))
+                       | Spliterator.DISTINCT;
+            }
+        }
+
+        /**
+         * A distinct spliterator over long elements, holding the elements
+         * seen as keys of a ConcurrentLongHashMap so that they are not boxed.
+         */
+        static final class OfLong implements Spliterator.OfLong, LongConsumer {
+            private final Spliterator.OfLong s;
+            private final ConcurrentLongHashMap<Boolean> seen;
+            // Temporary element, only used with tryAdvance
+            private long tmpSlot;
+
+            OfLong(Spliterator.OfLong s) {
+                this(s, new ConcurrentLongHashMap<>());
+            }
+
+            private OfLong(Spliterator.OfLong s, ConcurrentLongHashMap<Boolean> seen) {
+                this.s = s;
+                this.seen = seen;
+            }
+
+            @Override
+            public void accept(long t) {
+                this.tmpSlot = t;
+            }
+
+            @Override
+            public boolean tryAdvance(LongConsumer action) {
+                while (s.tryAdvance((LongConsumer) this)) {
+                    if (seen.putIfAbsent(tmpSlot, Boolean.TRUE) == null) {
+                        action.accept(tmpSlot);
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public void forEachRemaining(LongConsumer action) {
+                s.forEachRemaining((long t) -> {
+                    if (seen.putIfAbsent(t, Boolean.TRUE) == null) {
+                        action.accept(t);
+                    }
+                });
+            }
+
+            @Override
+            public Spliterator.OfLong trySplit() {
+                Spliterator.OfLong split = s.trySplit();
+                return (split != null) ? new DistinctSpliterator.OfLong(split, seen) : null;
+            }
+
+            @Override
+            public long estimateSize() {
+                return s.estimateSize();
+            }
+
+            @Override
+            public int characteristics() {
+                return (s.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED |
+                                                Spliterator.SORTED | Spliterator.ORDERED))
+                       | Spliterator.DISTINCT;
+            }
+        }
     }
 
     /**
@@ -26,6 +26,9 @@ package java.util.stream;
 
 import java.util.Objects;
 import java.util.Spliterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
@@ -315,4 +318,70 @@ public final class StreamSupport {
                                          StreamOpFlag.fromCharacteristics(characteristics),
                                          parallel);
     }
+
+    /**
+     * Creates a new sequential {@code Stream} of the elements taken from a
+     * {@code BlockingQueue}, in the order they are taken, ending before the
+     * first element that is the same object as {@code endOfStream}.
+     *
+     * <p>Elements are removed from the queue with {@link BlockingQueue#take()}
+     * as they are needed by the stream pipeline, so that when the queue is
+     * bounded, the threads putting elements into it are held back by the
+     * pace of the pipeline.  The end marker is consumed but not included in
+     * the stream; it must be put into the queue after the last element.
+     *
+     * <p>If the thread traversing the stream is interrupted while waiting
+     * for an element, traversal fails with a
+     * {@link java.util.concurrent.CancellationException} and the thread's
+     * interrupt status is set.
+     *
+     * @param <T> the type of stream elements
+     * @param queue the queue to take elements from
+     * @param endOfStream the element marking the end of the stream
+     * @return a new sequential {@code Stream}
+     * @throws NullPointerException if {@code queue} or {@code endOfStream}
+     *         is null
+     * @since 1.8
+     */
+    public static <T> Stream<T> fromQueue(BlockingQueue<? extends T> queue, T endOfStream) {
+        return AsyncOps.fromQueue(queue, endOfStream);
+    }
+
+    /**
+     * Creates a new sequential {@code Stream} of the elements emitted by a
+     * producer running on the given executor, with backpressure.
+     *
+     * <p>Once the terminal operation of the stream pipeline commences, the
+     * producer is run by the executor and passed a {@code Consumer} through
+     * which it emits the elements of the stream in order; the stream ends
+     * when the producer returns.  Emitted elements are held in a buffer of
+     * {@code bufferSize} elements until the pipeline consumes them, and an
+     * emit blocks while the buffer is full, so the producer never runs more
+     * than {@code bufferSize} elements ahead of the pipeline.
+     *
+     * <p>If the producer throws an exception, traversal of the stream fails
+     * with a {@link java.util.concurrent.CompletionException} with it as its
+     * cause, after the elements emitted before it.  If the stream is closed
+     * before the producer has finished, the buffer is discarded and each
+     * subsequent emit throws a
+     * {@link java.util.concurrent.CancellationException}, as do emits by a
+     * producer that is interrupted while waiting.  A stream that is not
+     * fully traversed should therefore be closed, for example with a
+     * try-with-resources statement, so that its producer terminates.
+     *
+     * @param <T> the type of stream elements
+     * @param producer the function emitting the elements of the stream
+     * @param bufferSize the maximum number of elements emitted but not yet
+     *        consumed by the stream pipeline
+     * @param executor the executor used to run the producer
+     * @return a new sequential {@code Stream}
+     * @throws NullPointerException if {@code producer} or {@code executor}
+     *         is null
+     * @throws IllegalArgumentException if {@code bufferSize} is not positive
+     * @since 1.8
+     */
+    public static <T> Stream<T> fromProducer(Consumer<? super Consumer<? super T>> producer,
+                                             int bufferSize, Executor executor) {
+        return AsyncOps.fromProducer(producer, bufferSize, executor);
+    }
 }
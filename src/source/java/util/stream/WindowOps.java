@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Factory methods for transforming primitive streams into streams of
+ * fixed-size windows over their elements.
+ *
+ * <p>A window is an array holding {@code size} consecutive elements, and the
+ * starts of successive windows are {@code step} elements apart: windows are
+ * sliding when {@code step < size}, tumbling when {@code step == size}, and
+ * skip elements when {@code step > size}.  Only complete windows are
+ * produced.
+ *
+ * <p>Sequentially, the last {@code size} elements are kept in a ring buffer
+ * from which each window is copied as it completes.  In parallel, when the
+ * upstream is of known size and the whole output will be consumed, the
+ * elements are first collected into an array, from which the windows are
+ * then copied in parallel; this materializes the upstream.  Otherwise, when
+ * the upstream may be infinite or a later operation short-circuits, the
+ * windows are computed sequentially through the ring buffer as they are
+ * pulled by the downstream operations, which may still run in parallel.
+ *
+ * @since 1.8
+ */
+final class WindowOps {
+
+    private WindowOps() { }
+
+    /** Windows preserve order, but not size, sortedness or distinctness */
+    private static final int FLAGS =
+        StreamOpFlag.NOT_SIZED | StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT;
+
+    private static void checkArguments(int size, int step) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        if (step <= 0)
+            throw new IllegalArgumentException(Integer.toString(step));
+    }
+
+    /**
+     * Returns the number of complete windows over n elements, or -1 if n is
+     * unknown (negative).
+     */
+    static long windowCount(long n, int size, int step) {
+        if (n < 0)
+            return -1;
+        return (n < size) ? 0 : (n - size) / step + 1;
+    }
+
+    /**
+     * Returns a node of the given number of windows, computed in parallel.
+     * The element type is generic so that, when evaluating lazily, an
+     * {@code Object[]} from the default generator can hold the windows.
+     */
+    private static <W> Node<W> windows(int count, IntFunction<W[]> generator,
+                                       IntFunction<W> window) {
+        W[] windows = generator.apply(count);
+        Arrays.parallelSetAll(windows, window::apply);
+        return Nodes.node(windows);
+    }
+
+    /**
+     * Returns a spliterator over the windows of the output of the given
+     * helper, computed sequentially by the given window operation as they
+     * are pulled, rather than by collecting the upstream.
+     */
+    private static <T, W, P_IN> Spliterator<W> lazyWindows(AbstractPipeline<T, W, ?> op,
+                                                          PipelineHelper<W> helper,
+                                                          Spliterator<P_IN> spliterator) {
+        int flags = helper.getStreamAndOpFlags();
+        // The helper is the upstream stage, whose elements are of type T
+        @SuppressWarnings("unchecked")
+        Spliterator<T> upstream = (Spliterator<T>) (Spliterator<?>) helper.wrapSpliterator(spliterator);
+        return new WindowSpliterator<>(upstream, sink -> op.opWrapSink(flags, sink));
+    }
+
+    /**
+     * A spliterator over windows that pushes the elements of an upstream
+     * spliterator through the ring-buffer sink of a window operation, one at
+     * a time, until a window completes.
+     */
+    private static final class WindowSpliterator<T, W>
+            extends Spliterators.AbstractSpliterator<W> implements Sink<W> {
+        private final Spliterator<T> upstream;
+        private final Sink<T> sink;
+        private W next;     // the completed window, if not yet taken
+        private int state;  // 0 before begin, 1 after begin, 2 after end
+
+        WindowSpliterator(Spliterator<T> upstream,
+                          Function<Sink<W>, Sink<T>> wrap) {
+            super(Long.MAX_VALUE, upstream.characteristics() & Spliterator.ORDERED);
+            this.upstream = upstream;
+            this.sink = wrap.apply(this);
+        }
+
+        @Override
+        public void accept(W w) {
+            next = w;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super W> action) {
+            Objects.requireNonNull(action);
+            if (state == 0) {
+                state = 1;
+                sink.begin(-1);
+            }
+            while (next == null) {
+                if (state == 2)
+                    return false;
+                if (!upstream.tryAdvance(sink)) {
+                    state = 2;
+                    sink.end();
+                }
+            }
+            W w = next;
+            next = null;
+            action.accept(w);
+            return true;
+        }
+    }
+
+    /**
+     * Appends a "window" operation to the provided stream, and returns the
+     * new stream.
+     *
+     * @param upstream a stream with element type Integer
+     * @param size the number of elements in each window
+     * @param step the distance between the starts of successive windows
+     * @return the new stream
+     */
+    static Stream<int[]> makeInt(AbstractPipeline<?, Integer, ?> upstream,
+                                   int size, int step) {
+        checkArguments(size, step);
+        return new ReferencePipeline.StatefulOp<Integer, int[]>(upstream, StreamShape.INT_VALUE, FLAGS) {
+            @Override
+            Sink<Integer> opWrapSink(int flags, Sink<int[]> sink) {
+                return new Sink.ChainedInt<int[]>(sink) {
+                    // The last size elements, the latest at index (count - 1) % size
+                    int[] ring;
+                    long count;
+
+                    @Override
+                    public void begin(long n) {
+                        ring = new int[size];
+                        count = 0;
+                        downstream.begin(windowCount(n, size, step));
+                    }
+
+                    @Override
+                    public void end() {
+                        ring = null;
+                        downstream.end();
+                    }
+
+                    @Override
+                    public void accept(int t) {
+                        int[] r = ring;
+                        int i = (int) (count % size);
+                        r[i] = t;
+                        long c = ++count;
+                        if (c >= size && (c - size) % step == 0) {
+                            int[] w = new int[size];
+                            // The window starts at the oldest element, i + 1
+                            int head = size - 1 - i;
+                            System.arraycopy(r, i + 1, w, 0, head);
+                            System.arraycopy(r, 0, w, head, i + 1);
+                            downstream.accept(w);
+                        }
+                    }
+                };
+            }
+
+            @Override
+            <P_IN> Spliterator<int[]> opEvaluateParallelLazy(PipelineHelper<int[]> helper,
+                                                           Spliterator<P_IN> spliterator) {
+                // Collecting the upstream is worthwhile only if it is
+                // finite and all of the windows will be consumed
+                if (StreamOpFlag.SIZED.isKnown(helper.getStreamAndOpFlags()) &&
+                    !isShortCircuitingDownstream())
+                    return super.opEvaluateParallelLazy(helper, spliterator);
+                return lazyWindows(this, helper, spliterator);
+            }
+
+            @Override
+            <P_IN> Node<int[]> opEvaluateParallel(PipelineHelper<int[]> helper,
+                                                 Spliterator<P_IN> spliterator,
+                                                 IntFunction<int[][]> generator) {
+                // The helper is the upstream IntStream stage, whose output
+                // is collected into a primitive node
+                Node.OfInt n = (Node.OfInt) (Node<?>) helper.evaluate(spliterator, true, generator);
+                int[] array = n.asPrimitiveArray();
+                return windows((int) windowCount(array.length, size, step), generator, k -> {
+                    int from = k * step;
+                    return Arrays.copyOfRange(array, from, from + size);
+                });
+            }
+        };
+    }
+
+    /**
+     * Appends a "window" operation to the provided stream, and returns the
+     * new stream.
+     *
+     * @param upstream a stream with element type Long
+     * @param size the number of elements in each window
+     * @param step the distance between the starts of successive windows
+     * @return the new stream
+     */
+    static Stream<long[]> makeLong(AbstractPipeline<?, Long, ?> upstream,
+                                   int size, int step) {
+        checkArguments(size, step);
+        return new ReferencePipeline.StatefulOp<Long, long[]>(upstream, StreamShape.LONG_VALUE, FLAGS) {
+            @Override
+            Sink<Long> opWrapSink(int flags, Sink<long[]> sink) {
+                return new Sink.ChainedLong<long[]>(sink) {
+                    // The last size elements, the latest at index (count - 1) % size
+                    long[] ring;
+                    long count;
+
+                    @Override
+                    public void begin(long n) {
+                        ring = new long[size];
+                        count = 0;
+                        downstream.begin(windowCount(n, size, step));
+                    }
+
+                    @Override
+                    public void end() {
+                        ring = null;
+                        downstream.end();
+                    }
+
+                    @Override
+                    public void accept(long t) {
+                        long[] r = ring;
+                        int i = (int) (count % size);
+                        r[i] = t;
+                        long c = ++count;
+                        if (c >= size && (c - size) % step == 0) {
+                            long[] w = new long[size];
+                            // The window starts at the oldest element, i + 1
+                            int head = size - 1 - i;
+                            System.arraycopy(r, i + 1, w, 0, head);
+                            System.arraycopy(r, 0, w, head, i + 1);
+                            downstream.accept(w);
+                        }
+                    }
+                };
+            }
+
+            @Override
+            <P_IN> Spliterator<long[]> opEvaluateParallelLazy(PipelineHelper<long[]> helper,
+                                                           Spliterator<P_IN> spliterator) {
+                // Collecting the upstream is worthwhile only if it is
+                // finite and all of the windows will be consumed
+                if (StreamOpFlag.SIZED.isKnown(helper.getStreamAndOpFlags()) &&
+                    !isShortCircuitingDownstream())
+                    return super.opEvaluateParallelLazy(helper, spliterator);
+                return lazyWindows(this, helper, spliterator);
+            }
+
+            @Override
+            <P_IN> Node<long[]> opEvaluateParallel(PipelineHelper<long[]> helper,
+                                                 Spliterator<P_IN> spliterator,
+                                                 IntFunction<long[][]> generator) {
+                // The helper is the upstream LongStream stage, whose output
+                // is collected into a primitive node
+                Node.OfLong n = (Node.OfLong) (Node<?>) helper.evaluate(spliterator, true, generator);
+                long[] array = n.asPrimitiveArray();
+                return windows((int) windowCount(array.length, size, step), generator, k -> {
+                    int from = k * step;
+                    return Arrays.copyOfRange(array, from, from + size);
+                });
+            }
+        };
+    }
+
+    /**
+     * Appends a "window" operation to the provided stream, and returns the
+     * new stream.
+     *
+     * @param upstream a stream with element type Double
+     * @param size the number of elements in each window
+     * @param step the distance between the starts of successive windows
+     * @return the new stream
+     */
+    static Stream<double[]> makeDouble(AbstractPipeline<?, Double, ?> upstream,
+                                   int size, int step) {
+        checkArguments(size, step);
+        return new ReferencePipeline.StatefulOp<Double, double[]>(upstream, StreamShape.DOUBLE_VALUE, FLAGS) {
+            @Override
+            Sink<Double> opWrapSink(int flags, Sink<double[]> sink) {
+                return new Sink.ChainedDouble<double[]>(sink) {
+                    // The last size elements, the latest at index (count - 1) % size
+                    double[] ring;
+                    long count;
+
+                    @Override
+                    public void begin(long n) {
+                        ring = new double[size];
+                        count = 0;
+                        downstream.begin(windowCount(n, size, step));
+                    }
+
+                    @Override
+                    public void end() {
+                        ring = null;
+                        downstream.end();
+                    }
+
+                    @Override
+                    public void accept(double t) {
+                        double[] r = ring;
+                        int i = (int) (count % size);
+                        r[i] = t;
+                        long c = ++count;
+                        if (c >= size && (c - size) % step == 0) {
+                            double[] w = new double[size];
+                            // The window starts at the oldest element, i + 1
+                            int head = size - 1 - i;
+                            System.arraycopy(r, i + 1, w, 0, head);
+                            System.arraycopy(r, 0, w, head, i + 1);
+                            downstream.accept(w);
+                        }
+                    }
+                };
+            }
+
+            @Override
+            <P_IN> Spliterator<double[]> opEvaluateParallelLazy(PipelineHelper<double[]> helper,
+                                                           Spliterator<P_IN> spliterator) {
+                // Collecting the upstream is worthwhile only if it is
+                // finite and all of the windows will be consumed
+                if (StreamOpFlag.SIZED.isKnown(helper.getStreamAndOpFlags()) &&
+                    !isShortCircuitingDownstream())
+                    return super.opEvaluateParallelLazy(helper, spliterator);
+                return lazyWindows(this, helper, spliterator);
+            }
+
+            @Override
+            <P_IN> Node<double[]> opEvaluateParallel(PipelineHelper<double[]> helper,
+                                                 Spliterator<P_IN> spliterator,
+                                                 IntFunction<double[][]> generator) {
+                // The helper is the upstream DoubleStream stage, whose output
+                // is collected into a primitive node
+                Node.OfDouble n = (Node.OfDouble) (Node<?>) helper.evaluate(spliterator, true, generator);
+                double[] array = n.asPrimitiveArray();
+                return windows((int) windowCount(array.length, size, step), generator, k -> {
+                    int from = k * step;
+                    return Arrays.copyOfRange(array, from, from + size);
+                });
+            }
+        };
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2012, 2021, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package sun.util;
+
+import java.util.Arrays;
+
+/**
+ * Identity hash table from the elements of an indexed queue to
+ * their indices in the heap array.  Elements and indices are held
+ * in parallel arrays using linear probing, and slots[k] holds the
+ * table slot of the element at heap index k, so that moving an
+ * element during a sift updates its index without hashing it or
+ * boxing the index.  Removal uses backward-shift deletion, so no
+ * tombstones are needed.
+ *
+ * <p>This class is shared by {@link java.util.PriorityQueue} and {@link
+ * java.util.concurrent.PriorityBlockingQueue}, which reside in different
+ * packages; it is not part of the public API.  It is not thread-safe;
+ * the queues use it only under their own synchronization.
+ */
+public final class HeapPositions {
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private Object[] keys;   // power of two length; null marks an empty slot
+    private int[] indices;   // heap index of each key
+    private int[] slots;     // table slot of the element at each heap index
+    private int count;
+
+    /**
+     * Creates a table for a heap of the given initial capacity.
+     *
+     * @param capacity the initial capacity of the heap
+     */
+    public HeapPositions(int capacity) {
+        int n = 4;
+        while (n < MAXIMUM_CAPACITY && (n >>> 1) < capacity)
+            n <<= 1;
+        keys = new Object[n];
+        indices = new int[n];
+        slots = new int[Math.max(capacity, 1)];
+    }
+
+    private static int hash(Object x, int mask) {
+        int h = System.identityHashCode(x);
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Returns the heap index of x, or -1 if absent.
+     */
+    public int indexOf(Object x) {
+        if (x == null)
+            return -1;
+        Object[] ks = keys;
+        int mask = ks.length - 1;
+        for (int j = hash(x, mask); ; j = (j + 1) & mask) {
+            Object k = ks[j];
+            if (k == x)
+                return indices[j];
+            if (k == null)
+                return -1;
+        }
+    }
+
+    /**
+     * Adds x at heap index k, unless already present.
+     *
+     * @return {@code true} if x was added
+     */
+    public boolean add(Object x, int k) {
+        if (indexOf(x) >= 0)
+            return false;
+        reserve(k);
+        set(x, k, -1);
+        return true;
+    }
+
+    /**
+     * Prepares heap index k to receive an element not yet in the
+     * table.
+     */
+    public void reserve(int k) {
+        int[] sl = slots;
+        if (k >= sl.length)
+            slots = sl = Arrays.copyOf(sl, Math.max(k + 1, sl.length + (sl.length >>> 1)));
+        sl[k] = -1;
+    }
+
+    /**
+     * Records that x, held in table slot j, or not yet in the
+     * table if j is negative, is at heap index k.
+     */
+    public void set(Object x, int k, int j) {
+        if (j < 0)
+            j = insert(x);
+        indices[j] = k;
+        slots[k] = j;
+    }
+
+    /**
+     * Records that the element at heap index from is now at heap
+     * index to.
+     */
+    public void move(int from, int to) {
+        int j = slots[from];
+        indices[j] = to;
+        slots[to] = j;
+    }
+
+    /**
+     * Removes the element at heap index k.
+     */
+    public void remove(int k) {
+        Object[] ks = keys;
+        int[] ix = indices;
+        int mask = ks.length - 1;
+        int i = slots[k];
+        for (int j = (i + 1) & mask; ks[j] != null; j = (j + 1) & mask) {
+            // The key at j may fill the hole at i if i lies
+            // between its home slot and j
+            if (((j - hash(ks[j], mask)) & mask) >= ((j - i) & mask)) {
+                int h = ix[j];
+                ks[i] = ks[j];
+                ix[i] = h;
+                slots[h] = i;
+                i = j;
+            }
+        }
+        ks[i] = null;
+        --count;
+    }
+
+    /**
+     * Returns the table slot of the element at heap index k.
+     */
+    public int slotAt(int k) {
+        return slots[k];
+    }
+
+    /**
+     * Removes all elements.
+     */
+    public void clear() {
+        Arrays.fill(keys, null);
+        count = 0;
+    }
+
+    /**
+     * Adds x, known to be absent, returning its slot.
+     */
+    private int insert(Object x) {
+        if (count >= keys.length >>> 1) {
+            if (keys.length < MAXIMUM_CAPACITY)
+                resize();
+            else if (count >= MAXIMUM_CAPACITY - 1)
+                throw new IllegalStateException("Capacity exhausted");
+        }
+        Object[] ks = keys;
+        int mask = ks.length - 1;
+        int j = hash(x, mask);
+        while (ks[j] != null)
+            j = (j + 1) & mask;
+        ks[j] = x;
+        ++count;
+        return j;
+    }
+
+    /**
+     * Doubles the table, updating the slots of the elements.
+     */
+    private void resize() {
+        Object[] oldKeys = keys;
+        int[] oldIndices = indices, sl = slots;
+        int n = oldKeys.length << 1, mask = n - 1;
+        Object[] ks = new Object[n];
+        int[] ix = new int[n];
+        for (int i = 0; i < oldKeys.length; i++) {
+            Object x = oldKeys[i];
+            if (x != null) {
+                int j = hash(x, mask), k = oldIndices[i];
+                while (ks[j] != null)
+                    j = (j + 1) & mask;
+                ks[j] = x;
+                ix[j] = k;
+                sl[k] = j;
+            }
+        }
+        keys = ks;
+        indices = ix;
+    }
+}